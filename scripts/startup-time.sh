@@ -0,0 +1,33 @@
+#!/bin/sh
+# Measures the time from starting the JVM until the application answers HTTP requests, over several runs.
+#
+# Usage: scripts/startup-time.sh <runs> <java arguments...>
+# e.g.   scripts/startup-time.sh 5 -jar build/libs/spring-rest-dynamodb-example.jar
+#
+# Set PORT when the application does not listen on 8080.
+
+runs=$1
+shift
+port=${PORT:-8080}
+log=$(mktemp)
+total=0
+for run in $(seq 1 "$runs"); do
+  start=$(date +%s%N)
+  java "$@" > "$log" 2>&1 &
+  pid=$!
+  until curl -s -o /dev/null "http://localhost:$port/health"; do
+    if ! kill -0 $pid 2>/dev/null; then
+      echo "Application exited, see $log"
+      exit 1
+    fi
+    sleep 0.02
+  done
+  end=$(date +%s%N)
+  millis=$(( (end - start) / 1000000 ))
+  total=$((total + millis))
+  echo "Run $run: $millis ms, $(grep -o 'Started Application in [0-9.]* seconds' "$log")"
+  kill $pid
+  wait $pid 2>/dev/null
+done
+echo "Average: $((total / runs)) ms"
+rm -f "$log"
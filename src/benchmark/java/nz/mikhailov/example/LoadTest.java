@@ -0,0 +1,202 @@
+package nz.mikhailov.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test of customer reads against a running instance, for comparing execution modes.
+ * <p>
+ * Creates {@code --customers} customers, then runs {@code --concurrency} clients each reading random customers
+ * back to back for {@code --warmup} and then {@code --duration} seconds. Reports throughput and latency
+ * percentiles of the measured period and, with {@code --pid} of the server on Linux, its peak resident memory
+ * and thread count. Reads reach DynamoDB unless the server runs with {@code -DresponseCache.enabled=true}.
+ * <p>
+ * {@code ./gradlew loadTest -PloadTestArgs="--concurrency 400 --duration 30 --pid 1234"}
+ */
+public class LoadTest {
+
+  private final Map<String, String> options = new HashMap<>();
+  private final AtomicLong errors = new AtomicLong();
+  private volatile boolean measuring;
+  private volatile boolean running = true;
+
+  public static void main(String[] args) throws Exception {
+
+    new LoadTest(args).run();
+  }
+
+  private LoadTest(String[] args) {
+
+    options.put("url", "http://localhost:8080");
+    options.put("customers", "1000");
+    options.put("concurrency", "200");
+    options.put("warmup", "10");
+    options.put("duration", "30");
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+    }
+  }
+
+  private void run() throws Exception {
+
+    String url = options.get("url");
+    int customers = Integer.parseInt(options.get("customers"));
+    int concurrency = Integer.parseInt(options.get("concurrency"));
+    System.setProperty("http.maxConnections", String.valueOf(concurrency));
+
+    System.out.printf("Creating %d customers%n", customers);
+    for (int i = 0; i < customers; i++) {
+      create(url, name(i));
+    }
+
+    ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+    List<Future<long[]>> results = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++) {
+      results.add(clients.submit(() -> readLoop(url, customers)));
+    }
+    ProcessSampler sampler = options.containsKey("pid") ? new ProcessSampler(options.get("pid")) : null;
+
+    System.out.printf("Warming up for %s s with %d clients%n", options.get("warmup"), concurrency);
+    TimeUnit.SECONDS.sleep(Long.parseLong(options.get("warmup")));
+    measuring = true;
+    long start = System.nanoTime();
+    long stop = start + TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+    while (System.nanoTime() < stop) {
+      if (sampler != null) {
+        sampler.sample();
+      }
+      TimeUnit.MILLISECONDS.sleep(500);
+    }
+    measuring = false;
+    double seconds = (System.nanoTime() - start) / 1e9;
+    running = false;
+
+    long[] latencies = new long[0];
+    for (Future<long[]> result : results) {
+      long[] client = result.get();
+      int offset = latencies.length;
+      latencies = Arrays.copyOf(latencies, offset + client.length);
+      System.arraycopy(client, 0, latencies, offset, client.length);
+    }
+    clients.shutdown();
+    Arrays.sort(latencies);
+
+    System.out.printf("Requests:   %d in %.1f s, %d errors%n", latencies.length, seconds, errors.get());
+    System.out.printf("Throughput: %.0f requests/s%n", latencies.length / seconds);
+    System.out.printf("Latency:    p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+        percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+        percentile(latencies, 1.0));
+    if (sampler != null) {
+      System.out.printf("Server:     peak RSS %d MB, peak threads %d%n", sampler.peakRssKb / 1024, sampler.peakThreads);
+    }
+  }
+
+  private long[] readLoop(String url, int customers) {
+
+    long[] latencies = new long[1024];
+    int count = 0;
+    byte[] buffer = new byte[8192];
+    while (running) {
+      String name = name(ThreadLocalRandom.current().nextInt(customers));
+      long started = System.nanoTime();
+      try {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "/v1/customer/" + encode(name)).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+          while (body != null && body.read(buffer) >= 0) {
+            // drain the body so that the connection is kept alive
+          }
+        }
+        if (status != 200) {
+          errors.incrementAndGet();
+        }
+      } catch (IOException e) {
+        errors.incrementAndGet();
+      }
+      if (measuring) {
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = System.nanoTime() - started;
+      }
+    }
+    return Arrays.copyOf(latencies, count);
+  }
+
+  private void create(String url, String name) throws IOException {
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(url + "/v1/customer").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    try (OutputStream body = connection.getOutputStream()) {
+      body.write(("{\"name\":\"" + name + "\",\"address\":\"Seacombe Road, Wallasey, United Kingdom\"}")
+          .getBytes(StandardCharsets.UTF_8));
+    }
+    int status = connection.getResponseCode();
+    if (status != 201 && status != 409) {
+      throw new IOException("Could not create customer " + name + ", status " + status);
+    }
+    connection.disconnect();
+  }
+
+  private static String name(int i) {
+
+    return "Load Test Customer " + i;
+  }
+
+  private static String encode(String name) throws IOException {
+
+    return URLEncoder.encode(name, "UTF-8").replace("+", "%20");
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  private static class ProcessSampler {
+
+    private final String pid;
+    private long peakRssKb;
+    private long peakThreads;
+
+    ProcessSampler(String pid) {
+
+      this.pid = pid;
+    }
+
+    void sample() throws IOException {
+
+      for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"))) {
+        if (line.startsWith("VmRSS:")) {
+          peakRssKb = Math.max(peakRssKb, Long.parseLong(line.replaceAll("\\D", "")));
+        } else if (line.startsWith("Threads:")) {
+          peakThreads = Math.max(peakThreads, Long.parseLong(line.replaceAll("\\D", "")));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package nz.mikhailov.example.customer;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import nz.mikhailov.example.serialization.CustomerItemsSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of writing a scan page of customers as a Json list response:
+ * <ul>
+ * <li>{@code customers} - items mapped into {@link Customer} objects and serialized through bean introspection</li>
+ * <li>{@code afterburner} - the same with generated accessors</li>
+ * <li>{@code items} - items written straight from their attributes by {@link CustomerItemsSerializer}</li>
+ * </ul>
+ * Allocation per response is reported by the gc profiler as {@code gc.alloc.rate.norm}:
+ * <p>
+ * {@code ./gradlew benchmark -PjmhArgs="CustomerListSerializationBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerListSerializationBenchmark {
+
+  private static final OutputStream DISCARD = new OutputStream() {
+
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  };
+
+  @Param({"customers", "afterburner", "items"})
+  private String path;
+
+  @Param({"100", "1000"})
+  private int items;
+
+  private DynamoDBMapper dbMapper;
+  private ObjectMapper objectMapper;
+  private List<Map<String, AttributeValue>> page;
+
+  @Setup
+  public void setUp() {
+
+    dbMapper = new DynamoDBMapper(new AmazonDynamoDBClient());
+    objectMapper = new ObjectMapper();
+    if (path.equals("afterburner")) {
+      objectMapper.registerModule(new AfterburnerModule());
+    }
+    objectMapper.registerModule(new SimpleModule().addSerializer(new CustomerItemsSerializer()));
+    page = new ArrayList<>(items);
+    for (int i = 0; i < items; i++) {
+      Map<String, AttributeValue> item = new HashMap<>();
+      item.put("Name", new AttributeValue("Customer Number " + i));
+      item.put("Address", new AttributeValue(i + " Seacombe Road, Wallasey, Merseyside, United Kingdom"));
+      item.put("PhoneNumber", new AttributeValue("+44" + (1000000000L + i)));
+      page.add(item);
+    }
+  }
+
+  @Benchmark
+  public void list() throws Exception {
+
+    if (path.equals("items")) {
+      objectMapper.writeValue(DISCARD, new CustomerItems(null, null, new ScanResult().withItems(page)));
+    } else {
+      objectMapper.writeValue(DISCARD, dbMapper.marshallIntoObjects(Customer.class, page));
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package nz.mikhailov.example.encoding;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scans a customer table and reports the bytes and capacity units its items take as stored, in the plain encoding
+ * and in the compact one, to estimate what {@link CompactItemEncoding} saves before switching to it.
+ * <p>
+ * Capacity is counted per item as DynamoDB bills it: reads in 4 KB units, halved when eventually consistent, and
+ * writes in 1 KB units. Scans are billed on the total size of each page, so they save in proportion to the bytes.
+ * The read capacity DynamoDB reports consumed by the report's own scan is printed alongside.
+ * <p>
+ * {@code ./gradlew itemSizeReport -PitemSizeReportArgs="--endpoint http://localhost:8000 --compressionThresholdBytes 64"}
+ */
+public class ItemSizeReport {
+
+  private final Map<String, String> options = new HashMap<>();
+
+  public static void main(String[] args) throws Exception {
+
+    new ItemSizeReport(args).run();
+  }
+
+  private ItemSizeReport(String[] args) {
+
+    options.put("endpoint", "http://localhost:8000");
+    options.put("table", "Customer");
+    options.put("compressionThresholdBytes", "100");
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+    }
+  }
+
+  private void run() {
+
+    AmazonDynamoDBClient dynamoDB = new AmazonDynamoDBClient();
+    dynamoDB.setEndpoint(options.get("endpoint"));
+    CompactItemEncoding plain = new CompactItemEncoding(false, 0);
+    CompactItemEncoding compact = new CompactItemEncoding(true,
+        Integer.parseInt(options.get("compressionThresholdBytes")));
+    Totals stored = new Totals();
+    Totals plainTotals = new Totals();
+    Totals compactTotals = new Totals();
+    double consumedReadCapacity = 0;
+
+    ScanRequest request = new ScanRequest(options.get("table")).withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+    Map<String, AttributeValue> startKey = null;
+    do {
+      ScanResult page = dynamoDB.scan(request.withExclusiveStartKey(startKey));
+      if (page.getConsumedCapacity() != null && page.getConsumedCapacity().getCapacityUnits() != null) {
+        consumedReadCapacity += page.getConsumedCapacity().getCapacityUnits();
+      }
+      for (Map<String, AttributeValue> item : page.getItems()) {
+        stored.add(item);
+        plainTotals.add(plain.encode(item));
+        compactTotals.add(compact.encode(item));
+      }
+      startKey = page.getLastEvaluatedKey();
+    } while (startKey != null);
+    dynamoDB.shutdown();
+
+    System.out.printf("Items:    %d, scan consumed %.1f read capacity units%n", stored.items, consumedReadCapacity);
+    System.out.printf("%-9s %12s %10s %14s %14s %12s%n",
+        "", "bytes", "avg bytes", "get RCU (EC)", "get RCU (SC)", "put WCU");
+    stored.print("stored");
+    plainTotals.print("plain");
+    compactTotals.print("compact");
+    System.out.printf("Saved:    %.1f%% bytes, %.1f%% item read units, %.1f%% item write units against plain%n",
+        saved(plainTotals.bytes, compactTotals.bytes),
+        saved(plainTotals.strongReadUnits, compactTotals.strongReadUnits),
+        saved(plainTotals.writeUnits, compactTotals.writeUnits));
+  }
+
+  private static double saved(long before, long after) {
+
+    return before == 0 ? 0 : 100.0 * (before - after) / before;
+  }
+
+  private static class Totals {
+
+    private long items;
+    private long bytes;
+    private long strongReadUnits;
+    private long writeUnits;
+
+    void add(Map<String, AttributeValue> item) {
+
+      long size = CompactItemEncoding.sizeOf(item);
+      items++;
+      bytes += size;
+      strongReadUnits += Math.max(1, (size + 4095) / 4096);
+      writeUnits += Math.max(1, (size + 1023) / 1024);
+    }
+
+    void print(String encoding) {
+
+      System.out.printf("%-9s %12d %10.1f %14.1f %14d %12d%n", encoding, bytes, items == 0 ? 0.0 : (double) bytes / items,
+          strongReadUnits / 2.0, strongReadUnits, writeUnits);
+    }
+  }
+}
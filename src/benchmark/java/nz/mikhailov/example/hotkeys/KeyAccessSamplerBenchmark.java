@@ -0,0 +1,63 @@
+package nz.mikhailov.example.hotkeys;
+
+import nz.mikhailov.example.hotkeys.KeyAccessSampler.Operation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what recording a repository operation costs, from 4 threads at once, over keys drawn from a skewed
+ * distribution where a few customers take most accesses.
+ * <p>
+ * {@code ./gradlew benchmark -PjmhArgs="KeyAccessSamplerBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class KeyAccessSamplerBenchmark {
+
+  @Param({"0.01", "0.1", "1"})
+  private double sampleRate;
+
+  private KeyAccessSampler sampler;
+  private String[] keys;
+
+  @Setup
+  public void setUp() {
+
+    sampler = new KeyAccessSampler(sampleRate, 100, 10, 900, System::currentTimeMillis);
+    keys = new String[10000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = "Customer " + i;
+    }
+  }
+
+  @Benchmark
+  public void record() {
+
+    double uniform = ThreadLocalRandom.current().nextDouble();
+    sampler.record(Operation.READ, keys[(int) (keys.length * uniform * uniform * uniform)]);
+  }
+
+  @Benchmark
+  public HotKeyReport report() {
+
+    return sampler.report(900, 20);
+  }
+}
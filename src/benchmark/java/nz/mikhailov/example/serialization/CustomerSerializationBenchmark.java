@@ -0,0 +1,101 @@
+package nz.mikhailov.example.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import nz.mikhailov.example.customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encode and decode cost of the customer representations offered through content negotiation.
+ * Encoded sizes are printed once per trial, as bytes on the wire are not a timing.
+ * <p>
+ * {@code ./gradlew benchmark -PjmhArgs="CustomerSerializationBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerSerializationBenchmark {
+
+  @Param({"json", "smile", "cbor"})
+  private String format;
+
+  @Param({"1", "1000"})
+  private int items;
+
+  private ObjectMapper objectMapper;
+  private Object payload;
+  private JavaType payloadType;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() throws Exception {
+
+    objectMapper = new ObjectMapper(factory(format));
+    List<Customer> customers = customers(items);
+    if (items == 1) {
+      payload = customers.get(0);
+      payloadType = objectMapper.constructType(Customer.class);
+    } else {
+      payload = customers;
+      payloadType = objectMapper.getTypeFactory().constructCollectionType(List.class, Customer.class);
+    }
+    encoded = objectMapper.writeValueAsBytes(payload);
+    System.out.printf("%n%s, %d customers: %d bytes%n", format, items, encoded.length);
+  }
+
+  @Benchmark
+  public byte[] encode() throws Exception {
+
+    return objectMapper.writeValueAsBytes(payload);
+  }
+
+  @Benchmark
+  public Object decode() throws Exception {
+
+    return objectMapper.readValue(encoded, payloadType);
+  }
+
+  static List<Customer> customers(int count) {
+
+    List<Customer> customers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      customers.add(new Customer()
+          .withName("Customer Number " + i)
+          .withAddress(i + " Seacombe Road, Wallasey, Merseyside, United Kingdom")
+          .withPhoneNumber("+44" + (1000000000L + i)));
+    }
+    return customers;
+  }
+
+  private static JsonFactory factory(String format) {
+
+    switch (format) {
+      case "smile":
+        return new SmileFactory();
+      case "cbor":
+        return new CBORFactory();
+      default:
+        return new JsonFactory();
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package nz.mikhailov.example.customer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import nz.mikhailov.example.Application;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,16 +12,23 @@ import org.springframework.boot.test.TestRestTemplate;
 import org.springframework.boot.test.WebIntegrationTest;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static java.util.Arrays.asList;
 import static java.util.UUID.randomUUID;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
+import static nz.mikhailov.example.serialization.BinaryFormatsConfiguration.APPLICATION_CBOR;
+import static nz.mikhailov.example.serialization.BinaryFormatsConfiguration.APPLICATION_SMILE;
 import static org.junit.Assert.assertThat;
 import static org.springframework.http.HttpMethod.DELETE;
 import static org.springframework.http.HttpMethod.PATCH;
@@ -29,6 +39,8 @@ import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.ALL;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(Application.class)
@@ -165,6 +177,78 @@ public class CustomerIntegrationTest {
     assertThat(result.getStatusCode(), is(NO_CONTENT));
   }
 
+  @Test
+  public void getByNameShouldRespondWithJsonByDefault() throws Exception {
+
+    String customerName = randomUUID().toString();
+    restTemplate.postForEntity(url("/v1/customer"), new Customer().withName(customerName), Customer.class);
+    RequestEntity<Void> request = RequestEntity.get(url("/v1/customer/" + customerName)).accept(ALL).build();
+    ResponseEntity<byte[]> result = restTemplate.exchange(request, byte[].class);
+    assertThat(result.getHeaders().getContentType().isCompatibleWith(APPLICATION_JSON), is(true));
+  }
+
+  @Test
+  public void getShouldRespondWithSmileWhenRequested() throws Exception {
+
+    Customer customer = new Customer().withName(randomUUID().toString()).withAddress("Seacombe, United Kingdom");
+    restTemplate.postForEntity(url("/v1/customer"), customer, Customer.class);
+    RequestEntity<Void> request = RequestEntity.get(url("/v1/customer")).accept(APPLICATION_SMILE).build();
+    ResponseEntity<byte[]> result = restTemplate.exchange(request, byte[].class);
+    assertThat(result.getStatusCode(), is(OK));
+    assertThat(result.getHeaders().getContentType().isCompatibleWith(APPLICATION_SMILE), is(true));
+    Customer[] customers = new ObjectMapper(new SmileFactory()).readValue(result.getBody(), Customer[].class);
+    assertThat(asList(customers), hasItems(customer));
+  }
+
+  @Test
+  public void postShouldAcceptCborAndRespondWithCbor() throws Exception {
+
+    Customer customer = new Customer().withName(randomUUID().toString()).withPhoneNumber("+440000000");
+    ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    RequestEntity<byte[]> request = RequestEntity.post(url("/v1/customer"))
+        .contentType(APPLICATION_CBOR)
+        .accept(APPLICATION_CBOR)
+        .body(cbor.writeValueAsBytes(customer));
+    ResponseEntity<byte[]> result = restTemplate.exchange(request, byte[].class);
+    assertThat(result.getStatusCode(), is(CREATED));
+    assertThat(cbor.readValue(result.getBody(), Customer.class), is(equalTo(customer)));
+  }
+
+  @Test
+  public void exportShouldStreamCustomersAsNewlineDelimitedJson() throws Exception {
+
+    Customer customer = new Customer().withName(randomUUID().toString()).withAddress("Wallasey, United Kingdom");
+    restTemplate.postForEntity(url("/v1/customer"), customer, Customer.class);
+    ResponseEntity<String> result = restTemplate.getForEntity(url("/v1/customer/export"), String.class);
+    assertThat(result.getStatusCode(), is(OK));
+    assertThat(result.getBody().endsWith("\n"), is(true));
+    ObjectMapper json = new ObjectMapper();
+    List<Customer> customers = new ArrayList<>();
+    for (String line : result.getBody().split("\n")) {
+      customers.add(json.readValue(line, Customer.class));
+    }
+    assertThat(customers, hasItems(customer));
+  }
+
+  @Test
+  public void getShouldCompressLargeListsForClientsAcceptingGzip() throws Exception {
+
+    for (int i = 0; i < 30; i++) {
+      restTemplate.postForEntity(url("/v1/customer"), new Customer().withName(randomUUID().toString())
+          .withAddress("Seacombe Road, Wallasey, Merseyside, United Kingdom"), Customer.class);
+    }
+    RequestEntity<Void> request = RequestEntity.get(url("/v1/customer")).header("Accept-Encoding", "gzip").build();
+    // HttpComponents would decompress transparently, hiding the Content-Encoding header
+    RestTemplate plainRestTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+    for (int i = 0; i < 2; i++) {
+      ResponseEntity<byte[]> result = plainRestTemplate.exchange(request, byte[].class);
+      assertThat(result.getStatusCode(), is(OK));
+      assertThat(result.getHeaders().getFirst("Content-Encoding"), is("gzip"));
+      Customer[] customers = new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream(result.getBody())), Customer[].class);
+      assertThat(customers.length >= 30, is(true));
+    }
+  }
+
   private URI url(String url) {
 
     return URI.create("http://localhost:" + port + url);
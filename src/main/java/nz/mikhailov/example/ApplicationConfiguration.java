@@ -1,15 +1,37 @@
 package nz.mikhailov.example;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreamsClient;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+import nz.mikhailov.example.healthcheck.DynamoDbClientMetrics;
+import nz.mikhailov.example.quota.QuotaCapacityHandler;
+import nz.mikhailov.example.routing.EndpointRouter;
+import nz.mikhailov.example.routing.RoutingDynamoDbClient;
+import nz.mikhailov.example.tracing.DynamoDbTracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
+@EnableScheduling
 public class ApplicationConfiguration {
 
   private final static String DYNAMODB_ENDPOINT_DEFAULT_VALUE = "http://localhost:8000";
@@ -19,21 +41,80 @@ public class ApplicationConfiguration {
   @Value("${dynamoDbEndpoint:" + DYNAMODB_ENDPOINT_DEFAULT_VALUE + "}")
   private String dynamoDbEndpoint;
 
+  @Value("${dynamoDbReplicaEndpoints:}")
+  private String[] dynamoDbReplicaEndpoints;
+
+  @Value("${dynamoDbStreamsEndpoint:${dynamoDbEndpoint:" + DYNAMODB_ENDPOINT_DEFAULT_VALUE + "}}")
+  private String dynamoDbStreamsEndpoint;
+
+  @Value("${dynamoDb.maxConnections:" + ClientConfiguration.DEFAULT_MAX_CONNECTIONS + "}")
+  private int dynamoDbMaxConnections;
+
+  @Value("${scheduler.poolSize:4}")
+  private int schedulerPoolSize;
+
+  /**
+   * With {@code dynamoDbReplicaEndpoints}, reads are routed between {@code dynamoDbEndpoint} and the replicas,
+   * while writes go to {@code dynamoDbEndpoint} only.
+   */
   @Bean
-  public AmazonDynamoDB amazonDynamoDb() {
+  public AmazonDynamoDB amazonDynamoDb(DynamoDbClientMetrics metrics, DynamoDbTracing tracing,
+                                       QuotaCapacityHandler quotaCapacity, EndpointRouter router) {
 
     log.trace("Entering amazonDynamoDb()");
-    AmazonDynamoDB client = new AmazonDynamoDBClient();
-    log.info("Using DynamoDb endpoint {}", dynamoDbEndpoint);
-    client.setEndpoint(dynamoDbEndpoint);
+    List<RequestHandler2> handlers = Arrays.asList(tracing, quotaCapacity);
+    AmazonDynamoDB primary = amazonDynamoDb(dynamoDbEndpoint, metrics, handlers);
+    if (dynamoDbReplicaEndpoints.length == 0) {
+      return primary;
+    }
+    Map<String, AmazonDynamoDB> clients = new LinkedHashMap<>();
+    clients.put(dynamoDbEndpoint, primary);
+    for (String endpoint : dynamoDbReplicaEndpoints) {
+      clients.put(endpoint.trim(), amazonDynamoDb(endpoint.trim(), metrics, handlers));
+    }
+    log.info("Routing reads between DynamoDb endpoints {}, writing to {}", clients.keySet(), dynamoDbEndpoint);
+    return RoutingDynamoDbClient.create(clients, dynamoDbEndpoint, router);
+  }
+
+  private AmazonDynamoDB amazonDynamoDb(String endpoint, DynamoDbClientMetrics metrics,
+                                        List<RequestHandler2> handlers) {
+
+    AmazonDynamoDBClient client = new AmazonDynamoDBClient(new DefaultAWSCredentialsProviderChain(),
+        new ClientConfiguration().withMaxConnections(dynamoDbMaxConnections), metrics);
+    handlers.forEach(client::addRequestHandler);
+    log.info("Using DynamoDb endpoint {} with up to {} connections", endpoint, dynamoDbMaxConnections);
+    client.setEndpoint(endpoint);
     return client;
   }
 
+  /**
+   * Saves replace whole items, so that items written in another {@link CompactItemEncoding encoding} keep no
+   * attributes under their previous names.
+   */
   @Bean
-  public DynamoDBMapper dynamoDbMapper(AmazonDynamoDB amazonDynamoDB) {
+  public DynamoDBMapper dynamoDbMapper(AmazonDynamoDB amazonDynamoDB, CompactItemEncoding encoding) {
 
     log.trace("Entering dynamoDbMapper()");
-    return new DynamoDBMapper(amazonDynamoDB);
+    return new DynamoDBMapper(amazonDynamoDB, new DynamoDBMapperConfig(SaveBehavior.CLOBBER), encoding);
+  }
+
+  @Bean
+  public AmazonDynamoDBStreams amazonDynamoDbStreams() {
+
+    log.trace("Entering amazonDynamoDbStreams()");
+    AmazonDynamoDBStreams client = new AmazonDynamoDBStreamsClient();
+    client.setEndpoint(dynamoDbStreamsEndpoint);
+    return client;
+  }
+
+  @Bean
+  public TaskScheduler taskScheduler() {
+
+    log.trace("Entering taskScheduler()");
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(schedulerPoolSize);
+    scheduler.setThreadNamePrefix("scheduler-");
+    return scheduler;
   }
 
 }
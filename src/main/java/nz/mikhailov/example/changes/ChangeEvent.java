@@ -0,0 +1,50 @@
+package nz.mikhailov.example.changes;
+
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+
+/**
+ * Single entry of the customer change feed, serialised as the data of a server-sent event.
+ */
+public class ChangeEvent {
+
+  private final long id;
+  private final CustomerEvent.Type type;
+  private final String name;
+  private final Customer customer;
+  private final long timestamp;
+
+  public ChangeEvent(long id, CustomerEvent.Type type, String name, Customer customer, long timestamp) {
+
+    this.id = id;
+    this.type = type;
+    this.name = name;
+    this.customer = customer;
+    this.timestamp = timestamp;
+  }
+
+  public long getId() {
+
+    return id;
+  }
+
+  public CustomerEvent.Type getType() {
+
+    return type;
+  }
+
+  public String getName() {
+
+    return name;
+  }
+
+  public Customer getCustomer() {
+
+    return customer;
+  }
+
+  public long getTimestamp() {
+
+    return timestamp;
+  }
+}
@@ -0,0 +1,33 @@
+package nz.mikhailov.example.changes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/v1")
+public class CustomerChangeController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${changeFeed.emitterTimeoutMillis:1800000}")
+  private long emitterTimeoutMillis;
+
+  @Autowired
+  private CustomerChangeFeed feed;
+
+  @RequestMapping(path = "/customer/changes", method = RequestMethod.GET, produces = "text/event-stream")
+  public SseEmitter changes(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+
+    log.trace("Entering changes() with {}", lastEventId);
+    SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+    feed.subscribe(emitter, lastEventId);
+    return emitter;
+  }
+}
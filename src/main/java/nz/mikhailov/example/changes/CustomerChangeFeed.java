@@ -0,0 +1,171 @@
+package nz.mikhailov.example.changes;
+
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.web.servlet.mvc.method.annotation.SseEmitter.event;
+
+/**
+ * Fans customer changes out to server-sent event subscribers and keeps a bounded buffer of recent
+ * changes so that reconnecting clients can resume from their {@code Last-Event-ID}.
+ * <p>
+ * All deliveries happen on a single broadcaster thread, which keeps events ordered per subscriber
+ * and keeps slow clients off the request threads performing the writes.
+ */
+@Component
+public class CustomerChangeFeed {
+
+  static final String RESET_EVENT_NAME = "reset";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${changeFeed.replayBufferSize:1000}")
+  private int replayBufferSize;
+
+  @Autowired
+  private DynamoDbStreamChangeSource streamSource;
+
+  private final ArrayDeque<ChangeEvent> replayBuffer = new ArrayDeque<>();
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final ExecutorService broadcaster = Executors.newSingleThreadExecutor(broadcasterThreadFactory());
+
+  /**
+   * Identifiers start from the wall clock so that identifiers handed out by a previous process
+   * are always older than anything in the replay buffer of the current one.
+   */
+  private long lastEventId = System.currentTimeMillis() * 1000;
+
+  @EventListener
+  public void onCustomerEvent(CustomerEvent event) {
+
+    if (event.isLocal() && streamSource.isActive()) {
+      // the change stream delivers local writes as well, publishing both would duplicate them
+      return;
+    }
+    ChangeEvent change;
+    synchronized (replayBuffer) {
+      change = new ChangeEvent(++lastEventId, event.getType(), event.getName(), event.getCustomer(),
+          System.currentTimeMillis());
+      replayBuffer.addLast(change);
+      while (replayBuffer.size() > replayBufferSize) {
+        replayBuffer.removeFirst();
+      }
+    }
+    broadcaster.execute(() -> subscribers.forEach(subscriber -> subscriber.deliver(change)));
+  }
+
+  /**
+   * Registers the emitter for future changes, first replaying buffered changes newer than
+   * {@code lastEventId}. When the requested position cannot be resumed from the buffer
+   * a {@value #RESET_EVENT_NAME} event tells the client to reload its full state.
+   */
+  public void subscribe(SseEmitter emitter, Long lastEventId) {
+
+    log.trace("Entering subscribe() with {}", lastEventId);
+    Subscriber subscriber = new Subscriber(emitter);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    broadcaster.execute(() -> {
+      if (lastEventId != null) {
+        List<ChangeEvent> replay = new ArrayList<>();
+        boolean gap;
+        synchronized (replayBuffer) {
+          // an identifier we never handed out (another instance, previous process) cannot be resumed either
+          gap = lastEventId > this.lastEventId || (replayBuffer.isEmpty() ?
+              lastEventId < this.lastEventId :
+              lastEventId < replayBuffer.peekFirst().getId() - 1);
+          replayBuffer.stream()
+              .filter(change -> change.getId() > lastEventId)
+              .forEach(replay::add);
+        }
+        if (gap) {
+          subscriber.reset();
+        }
+        replay.forEach(subscriber::deliver);
+      }
+      if (subscriber.isOpen()) {
+        subscribers.add(subscriber);
+      }
+    });
+  }
+
+  public int getSubscriberCount() {
+
+    return subscribers.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    broadcaster.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+  }
+
+  private static CustomizableThreadFactory broadcasterThreadFactory() {
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("customer-change-feed-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+
+  private class Subscriber {
+
+    private final SseEmitter emitter;
+    private long lastSentId;
+    private boolean open = true;
+
+    Subscriber(SseEmitter emitter) {
+
+      this.emitter = emitter;
+    }
+
+    void deliver(ChangeEvent change) {
+
+      if (!open || change.getId() <= lastSentId) {
+        return;
+      }
+      send(event()
+          .id(String.valueOf(change.getId()))
+          .name(change.getType().name())
+          .data(change));
+      lastSentId = change.getId();
+    }
+
+    void reset() {
+
+      send(event().name(RESET_EVENT_NAME).data(RESET_EVENT_NAME));
+    }
+
+    boolean isOpen() {
+
+      return open;
+    }
+
+    private void send(SseEmitter.SseEventBuilder builder) {
+
+      try {
+        emitter.send(builder);
+      } catch (IOException | IllegalStateException e) {
+        log.debug("Dropping change feed subscriber: {}", e.getMessage());
+        open = false;
+        subscribers.remove(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package nz.mikhailov.example.changes;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpiredIteratorException;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tails the DynamoDB stream of the Customer table and republishes its records as non-local
+ * {@link CustomerEvent}s, so that changes made through other instances reach this instance's subscribers.
+ * Disabled unless {@code changeFeed.streamsEnabled} is set, and turns itself off when the table has no stream.
+ */
+@Component
+public class DynamoDbStreamChangeSource {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${changeFeed.streamsEnabled:false}")
+  private volatile boolean streamsEnabled;
+
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private AmazonDynamoDBStreams streams;
+
+  @Autowired
+  private DynamoDBMapper dbMapper;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  private volatile String streamArn;
+  private final Map<String, String> shardIterators = new LinkedHashMap<>();
+  private final Set<String> completedShards = new HashSet<>();
+
+  /**
+   * @return whether the stream is being tailed, so that writes made through this instance are published from it
+   * as well as locally
+   */
+  public boolean isActive() {
+
+    return streamsEnabled && streamArn != null;
+  }
+
+  @Scheduled(fixedDelayString = "${changeFeed.streamsPollIntervalMillis:1000}")
+  public void poll() {
+
+    if (!streamsEnabled) {
+      return;
+    }
+    try {
+      if (streamArn == null && !resolveStream()) {
+        return;
+      }
+      discoverShards();
+      for (String shardId : new ArrayList<>(shardIterators.keySet())) {
+        readShard(shardId);
+      }
+    } catch (AmazonClientException e) {
+      log.warn("Failed to poll customer change stream: {}", e.getMessage());
+    }
+  }
+
+  private boolean resolveStream() {
+
+    String tableName = dbMapper.generateCreateTableRequest(Customer.class).getTableName();
+    streamArn = dynamoDB.describeTable(tableName).getTable().getLatestStreamArn();
+    if (streamArn == null) {
+      log.warn("Table {} has no stream enabled, changes from other instances will not be published", tableName);
+      streamsEnabled = false;
+      return false;
+    }
+    log.info("Tailing customer change stream {}", streamArn);
+    // shards open right now are read from their tip, history before startup is not replayed
+    for (Shard shard : describeShards()) {
+      if (shard.getSequenceNumberRange().getEndingSequenceNumber() == null) {
+        shardIterators.put(shard.getShardId(), shardIterator(shard.getShardId(), ShardIteratorType.LATEST));
+      } else {
+        completedShards.add(shard.getShardId());
+      }
+    }
+    return true;
+  }
+
+  private void discoverShards() {
+
+    for (Shard shard : describeShards()) {
+      String shardId = shard.getShardId();
+      if (!shardIterators.containsKey(shardId) && !completedShards.contains(shardId)) {
+        shardIterators.put(shardId, shardIterator(shardId, ShardIteratorType.TRIM_HORIZON));
+      }
+    }
+  }
+
+  private List<Shard> describeShards() {
+
+    List<Shard> shards = new ArrayList<>();
+    String lastShardId = null;
+    do {
+      StreamDescription description = streams.describeStream(new DescribeStreamRequest()
+          .withStreamArn(streamArn)
+          .withExclusiveStartShardId(lastShardId))
+          .getStreamDescription();
+      shards.addAll(description.getShards());
+      lastShardId = description.getLastEvaluatedShardId();
+    } while (lastShardId != null);
+    return shards;
+  }
+
+  private String shardIterator(String shardId, ShardIteratorType type) {
+
+    return streams.getShardIterator(new GetShardIteratorRequest()
+        .withStreamArn(streamArn)
+        .withShardId(shardId)
+        .withShardIteratorType(type))
+        .getShardIterator();
+  }
+
+  private void readShard(String shardId) {
+
+    GetRecordsResult result;
+    try {
+      result = streams.getRecords(new GetRecordsRequest().withShardIterator(shardIterators.get(shardId)));
+    } catch (ExpiredIteratorException e) {
+      log.warn("Shard iterator expired for {}, continuing from the shard tip", shardId);
+      shardIterators.put(shardId, shardIterator(shardId, ShardIteratorType.LATEST));
+      return;
+    }
+    result.getRecords().forEach(this::publish);
+    if (result.getNextShardIterator() == null) {
+      shardIterators.remove(shardId);
+      completedShards.add(shardId);
+    } else {
+      shardIterators.put(shardId, result.getNextShardIterator());
+    }
+  }
+
+  private void publish(Record record) {
+
+    Customer customer = toCustomer(record.getDynamodb().getNewImage());
+    Customer previous = toCustomer(record.getDynamodb().getOldImage());
+    CustomerEvent.Type type;
+    switch (record.getEventName()) {
+      case "INSERT":
+        type = CustomerEvent.Type.CREATED;
+        break;
+      case "MODIFY":
+        type = CustomerEvent.Type.UPDATED;
+        break;
+      default:
+        type = CustomerEvent.Type.DELETED;
+    }
+    String name = record.getDynamodb().getKeys().get("Name").getS();
+    eventPublisher.publishEvent(new CustomerEvent(type, name, customer, previous, false));
+  }
+
+  private Customer toCustomer(Map<String, AttributeValue> image) {
+
+    return image == null ? null : dbMapper.marshallIntoObject(Customer.class, image);
+  }
+}
@@ -0,0 +1,40 @@
+package nz.mikhailov.example.compression;
+
+/**
+ * Successful response body held by {@link CompressedResponseCache}, gzip compressed unless it was too small to benefit.
+ */
+class CachedResponse {
+
+  private final String contentType;
+  private final byte[] body;
+  private final boolean compressed;
+  private final long storedAt;
+
+  CachedResponse(String contentType, byte[] body, boolean compressed, long storedAt) {
+
+    this.contentType = contentType;
+    this.body = body;
+    this.compressed = compressed;
+    this.storedAt = storedAt;
+  }
+
+  String getContentType() {
+
+    return contentType;
+  }
+
+  byte[] getBody() {
+
+    return body;
+  }
+
+  boolean isCompressed() {
+
+    return compressed;
+  }
+
+  long getStoredAt() {
+
+    return storedAt;
+  }
+}
@@ -0,0 +1,127 @@
+package nz.mikhailov.example.compression;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Passes the response body through while keeping a copy of it, as long as it stays within a size limit.
+ * Unlike {@link org.springframework.web.util.ContentCachingResponseWrapper} nothing is held back from the client,
+ * so streamed responses keep streaming.
+ */
+class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+  private final int maxCapturedBytes;
+  private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+  private ServletOutputStream outputStream;
+  private PrintWriter writer;
+
+  CapturingResponseWrapper(HttpServletResponse response, int maxCapturedBytes) {
+
+    super(response);
+    this.maxCapturedBytes = maxCapturedBytes;
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+
+    if (outputStream == null) {
+      outputStream = new CapturingOutputStream(super.getOutputStream());
+    }
+    return outputStream;
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+
+    if (writer == null) {
+      writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+    }
+    return writer;
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+
+    if (writer != null) {
+      writer.flush();
+    }
+    super.flushBuffer();
+  }
+
+  /**
+   * @return the complete body written so far, or {@code null} if it exceeded the size limit
+   */
+  byte[] getCapturedBody() {
+
+    if (writer != null) {
+      writer.flush();
+    }
+    return captured == null ? null : captured.toByteArray();
+  }
+
+  private boolean hasRoomFor(int length) {
+
+    if (captured != null && captured.size() + length > maxCapturedBytes) {
+      captured = null;
+    }
+    return captured != null;
+  }
+
+  private class CapturingOutputStream extends ServletOutputStream {
+
+    private final ServletOutputStream target;
+
+    CapturingOutputStream(ServletOutputStream target) {
+
+      this.target = target;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+      target.write(b);
+      if (hasRoomFor(1)) {
+        captured.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+      target.write(bytes, offset, length);
+      if (hasRoomFor(length)) {
+        captured.write(bytes, offset, length);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+      target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+      target.close();
+    }
+
+    @Override
+    public boolean isReady() {
+
+      return target.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+
+      target.setWriteListener(writeListener);
+    }
+  }
+}
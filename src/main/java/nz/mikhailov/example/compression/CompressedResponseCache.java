@@ -0,0 +1,97 @@
+package nz.mikhailov.example.compression;
+
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-process cache of customer read responses by path and representation.
+ * <p>
+ * Entries are invalidated by customer events: a change drops the list and the changed customer.
+ * Without the DynamoDB stream enabled, changes made through other instances are not seen,
+ * so entries also expire after {@code responseCache.ttlMillis}. The least recently used path is evicted
+ * once {@code responseCache.maxEntries} paths are cached.
+ * <p>
+ * Stores are tagged with the generation read before the response was produced, and dropped if any change
+ * was seen since, so that a response racing with a write is never cached.
+ */
+@Component
+public class CompressedResponseCache {
+
+  static final String LIST_PATH = "/v1/customer";
+
+  @Value("${responseCache.maxEntries:1000}")
+  private int maxEntries;
+
+  @Value("${responseCache.ttlMillis:60000}")
+  private long ttlMillis;
+
+  private final Map<String, Map<String, CachedResponse>> responses =
+      new LinkedHashMap<String, Map<String, CachedResponse>>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, CachedResponse>> eldest) {
+
+          return size() > maxEntries;
+        }
+      };
+
+  private long generation;
+
+  CachedResponse get(String path, String variant) {
+
+    synchronized (responses) {
+      Map<String, CachedResponse> variants = responses.get(path);
+      if (variants == null) {
+        return null;
+      }
+      CachedResponse response = variants.get(variant);
+      if (response != null && System.currentTimeMillis() - response.getStoredAt() > ttlMillis) {
+        variants.remove(variant);
+        return null;
+      }
+      return response;
+    }
+  }
+
+  void put(String path, String variant, CachedResponse response, long generation) {
+
+    synchronized (responses) {
+      if (generation != this.generation) {
+        return;
+      }
+      responses.computeIfAbsent(path, key -> new HashMap<>()).put(variant, response);
+    }
+  }
+
+  long generation() {
+
+    synchronized (responses) {
+      return generation;
+    }
+  }
+
+  @EventListener
+  public void onCustomerEvent(CustomerEvent event) {
+
+    synchronized (responses) {
+      generation++;
+      responses.remove(LIST_PATH);
+      responses.remove(LIST_PATH + "/" + event.getName());
+    }
+  }
+
+  public int size() {
+
+    synchronized (responses) {
+      return responses.size();
+    }
+  }
+}
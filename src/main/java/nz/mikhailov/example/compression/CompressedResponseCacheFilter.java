@@ -0,0 +1,175 @@
+package nz.mikhailov.example.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static nz.mikhailov.example.compression.CompressedResponseCache.LIST_PATH;
+
+/**
+ * Serves customer list and read responses from {@link CompressedResponseCache}, when {@code responseCache.enabled}.
+ * As the cache only sees writes made through this instance, it is off unless asked for.
+ * <p>
+ * On a miss the response is streamed to the client as usual, compressed by the container, while a copy of
+ * a successful body of up to {@code responseCache.maxBodyBytes} is kept. The copy is compressed once at
+ * {@code responseCache.compressionLevel} and cached, so hits from clients accepting gzip are written as they are.
+ * Bodies smaller than {@code compression.minResponseSize} are cached uncompressed.
+ */
+@Component
+public class CompressedResponseCacheFilter extends OncePerRequestFilter {
+
+  static final String GZIP = "gzip";
+
+  private static final Set<String> SUB_RESOURCES = new HashSet<>(Arrays.asList(
+      "changes", "export", "suggest", "search", "count", "stats"));
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+  @Value("${responseCache.enabled:false}")
+  private boolean enabled;
+
+  @Value("${responseCache.maxBodyBytes:16777216}")
+  private int maxBodyBytes;
+
+  @Value("${responseCache.compressionLevel:9}")
+  private int compressionLevel;
+
+  @Value("${compression.minResponseSize:2048}")
+  private int minResponseSize;
+
+  @Autowired
+  private CompressedResponseCache cache;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+
+    return !enabled || !"GET".equals(request.getMethod()) || !isCacheable(urlPathHelper.getLookupPathForRequest(request));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    String path = urlPathHelper.getLookupPathForRequest(request);
+    String variant = request.getQueryString() + " " + request.getHeader("Accept");
+    CachedResponse cached = cache.get(path, variant);
+    if (cached != null) {
+      write(cached, request, response);
+      return;
+    }
+    long generation = cache.generation();
+    CapturingResponseWrapper wrapper = new CapturingResponseWrapper(response, maxBodyBytes);
+    filterChain.doFilter(request, wrapper);
+    byte[] body = wrapper.getCapturedBody();
+    if (response.getStatus() == HttpServletResponse.SC_OK && body != null) {
+      cache.put(path, variant, toCachedResponse(response.getContentType(), body), generation);
+    }
+  }
+
+  private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+    log.debug("Serving {} from response cache", request.getRequestURI());
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(cached.getContentType());
+    if (!cached.isCompressed()) {
+      response.setContentLength(cached.getBody().length);
+      response.getOutputStream().write(cached.getBody());
+      return;
+    }
+    response.addHeader("Vary", "Accept-Encoding");
+    if (acceptsGzip(request.getHeader("Accept-Encoding"))) {
+      response.setHeader("Content-Encoding", GZIP);
+      response.setContentLength(cached.getBody().length);
+      response.getOutputStream().write(cached.getBody());
+    } else {
+      try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(cached.getBody()))) {
+        StreamUtils.copy(body, response.getOutputStream());
+      }
+    }
+  }
+
+  private CachedResponse toCachedResponse(String contentType, byte[] body) throws IOException {
+
+    long now = System.currentTimeMillis();
+    if (body.length < minResponseSize) {
+      return new CachedResponse(contentType, body, false, now);
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+      {
+        def.setLevel(compressionLevel);
+      }
+    }) {
+      gzip.write(body);
+    }
+    log.debug("Compressed cached response from {} to {} bytes", body.length, compressed.size());
+    return new CachedResponse(contentType, compressed.toByteArray(), true, now);
+  }
+
+  static boolean isCacheable(String path) {
+
+    if (path.equals(LIST_PATH)) {
+      return true;
+    }
+    if (!path.startsWith(LIST_PATH + "/")) {
+      return false;
+    }
+    String name = path.substring(LIST_PATH.length() + 1);
+    return !name.isEmpty() && name.indexOf('/') < 0 && !SUB_RESOURCES.contains(name);
+  }
+
+  static boolean acceptsGzip(String acceptEncoding) {
+
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Boolean wildcard = null;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      if (name.equalsIgnoreCase(GZIP)) {
+        return isAcceptable(parts);
+      }
+      if (name.equals("*")) {
+        wildcard = isAcceptable(parts);
+      }
+    }
+    return wildcard != null && wildcard;
+  }
+
+  private static boolean isAcceptable(String[] codingParts) {
+
+    for (int i = 1; i < codingParts.length; i++) {
+      String parameter = codingParts[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2)) > 0;
+        } catch (NumberFormatException e) {
+          return true;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,44 @@
+package nz.mikhailov.example.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.Compression;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables gzip compression in the servlet container for responses of at least {@code compression.minResponseSize}
+ * bytes, or of unknown length, with one of the {@code compression.mimeTypes}.
+ * Server-Sent Events are left out, as compression would hold events back until its buffer fills.
+ * <p>
+ * Runs after the customizer of Spring Boot server properties, which would otherwise reset the compression settings.
+ */
+@Configuration
+public class CompressionConfiguration implements EmbeddedServletContainerCustomizer {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${compression.enabled:true}")
+  private boolean enabled;
+
+  @Value("${compression.minResponseSize:2048}")
+  private int minResponseSize;
+
+  @Value("${compression.mimeTypes:application/json,application/x-ndjson,application/x-jackson-smile,application/cbor}")
+  private String[] mimeTypes;
+
+  @Override
+  public void customize(ConfigurableEmbeddedServletContainer container) {
+
+    log.trace("Entering customize()");
+    Compression compression = new Compression();
+    compression.setEnabled(enabled);
+    compression.setMinResponseSize(minResponseSize);
+    compression.setMimeTypes(mimeTypes);
+    container.setCompression(compression);
+    log.info("Response compression {} for {} of at least {} bytes", enabled ? "enabled" : "disabled",
+        String.join(",", mimeTypes), minResponseSize);
+  }
+}
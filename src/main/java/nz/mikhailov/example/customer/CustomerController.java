@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -11,8 +12,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
-import java.util.List;
 
+import static org.springframework.http.HttpStatus.ACCEPTED;
 import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
@@ -29,10 +30,10 @@ public class CustomerController {
   private CustomerService service;
 
   @RequestMapping(path = "/customer", method = RequestMethod.GET)
-  public ResponseEntity<List<Customer>> list() {
+  public ResponseEntity<CustomerItems> list() {
 
     log.trace("Entering list()");
-    List<Customer> customers = service.list();
+    CustomerItems customers = service.list();
     if (customers.isEmpty()) {
       return new ResponseEntity<>(NO_CONTENT);
     }
@@ -83,4 +84,14 @@ public class CustomerController {
         new ResponseEntity<>(NO_CONTENT) :
         new ResponseEntity<>(NOT_FOUND);
   }
+
+  /**
+   * Acknowledges writes deferred to the write-ahead log with 202 Accepted and the customer data as written.
+   */
+  @ExceptionHandler(WriteDeferredException.class)
+  public ResponseEntity<Customer> deferred(WriteDeferredException e) {
+
+    log.trace("Entering deferred() with {}", e.getWrite());
+    return new ResponseEntity<>(e.getWrite().getCustomer(), ACCEPTED);
+  }
 }
@@ -0,0 +1,73 @@
+package nz.mikhailov.example.customer;
+
+/**
+ * Published through the application context whenever customer data changes.
+ * Events raised by {@link CustomerService} are local, events picked up from the table's change stream are not.
+ */
+public class CustomerEvent {
+
+  public enum Type {
+    CREATED, UPDATED, DELETED
+  }
+
+  private final Type type;
+  private final String name;
+  private final Customer customer;
+  private final Customer previous;
+  private final boolean local;
+
+  public CustomerEvent(Type type, String name, Customer customer, Customer previous, boolean local) {
+
+    this.type = type;
+    this.name = name;
+    this.customer = customer;
+    this.previous = previous;
+    this.local = local;
+  }
+
+  public static CustomerEvent created(Customer customer) {
+
+    return new CustomerEvent(Type.CREATED, customer.getName(), customer, null, true);
+  }
+
+  public static CustomerEvent updated(Customer customer, Customer previous) {
+
+    return new CustomerEvent(Type.UPDATED, customer.getName(), customer, previous, true);
+  }
+
+  public static CustomerEvent deleted(Customer previous) {
+
+    return new CustomerEvent(Type.DELETED, previous.getName(), null, previous, true);
+  }
+
+  public Type getType() {
+
+    return type;
+  }
+
+  public String getName() {
+
+    return name;
+  }
+
+  /**
+   * @return customer data after the change, {@code null} for deletions
+   */
+  public Customer getCustomer() {
+
+    return customer;
+  }
+
+  /**
+   * @return customer data before the change, {@code null} for creations or when not known
+   */
+  public Customer getPrevious() {
+
+    return previous;
+  }
+
+  public boolean isLocal() {
+
+    return local;
+  }
+}
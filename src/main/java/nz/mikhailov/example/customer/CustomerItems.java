@@ -0,0 +1,68 @@
+package nz.mikhailov.example.customer;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Raw customer items of a table scan, as returned by DynamoDB.
+ * The first page is loaded up front; later pages are loaded while iterating and not retained,
+ * so that the items can be streamed to a response without materializing {@link Customer} objects.
+ */
+public class CustomerItems implements Iterable<Map<String, AttributeValue>> {
+
+  private final AmazonDynamoDB dynamoDB;
+  private final ScanRequest request;
+  private final ScanResult firstPage;
+
+  CustomerItems(AmazonDynamoDB dynamoDB, ScanRequest request, ScanResult firstPage) {
+
+    this.dynamoDB = dynamoDB;
+    this.request = request;
+    this.firstPage = firstPage;
+  }
+
+  public boolean isEmpty() {
+
+    return firstPage.getItems().isEmpty() && !hasMorePages(firstPage);
+  }
+
+  @Override
+  public Iterator<Map<String, AttributeValue>> iterator() {
+
+    return new Iterator<Map<String, AttributeValue>>() {
+
+      private ScanResult page = firstPage;
+      private Iterator<Map<String, AttributeValue>> items = firstPage.getItems().iterator();
+
+      @Override
+      public boolean hasNext() {
+
+        while (!items.hasNext() && hasMorePages(page)) {
+          page = dynamoDB.scan(request.clone().withExclusiveStartKey(page.getLastEvaluatedKey()));
+          items = page.getItems().iterator();
+        }
+        return items.hasNext();
+      }
+
+      @Override
+      public Map<String, AttributeValue> next() {
+
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return items.next();
+      }
+    };
+  }
+
+  private static boolean hasMorePages(ScanResult page) {
+
+    return page.getLastEvaluatedKey() != null && !page.getLastEvaluatedKey().isEmpty();
+  }
+}
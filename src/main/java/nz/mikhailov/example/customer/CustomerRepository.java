@@ -1,17 +1,36 @@
 package nz.mikhailov.example.customer;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.FailedBatch;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.ConsistentReads;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.PaginationLoadingStrategy;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedList;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+import nz.mikhailov.example.hotkeys.KeyAccessSampler;
+import nz.mikhailov.example.hotkeys.KeyAccessSampler.Operation;
+import nz.mikhailov.example.requestlog.RequestLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.StringJoiner;
+
+import static java.util.Collections.emptyList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 @Repository
 public class CustomerRepository {
@@ -21,28 +40,150 @@ public class CustomerRepository {
   @Autowired
   private DynamoDBMapper dbMapper;
 
-  public List<Customer> readAll() {
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private KeyAccessSampler sampler;
+
+  @Autowired
+  private RequestLog requestLog;
+
+  /**
+   * Scans the table for raw items, loading pages past the first one while iterating.
+   */
+  public CustomerItems readAll() {
 
     log.trace("Entering readAll()");
-    PaginatedList<Customer> results = dbMapper.scan(Customer.class, new DynamoDBScanExpression());
-    results.loadAllResults();
-    return results;
+    sampler.record(Operation.SCAN);
+    requestLog.repository(Operation.SCAN);
+    ScanRequest request = new ScanRequest(dbMapper.generateCreateTableRequest(Customer.class).getTableName());
+    return new CustomerItems(dynamoDB, request, dynamoDB.scan(request));
+  }
+
+  /**
+   * Batch loads customers by name, preserving the order of the given names and skipping names not found.
+   */
+  public List<Customer> readAll(Collection<String> names) {
+
+    log.trace("Entering readAll() with {}", names);
+    sampler.record(Operation.BATCH_READ, names);
+    requestLog.repository(Operation.BATCH_READ, names);
+    if (names.isEmpty()) {
+      return emptyList();
+    }
+    return inOrderOf(names, dbMapper.batchLoad(keys(names)));
+  }
+
+  /**
+   * Batch loads customers by name like {@link #readAll(Collection)}, with strong consistency, for reads followed by
+   * writes based on their result.
+   */
+  public List<Customer> readAllConsistent(Collection<String> names) {
+
+    log.trace("Entering readAllConsistent() with {}", names);
+    sampler.record(Operation.BATCH_READ, names);
+    requestLog.repository(Operation.BATCH_READ, names);
+    if (names.isEmpty()) {
+      return emptyList();
+    }
+    return inOrderOf(names, dbMapper.batchLoad(keys(names), new DynamoDBMapperConfig(ConsistentReads.CONSISTENT)));
+  }
+
+  /**
+   * Scans the table in parallel segments, fetching only the given attributes, under any of their
+   * {@link CompactItemEncoding#storedNames(String) stored names}.
+   * Pages are loaded as they are iterated and not retained, so the result can be iterated only once.
+   */
+  public Iterable<Customer> scan(int totalSegments, String... attributeNames) {
+
+    log.trace("Entering scan() with {}, {}", totalSegments, attributeNames);
+    sampler.record(Operation.SCAN);
+    requestLog.repository(Operation.SCAN);
+    StringJoiner projection = new StringJoiner(",");
+    Map<String, String> expressionAttributeNames = new HashMap<>();
+    for (String attributeName : attributeNames) {
+      for (String storedName : CompactItemEncoding.storedNames(attributeName)) {
+        String placeholder = "#a" + expressionAttributeNames.size();
+        projection.add(placeholder);
+        expressionAttributeNames.put(placeholder, storedName);
+      }
+    }
+    DynamoDBScanExpression expression = new DynamoDBScanExpression()
+        .withProjectionExpression(projection.toString())
+        .withExpressionAttributeNames(expressionAttributeNames);
+    return dbMapper.parallelScan(Customer.class, expression, totalSegments,
+        new DynamoDBMapperConfig(PaginationLoadingStrategy.ITERATION_ONLY));
   }
 
   public Optional<Customer> read(String name) {
 
     log.trace("Entering read() with {}", name);
+    sampler.record(Operation.READ, name);
+    requestLog.repository(Operation.READ, name);
     return Optional.ofNullable(dbMapper.load(Customer.class, name));
   }
 
+  /**
+   * Reads with strong consistency, for reads followed by a write based on their result.
+   */
+  public Optional<Customer> readConsistent(String name) {
+
+    log.trace("Entering readConsistent() with {}", name);
+    sampler.record(Operation.CONSISTENT_READ, name);
+    requestLog.repository(Operation.CONSISTENT_READ, name);
+    return Optional.ofNullable(dbMapper.load(Customer.class, name, new DynamoDBMapperConfig(ConsistentReads.CONSISTENT)));
+  }
+
   public void save(Customer customer) {
 
     log.trace("Entering save() with {}", customer);
+    sampler.record(Operation.SAVE, customer.getName());
+    requestLog.repository(Operation.SAVE, customer.getName());
     dbMapper.save(customer);
   }
 
   public void delete(String name) {
 
+    sampler.record(Operation.DELETE, name);
+    requestLog.repository(Operation.DELETE, name);
     dbMapper.delete(new Customer().withName(name), new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
   }
+
+  /**
+   * Saves and deletes customers with {@code BatchWriteItem}, retrying unprocessed items.
+   *
+   * @throws AmazonClientException if any could not be written
+   */
+  public void writeAll(List<Customer> customers, List<String> deletedNames) {
+
+    log.trace("Entering writeAll() with {}, {}", customers, deletedNames);
+    List<String> savedNames = customers.stream().map(Customer::getName).collect(toList());
+    sampler.record(Operation.BATCH_WRITE, savedNames);
+    sampler.record(Operation.BATCH_WRITE, deletedNames);
+    requestLog.repository(Operation.BATCH_WRITE, savedNames);
+    requestLog.repository(Operation.BATCH_WRITE, deletedNames);
+    List<FailedBatch> failed = dbMapper.batchWrite(customers, keys(deletedNames),
+        new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
+    if (!failed.isEmpty()) {
+      Exception cause = failed.get(0).getException();
+      throw cause instanceof AmazonClientException ?
+          (AmazonClientException) cause :
+          new AmazonClientException("Could not write " + failed.size() + " batches of customers", cause);
+    }
+  }
+
+  private static List<Customer> keys(Collection<String> names) {
+
+    return names.stream().map(name -> new Customer().withName(name)).collect(toList());
+  }
+
+  private static List<Customer> inOrderOf(Collection<String> names, Map<String, List<Object>> loaded) {
+
+    Map<String, Customer> customers = loaded.values().stream()
+        .flatMap(List::stream)
+        .map(Customer.class::cast)
+        .collect(toMap(Customer::getName, identity()));
+    return names.stream().map(customers::get).filter(Objects::nonNull).collect(toList());
+  }
 }
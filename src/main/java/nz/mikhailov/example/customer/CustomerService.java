@@ -1,15 +1,34 @@
 package nz.mikhailov.example.customer;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import nz.mikhailov.example.customer.CustomerWrite.Operation;
+import nz.mikhailov.example.wal.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static com.amazonaws.util.StringUtils.isNullOrEmpty;
-
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Reads and writes customers. With {@code writeAheadLog.enabled}, writes that fail because DynamoDB is throttling or
+ * unavailable are appended to the {@link WriteAheadLog} instead and a {@link WriteDeferredException} thrown, and so
+ * are all writes while earlier ones are deferred, to keep them in order. Deferred writes are applied later through
+ * {@link #replay(List)}, as they would have been when accepted.
+ */
 @Service
 public class CustomerService {
 
@@ -18,6 +37,12 @@ public class CustomerService {
   @Autowired
   private CustomerRepository repository;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private WriteAheadLog writeAheadLog;
+
   public Optional<Customer> read(String name) {
 
     log.trace("Entering read() with {}", name);
@@ -27,62 +52,196 @@ public class CustomerService {
   public Optional<Customer> create(Customer customer) {
 
     log.trace("Entering create() with {}", customer);
-    if (repository.read(customer.getName()).isPresent()) {
-      log.warn("Customer {} not found", customer.getName());
-      return Optional.empty();
-    }
-    repository.save(customer);
-    return Optional.of(customer);
+    return deferrable(new CustomerWrite(Operation.CREATE, customer), () -> {
+      if (repository.readConsistent(customer.getName()).isPresent()) {
+        log.warn("Customer {} not found", customer.getName());
+        return Optional.empty();
+      }
+      repository.save(customer);
+      eventPublisher.publishEvent(CustomerEvent.created(customer));
+      return Optional.of(customer);
+    });
   }
 
   public Optional<Customer> replace(Customer newCustomerData) {
 
     log.trace("Entering replace() with {}", newCustomerData);
-    Optional<Customer> existingCustomer = repository.read(newCustomerData.getName());
-    if (!existingCustomer.isPresent()) {
-      log.warn("Customer {} not found", newCustomerData.getName());
-      return Optional.empty();
-    }
-    Customer customer = existingCustomer.get();
-    customer.setAddress(newCustomerData.getAddress());
-    customer.setPhoneNumber(newCustomerData.getPhoneNumber());
-    repository.save(customer);
-    return Optional.of(customer);
+    return deferrable(new CustomerWrite(Operation.REPLACE, newCustomerData), () -> {
+      Optional<Customer> existingCustomer = repository.readConsistent(newCustomerData.getName());
+      if (!existingCustomer.isPresent()) {
+        log.warn("Customer {} not found", newCustomerData.getName());
+        return Optional.empty();
+      }
+      Customer customer = existingCustomer.get();
+      Customer previous = copyOf(customer);
+      replaceData(customer, newCustomerData);
+      repository.save(customer);
+      eventPublisher.publishEvent(CustomerEvent.updated(customer, previous));
+      return Optional.of(customer);
+    });
   }
 
   public Optional<Customer> update(Customer newCustomerData) {
 
     log.trace("Entering update() with {}", newCustomerData);
-    Optional<Customer> existingCustomer = repository.read(newCustomerData.getName());
-    if (!existingCustomer.isPresent()) {
-      log.warn("Customer {} not found", newCustomerData.getName());
-      return Optional.empty();
-    }
-    Customer customer = existingCustomer.get();
-    if (!isNullOrEmpty(newCustomerData.getAddress())) {
-      customer.setAddress(newCustomerData.getAddress());
-    }
-    if (!isNullOrEmpty(newCustomerData.getPhoneNumber())) {
-      customer.setPhoneNumber(newCustomerData.getPhoneNumber());
-    }
-    repository.save(customer);
-    return Optional.of(customer);
+    return deferrable(new CustomerWrite(Operation.UPDATE, newCustomerData), () -> {
+      Optional<Customer> existingCustomer = repository.readConsistent(newCustomerData.getName());
+      if (!existingCustomer.isPresent()) {
+        log.warn("Customer {} not found", newCustomerData.getName());
+        return Optional.empty();
+      }
+      Customer customer = existingCustomer.get();
+      Customer previous = copyOf(customer);
+      updateData(customer, newCustomerData);
+      repository.save(customer);
+      eventPublisher.publishEvent(CustomerEvent.updated(customer, previous));
+      return Optional.of(customer);
+    });
   }
 
   public boolean delete(String name) {
 
     log.trace("Entering delete() with {}", name);
-    if (!repository.read(name).isPresent()) {
-      log.warn("Customer {} not found", name);
-      return false;
-    }
-    repository.delete(name);
-    return true;
+    return deferrable(new CustomerWrite(Operation.DELETE, new Customer().withName(name)), () -> {
+      Optional<Customer> existingCustomer = repository.readConsistent(name);
+      if (!existingCustomer.isPresent()) {
+        log.warn("Customer {} not found", name);
+        return false;
+      }
+      repository.delete(name);
+      eventPublisher.publishEvent(CustomerEvent.deleted(existingCustomer.get()));
+      return true;
+    });
   }
 
-  public List<Customer> list() {
+  public CustomerItems list() {
 
     log.trace("Entering list()");
     return repository.readAll();
   }
+
+  /**
+   * Applies deferred writes in order, as they would have been applied when accepted, and saves the outcome in one
+   * batch. Writes that no longer apply, creating a customer that exists or changing or deleting one that does not,
+   * are dropped. Writes applied before are recognised, so a batch can be replayed again after a failure.
+   *
+   * @throws AmazonClientException if the customers could not be read or written, leaving the batch to be replayed
+   */
+  public void replay(List<CustomerWrite> writes) {
+
+    log.trace("Entering replay() with {}", writes);
+    Set<String> names = new LinkedHashSet<>();
+    writes.forEach(write -> names.add(write.getCustomer().getName()));
+    Map<String, Customer> customers = new HashMap<>();
+    repository.readAllConsistent(names).forEach(customer -> customers.put(customer.getName(), customer));
+    Set<String> changed = new LinkedHashSet<>();
+    List<CustomerEvent> events = new ArrayList<>();
+    for (CustomerWrite write : writes) {
+      Customer data = write.getCustomer();
+      Customer existing = customers.get(data.getName());
+      if (write.getOperation() == Operation.CREATE && existing != null) {
+        if (!existing.equals(data)) {
+          log.warn("Dropping deferred {}, customer exists", write);
+        }
+        continue;
+      }
+      if (write.getOperation() != Operation.CREATE && existing == null) {
+        log.warn("Dropping deferred {}, customer not found", write);
+        continue;
+      }
+      switch (write.getOperation()) {
+        case CREATE:
+          customers.put(data.getName(), data);
+          events.add(CustomerEvent.created(data));
+          break;
+        case DELETE:
+          customers.remove(data.getName());
+          events.add(CustomerEvent.deleted(existing));
+          break;
+        default:
+          Customer customer = copyOf(existing);
+          if (write.getOperation() == Operation.REPLACE) {
+            replaceData(customer, data);
+          } else {
+            updateData(customer, data);
+          }
+          customers.put(data.getName(), customer);
+          events.add(CustomerEvent.updated(customer, existing));
+      }
+      changed.add(data.getName());
+    }
+    repository.writeAll(
+        changed.stream().filter(customers::containsKey).map(customers::get).collect(toList()),
+        changed.stream().filter(name -> !customers.containsKey(name)).collect(toList()));
+    events.forEach(eventPublisher::publishEvent);
+  }
+
+  /**
+   * Runs a write, unless the write-ahead log is enabled and either holds earlier writes still deferred or DynamoDB
+   * turns out to be throttling or unavailable, in which case the write is appended to the log.
+   *
+   * @throws WriteDeferredException once the write is appended to the log
+   */
+  private <T> T deferrable(CustomerWrite write, Supplier<T> action) {
+
+    if (!writeAheadLog.isEnabled()) {
+      return action.get();
+    }
+    if (!writeAheadLog.isDrained()) {
+      throw defer(write);
+    }
+    try {
+      return action.get();
+    } catch (AmazonClientException e) {
+      if (!isUnavailable(e)) {
+        throw e;
+      }
+      log.warn("Deferring {}: {}", write, e.getMessage());
+      throw defer(write);
+    }
+  }
+
+  private WriteDeferredException defer(CustomerWrite write) {
+
+    writeAheadLog.append(write.toBytes());
+    return new WriteDeferredException(write);
+  }
+
+  /**
+   * @return whether the failure is DynamoDB throttling, failing on its side or not reachable in time, as opposed to
+   * rejecting the request
+   */
+  static boolean isUnavailable(AmazonClientException e) {
+
+    if (!(e instanceof AmazonServiceException)) {
+      return true;
+    }
+    AmazonServiceException serviceException = (AmazonServiceException) e;
+    return serviceException.getErrorType() == AmazonServiceException.ErrorType.Service ||
+        RetryUtils.isThrottlingException(serviceException);
+  }
+
+  private static void replaceData(Customer customer, Customer newCustomerData) {
+
+    customer.setAddress(newCustomerData.getAddress());
+    customer.setPhoneNumber(newCustomerData.getPhoneNumber());
+  }
+
+  private static void updateData(Customer customer, Customer newCustomerData) {
+
+    if (!isNullOrEmpty(newCustomerData.getAddress())) {
+      customer.setAddress(newCustomerData.getAddress());
+    }
+    if (!isNullOrEmpty(newCustomerData.getPhoneNumber())) {
+      customer.setPhoneNumber(newCustomerData.getPhoneNumber());
+    }
+  }
+
+  private Customer copyOf(Customer customer) {
+
+    return new Customer()
+        .withName(customer.getName())
+        .withAddress(customer.getAddress())
+        .withPhoneNumber(customer.getPhoneNumber());
+  }
 }
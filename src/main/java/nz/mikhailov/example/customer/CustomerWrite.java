@@ -0,0 +1,89 @@
+package nz.mikhailov.example.customer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A write to a customer, kept in the write-ahead log while it is deferred.
+ */
+public class CustomerWrite {
+
+  public enum Operation {
+    CREATE, REPLACE, UPDATE, DELETE
+  }
+
+  private final Operation operation;
+  private final Customer customer;
+
+  public CustomerWrite(Operation operation, Customer customer) {
+
+    this.operation = operation;
+    this.customer = customer;
+  }
+
+  public Operation getOperation() {
+
+    return operation;
+  }
+
+  /**
+   * @return customer data as written, only the name for deletions
+   */
+  public Customer getCustomer() {
+
+    return customer;
+  }
+
+  public byte[] toBytes() {
+
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+      DataOutputStream data = new DataOutputStream(bytes);
+      data.writeUTF(operation.name());
+      writeNullable(data, customer.getName());
+      writeNullable(data, customer.getAddress());
+      writeNullable(data, customer.getPhoneNumber());
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static CustomerWrite fromBytes(byte[] bytes) {
+
+    try {
+      DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+      Operation operation = Operation.valueOf(data.readUTF());
+      Customer customer = new Customer()
+          .withName(readNullable(data))
+          .withAddress(readNullable(data))
+          .withPhoneNumber(readNullable(data));
+      return new CustomerWrite(operation, customer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+
+    return operation + " " + customer;
+  }
+
+  private static void writeNullable(DataOutputStream data, String value) throws IOException {
+
+    data.writeBoolean(value != null);
+    if (value != null) {
+      data.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream data) throws IOException {
+
+    return data.readBoolean() ? data.readUTF() : null;
+  }
+}
@@ -0,0 +1,159 @@
+package nz.mikhailov.example.customer;
+
+import com.amazonaws.AmazonClientException;
+import nz.mikhailov.example.wal.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Replays the writes deferred to the {@link WriteAheadLog} into the table from a background thread, in order and
+ * in batches of up to {@code writeAheadLog.replayBatchSize}. A batch that fails is retried, after a backoff that
+ * doubles from {@code writeAheadLog.replayBackoffMillis} up to {@code writeAheadLog.maxReplayBackoffMillis}, for as
+ * long as DynamoDB is throttling or unavailable. A batch DynamoDB rejects otherwise is replayed one write at a time,
+ * and the writes it rejects, or that cannot be read back from the log, are dropped with an error in the log, so that
+ * one write that can never be applied does not hold up the ones after it. Writes deferred before a restart are
+ * replayed once started again.
+ */
+@Component
+public class DeferredWriteReplayer {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${writeAheadLog.replayBatchSize:25}")
+  private int batchSize;
+
+  @Value("${writeAheadLog.replayBackoffMillis:100}")
+  private long backoffMillis;
+
+  @Value("${writeAheadLog.maxReplayBackoffMillis:30000}")
+  private long maxBackoffMillis;
+
+  @Autowired
+  private WriteAheadLog writeAheadLog;
+
+  @Autowired
+  private CustomerService service;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("replay-"));
+
+  private volatile boolean running;
+
+  @PostConstruct
+  public void start() {
+
+    if (!writeAheadLog.isEnabled()) {
+      return;
+    }
+    running = true;
+    executor.submit(this::replay);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    running = false;
+    executor.shutdownNow();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  void replay() {
+
+    List<WriteAheadLog.Entry> batch = new ArrayList<>();
+    long backoff = 0;
+    while (running) {
+      try {
+        if (batch.isEmpty()) {
+          batch = new ArrayList<>(writeAheadLog.read(batchSize, 1, TimeUnit.SECONDS));
+          if (batch.isEmpty()) {
+            continue;
+          }
+        }
+        apply(batch);
+        backoff = 0;
+      } catch (InterruptedException e) {
+        return;
+      } catch (IOException | RuntimeException e) {
+        backoff = backoff == 0 ? backoffMillis : Math.min(backoff * 2, maxBackoffMillis);
+        if (e instanceof AmazonClientException || e instanceof IOException) {
+          log.warn("Failed to replay {} deferred writes, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+        } else {
+          log.error("Failed to replay {} deferred writes, retrying in {} ms", batch.size(), backoff, e);
+        }
+        writeAheadLog.replayFailed(e.getMessage());
+        try {
+          TimeUnit.MILLISECONDS.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Replays the entries as one batch, or one at a time if DynamoDB rejects the batch, removing them from the list as
+   * they are acknowledged.
+   *
+   * @throws AmazonClientException if DynamoDB is throttling or unavailable, leaving the entries not applied yet
+   */
+  private void apply(List<WriteAheadLog.Entry> batch) throws IOException {
+
+    if (batch.size() > 1) {
+      try {
+        service.replay(batch.stream().map(entry -> CustomerWrite.fromBytes(entry.getPayload())).collect(toList()));
+        writeAheadLog.acknowledge(batch.get(batch.size() - 1).getSequence());
+        batch.clear();
+        return;
+      } catch (AmazonClientException e) {
+        if (CustomerService.isUnavailable(e)) {
+          throw e;
+        }
+        log.warn("Deferred writes rejected, replaying {} of them one at a time: {}", batch.size(), e.getMessage());
+      } catch (RuntimeException e) {
+        log.warn("Deferred writes not replayable, replaying {} of them one at a time: {}", batch.size(), e.toString());
+      }
+    }
+    while (!batch.isEmpty()) {
+      WriteAheadLog.Entry entry = batch.get(0);
+      try {
+        service.replay(Collections.singletonList(CustomerWrite.fromBytes(entry.getPayload())));
+      } catch (AmazonClientException e) {
+        if (CustomerService.isUnavailable(e)) {
+          throw e;
+        }
+        reject(entry, e);
+      } catch (RuntimeException e) {
+        reject(entry, e);
+      }
+      writeAheadLog.acknowledge(entry.getSequence());
+      batch.remove(0);
+    }
+  }
+
+  private void reject(WriteAheadLog.Entry entry, RuntimeException e) {
+
+    String write;
+    try {
+      write = CustomerWrite.fromBytes(entry.getPayload()).toString();
+    } catch (RuntimeException unreadable) {
+      write = "unreadable entry of " + entry.getPayload().length + " bytes";
+    }
+    log.error("Dropping deferred write {} ({}), it cannot be applied: {}", entry.getSequence(), write, e.toString());
+    writeAheadLog.rejected(e.toString());
+  }
+}
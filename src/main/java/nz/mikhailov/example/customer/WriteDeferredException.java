@@ -0,0 +1,23 @@
+package nz.mikhailov.example.customer;
+
+/**
+ * Thrown by {@link CustomerService} instead of completing a write that was appended to the write-ahead log, to be
+ * applied to the table later.
+ */
+public class WriteDeferredException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final CustomerWrite write;
+
+  public WriteDeferredException(CustomerWrite write) {
+
+    super("Deferred " + write, null, false, false);
+    this.write = write;
+  }
+
+  public CustomerWrite getWrite() {
+
+    return write;
+  }
+}
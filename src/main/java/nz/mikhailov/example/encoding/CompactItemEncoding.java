@@ -0,0 +1,213 @@
+package nz.mikhailov.example.encoding;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.AttributeTransformer;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import nz.mikhailov.example.customer.Customer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Storage encoding of customer items, applied by the {@code DynamoDBMapper} on every write and read.
+ * <p>
+ * With {@code itemEncoding.compact} items are written with one letter attribute names, and addresses of at least
+ * {@code itemEncoding.compressionThresholdBytes} UTF-8 bytes are stored deflated as a binary value when that is
+ * smaller. Items are read in either encoding, so a table can hold both while it is
+ * {@link nz.mikhailov.example.migration.ItemReencoding re-encoded}. The {@code Name} key attribute is never renamed,
+ * as it is part of the key schema.
+ * <p>
+ * Partial updates are left in the plain encoding, as their attributes cannot be renamed without leaving the
+ * old ones behind; the mapper is configured to replace whole items instead.
+ */
+@Component
+public class CompactItemEncoding implements AttributeTransformer {
+
+  static final String ADDRESS = "Address";
+  static final String PHONE_NUMBER = "PhoneNumber";
+  static final String COMPACT_ADDRESS = "a";
+  static final String COMPACT_PHONE_NUMBER = "p";
+
+  private static final Map<String, String> COMPACT_NAMES;
+
+  static {
+    Map<String, String> names = new HashMap<>();
+    names.put(ADDRESS, COMPACT_ADDRESS);
+    names.put(PHONE_NUMBER, COMPACT_PHONE_NUMBER);
+    COMPACT_NAMES = Collections.unmodifiableMap(names);
+  }
+
+  @Value("${itemEncoding.compact:false}")
+  private boolean compact;
+
+  @Value("${itemEncoding.compressionThresholdBytes:100}")
+  private int compressionThresholdBytes;
+
+  public CompactItemEncoding() {
+
+  }
+
+  public CompactItemEncoding(boolean compact, int compressionThresholdBytes) {
+
+    this.compact = compact;
+    this.compressionThresholdBytes = compressionThresholdBytes;
+  }
+
+  @Override
+  public Map<String, AttributeValue> transform(Parameters<?> parameters) {
+
+    if (parameters.getModelClass() != Customer.class || parameters.isPartialUpdate()) {
+      return parameters.getAttributeValues();
+    }
+    return encode(parameters.getAttributeValues());
+  }
+
+  @Override
+  public Map<String, AttributeValue> untransform(Parameters<?> parameters) {
+
+    if (parameters.getModelClass() != Customer.class) {
+      return parameters.getAttributeValues();
+    }
+    return decode(parameters.getAttributeValues());
+  }
+
+  /**
+   * Encodes an item in the plain or compact encoding, as configured. Items may be given in either encoding.
+   */
+  public Map<String, AttributeValue> encode(Map<String, AttributeValue> item) {
+
+    Map<String, AttributeValue> plain = decode(item);
+    if (!compact) {
+      return plain;
+    }
+    Map<String, AttributeValue> encoded = new HashMap<>(plain.size() * 2);
+    for (Map.Entry<String, AttributeValue> attribute : plain.entrySet()) {
+      String compactName = COMPACT_NAMES.get(attribute.getKey());
+      if (compactName == null) {
+        encoded.put(attribute.getKey(), attribute.getValue());
+      } else if (compactName.equals(COMPACT_ADDRESS)) {
+        encoded.put(compactName, compress(attribute.getValue()));
+      } else {
+        encoded.put(compactName, attribute.getValue());
+      }
+    }
+    return encoded;
+  }
+
+  /**
+   * Decodes an item in either encoding into the plain one, with the attribute names of the {@link Customer}
+   * mapping. Plain items are returned as they are.
+   */
+  public static Map<String, AttributeValue> decode(Map<String, AttributeValue> item) {
+
+    if (item == null || !(item.containsKey(COMPACT_ADDRESS) || item.containsKey(COMPACT_PHONE_NUMBER))) {
+      return item;
+    }
+    Map<String, AttributeValue> decoded = new HashMap<>(item.size() * 2);
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      switch (attribute.getKey()) {
+        case COMPACT_ADDRESS:
+          decoded.put(ADDRESS, decompress(attribute.getValue()));
+          break;
+        case COMPACT_PHONE_NUMBER:
+          decoded.put(PHONE_NUMBER, attribute.getValue());
+          break;
+        default:
+          decoded.putIfAbsent(attribute.getKey(), attribute.getValue());
+      }
+    }
+    return decoded;
+  }
+
+  /**
+   * @return the names an attribute of the {@link Customer} mapping may be stored under, for projections
+   */
+  public static String[] storedNames(String attributeName) {
+
+    String compactName = COMPACT_NAMES.get(attributeName);
+    return compactName == null ? new String[]{attributeName} : new String[]{attributeName, compactName};
+  }
+
+  /**
+   * Item size as DynamoDB counts it for capacity and storage: the UTF-8 lengths of attribute names plus
+   * the sizes of their string and binary values.
+   */
+  public static long sizeOf(Map<String, AttributeValue> item) {
+
+    long size = 0;
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      size += attribute.getKey().getBytes(StandardCharsets.UTF_8).length;
+      AttributeValue value = attribute.getValue();
+      if (value.getS() != null) {
+        size += value.getS().getBytes(StandardCharsets.UTF_8).length;
+      } else if (value.getB() != null) {
+        size += value.getB().remaining();
+      } else if (value.getN() != null) {
+        size += value.getN().length();
+      }
+    }
+    return size;
+  }
+
+  private AttributeValue compress(AttributeValue value) {
+
+    if (value.getS() == null) {
+      return value;
+    }
+    byte[] bytes = value.getS().getBytes(StandardCharsets.UTF_8);
+    if (bytes.length < compressionThresholdBytes) {
+      return value;
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      byte[] buffer = new byte[bytes.length];
+      int length = deflater.deflate(buffer);
+      if (!deflater.finished() || length >= bytes.length) {
+        return value;
+      }
+      return new AttributeValue().withB(ByteBuffer.wrap(Arrays.copyOf(buffer, length)));
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static AttributeValue decompress(AttributeValue value) {
+
+    if (value.getB() == null) {
+      return value;
+    }
+    ByteBuffer compressed = value.getB().duplicate();
+    // raw inflation may need an extra byte past the compressed data
+    byte[] input = new byte[compressed.remaining() + 1];
+    compressed.get(input, 0, compressed.remaining());
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(input);
+      ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 3);
+      byte[] buffer = new byte[256];
+      while (!inflater.finished()) {
+        int length = inflater.inflate(buffer);
+        if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalStateException("Truncated compressed attribute value");
+        }
+        output.write(buffer, 0, length);
+      }
+      return new AttributeValue(new String(output.toByteArray(), StandardCharsets.UTF_8));
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt compressed attribute value", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package nz.mikhailov.example.export;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.mikhailov.example.customer.CustomerService;
+import nz.mikhailov.example.serialization.CustomerItemsSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Exports all customers as newline delimited Json, one customer per line, streamed page by page from a table scan.
+ * <p>
+ * A page failing to load once the export started cannot change the response status any more, and the lines sent so
+ * far would look like a complete export. The export then ends with a line holding only an {@code error} property
+ * instead.
+ */
+@RestController
+@RequestMapping("/v1")
+public class CustomerExportController {
+
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private CustomerService service;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private CustomerItemsSerializer serializer;
+
+  @RequestMapping(path = "/customer/export", method = RequestMethod.GET, produces = APPLICATION_NDJSON_VALUE)
+  public void export(HttpServletResponse response) throws IOException {
+
+    log.trace("Entering export()");
+    Iterable<Map<String, AttributeValue>> items = service.list();
+    response.setContentType(APPLICATION_NDJSON_VALUE);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.setRootValueSeparator(null);
+      long exported = 0;
+      try {
+        for (Map<String, AttributeValue> item : items) {
+          serializer.writeItem(item, generator);
+          generator.writeRaw('\n');
+          exported++;
+        }
+      } catch (AmazonClientException e) {
+        log.error("Export failed after {} customers", exported, e);
+        generator.writeStartObject();
+        generator.writeStringField("error", "Export failed after " + exported + " customers");
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      }
+    }
+  }
+}
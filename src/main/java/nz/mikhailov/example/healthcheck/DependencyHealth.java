@@ -0,0 +1,116 @@
+package nz.mikhailov.example.healthcheck;
+
+/**
+ * Point-in-time view of the DynamoDB dependency, as seen by the last probe and by the client requests since
+ * the probe before it.
+ */
+public class DependencyHealth {
+
+  public enum Status {
+    UNKNOWN, UP, DEGRADED, DOWN
+  }
+
+  private final Status status;
+  private final long checkedAt;
+  private final long probeLatencyMillis;
+  private final String tableStatus;
+  private final String error;
+  private final long requests;
+  private final double failureRate;
+  private final double throttleRate;
+  private final int peakConnectionsLeased;
+  private final int peakConnectionsPending;
+  private final double connectionPoolSaturation;
+
+  public DependencyHealth(Status status, long checkedAt, long probeLatencyMillis, String tableStatus, String error,
+                          long requests, double failureRate, double throttleRate,
+                          int peakConnectionsLeased, int peakConnectionsPending, double connectionPoolSaturation) {
+
+    this.status = status;
+    this.checkedAt = checkedAt;
+    this.probeLatencyMillis = probeLatencyMillis;
+    this.tableStatus = tableStatus;
+    this.error = error;
+    this.requests = requests;
+    this.failureRate = failureRate;
+    this.throttleRate = throttleRate;
+    this.peakConnectionsLeased = peakConnectionsLeased;
+    this.peakConnectionsPending = peakConnectionsPending;
+    this.connectionPoolSaturation = connectionPoolSaturation;
+  }
+
+  static DependencyHealth unknown() {
+
+    return new DependencyHealth(Status.UNKNOWN, 0, 0, null, null, 0, 0, 0, 0, 0, 0);
+  }
+
+  public Status getStatus() {
+
+    return status;
+  }
+
+  /**
+   * @return epoch millis of the last probe, {@code 0} if it has not happened yet
+   */
+  public long getCheckedAt() {
+
+    return checkedAt;
+  }
+
+  public long getProbeLatencyMillis() {
+
+    return probeLatencyMillis;
+  }
+
+  public String getTableStatus() {
+
+    return tableStatus;
+  }
+
+  /**
+   * @return the message of the last probe failure, {@code null} if it succeeded
+   */
+  public String getError() {
+
+    return error;
+  }
+
+  /**
+   * @return the client requests made between the last two probes
+   */
+  public long getRequests() {
+
+    return requests;
+  }
+
+  public double getFailureRate() {
+
+    return failureRate;
+  }
+
+  public double getThrottleRate() {
+
+    return throttleRate;
+  }
+
+  public int getPeakConnectionsLeased() {
+
+    return peakConnectionsLeased;
+  }
+
+  /**
+   * @return the most requests seen waiting for a connection from the pool
+   */
+  public int getPeakConnectionsPending() {
+
+    return peakConnectionsPending;
+  }
+
+  /**
+   * @return the peak share of pooled connections in use, from {@code 0} to {@code 1}
+   */
+  public double getConnectionPoolSaturation() {
+
+    return connectionPoolSaturation;
+  }
+}
@@ -0,0 +1,116 @@
+package nz.mikhailov.example.healthcheck;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the requests made by the DynamoDB client, the failed and throttled ones, and the peak connection pool usage.
+ * <p>
+ * Rejections caused by the request itself, such as failed conditions, are not counted as failures.
+ * Registering the collector makes the client record detailed metrics for every request, connection pool
+ * statistics included.
+ */
+@Component
+public class DynamoDbClientMetrics extends RequestMetricCollector {
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private final AtomicInteger peakLeased = new AtomicInteger();
+  private final AtomicInteger peakPending = new AtomicInteger();
+
+  @Override
+  public void collectMetrics(Request<?> request, Response<?> response) {
+
+    AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+    TimingInfo timing = metrics.getTimingInfo();
+    requests.increment();
+    if (response == null && !isClientError(metrics.getProperty(Field.Exception))) {
+      failures.increment();
+    }
+    if (count(timing, Field.ThrottleException) > 0) {
+      throttled.increment();
+    }
+    peakLeased.accumulateAndGet(count(timing, Field.HttpClientPoolLeasedCount), Math::max);
+    peakPending.accumulateAndGet(count(timing, Field.HttpClientPoolPendingCount), Math::max);
+  }
+
+  /**
+   * @return the counts since startup, and the peak connection pool usage since the previous call
+   */
+  public Counts counts() {
+
+    return new Counts(requests.sum(), failures.sum(), throttled.sum(), peakLeased.getAndSet(0), peakPending.getAndSet(0));
+  }
+
+  private static boolean isClientError(List<Object> exceptions) {
+
+    if (exceptions == null || exceptions.isEmpty()) {
+      return false;
+    }
+    Object last = exceptions.get(exceptions.size() - 1);
+    return last instanceof AmazonServiceException &&
+        ((AmazonServiceException) last).getErrorType() == AmazonServiceException.ErrorType.Client &&
+        !RetryUtils.isThrottlingException((AmazonServiceException) last);
+  }
+
+  private static int count(TimingInfo timing, Field field) {
+
+    Number counter = timing.getCounter(field.name());
+    return counter == null ? 0 : counter.intValue();
+  }
+
+  public static class Counts {
+
+    private final long requests;
+    private final long failures;
+    private final long throttled;
+    private final int peakLeased;
+    private final int peakPending;
+
+    Counts(long requests, long failures, long throttled, int peakLeased, int peakPending) {
+
+      this.requests = requests;
+      this.failures = failures;
+      this.throttled = throttled;
+      this.peakLeased = peakLeased;
+      this.peakPending = peakPending;
+    }
+
+    public long getRequests() {
+
+      return requests;
+    }
+
+    public long getFailures() {
+
+      return failures;
+    }
+
+    public long getThrottled() {
+
+      return throttled;
+    }
+
+    public int getPeakLeased() {
+
+      return peakLeased;
+    }
+
+    public int getPeakPending() {
+
+      return peakPending;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package nz.mikhailov.example.healthcheck;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.healthcheck.DependencyHealth.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes DynamoDB in the background with {@code DescribeTable} every {@code health.probeIntervalMillis}, and keeps
+ * the outcome together with the client request metrics since the previous probe as a {@link DependencyHealth}
+ * snapshot, so that health checks never call DynamoDB themselves.
+ * <p>
+ * The dependency is {@code DOWN} when the probe fails, and {@code DEGRADED} when the probe takes longer than
+ * {@code health.maxProbeLatencyMillis}, the table is not active, more than {@code health.maxFailureRate} of the
+ * requests failed, any were throttled, or requests waited for a pooled connection.
+ */
+@Component
+public class DynamoDbProbe {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${health.maxProbeLatencyMillis:1000}")
+  private long maxProbeLatencyMillis;
+
+  @Value("${health.maxFailureRate:0.05}")
+  private double maxFailureRate;
+
+  @Value("${dynamoDb.maxConnections:" + ClientConfiguration.DEFAULT_MAX_CONNECTIONS + "}")
+  private int maxConnections;
+
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private DynamoDBMapper dbMapper;
+
+  @Autowired
+  private DynamoDbClientMetrics metrics;
+
+  private volatile DependencyHealth health = DependencyHealth.unknown();
+  private DynamoDbClientMetrics.Counts previous = new DynamoDbClientMetrics.Counts(0, 0, 0, 0, 0);
+
+  public DependencyHealth getHealth() {
+
+    return health;
+  }
+
+  @Scheduled(fixedDelayString = "${health.probeIntervalMillis:10000}")
+  public void probe() {
+
+    log.trace("Entering probe()");
+    String tableName = dbMapper.generateCreateTableRequest(Customer.class).getTableName();
+    long start = System.nanoTime();
+    String tableStatus = null;
+    String error = null;
+    try {
+      tableStatus = dynamoDB.describeTable(tableName).getTable().getTableStatus();
+    } catch (AmazonClientException e) {
+      error = e.getMessage();
+    }
+    long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    DynamoDbClientMetrics.Counts counts = metrics.counts();
+    long requests = counts.getRequests() - previous.getRequests();
+    double failureRate = rate(counts.getFailures() - previous.getFailures(), requests);
+    double throttleRate = rate(counts.getThrottled() - previous.getThrottled(), requests);
+    previous = counts;
+
+    Status status;
+    if (error != null) {
+      status = Status.DOWN;
+    } else if (latencyMillis > maxProbeLatencyMillis || !TableStatus.ACTIVE.toString().equals(tableStatus) ||
+        failureRate > maxFailureRate || throttleRate > 0 || counts.getPeakPending() > 0) {
+      status = Status.DEGRADED;
+    } else {
+      status = Status.UP;
+    }
+    if (status != health.getStatus()) {
+      log.info("DynamoDB is {}: probe took {} ms, {} requests, failure rate {}, throttle rate {}{}", status, latencyMillis,
+          requests, failureRate, throttleRate, error == null ? "" : ", " + error);
+    }
+    health = new DependencyHealth(status, System.currentTimeMillis(), latencyMillis, tableStatus, error,
+        requests, failureRate, throttleRate, counts.getPeakLeased(), counts.getPeakPending(),
+        maxConnections > 0 ? (double) counts.getPeakLeased() / maxConnections : 0);
+  }
+
+  private static double rate(long count, long total) {
+
+    return total > 0 ? (double) count / total : 0;
+  }
+}
@@ -1,7 +1,13 @@
 package nz.mikhailov.example.healthcheck;
 
+import nz.mikhailov.example.healthcheck.DependencyHealth.Status;
+import nz.mikhailov.example.startup.WarmUp;
+import nz.mikhailov.example.util.DatabaseInitialisation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -10,11 +16,40 @@ public class HealthCheckController {
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
+  @Autowired
+  private DatabaseInitialisation databaseInitialisation;
+
+  @Autowired
+  private WarmUp warmUp;
+
+  @Autowired
+  private DynamoDbProbe dynamoDbProbe;
+
+  /**
+   * Reports the application ready once the warm-up completed and the table is active, and not ready with
+   * 503 Service Unavailable until then, so that load balancers hold traffic back.
+   */
   @RequestMapping("/health")
-  public String healthCheck() {
+  public ResponseEntity<String> healthCheck() {
 
     log.trace("Entering healthCheck()");
-    return "up";
+    if (!warmUp.isComplete() || !databaseInitialisation.isTableActive()) {
+      return new ResponseEntity<>("starting", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return new ResponseEntity<>("up", HttpStatus.OK);
+  }
+
+  /**
+   * Reports the state of DynamoDB from the last background probe, with 503 Service Unavailable while it is down
+   * or not probed yet. Never calls DynamoDB itself.
+   */
+  @RequestMapping("/health/deep")
+  public ResponseEntity<DependencyHealth> deepHealthCheck() {
+
+    log.trace("Entering deepHealthCheck()");
+    DependencyHealth health = dynamoDbProbe.getHealth();
+    boolean available = health.getStatus() == Status.UP || health.getStatus() == Status.DEGRADED;
+    return new ResponseEntity<>(health, available ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
   }
 
 }
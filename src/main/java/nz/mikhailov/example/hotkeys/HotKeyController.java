@@ -0,0 +1,34 @@
+package nz.mikhailov.example.hotkeys;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class HotKeyController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private KeyAccessSampler sampler;
+
+  /**
+   * Reports Customer table operation counts and the most frequently accessed customers over the last
+   * {@code windowSeconds}.
+   */
+  @RequestMapping(path = "/hot-keys", method = RequestMethod.GET)
+  public ResponseEntity<HotKeyReport> hotKeys(@RequestParam(defaultValue = "60") int windowSeconds,
+                                              @RequestParam(defaultValue = "20") int limit) {
+
+    log.trace("Entering hotKeys(windowSeconds={}, limit={})", windowSeconds, limit);
+    return new ResponseEntity<>(sampler.report(windowSeconds, limit), OK);
+  }
+}
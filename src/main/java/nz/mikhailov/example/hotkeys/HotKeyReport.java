@@ -0,0 +1,158 @@
+package nz.mikhailov.example.hotkeys;
+
+import java.util.List;
+
+/**
+ * Operation counts and most frequent keys of the Customer table over a time window.
+ */
+public class HotKeyReport {
+
+  private final long from;
+  private final long to;
+  private final double sampleRate;
+  private final long sampledKeys;
+  private final List<OperationFrequency> operations;
+  private final List<KeyFrequency> keys;
+
+  HotKeyReport(long from, long to, double sampleRate, long sampledKeys, List<OperationFrequency> operations,
+               List<KeyFrequency> keys) {
+
+    this.from = from;
+    this.to = to;
+    this.sampleRate = sampleRate;
+    this.sampledKeys = sampledKeys;
+    this.operations = operations;
+    this.keys = keys;
+  }
+
+  public long getFrom() {
+
+    return from;
+  }
+
+  public long getTo() {
+
+    return to;
+  }
+
+  public double getSampleRate() {
+
+    return sampleRate;
+  }
+
+  /**
+   * @return key accesses sampled in the window
+   */
+  public long getSampledKeys() {
+
+    return sampledKeys;
+  }
+
+  public List<OperationFrequency> getOperations() {
+
+    return operations;
+  }
+
+  /**
+   * @return the most frequent keys, most frequent first
+   */
+  public List<KeyFrequency> getKeys() {
+
+    return keys;
+  }
+
+  public static class OperationFrequency {
+
+    private final KeyAccessSampler.Operation operation;
+    private final long count;
+    private final double perSecond;
+
+    OperationFrequency(KeyAccessSampler.Operation operation, long count, double perSecond) {
+
+      this.operation = operation;
+      this.count = count;
+      this.perSecond = perSecond;
+    }
+
+    public KeyAccessSampler.Operation getOperation() {
+
+      return operation;
+    }
+
+    public long getCount() {
+
+      return count;
+    }
+
+    public double getPerSecond() {
+
+      return perSecond;
+    }
+  }
+
+  public static class KeyFrequency {
+
+    private final String key;
+    private final long estimatedAccesses;
+    private final long maxOverestimate;
+    private final long estimatedReads;
+    private final long estimatedWrites;
+    private final double share;
+
+    KeyFrequency(String key, long estimatedAccesses, long maxOverestimate, long estimatedReads, long estimatedWrites,
+                 double share) {
+
+      this.key = key;
+      this.estimatedAccesses = estimatedAccesses;
+      this.maxOverestimate = maxOverestimate;
+      this.estimatedReads = estimatedReads;
+      this.estimatedWrites = estimatedWrites;
+      this.share = share;
+    }
+
+    public String getKey() {
+
+      return key;
+    }
+
+    /**
+     * @return accesses to the key in the window, scaled up from the sample
+     */
+    public long getEstimatedAccesses() {
+
+      return estimatedAccesses;
+    }
+
+    /**
+     * @return how many of the estimated accesses may have been other keys', inherited with the counter
+     */
+    public long getMaxOverestimate() {
+
+      return maxOverestimate;
+    }
+
+    /**
+     * @return reads counted since the key took its counter, scaled up from the sample
+     */
+    public long getEstimatedReads() {
+
+      return estimatedReads;
+    }
+
+    /**
+     * @return writes counted since the key took its counter, scaled up from the sample
+     */
+    public long getEstimatedWrites() {
+
+      return estimatedWrites;
+    }
+
+    /**
+     * @return share of all sampled key accesses
+     */
+    public double getShare() {
+
+      return share;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package nz.mikhailov.example.hotkeys;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Samples the keys of {@code CustomerRepository} operations to find hot keys, which DynamoDB serves from a single
+ * partition, without recording every request.
+ * <p>
+ * Operations are counted exactly, and keys sampled at {@code hotKeys.sampleRate} into a {@link SpaceSaving} summary
+ * of {@code hotKeys.capacity} counters. Both are kept per time slot of {@code hotKeys.slotSeconds}, for the last
+ * {@code hotKeys.retentionSeconds}, and merged over the slots of the window asked for, so the window slides along
+ * one slot at a time. Recording takes a counter increment, a random number and, for sampled keys, a short lock on
+ * the summary of the current slot.
+ */
+@Component
+public class KeyAccessSampler {
+
+  public enum Operation {
+    READ(false), CONSISTENT_READ(false), BATCH_READ(false), SCAN(false), SAVE(true), DELETE(true), BATCH_WRITE(true);
+
+    private final boolean write;
+
+    Operation(boolean write) {
+
+      this.write = write;
+    }
+
+    public boolean isWrite() {
+
+      return write;
+    }
+  }
+
+  @Value("${hotKeys.enabled:true}")
+  private boolean enabled;
+
+  @Value("${hotKeys.sampleRate:0.1}")
+  private double sampleRate;
+
+  @Value("${hotKeys.capacity:100}")
+  private int capacity;
+
+  @Value("${hotKeys.slotSeconds:10}")
+  private int slotSeconds;
+
+  @Value("${hotKeys.retentionSeconds:900}")
+  private int retentionSeconds;
+
+  private final LongSupplier clock;
+
+  private AtomicReferenceArray<Slot> slots;
+
+  public KeyAccessSampler() {
+
+    this.clock = System::currentTimeMillis;
+  }
+
+  KeyAccessSampler(double sampleRate, int capacity, int slotSeconds, int retentionSeconds, LongSupplier clock) {
+
+    this.enabled = true;
+    this.sampleRate = sampleRate;
+    this.capacity = capacity;
+    this.slotSeconds = slotSeconds;
+    this.retentionSeconds = retentionSeconds;
+    this.clock = clock;
+    init();
+  }
+
+  @PostConstruct
+  public void init() {
+
+    slots = new AtomicReferenceArray<>(Math.max(1, retentionSeconds / slotSeconds));
+  }
+
+  /**
+   * Counts an operation not on a single key, such as a scan.
+   */
+  public void record(Operation operation) {
+
+    record(operation, (String) null);
+  }
+
+  public void record(Operation operation, String key) {
+
+    if (!enabled) {
+      return;
+    }
+    Slot slot = currentSlot();
+    slot.operations.get(operation).increment();
+    if (key != null && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+      synchronized (slot.keys) {
+        slot.keys.offer(key, operation.isWrite());
+      }
+    }
+  }
+
+  public void record(Operation operation, Collection<String> keys) {
+
+    if (!enabled) {
+      return;
+    }
+    keys.forEach(key -> record(operation, key));
+  }
+
+  /**
+   * @return operation counts and the {@code limit} most frequent keys over about the last {@code windowSeconds}, in
+   * whole slots up to the retention
+   */
+  public HotKeyReport report(int windowSeconds, int limit) {
+
+    long now = clock.getAsLong();
+    long current = now / slotMillis();
+    int windowSlots = Math.max(1, Math.min(slots.length(), (windowSeconds + slotSeconds - 1) / slotSeconds));
+    long from = (current - windowSlots + 1) * slotMillis();
+
+    Map<Operation, Long> operations = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      operations.put(operation, 0L);
+    }
+    List<List<SpaceSaving.Counter>> summaries = new ArrayList<>();
+    List<Long> floors = new ArrayList<>();
+    long sampled = 0;
+    for (long epoch = current - windowSlots + 1; epoch <= current; epoch++) {
+      Slot slot = slots.get((int) (epoch % slots.length()));
+      if (slot == null || slot.epoch != epoch) {
+        continue;
+      }
+      slot.operations.forEach((operation, count) -> operations.merge(operation, count.sum(), Long::sum));
+      synchronized (slot.keys) {
+        summaries.add(slot.keys.counters());
+        floors.add(slot.keys.floor());
+        sampled += slot.keys.getTotal();
+      }
+    }
+
+    double seconds = Math.max(1, now - from) / 1000.0;
+    List<HotKeyReport.OperationFrequency> operationFrequencies = operations.entrySet().stream()
+        .map(entry -> new HotKeyReport.OperationFrequency(entry.getKey(), entry.getValue(), entry.getValue() / seconds))
+        .collect(toList());
+    long totalSampled = sampled;
+    List<HotKeyReport.KeyFrequency> keys = merge(summaries, floors).stream()
+        .sorted(Comparator.comparingLong((SpaceSaving.Counter counter) -> counter.count).reversed())
+        .limit(limit)
+        .map(counter -> new HotKeyReport.KeyFrequency(counter.key,
+            Math.round(counter.count / sampleRate), Math.round(counter.error / sampleRate),
+            Math.round(counter.reads / sampleRate), Math.round(counter.writes / sampleRate),
+            totalSampled == 0 ? 0 : (double) counter.count / totalSampled))
+        .collect(toList());
+    return new HotKeyReport(from, now, sampleRate, totalSampled, operationFrequencies, keys);
+  }
+
+  /**
+   * Merges the summaries of several slots. A key missing from the summary of a full slot may have been seen there
+   * as often as the lowest count of that slot, which is added to both its count and its possible overestimate.
+   */
+  private static List<SpaceSaving.Counter> merge(List<List<SpaceSaving.Counter>> summaries, List<Long> floors) {
+
+    Map<String, SpaceSaving.Counter> merged = new HashMap<>();
+    Map<String, Long> presentFloors = new HashMap<>();
+    long floorSum = floors.stream().mapToLong(Long::longValue).sum();
+    for (int i = 0; i < summaries.size(); i++) {
+      for (SpaceSaving.Counter counter : summaries.get(i)) {
+        SpaceSaving.Counter total = merged.computeIfAbsent(counter.key, key -> new SpaceSaving.Counter(key, 0));
+        total.count += counter.count;
+        total.error += counter.error;
+        total.reads += counter.reads;
+        total.writes += counter.writes;
+        presentFloors.merge(counter.key, floors.get(i), Long::sum);
+      }
+    }
+    merged.values().forEach(counter -> {
+      long missing = floorSum - presentFloors.get(counter.key);
+      counter.count += missing;
+      counter.error += missing;
+    });
+    return new ArrayList<>(merged.values());
+  }
+
+  private Slot currentSlot() {
+
+    long epoch = clock.getAsLong() / slotMillis();
+    int index = (int) (epoch % slots.length());
+    Slot slot = slots.get(index);
+    while (slot == null || slot.epoch < epoch) {
+      Slot next = new Slot(epoch, capacity);
+      if (slots.compareAndSet(index, slot, next)) {
+        return next;
+      }
+      slot = slots.get(index);
+    }
+    return slot;
+  }
+
+  private long slotMillis() {
+
+    return slotSeconds * 1000L;
+  }
+
+  private static class Slot {
+
+    private final long epoch;
+    private final Map<Operation, LongAdder> operations = new EnumMap<>(Operation.class);
+    private final SpaceSaving keys;
+
+    Slot(long epoch, int capacity) {
+
+      this.epoch = epoch;
+      this.keys = new SpaceSaving(capacity);
+      for (Operation operation : Operation.values()) {
+        operations.put(operation, new LongAdder());
+      }
+    }
+  }
+}
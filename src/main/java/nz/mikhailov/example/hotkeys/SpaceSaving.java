@@ -0,0 +1,101 @@
+package nz.mikhailov.example.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-saving summary of the most frequent keys in a stream, in a fixed number of counters. A key not counted yet
+ * takes over the counter with the lowest count, inheriting that count as its possible overestimate, so the count of
+ * every key is an upper bound and a key more frequent than {@code 1 / capacity} of the stream is always counted.
+ * Not thread-safe.
+ */
+class SpaceSaving {
+
+  private final int capacity;
+  private final Map<String, Counter> counters;
+  private long total;
+
+  SpaceSaving(int capacity) {
+
+    this.capacity = capacity;
+    this.counters = new HashMap<>(capacity * 2);
+  }
+
+  void offer(String key, boolean write) {
+
+    total++;
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      if (counters.size() < capacity) {
+        counter = new Counter(key, 0);
+      } else {
+        Counter smallest = smallest();
+        counters.remove(smallest.key);
+        counter = new Counter(key, smallest.count);
+      }
+      counters.put(key, counter);
+    }
+    counter.count++;
+    if (write) {
+      counter.writes++;
+    } else {
+      counter.reads++;
+    }
+  }
+
+  /**
+   * @return the lowest count, which any key without a counter may have reached, 0 while there are free counters
+   */
+  long floor() {
+
+    return counters.size() < capacity ? 0 : smallest().count;
+  }
+
+  long getTotal() {
+
+    return total;
+  }
+
+  /**
+   * @return copies of the counters
+   */
+  List<Counter> counters() {
+
+    List<Counter> copies = new ArrayList<>(counters.size());
+    counters.values().forEach(counter -> copies.add(counter.copy()));
+    return copies;
+  }
+
+  private Counter smallest() {
+
+    return counters.values().stream().min(Comparator.comparingLong(counter -> counter.count)).get();
+  }
+
+  static class Counter {
+
+    final String key;
+    long count;
+    long error;
+    long reads;
+    long writes;
+
+    Counter(String key, long error) {
+
+      this.key = key;
+      this.count = error;
+      this.error = error;
+    }
+
+    Counter copy() {
+
+      Counter copy = new Counter(key, error);
+      copy.count = count;
+      copy.reads = reads;
+      copy.writes = writes;
+      return copy;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package nz.mikhailov.example.idempotency;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the request body up front, so that it can be inspected before the request is handled, and serves it again
+ * to whoever reads the request afterwards, blocking or through a {@link ReadListener}.
+ */
+class BufferedRequestWrapper extends HttpServletRequestWrapper {
+
+  private final byte[] body;
+
+  private BufferedRequestWrapper(HttpServletRequest request, byte[] body) {
+
+    super(request);
+    this.body = body;
+  }
+
+  /**
+   * @return the request with its body read, or {@code null} if the body is longer than {@code maxBodyBytes}, in which
+   * case it is read no further
+   */
+  static BufferedRequestWrapper buffer(HttpServletRequest request, int maxBodyBytes) throws IOException {
+
+    if (request.getContentLengthLong() > maxBodyBytes) {
+      return null;
+    }
+    ByteArrayOutputStream body = new ByteArrayOutputStream(Math.max(0, request.getContentLength()));
+    byte[] buffer = new byte[4096];
+    InputStream input = request.getInputStream();
+    int read;
+    while ((read = input.read(buffer)) >= 0) {
+      if (body.size() + read > maxBodyBytes) {
+        return null;
+      }
+      body.write(buffer, 0, read);
+    }
+    return new BufferedRequestWrapper(request, body.toByteArray());
+  }
+
+  byte[] getBody() {
+
+    return body;
+  }
+
+  @Override
+  public ServletInputStream getInputStream() throws IOException {
+
+    ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+    return new ServletInputStream() {
+
+      @Override
+      public int read() throws IOException {
+
+        return bytes.read();
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+
+        return bytes.read(buffer, offset, length);
+      }
+
+      @Override
+      public boolean isFinished() {
+
+        return bytes.available() == 0;
+      }
+
+      @Override
+      public boolean isReady() {
+
+        return true;
+      }
+
+      /**
+       * Notifies the listener at once, as the whole body is already read.
+       */
+      @Override
+      public void setReadListener(ReadListener readListener) {
+
+        try {
+          if (!isFinished()) {
+            readListener.onDataAvailable();
+          }
+          if (isFinished()) {
+            readListener.onAllDataRead();
+          }
+        } catch (IOException e) {
+          readListener.onError(e);
+        }
+      }
+    };
+  }
+
+  @Override
+  public BufferedReader getReader() throws IOException {
+
+    String encoding = getCharacterEncoding();
+    return new BufferedReader(new InputStreamReader(getInputStream(),
+        encoding == null ? StandardCharsets.ISO_8859_1.name() : encoding));
+  }
+
+  @Override
+  public int getContentLength() {
+
+    return body.length;
+  }
+
+  @Override
+  public long getContentLengthLong() {
+
+    return body.length;
+  }
+}
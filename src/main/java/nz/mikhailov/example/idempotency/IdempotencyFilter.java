@@ -0,0 +1,166 @@
+package nz.mikhailov.example.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+/**
+ * Makes customer writes carrying an {@code Idempotency-Key} header safe to retry.
+ * <p>
+ * The first response for a key is stored in {@link IdempotencyStore} and replayed for later requests with the
+ * same key without invoking the controller. Duplicates arriving while the first request is still executing
+ * wait for its response. Server errors are not stored, so that they can be retried. Reusing a key for a
+ * different method, path, content type or body is rejected with {@code 422 UNPROCESSABLE ENTITY}. The body is read
+ * into memory to be compared, so a body longer than {@code idempotency.maxBodyBytes} is rejected with
+ * {@code 413 PAYLOAD TOO LARGE}.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+  static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${idempotency.waitTimeoutMillis:30000}")
+  private long waitTimeoutMillis;
+
+  @Value("${idempotency.maxBodyBytes:1048576}")
+  private int maxBodyBytes;
+
+  @Autowired
+  private IdempotencyStore store;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+
+    String method = request.getMethod();
+    return request.getHeader(IDEMPOTENCY_KEY_HEADER) == null ||
+        !request.getRequestURI().startsWith("/v1/customer") ||
+        !("POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+    BufferedRequestWrapper bufferedRequest = BufferedRequestWrapper.buffer(request, maxBodyBytes);
+    if (bufferedRequest == null) {
+      response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+          "Request body with an idempotency key exceeds " + maxBodyBytes + " bytes");
+      return;
+    }
+    String fingerprint = fingerprint(bufferedRequest);
+    while (true) {
+      StoredResponse stored = store.get(key);
+      if (stored != null) {
+        replay(stored, fingerprint, response);
+        return;
+      }
+      CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+      CompletableFuture<StoredResponse> pending = store.startExecution(key, execution);
+      if (pending == null) {
+        execute(key, fingerprint, execution, bufferedRequest, response, filterChain);
+        return;
+      }
+      log.debug("Waiting for in-flight request with idempotency key {}", key);
+      StoredResponse result = await(pending, response);
+      if (result == null && response.isCommitted()) {
+        return;
+      }
+      if (result != null) {
+        replay(result, fingerprint, response);
+        return;
+      }
+      // the first execution failed without a storable response, compete to run it again
+    }
+  }
+
+  /**
+   * @return method, path and content type of the request, and a digest of its body
+   */
+  private static String fingerprint(BufferedRequestWrapper request) {
+
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(request.getBody());
+      return request.getMethod() + " " + request.getRequestURI() + " " + request.getContentType() + " " +
+          Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void execute(String key, String fingerprint, CompletableFuture<StoredResponse> execution,
+                       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    StoredResponse result = null;
+    try {
+      StoredResponse stored = store.get(key);
+      if (stored != null) {
+        // completed between the lookup and claiming the key
+        result = stored;
+        replay(stored, fingerprint, response);
+        return;
+      }
+      ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+      filterChain.doFilter(request, wrapper);
+      if (wrapper.getStatusCode() < 500) {
+        result = new StoredResponse(fingerprint, wrapper.getStatusCode(), wrapper.getContentType(),
+            wrapper.getContentAsByteArray(), System.currentTimeMillis());
+        store.put(key, result);
+      }
+      wrapper.copyBodyToResponse();
+    } finally {
+      store.finishExecution(key, execution, result);
+    }
+  }
+
+  private StoredResponse await(CompletableFuture<StoredResponse> pending, HttpServletResponse response) throws IOException {
+
+    try {
+      return pending.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    } catch (ExecutionException | TimeoutException e) {
+      response.sendError(HttpServletResponse.SC_CONFLICT, "Request with the same idempotency key is still in progress");
+    }
+    return null;
+  }
+
+  private void replay(StoredResponse stored, String fingerprint, HttpServletResponse response) throws IOException {
+
+    if (!stored.getFingerprint().equals(fingerprint)) {
+      response.sendError(UNPROCESSABLE_ENTITY.value(), "Idempotency key was already used for a different request");
+      return;
+    }
+    response.setStatus(stored.getStatus());
+    response.setHeader(REPLAYED_HEADER, "true");
+    if (stored.getContentType() != null) {
+      response.setContentType(stored.getContentType());
+    }
+    response.setContentLength(stored.getBody().length);
+    response.getOutputStream().write(stored.getBody());
+  }
+}
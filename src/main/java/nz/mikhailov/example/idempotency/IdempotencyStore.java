@@ -0,0 +1,101 @@
+package nz.mikhailov.example.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded in-process store of responses by idempotency key.
+ * Entries expire after {@code idempotency.ttlMillis}, and the least recently used entry is evicted
+ * once {@code idempotency.maxEntries} is reached. Requests still executing are tracked separately,
+ * so that concurrent duplicates can wait for the first execution instead of repeating it.
+ */
+@Component
+public class IdempotencyStore {
+
+  @Value("${idempotency.maxEntries:10000}")
+  private int maxEntries;
+
+  @Value("${idempotency.ttlMillis:86400000}")
+  private long ttlMillis;
+
+  private final Map<String, StoredResponse> responses = new LinkedHashMap<String, StoredResponse>(16, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+
+      return size() > maxEntries;
+    }
+  };
+
+  private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+  StoredResponse get(String key) {
+
+    synchronized (responses) {
+      StoredResponse response = responses.get(key);
+      if (response != null && isExpired(response, System.currentTimeMillis())) {
+        responses.remove(key);
+        return null;
+      }
+      return response;
+    }
+  }
+
+  void put(String key, StoredResponse response) {
+
+    synchronized (responses) {
+      responses.put(key, response);
+    }
+  }
+
+  /**
+   * @return {@code null} if the caller now owns the execution for the key,
+   * otherwise the pending result of the execution already in progress
+   */
+  CompletableFuture<StoredResponse> startExecution(String key, CompletableFuture<StoredResponse> execution) {
+
+    return inFlight.putIfAbsent(key, execution);
+  }
+
+  void finishExecution(String key, CompletableFuture<StoredResponse> execution, StoredResponse response) {
+
+    inFlight.remove(key, execution);
+    execution.complete(response);
+  }
+
+  public int size() {
+
+    synchronized (responses) {
+      return responses.size();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${idempotency.evictionIntervalMillis:60000}")
+  public void evictExpired() {
+
+    long now = System.currentTimeMillis();
+    synchronized (responses) {
+      Iterator<StoredResponse> iterator = responses.values().iterator();
+      while (iterator.hasNext()) {
+        if (isExpired(iterator.next(), now)) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  private boolean isExpired(StoredResponse response, long now) {
+
+    return now - response.getStoredAt() > ttlMillis;
+  }
+}
@@ -0,0 +1,47 @@
+package nz.mikhailov.example.idempotency;
+
+/**
+ * Response captured for an idempotency key, replayed verbatim for retries carrying the same key.
+ */
+class StoredResponse {
+
+  private final String fingerprint;
+  private final int status;
+  private final String contentType;
+  private final byte[] body;
+  private final long storedAt;
+
+  StoredResponse(String fingerprint, int status, String contentType, byte[] body, long storedAt) {
+
+    this.fingerprint = fingerprint;
+    this.status = status;
+    this.contentType = contentType;
+    this.body = body;
+    this.storedAt = storedAt;
+  }
+
+  String getFingerprint() {
+
+    return fingerprint;
+  }
+
+  int getStatus() {
+
+    return status;
+  }
+
+  String getContentType() {
+
+    return contentType;
+  }
+
+  byte[] getBody() {
+
+    return body;
+  }
+
+  long getStoredAt() {
+
+    return storedAt;
+  }
+}
@@ -0,0 +1,138 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import nz.mikhailov.example.util.BatchWriter;
+import nz.mikhailov.example.util.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Writes migrated items back with one conditional {@code UpdateItem} each, which only changes the attributes the
+ * migration changed, and only if the item still has every attribute as it was scanned. An item written by the
+ * application since it was scanned is left as it is and counted as skipped, for the next run to migrate. Writes are
+ * limited by a {@link TokenBucket} of write capacity units, like {@link BatchWriter}. Safe for use by concurrent
+ * threads sharing the limit.
+ */
+class ConditionalRewriter {
+
+  /** Write of an item up to 1 KB, used when DynamoDB does not report consumed capacity. */
+  private static final double ESTIMATED_UNITS_PER_ITEM = 1;
+
+  private final AmazonDynamoDB dynamoDB;
+  private final String tableName;
+  private final Set<String> keyNames;
+  private final TokenBucket capacity;
+  private final DoubleAdder consumedCapacity = new DoubleAdder();
+
+  ConditionalRewriter(AmazonDynamoDB dynamoDB, String tableName, Set<String> keyNames, TokenBucket capacity) {
+
+    this.dynamoDB = dynamoDB;
+    this.tableName = tableName;
+    this.keyNames = keyNames;
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return whether the item was written, {@code false} if it changed since it was scanned
+   */
+  boolean rewrite(Map<String, AttributeValue> scanned, Map<String, AttributeValue> migrated)
+      throws InterruptedException {
+
+    UpdateItemRequest request = updateRequest(scanned, migrated);
+    if (request == null) {
+      return true;
+    }
+    capacity.acquire(0);
+    try {
+      UpdateItemResult result = dynamoDB.updateItem(request);
+      double units = BatchWriter.capacityUnits(Collections.singletonList(result.getConsumedCapacity()),
+          ESTIMATED_UNITS_PER_ITEM);
+      capacity.consume(units);
+      consumedCapacity.add(units);
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      capacity.consume(ESTIMATED_UNITS_PER_ITEM);
+      consumedCapacity.add(ESTIMATED_UNITS_PER_ITEM);
+      return false;
+    }
+  }
+
+  double getConsumedCapacity() {
+
+    return consumedCapacity.sum();
+  }
+
+  /**
+   * @return a request setting the attributes added or changed by the migration and removing those it removed, on
+   * condition that the item exists with all scanned attributes unchanged and none of the added ones, or
+   * {@code null} if the migration changed nothing
+   */
+  UpdateItemRequest updateRequest(Map<String, AttributeValue> scanned, Map<String, AttributeValue> migrated) {
+
+    Map<String, AttributeValue> key = new HashMap<>();
+    keyNames.forEach(name -> key.put(name, scanned.get(name)));
+    Map<String, String> names = new HashMap<>();
+    Map<String, AttributeValue> values = new HashMap<>();
+    List<String> conditions = new ArrayList<>();
+    List<String> sets = new ArrayList<>();
+    List<String> removes = new ArrayList<>();
+    conditions.add("attribute_exists(#k)");
+    names.put("#k", keyNames.iterator().next());
+    Set<String> attributes = new LinkedHashSet<>(scanned.keySet());
+    attributes.addAll(migrated.keySet());
+    attributes.removeAll(keyNames);
+    int i = 0;
+    for (String attribute : attributes) {
+      String name = "#a" + i;
+      AttributeValue before = scanned.get(attribute);
+      AttributeValue after = migrated.get(attribute);
+      names.put(name, attribute);
+      if (before != null) {
+        values.put(":o" + i, before);
+        conditions.add(name + " = :o" + i);
+      } else {
+        conditions.add("attribute_not_exists(" + name + ")");
+      }
+      if (!Objects.equals(before, after)) {
+        if (after != null) {
+          values.put(":n" + i, after);
+          sets.add(name + " = :n" + i);
+        } else {
+          removes.add(name);
+        }
+      }
+      i++;
+    }
+    if (sets.isEmpty() && removes.isEmpty()) {
+      return null;
+    }
+    StringBuilder update = new StringBuilder();
+    if (!sets.isEmpty()) {
+      update.append("SET ").append(String.join(", ", sets));
+    }
+    if (!removes.isEmpty()) {
+      update.append(update.length() > 0 ? " " : "").append("REMOVE ").append(String.join(", ", removes));
+    }
+    return new UpdateItemRequest()
+        .withTableName(tableName)
+        .withKey(key)
+        .withUpdateExpression(update.toString())
+        .withConditionExpression(String.join(" AND ", conditions))
+        .withExpressionAttributeNames(names)
+        .withExpressionAttributeValues(values.isEmpty() ? null : values)
+        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+  }
+}
@@ -0,0 +1,32 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Rewrites items stored in another encoding than the configured {@link CompactItemEncoding}, converting a table
+ * to the compact encoding, or back to the plain one.
+ */
+@Component
+public class ItemReencoding implements Migration {
+
+  @Autowired
+  private CompactItemEncoding encoding;
+
+  @Override
+  public String getName() {
+
+    return "reencode-items";
+  }
+
+  @Override
+  public Map<String, AttributeValue> migrate(Map<String, AttributeValue> item) {
+
+    Map<String, AttributeValue> encoded = encoding.encode(item);
+    return encoded.equals(item) ? null : encoded;
+  }
+}
@@ -0,0 +1,25 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * Transformation of Customer table items, run over the whole table by {@link MigrationRunner}.
+ * Register an implementation as a bean to make it available.
+ */
+public interface Migration {
+
+  /**
+   * @return unique name of the migration, used in its URL and checkpoint
+   */
+  String getName();
+
+  /**
+   * Transforms an item. As a run can be interrupted and resumed, and items may already be in the new form,
+   * the transformation has to be idempotent.
+   *
+   * @return the item to write in place of the given one, or {@code null} to leave it unchanged
+   */
+  Map<String, AttributeValue> migrate(Map<String, AttributeValue> item);
+}
@@ -0,0 +1,126 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a migration run that can be resumed: per scan segment, the key of the last item whose rewrite
+ * completed, or whether the segment is done, and the counts so far.
+ */
+public class MigrationCheckpoint {
+
+  private int totalSegments;
+  private List<Map<String, AttributeValue>> lastKeys = new ArrayList<>();
+  private List<Boolean> done = new ArrayList<>();
+  private long scanned;
+  private long changed;
+  private long written;
+  private long skipped;
+
+  public MigrationCheckpoint() {
+
+  }
+
+  MigrationCheckpoint(int totalSegments) {
+
+    this.totalSegments = totalSegments;
+    for (int segment = 0; segment < totalSegments; segment++) {
+      lastKeys.add(null);
+      done.add(false);
+    }
+  }
+
+  synchronized void pageCompleted(int segment, Map<String, AttributeValue> lastKey, long scanned, long changed,
+                                  long written, long skipped) {
+
+    lastKeys.set(segment, lastKey);
+    done.set(segment, lastKey == null);
+    this.scanned += scanned;
+    this.changed += changed;
+    this.written += written;
+    this.skipped += skipped;
+  }
+
+  synchronized Map<String, AttributeValue> lastKey(int segment) {
+
+    return lastKeys.get(segment);
+  }
+
+  synchronized boolean isDone(int segment) {
+
+    return done.get(segment);
+  }
+
+  public int getTotalSegments() {
+
+    return totalSegments;
+  }
+
+  public void setTotalSegments(int totalSegments) {
+
+    this.totalSegments = totalSegments;
+  }
+
+  public synchronized List<Map<String, AttributeValue>> getLastKeys() {
+
+    return new ArrayList<>(lastKeys);
+  }
+
+  public void setLastKeys(List<Map<String, AttributeValue>> lastKeys) {
+
+    this.lastKeys = new ArrayList<>(lastKeys);
+  }
+
+  public synchronized List<Boolean> getDone() {
+
+    return new ArrayList<>(done);
+  }
+
+  public void setDone(List<Boolean> done) {
+
+    this.done = new ArrayList<>(done);
+  }
+
+  public synchronized long getScanned() {
+
+    return scanned;
+  }
+
+  public void setScanned(long scanned) {
+
+    this.scanned = scanned;
+  }
+
+  public synchronized long getChanged() {
+
+    return changed;
+  }
+
+  public void setChanged(long changed) {
+
+    this.changed = changed;
+  }
+
+  public synchronized long getWritten() {
+
+    return written;
+  }
+
+  public void setWritten(long written) {
+
+    this.written = written;
+  }
+
+  public synchronized long getSkipped() {
+
+    return skipped;
+  }
+
+  public void setSkipped(long skipped) {
+
+    this.skipped = skipped;
+  }
+}
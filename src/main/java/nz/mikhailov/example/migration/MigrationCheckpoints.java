@@ -0,0 +1,69 @@
+package nz.mikhailov.example.migration;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps migration checkpoints as Json files in {@code migration.checkpointDirectory}, one per migration.
+ * Files are replaced atomically, so an interrupted save leaves the previous checkpoint in place.
+ */
+@Component
+public class MigrationCheckpoints {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  @Value("${migration.checkpointDirectory:migrations}")
+  private String directory;
+
+  /**
+   * @return the checkpoint of an interrupted run, {@code null} if there is none
+   */
+  MigrationCheckpoint load(String migration) {
+
+    Path file = file(migration);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(file.toFile(), MigrationCheckpoint.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read checkpoint " + file, e);
+    }
+  }
+
+  synchronized void save(String migration, MigrationCheckpoint checkpoint) {
+
+    Path file = file(migration);
+    try {
+      Files.createDirectories(file.getParent());
+      Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+      objectMapper.writeValue(temporary.toFile(), checkpoint);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write checkpoint " + file, e);
+    }
+  }
+
+  void delete(String migration) {
+
+    try {
+      Files.deleteIfExists(file(migration));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not delete checkpoint of " + migration, e);
+    }
+  }
+
+  private Path file(String migration) {
+
+    return Paths.get(directory).toAbsolutePath().resolve(migration + ".json");
+  }
+}
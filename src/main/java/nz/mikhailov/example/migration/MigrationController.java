@@ -0,0 +1,82 @@
+package nz.mikhailov.example.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class MigrationController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private MigrationRunner runner;
+
+  @RequestMapping(path = "/migrations", method = RequestMethod.GET)
+  public ResponseEntity<List<MigrationProgress>> list() {
+
+    log.trace("Entering list()");
+    List<MigrationProgress> migrations = runner.getMigrationNames().stream()
+        .map(name -> runner.getProgress(name).get())
+        .collect(Collectors.toList());
+    return new ResponseEntity<>(migrations, OK);
+  }
+
+  @RequestMapping(path = "/migrations/{name}", method = RequestMethod.GET)
+  public ResponseEntity<MigrationProgress> progress(@PathVariable String name) {
+
+    log.trace("Entering progress(name={})", name);
+    return runner.getProgress(name)
+        .map(progress -> new ResponseEntity<>(progress, OK))
+        .orElse(new ResponseEntity<>(NOT_FOUND));
+  }
+
+  /**
+   * Starts a migration in the background. A dry run scans and transforms without writing, {@code sampleItems}
+   * items or the whole table, and projects how long the real run would take.
+   */
+  @RequestMapping(path = "/migrations/{name}/run", method = RequestMethod.POST)
+  public ResponseEntity<MigrationProgress> run(@PathVariable String name,
+                                               @RequestParam(defaultValue = "false") boolean dryRun,
+                                               @RequestParam(defaultValue = "0") long sampleItems) {
+
+    log.trace("Entering run(name={}, dryRun={}, sampleItems={})", name, dryRun, sampleItems);
+    try {
+      return runner.start(name, dryRun, sampleItems)
+          .map(progress -> new ResponseEntity<>(progress, ACCEPTED))
+          .orElse(new ResponseEntity<>(NOT_FOUND));
+    } catch (IllegalStateException e) {
+      return new ResponseEntity<>(runner.getProgress(name).orElse(null), CONFLICT);
+    }
+  }
+
+  /**
+   * Stops a running migration after its current pages. A later run resumes where it stopped.
+   */
+  @RequestMapping(path = "/migrations/{name}/stop", method = RequestMethod.POST)
+  public ResponseEntity<MigrationProgress> stop(@PathVariable String name) {
+
+    log.trace("Entering stop(name={})", name);
+    if (!runner.stop(name)) {
+      return runner.getProgress(name)
+          .map(progress -> new ResponseEntity<>(progress, CONFLICT))
+          .orElse(new ResponseEntity<>(NOT_FOUND));
+    }
+    return new ResponseEntity<>(runner.getProgress(name).get(), ACCEPTED);
+  }
+}
@@ -0,0 +1,163 @@
+package nz.mikhailov.example.migration;
+
+/**
+ * Point-in-time view of a migration run. Counts include the runs resumed from.
+ */
+public class MigrationProgress {
+
+  public enum State {
+    IDLE, RUNNING, STOPPED, COMPLETED, FAILED
+  }
+
+  private final String migration;
+  private final State state;
+  private final boolean dryRun;
+  private final boolean resumable;
+  private final long startedAt;
+  private final long elapsedMillis;
+  private final long scanned;
+  private final long changed;
+  private final long written;
+  private final long skipped;
+  private final double consumedReadCapacity;
+  private final double consumedWriteCapacity;
+  private final double itemsPerSecond;
+  private final long estimatedTotalItems;
+  private final long projectedDurationMillis;
+  private final String error;
+
+  MigrationProgress(String migration, State state, boolean dryRun, boolean resumable, long startedAt,
+                    long elapsedMillis, long scanned, long changed, long written, long skipped,
+                    double consumedReadCapacity,
+                    double consumedWriteCapacity, double itemsPerSecond, long estimatedTotalItems,
+                    long projectedDurationMillis, String error) {
+
+    this.migration = migration;
+    this.state = state;
+    this.dryRun = dryRun;
+    this.resumable = resumable;
+    this.startedAt = startedAt;
+    this.elapsedMillis = elapsedMillis;
+    this.scanned = scanned;
+    this.changed = changed;
+    this.written = written;
+    this.skipped = skipped;
+    this.consumedReadCapacity = consumedReadCapacity;
+    this.consumedWriteCapacity = consumedWriteCapacity;
+    this.itemsPerSecond = itemsPerSecond;
+    this.estimatedTotalItems = estimatedTotalItems;
+    this.projectedDurationMillis = projectedDurationMillis;
+    this.error = error;
+  }
+
+  static MigrationProgress idle(String migration, boolean resumable) {
+
+    return new MigrationProgress(migration, State.IDLE, false, resumable, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, null);
+  }
+
+  public String getMigration() {
+
+    return migration;
+  }
+
+  public State getState() {
+
+    return state;
+  }
+
+  /**
+   * @return whether the run only scans and transforms items, without writing them
+   */
+  public boolean isDryRun() {
+
+    return dryRun;
+  }
+
+  /**
+   * @return whether an interrupted run left a checkpoint that the next run resumes from
+   */
+  public boolean isResumable() {
+
+    return resumable;
+  }
+
+  /**
+   * @return epoch millis the run started at, {@code 0} if it has not run yet
+   */
+  public long getStartedAt() {
+
+    return startedAt;
+  }
+
+  public long getElapsedMillis() {
+
+    return elapsedMillis;
+  }
+
+  public long getScanned() {
+
+    return scanned;
+  }
+
+  /**
+   * @return the items the migration transformed, whether written or, in a dry run, not
+   */
+  public long getChanged() {
+
+    return changed;
+  }
+
+  public long getWritten() {
+
+    return written;
+  }
+
+  /**
+   * @return changed items not written because the application wrote them since they were scanned, left for the next
+   * run to migrate
+   */
+  public long getSkipped() {
+
+    return skipped;
+  }
+
+  public double getConsumedReadCapacity() {
+
+    return consumedReadCapacity;
+  }
+
+  public double getConsumedWriteCapacity() {
+
+    return consumedWriteCapacity;
+  }
+
+  /**
+   * @return the items scanned per second by this run
+   */
+  public double getItemsPerSecond() {
+
+    return itemsPerSecond;
+  }
+
+  /**
+   * @return the item count of the table when the run started, as reported by DynamoDB
+   */
+  public long getEstimatedTotalItems() {
+
+    return estimatedTotalItems;
+  }
+
+  /**
+   * @return the projected duration of a full run: of this run while it is running, and of the real run
+   * after a dry run
+   */
+  public long getProjectedDurationMillis() {
+
+    return projectedDurationMillis;
+  }
+
+  public String getError() {
+
+    return error;
+  }
+}
@@ -0,0 +1,353 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.migration.MigrationProgress.State;
+import nz.mikhailov.example.util.BatchWriter;
+import nz.mikhailov.example.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs {@link Migration migrations} over the Customer table.
+ * <p>
+ * The table is read by a strongly consistent parallel scan of {@code migration.segments} segments in pages of
+ * {@code migration.pageSize} items, and transformed items are written back by a {@link ConditionalRewriter}, which
+ * skips items the application wrote since they were scanned. Reads and writes are limited to
+ * {@code migration.readCapacityPerSecond} and {@code migration.writeCapacityPerSecond} capacity units, as reported
+ * consumed by DynamoDB, so that a migration leaves capacity for the application.
+ * <p>
+ * After each page the position of its segment is checkpointed, and a stopped or failed run resumes from there.
+ * A dry run scans and transforms without writing, optionally only {@code sampleItems} items, and projects
+ * the duration of the real run from the measured scan rate, the share of changed items and the write limit.
+ */
+@Component
+public class MigrationRunner {
+
+  /** Strongly consistent read of an item up to 4 KB, used when DynamoDB does not report consumed capacity. */
+  private static final double ESTIMATED_READ_UNITS_PER_ITEM = 1;
+
+  /** Write of an item up to 1 KB, used for projections. */
+  private static final double ESTIMATED_WRITE_UNITS_PER_ITEM = 1;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${migration.segments:4}")
+  private int segments;
+
+  @Value("${migration.pageSize:100}")
+  private int pageSize;
+
+  @Value("${migration.readCapacityPerSecond:10}")
+  private double readCapacityPerSecond;
+
+  @Value("${migration.writeCapacityPerSecond:10}")
+  private double writeCapacityPerSecond;
+
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private DynamoDBMapper dbMapper;
+
+  @Autowired
+  private MigrationCheckpoints checkpoints;
+
+  @Autowired(required = false)
+  private List<Migration> migrations = Collections.emptyList();
+
+  private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+  public List<String> getMigrationNames() {
+
+    List<String> names = new ArrayList<>();
+    migrations.forEach(migration -> names.add(migration.getName()));
+    return names;
+  }
+
+  public Optional<MigrationProgress> getProgress(String name) {
+
+    return find(name).map(migration -> {
+      Run run = runs.get(name);
+      return run != null ? run.progress() : MigrationProgress.idle(name, checkpoints.load(name) != null);
+    });
+  }
+
+  /**
+   * Starts a run in the background, resuming from the checkpoint of an interrupted run unless it is a dry run.
+   *
+   * @param sampleItems for a dry run, the number of items to scan before projecting, or {@code 0} for all
+   * @return progress of the started run, empty if there is no such migration
+   * @throws IllegalStateException if the migration is already running
+   */
+  public synchronized Optional<MigrationProgress> start(String name, boolean dryRun, long sampleItems) {
+
+    Optional<Migration> migration = find(name);
+    if (!migration.isPresent()) {
+      return Optional.empty();
+    }
+    Run previous = runs.get(name);
+    if (previous != null && previous.state == State.RUNNING) {
+      throw new IllegalStateException("Migration " + name + " is already running");
+    }
+    MigrationCheckpoint checkpoint = dryRun ? null : checkpoints.load(name);
+    if (checkpoint == null) {
+      checkpoint = new MigrationCheckpoint(segments);
+    } else {
+      log.info("Resuming migration {} after {} items", name, checkpoint.getScanned());
+    }
+    Run run = new Run(migration.get(), dryRun, sampleItems, checkpoint);
+    runs.put(name, run);
+    Thread thread = new CustomizableThreadFactory("migration-").newThread(() -> execute(run));
+    thread.start();
+    return Optional.of(run.progress());
+  }
+
+  /**
+   * Asks a running migration to stop after its current pages.
+   *
+   * @return whether the migration was running
+   */
+  public boolean stop(String name) {
+
+    Run run = runs.get(name);
+    if (run == null || run.state != State.RUNNING) {
+      return false;
+    }
+    run.stopRequested = true;
+    return true;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    runs.values().forEach(run -> run.stopRequested = true);
+  }
+
+  private Optional<Migration> find(String name) {
+
+    return migrations.stream().filter(migration -> migration.getName().equals(name)).findFirst();
+  }
+
+  void execute(Run run) {
+
+    String name = run.migration.getName();
+    log.info("Starting {}migration {}", run.dryRun ? "dry run of " : "", name);
+    int totalSegments = run.checkpoint.getTotalSegments();
+    ExecutorService executor = Executors.newFixedThreadPool(totalSegments,
+        new CustomizableThreadFactory("migration-" + name + "-"));
+    try {
+      CreateTableRequest table = dbMapper.generateCreateTableRequest(Customer.class);
+      run.tableName = table.getTableName();
+      Set<String> keyNames = new LinkedHashSet<>();
+      table.getKeySchema().stream().map(KeySchemaElement::getAttributeName).forEach(keyNames::add);
+      run.rewriter = new ConditionalRewriter(dynamoDB, run.tableName, keyNames, run.writes);
+      run.estimatedTotalItems = estimateItemCount(run.tableName);
+      List<Future<?>> segmentRuns = new ArrayList<>();
+      for (int segment = 0; segment < totalSegments; segment++) {
+        if (!run.checkpoint.isDone(segment)) {
+          int currentSegment = segment;
+          segmentRuns.add(executor.submit(() -> {
+            migrateSegment(run, currentSegment);
+            return null;
+          }));
+        }
+      }
+      for (Future<?> segmentRun : segmentRuns) {
+        segmentRun.get();
+      }
+      if (run.stopRequested) {
+        run.finish(State.STOPPED, null);
+      } else {
+        if (!run.dryRun) {
+          checkpoints.delete(name);
+        }
+        run.finish(State.COMPLETED, null);
+      }
+    } catch (ExecutionException e) {
+      run.stopRequested = true;
+      run.finish(State.FAILED, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      run.finish(State.STOPPED, null);
+    } catch (RuntimeException e) {
+      run.finish(State.FAILED, e);
+    } finally {
+      executor.shutdownNow();
+    }
+    MigrationProgress progress = run.progress();
+    log.info("Migration {} {}: scanned {}, changed {}, written {}, skipped {} items in {} ms", name,
+        progress.getState(), progress.getScanned(), progress.getChanged(), progress.getWritten(), progress.getSkipped(),
+        progress.getElapsedMillis());
+  }
+
+  private long estimateItemCount(String tableName) {
+
+    try {
+      Long itemCount = dynamoDB.describeTable(tableName).getTable().getItemCount();
+      return itemCount != null ? itemCount : 0;
+    } catch (AmazonClientException e) {
+      log.warn("Could not estimate item count of {}: {}", tableName, e.getMessage());
+      return 0;
+    }
+  }
+
+  private void migrateSegment(Run run, int segment) throws InterruptedException {
+
+    Map<String, AttributeValue> startKey = run.checkpoint.lastKey(segment);
+    do {
+      if (run.stopRequested || run.isSampled()) {
+        return;
+      }
+      run.reads.acquire(0);
+      ScanResult page = dynamoDB.scan(new ScanRequest(run.tableName)
+          .withSegment(segment)
+          .withTotalSegments(run.checkpoint.getTotalSegments())
+          .withLimit(pageSize)
+          .withExclusiveStartKey(startKey)
+          .withConsistentRead(true)
+          .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+      double readUnits = BatchWriter.capacityUnits(Collections.singletonList(page.getConsumedCapacity()),
+          page.getCount() * ESTIMATED_READ_UNITS_PER_ITEM);
+      run.reads.consume(readUnits);
+      run.readUnits.add(readUnits);
+
+      long changed = 0;
+      long written = 0;
+      long skipped = 0;
+      for (Map<String, AttributeValue> item : page.getItems()) {
+        Map<String, AttributeValue> migrated = run.migration.migrate(item);
+        if (migrated == null) {
+          continue;
+        }
+        changed++;
+        if (run.dryRun) {
+          continue;
+        }
+        if (run.rewriter.rewrite(item, migrated)) {
+          written++;
+        } else {
+          skipped++;
+        }
+      }
+      run.scanned.add(page.getCount());
+      run.changed.add(changed);
+      run.written.add(written);
+      run.skipped.add(skipped);
+      startKey = page.getLastEvaluatedKey();
+      if (!run.dryRun) {
+        run.checkpoint.pageCompleted(segment, startKey, page.getCount(), changed, written, skipped);
+        checkpoints.save(run.migration.getName(), run.checkpoint);
+      }
+    } while (startKey != null);
+  }
+
+  class Run {
+
+    private final Migration migration;
+    private final boolean dryRun;
+    private final long sampleItems;
+    private final MigrationCheckpoint checkpoint;
+    private final long resumedScanned;
+    private final long resumedChanged;
+    private final long resumedWritten;
+    private final long resumedSkipped;
+    private final TokenBucket reads = new TokenBucket(readCapacityPerSecond, readCapacityPerSecond);
+    private final TokenBucket writes = new TokenBucket(writeCapacityPerSecond, writeCapacityPerSecond);
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final DoubleAdder readUnits = new DoubleAdder();
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private volatile String tableName;
+    private volatile ConditionalRewriter rewriter;
+    private volatile long estimatedTotalItems;
+    private volatile State state = State.RUNNING;
+    private volatile boolean stopRequested;
+    private volatile long finishNanos;
+    private volatile String error;
+
+    Run(Migration migration, boolean dryRun, long sampleItems, MigrationCheckpoint checkpoint) {
+
+      this.migration = migration;
+      this.dryRun = dryRun;
+      this.sampleItems = sampleItems;
+      this.checkpoint = checkpoint;
+      this.resumedScanned = checkpoint.getScanned();
+      this.resumedChanged = checkpoint.getChanged();
+      this.resumedWritten = checkpoint.getWritten();
+      this.resumedSkipped = checkpoint.getSkipped();
+    }
+
+    boolean isSampled() {
+
+      return dryRun && sampleItems > 0 && scanned.sum() >= sampleItems;
+    }
+
+    void finish(State state, Throwable error) {
+
+      if (error != null) {
+        log.error("Migration {} failed", migration.getName(), error);
+        this.error = error.getMessage();
+      }
+      finishNanos = System.nanoTime();
+      this.state = state;
+    }
+
+    MigrationProgress progress() {
+
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis((state == State.RUNNING ? System.nanoTime() : finishNanos) - startNanos);
+      long scannedNow = scanned.sum();
+      double itemsPerSecond = elapsedMillis > 0 ? scannedNow * 1000.0 / elapsedMillis : 0;
+      long totalScanned = resumedScanned + scannedNow;
+      long total = Math.max(estimatedTotalItems, totalScanned);
+      long projectedMillis = 0;
+      if (itemsPerSecond > 0) {
+        if (dryRun) {
+          double changedShare = (double) changed.sum() / scannedNow;
+          double scanSeconds = total / itemsPerSecond;
+          double writeSeconds = total * changedShare * ESTIMATED_WRITE_UNITS_PER_ITEM / writeCapacityPerSecond;
+          projectedMillis = (long) (Math.max(scanSeconds, writeSeconds) * 1000);
+        } else {
+          projectedMillis = elapsedMillis + (long) ((total - totalScanned) / itemsPerSecond * 1000);
+        }
+      }
+      return new MigrationProgress(migration.getName(), state, dryRun, !dryRun && state != State.COMPLETED,
+          startedAt, elapsedMillis, totalScanned, resumedChanged + changed.sum(), resumedWritten + written.sum(),
+          resumedSkipped + skipped.sum(), readUnits.sum(), rewriter == null ? 0 : rewriter.getConsumedCapacity(),
+          itemsPerSecond, estimatedTotalItems, projectedMillis, error);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Normalises stored phone numbers to digits only, with the leading {@code +} of international numbers kept,
+ * so {@code +44 (151) 123-4567} becomes {@code +441511234567}. Numbers without any digits are left as they are.
+ */
+@Component
+public class PhoneNumberNormalisation implements Migration {
+
+  static final String ATTRIBUTE = "PhoneNumber";
+
+  @Autowired
+  private CompactItemEncoding encoding;
+
+  @Override
+  public String getName() {
+
+    return "normalise-phone-numbers";
+  }
+
+  @Override
+  public Map<String, AttributeValue> migrate(Map<String, AttributeValue> storedItem) {
+
+    Map<String, AttributeValue> item = CompactItemEncoding.decode(storedItem);
+    AttributeValue phoneNumber = item.get(ATTRIBUTE);
+    if (phoneNumber == null || phoneNumber.getS() == null) {
+      return null;
+    }
+    String normalised = normalise(phoneNumber.getS());
+    if (normalised.equals(phoneNumber.getS()) || normalised.replace("+", "").isEmpty()) {
+      return null;
+    }
+    Map<String, AttributeValue> migrated = new HashMap<>(item);
+    migrated.put(ATTRIBUTE, new AttributeValue(normalised));
+    return encoding.encode(migrated);
+  }
+
+  static String normalise(String phoneNumber) {
+
+    String trimmed = phoneNumber.trim();
+    StringBuilder normalised = new StringBuilder(trimmed.length());
+    if (trimmed.startsWith("+")) {
+      normalised.append('+');
+    }
+    for (int i = 0; i < trimmed.length(); i++) {
+      char c = trimmed.charAt(i);
+      if (c >= '0' && c <= '9') {
+        normalised.append(c);
+      }
+    }
+    return normalised.toString();
+  }
+}
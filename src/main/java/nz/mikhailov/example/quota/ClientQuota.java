@@ -0,0 +1,113 @@
+package nz.mikhailov.example.quota;
+
+import nz.mikhailov.example.util.TokenBucket;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request and capacity unit token buckets of a client, each holding up to the number of seconds of burst given,
+ * with the usage counted since the client was first seen. Each bucket is locked on its own, so clients never wait
+ * for each other.
+ */
+class ClientQuota {
+
+  private final String client;
+  private final double requestsPerSecond;
+  private final double capacityUnitsPerSecond;
+  private final boolean adjusted;
+  private final TokenBucket requests;
+  private final TokenBucket capacity;
+  private final LongAdder admitted;
+  private final LongAdder rejected;
+  private final DoubleAdder consumedCapacity;
+  private volatile long lastUsedAt = System.currentTimeMillis();
+
+  ClientQuota(String client, double requestsPerSecond, double capacityUnitsPerSecond, double burstSeconds,
+              boolean adjusted, ClientQuota previous) {
+
+    this.client = client;
+    this.requestsPerSecond = requestsPerSecond;
+    this.capacityUnitsPerSecond = capacityUnitsPerSecond;
+    this.adjusted = adjusted;
+    this.requests = new TokenBucket(requestsPerSecond, Math.max(1, requestsPerSecond * burstSeconds));
+    this.capacity = new TokenBucket(capacityUnitsPerSecond, Math.max(1, capacityUnitsPerSecond * burstSeconds));
+    this.admitted = previous == null ? new LongAdder() : previous.admitted;
+    this.rejected = previous == null ? new LongAdder() : previous.rejected;
+    this.consumedCapacity = previous == null ? new DoubleAdder() : previous.consumedCapacity;
+  }
+
+  /**
+   * Takes a request token, if any, and the capacity used by earlier requests has been paid off.
+   */
+  boolean tryAcquire() {
+
+    lastUsedAt = System.currentTimeMillis();
+    if (capacity.available() < 0 || !requests.tryAcquire(1)) {
+      rejected.increment();
+      return false;
+    }
+    admitted.increment();
+    return true;
+  }
+
+  /**
+   * Charges capacity units consumed, possibly going into debt.
+   */
+  void consume(double units) {
+
+    capacity.consume(units);
+    consumedCapacity.add(units);
+  }
+
+  /**
+   * @return seconds until the next request would be admitted
+   */
+  long retryAfterSeconds() {
+
+    double requestWait = (1 - requests.available()) / requestsPerSecond;
+    double capacityWait = -capacity.available() / capacityUnitsPerSecond;
+    return Math.max(1, (long) Math.ceil(Math.max(requestWait, capacityWait)));
+  }
+
+  String getClient() {
+
+    return client;
+  }
+
+  double getRequestsPerSecond() {
+
+    return requestsPerSecond;
+  }
+
+  double getCapacityUnitsPerSecond() {
+
+    return capacityUnitsPerSecond;
+  }
+
+  boolean isAdjusted() {
+
+    return adjusted;
+  }
+
+  double availableRequests() {
+
+    return requests.available();
+  }
+
+  double availableCapacity() {
+
+    return capacity.available();
+  }
+
+  long getLastUsedAt() {
+
+    return lastUsedAt;
+  }
+
+  ClientUsage usage() {
+
+    return new ClientUsage(client, requestsPerSecond, capacityUnitsPerSecond, adjusted, requests.available(),
+        capacity.available(), admitted.sum(), rejected.sum(), consumedCapacity.sum(), lastUsedAt);
+  }
+}
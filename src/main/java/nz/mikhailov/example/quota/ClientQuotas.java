@@ -0,0 +1,218 @@
+package nz.mikhailov.example.quota;
+
+import nz.mikhailov.example.quota.FairScheduler.Admission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Request and capacity unit quotas of the clients of the customer API, identified by the {@code quota.clientHeader}
+ * request header, and the {@link FairScheduler} admitting their requests.
+ * <p>
+ * Every client gets {@code quota.requestsPerSecond} and {@code quota.capacityUnitsPerSecond}, with bursts of
+ * {@code quota.burstSeconds}, unless adjusted at runtime. Capacity units consumed by DynamoDB calls are charged to
+ * the client of the request making them, after the fact, and its requests are rejected until they are paid off.
+ * Clients not seen for {@code quota.idleClientMillis} are forgotten, unless their quota was adjusted. At most
+ * {@code quota.maxClients} clients are tracked, so that clients sending ever new identifiers can neither get a fresh
+ * quota each time nor grow the table without bound: clients first seen beyond that share the {@link #UNTRACKED}
+ * quota, as clients without an identifier share the {@link #ANONYMOUS} one.
+ */
+@Component
+public class ClientQuotas {
+
+  static final String ANONYMOUS = "anonymous";
+  static final String UNTRACKED = "untracked";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${quota.enabled:false}")
+  private boolean enabled;
+
+  @Value("${quota.clientHeader:X-Api-Key}")
+  private String clientHeader;
+
+  @Value("${quota.requestsPerSecond:100}")
+  private double requestsPerSecond;
+
+  @Value("${quota.capacityUnitsPerSecond:100}")
+  private double capacityUnitsPerSecond;
+
+  @Value("${quota.burstSeconds:2}")
+  private double burstSeconds;
+
+  @Value("${quota.maxConcurrentRequests:100}")
+  private int maxConcurrentRequests;
+
+  @Value("${quota.maxQueuedRequests:50}")
+  private int maxQueuedRequests;
+
+  @Value("${quota.queueTimeoutMillis:1000}")
+  private long queueTimeoutMillis;
+
+  @Value("${quota.idleClientMillis:600000}")
+  private long idleClientMillis;
+
+  @Value("${quota.maxClients:1000}")
+  private int maxClients;
+
+  private final ConcurrentMap<String, ClientQuota> quotas = new ConcurrentHashMap<>();
+  private final ThreadLocal<ClientQuota> current = new ThreadLocal<>();
+  private FairScheduler scheduler;
+
+  @PostConstruct
+  public void init() {
+
+    scheduler = new FairScheduler(maxConcurrentRequests, maxQueuedRequests);
+    if (enabled) {
+      log.info("Limiting clients by {} to {} requests and {} capacity units per second, serving {} requests at once",
+          clientHeader, requestsPerSecond, capacityUnitsPerSecond, maxConcurrentRequests);
+    }
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  public String getClientHeader() {
+
+    return clientHeader;
+  }
+
+  /**
+   * @return the quota of a client, of {@link #ANONYMOUS} clients if {@code null}, or of {@link #UNTRACKED} clients
+   * if it is not tracked yet and {@code quota.maxClients} are
+   */
+  ClientQuota quota(String client) {
+
+    String name = client == null ? ANONYMOUS : client;
+    ClientQuota quota = quotas.get(name);
+    if (quota != null) {
+      return quota;
+    }
+    if (quotas.size() >= maxClients) {
+      return quotas.computeIfAbsent(UNTRACKED, untracked -> {
+        log.warn("Tracking {} clients, charging new clients to the {} quota", maxClients, UNTRACKED);
+        return defaultQuota(untracked, null);
+      });
+    }
+    return quotas.computeIfAbsent(name, created -> defaultQuota(created, null));
+  }
+
+  /**
+   * Waits for the turn of a request of the client if saturated, or up to {@code quota.queueTimeoutMillis}.
+   */
+  Admission admit(ClientQuota quota) throws InterruptedException {
+
+    return scheduler.acquire(quota.getClient(), queueTimeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Ends an admitted request.
+   */
+  void release() {
+
+    scheduler.release();
+  }
+
+  /**
+   * Charges DynamoDB calls made by the current thread to the client until {@link #unbind()}.
+   */
+  void bind(ClientQuota quota) {
+
+    current.set(quota);
+  }
+
+  void unbind() {
+
+    current.remove();
+  }
+
+  /**
+   * @return whether DynamoDB calls made by the current thread are charged to a client
+   */
+  public boolean isCharging() {
+
+    return current.get() != null;
+  }
+
+  /**
+   * Charges capacity units consumed to the client of the current thread, if any.
+   */
+  public void charge(double capacityUnits) {
+
+    ClientQuota quota = current.get();
+    if (quota != null) {
+      quota.consume(capacityUnits);
+    }
+  }
+
+  /**
+   * Replaces the quota of a client, keeping the default for rates not given, and its usage so far.
+   *
+   * @throws IllegalArgumentException for rates not positive
+   */
+  public ClientUsage adjust(String client, Double requestsPerSecond, Double capacityUnitsPerSecond) {
+
+    if (requestsPerSecond != null && requestsPerSecond <= 0 ||
+        capacityUnitsPerSecond != null && capacityUnitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Quotas must be positive");
+    }
+    ClientQuota quota = quotas.compute(client, (name, previous) -> new ClientQuota(name,
+        requestsPerSecond != null ? requestsPerSecond : this.requestsPerSecond,
+        capacityUnitsPerSecond != null ? capacityUnitsPerSecond : this.capacityUnitsPerSecond,
+        burstSeconds, true, previous));
+    log.info("Adjusted quota of client {} to {} requests and {} capacity units per second", client,
+        quota.getRequestsPerSecond(), quota.getCapacityUnitsPerSecond());
+    return quota.usage();
+  }
+
+  /**
+   * Puts a client back on the default quota, keeping its usage so far.
+   *
+   * @return whether the client is known
+   */
+  public boolean reset(String client) {
+
+    return quotas.computeIfPresent(client, (name, previous) -> defaultQuota(name, previous)) != null;
+  }
+
+  public Optional<ClientUsage> getUsage(String client) {
+
+    return Optional.ofNullable(quotas.get(client)).map(ClientQuota::usage);
+  }
+
+  public QuotaStats getStats() {
+
+    List<ClientUsage> clients = quotas.values().stream()
+        .map(ClientQuota::usage)
+        .sorted(Comparator.comparing(ClientUsage::getClient))
+        .collect(toList());
+    return new QuotaStats(enabled, scheduler.getInFlight(), scheduler.getQueued(), scheduler.getQueuedTotal(),
+        scheduler.getRejected(), scheduler.getTimedOut(), clients);
+  }
+
+  @Scheduled(fixedDelayString = "${quota.idleClientMillis:600000}")
+  public void forgetIdleClients() {
+
+    long idleSince = System.currentTimeMillis() - idleClientMillis;
+    quotas.values().removeIf(quota -> !quota.isAdjusted() && quota.getLastUsedAt() < idleSince);
+  }
+
+  private ClientQuota defaultQuota(String client, ClientQuota previous) {
+
+    return new ClientQuota(client, requestsPerSecond, capacityUnitsPerSecond, burstSeconds, false, previous);
+  }
+}
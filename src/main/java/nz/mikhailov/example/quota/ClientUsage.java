@@ -0,0 +1,93 @@
+package nz.mikhailov.example.quota;
+
+/**
+ * Quota of a client and its usage.
+ */
+public class ClientUsage {
+
+  private final String client;
+  private final double requestsPerSecond;
+  private final double capacityUnitsPerSecond;
+  private final boolean adjusted;
+  private final double availableRequests;
+  private final double availableCapacityUnits;
+  private final long admittedRequests;
+  private final long rejectedRequests;
+  private final double consumedCapacityUnits;
+  private final long lastUsedAt;
+
+  ClientUsage(String client, double requestsPerSecond, double capacityUnitsPerSecond, boolean adjusted,
+              double availableRequests, double availableCapacityUnits, long admittedRequests, long rejectedRequests,
+              double consumedCapacityUnits, long lastUsedAt) {
+
+    this.client = client;
+    this.requestsPerSecond = requestsPerSecond;
+    this.capacityUnitsPerSecond = capacityUnitsPerSecond;
+    this.adjusted = adjusted;
+    this.availableRequests = availableRequests;
+    this.availableCapacityUnits = availableCapacityUnits;
+    this.admittedRequests = admittedRequests;
+    this.rejectedRequests = rejectedRequests;
+    this.consumedCapacityUnits = consumedCapacityUnits;
+    this.lastUsedAt = lastUsedAt;
+  }
+
+  public String getClient() {
+
+    return client;
+  }
+
+  public double getRequestsPerSecond() {
+
+    return requestsPerSecond;
+  }
+
+  public double getCapacityUnitsPerSecond() {
+
+    return capacityUnitsPerSecond;
+  }
+
+  /**
+   * @return whether the quota was adjusted from the default one at runtime
+   */
+  public boolean isAdjusted() {
+
+    return adjusted;
+  }
+
+  public double getAvailableRequests() {
+
+    return availableRequests;
+  }
+
+  /**
+   * @return capacity units available, negative while paying off capacity consumed beyond the quota
+   */
+  public double getAvailableCapacityUnits() {
+
+    return availableCapacityUnits;
+  }
+
+  public long getAdmittedRequests() {
+
+    return admittedRequests;
+  }
+
+  /**
+   * @return requests rejected over quota
+   */
+  public long getRejectedRequests() {
+
+    return rejectedRequests;
+  }
+
+  public double getConsumedCapacityUnits() {
+
+    return consumedCapacityUnits;
+  }
+
+  public long getLastUsedAt() {
+
+    return lastUsedAt;
+  }
+}
@@ -0,0 +1,211 @@
+package nz.mikhailov.example.quota;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the requests served at once, queueing the rest per client and admitting them round-robin across clients,
+ * so that when saturated, each client waiting gets an equal share of the requests admitted however many it sent.
+ * <p>
+ * The queues hold up to {@code maxQueued} requests in total. When they are full, a request of the client with the
+ * longest queue is rejected: the new one if its own client's queue is the longest, or the oldest of that queue
+ * otherwise.
+ */
+class FairScheduler {
+
+  enum Admission {
+    ADMITTED, REJECTED, TIMED_OUT
+  }
+
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<String, Deque<Waiter>> queues = new HashMap<>();
+  private final Deque<String> turns = new ArrayDeque<>();
+  private final LongAdder queuedTotal = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private int inFlight;
+  private int queued;
+
+  FairScheduler(int maxConcurrent, int maxQueued) {
+
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+  }
+
+  /**
+   * Admits a request of a client, waiting for its turn if saturated. Admitted requests must be
+   * {@link #release() released} once served. A request interrupted while queued is removed from the queue, unless it
+   * was admitted or rejected before the interrupt was noticed, in which case that is returned with the interrupt
+   * status set again.
+   */
+  Admission acquire(String client, long timeout, TimeUnit unit) throws InterruptedException {
+
+    lock.lock();
+    try {
+      if (inFlight < maxConcurrent && queued == 0) {
+        inFlight++;
+        return Admission.ADMITTED;
+      }
+      if (queued >= maxQueued && !dropFromLongestQueueOtherThan(client)) {
+        rejected.increment();
+        return Admission.REJECTED;
+      }
+      Waiter waiter = new Waiter(lock.newCondition());
+      Deque<Waiter> queue = queues.get(client);
+      if (queue == null) {
+        queue = new ArrayDeque<>();
+        queues.put(client, queue);
+        turns.addLast(client);
+      }
+      queue.addLast(waiter);
+      queued++;
+      queuedTotal.increment();
+      long remainingNanos = unit.toNanos(timeout);
+      try {
+        while (waiter.admission == null && remainingNanos > 0) {
+          remainingNanos = waiter.turn.awaitNanos(remainingNanos);
+        }
+      } catch (InterruptedException e) {
+        if (waiter.admission == null) {
+          remove(client, waiter);
+          throw e;
+        }
+        // Already admitted, holding a slot the caller has to release, or rejected: report that and keep the interrupt
+        Thread.currentThread().interrupt();
+      }
+      if (waiter.admission == null) {
+        remove(client, waiter);
+        timedOut.increment();
+        return Admission.TIMED_OUT;
+      }
+      return waiter.admission;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ends an admitted request, admitting the next queued one, from the client whose turn it is.
+   */
+  void release() {
+
+    lock.lock();
+    try {
+      inFlight--;
+      while (inFlight < maxConcurrent && !turns.isEmpty()) {
+        String client = turns.pollFirst();
+        Deque<Waiter> queue = queues.get(client);
+        Waiter waiter = queue.pollFirst();
+        queued--;
+        if (queue.isEmpty()) {
+          queues.remove(client);
+        } else {
+          turns.addLast(client);
+        }
+        inFlight++;
+        waiter.admit(Admission.ADMITTED);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getInFlight() {
+
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getQueued() {
+
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return requests ever queued
+   */
+  long getQueuedTotal() {
+
+    return queuedTotal.sum();
+  }
+
+  /**
+   * @return requests rejected with the queues full
+   */
+  long getRejected() {
+
+    return rejected.sum();
+  }
+
+  long getTimedOut() {
+
+    return timedOut.sum();
+  }
+
+  private boolean dropFromLongestQueueOtherThan(String client) {
+
+    Deque<Waiter> own = queues.get(client);
+    String longest = null;
+    int longestSize = own == null ? 0 : own.size();
+    for (Map.Entry<String, Deque<Waiter>> queue : queues.entrySet()) {
+      if (queue.getValue().size() > longestSize) {
+        longest = queue.getKey();
+        longestSize = queue.getValue().size();
+      }
+    }
+    if (longest == null) {
+      return false;
+    }
+    Waiter dropped = queues.get(longest).peekFirst();
+    remove(longest, dropped);
+    rejected.increment();
+    dropped.admit(Admission.REJECTED);
+    return true;
+  }
+
+  private void remove(String client, Waiter waiter) {
+
+    Deque<Waiter> queue = queues.get(client);
+    if (queue != null && queue.remove(waiter)) {
+      queued--;
+      if (queue.isEmpty()) {
+        queues.remove(client);
+        turns.remove(client);
+      }
+    }
+  }
+
+  private static class Waiter {
+
+    private final Condition turn;
+    private Admission admission;
+
+    Waiter(Condition turn) {
+
+      this.turn = turn;
+    }
+
+    void admit(Admission admission) {
+
+      this.admission = admission;
+      turn.signal();
+    }
+  }
+}
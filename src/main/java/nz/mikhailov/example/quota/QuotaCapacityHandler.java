@@ -0,0 +1,42 @@
+package nz.mikhailov.example.quota;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+import nz.mikhailov.example.util.BatchWriter;
+import nz.mikhailov.example.util.CapacityReporting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Charges the capacity units consumed by DynamoDB calls to the client of the request making them, asking DynamoDB
+ * to report them.
+ */
+@Component
+public class QuotaCapacityHandler extends RequestHandler2 {
+
+  /** Read or write of an item up to 1 KB, used when DynamoDB does not report consumed capacity. */
+  private static final double ESTIMATED_UNITS_PER_CALL = 1;
+
+  @Autowired
+  private ClientQuotas quotas;
+
+  @Override
+  public AmazonWebServiceRequest beforeMarshalling(AmazonWebServiceRequest request) {
+
+    if (quotas.isCharging()) {
+      CapacityReporting.requestTotal(request);
+    }
+    return request;
+  }
+
+  @Override
+  public void afterResponse(Request<?> request, Response<?> response) {
+
+    if (quotas.isCharging() && response != null) {
+      quotas.charge(BatchWriter.capacityUnits(CapacityReporting.consumedCapacity(response.getAwsResponse()),
+          ESTIMATED_UNITS_PER_CALL));
+    }
+  }
+}
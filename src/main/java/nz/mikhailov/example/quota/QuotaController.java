@@ -0,0 +1,74 @@
+package nz.mikhailov.example.quota;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class QuotaController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private ClientQuotas quotas;
+
+  /**
+   * Reports the quota and usage of each client, and how many requests are served and waiting.
+   */
+  @RequestMapping(path = "/quotas", method = RequestMethod.GET)
+  public ResponseEntity<QuotaStats> stats() {
+
+    log.trace("Entering stats()");
+    return new ResponseEntity<>(quotas.getStats(), OK);
+  }
+
+  @RequestMapping(path = "/quotas/{client:.+}", method = RequestMethod.GET)
+  public ResponseEntity<ClientUsage> usage(@PathVariable String client) {
+
+    log.trace("Entering usage(client={})", client);
+    return quotas.getUsage(client)
+        .map(usage -> new ResponseEntity<>(usage, OK))
+        .orElse(new ResponseEntity<>(NOT_FOUND));
+  }
+
+  /**
+   * Adjusts the quota of a client, keeping the default for rates not given.
+   */
+  @RequestMapping(path = "/quotas/{client:.+}", method = RequestMethod.PUT)
+  public ResponseEntity<ClientUsage> adjust(@PathVariable String client,
+                                            @RequestParam(required = false) Double requestsPerSecond,
+                                            @RequestParam(required = false) Double capacityUnitsPerSecond) {
+
+    log.trace("Entering adjust(client={}, requestsPerSecond={}, capacityUnitsPerSecond={})", client,
+        requestsPerSecond, capacityUnitsPerSecond);
+    try {
+      return new ResponseEntity<>(quotas.adjust(client, requestsPerSecond, capacityUnitsPerSecond), OK);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    }
+  }
+
+  /**
+   * Puts a client back on the default quota.
+   */
+  @RequestMapping(path = "/quotas/{client:.+}", method = RequestMethod.DELETE)
+  public ResponseEntity<Void> reset(@PathVariable String client) {
+
+    log.trace("Entering reset(client={})", client);
+    return quotas.reset(client) ?
+        new ResponseEntity<>(NO_CONTENT) :
+        new ResponseEntity<>(NOT_FOUND);
+  }
+}
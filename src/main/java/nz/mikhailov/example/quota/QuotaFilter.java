@@ -0,0 +1,100 @@
+package nz.mikhailov.example.quota;
+
+import nz.mikhailov.example.quota.FairScheduler.Admission;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Admits requests to the customer API within the {@link ClientQuotas quota} of their client, in the client's turn
+ * when saturated. Responses carry the client's quota and what remains of it. Requests over quota, or rejected to
+ * make room in the queues for other clients, are answered with {@code 429 TOO MANY REQUESTS}, and requests that
+ * waited too long for their turn with {@code 503 SERVICE UNAVAILABLE}, both with a {@code Retry-After}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class QuotaFilter extends OncePerRequestFilter {
+
+  static final String LIMIT_HEADER = "X-RateLimit-Limit";
+  static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+  static final String CAPACITY_LIMIT_HEADER = "X-Capacity-Limit";
+  static final String CAPACITY_REMAINING_HEADER = "X-Capacity-Remaining";
+  static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  @Autowired
+  private ClientQuotas quotas;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+
+    return !quotas.isEnabled() || !request.getRequestURI().startsWith("/v1/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    ClientQuota quota = quotas.quota(request.getHeader(quotas.getClientHeader()));
+    if (!quota.tryAcquire()) {
+      reject(response, quota, TOO_MANY_REQUESTS.value(), quota.retryAfterSeconds(),
+          "Quota of client " + quota.getClient() + " exceeded");
+      return;
+    }
+    Admission admission;
+    try {
+      admission = quotas.admit(quota);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.sendError(SERVICE_UNAVAILABLE.value());
+      return;
+    }
+    if (admission == Admission.REJECTED) {
+      reject(response, quota, TOO_MANY_REQUESTS.value(), 1, "Too many requests waiting");
+      return;
+    }
+    if (admission == Admission.TIMED_OUT) {
+      reject(response, quota, SERVICE_UNAVAILABLE.value(), 1, "Timed out waiting to be served");
+      return;
+    }
+    setQuotaHeaders(response, quota);
+    quotas.bind(quota);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      quotas.unbind();
+      quotas.release();
+    }
+  }
+
+  private static void reject(HttpServletResponse response, ClientQuota quota, int status, long retryAfterSeconds,
+                             String message) throws IOException {
+
+    setQuotaHeaders(response, quota);
+    response.setHeader(RETRY_AFTER_HEADER, String.valueOf(retryAfterSeconds));
+    response.sendError(status, message);
+  }
+
+  private static void setQuotaHeaders(HttpServletResponse response, ClientQuota quota) {
+
+    response.setHeader(LIMIT_HEADER, format(quota.getRequestsPerSecond()));
+    response.setHeader(REMAINING_HEADER, format(Math.max(0, Math.floor(quota.availableRequests()))));
+    response.setHeader(CAPACITY_LIMIT_HEADER, format(quota.getCapacityUnitsPerSecond()));
+    response.setHeader(CAPACITY_REMAINING_HEADER, format(Math.floor(quota.availableCapacity())));
+  }
+
+  private static String format(double value) {
+
+    return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+  }
+}
@@ -0,0 +1,67 @@
+package nz.mikhailov.example.quota;
+
+import java.util.List;
+
+/**
+ * Usage of the client quotas and of the fair scheduler admitting requests.
+ */
+public class QuotaStats {
+
+  private final boolean enabled;
+  private final int inFlight;
+  private final int queued;
+  private final long queuedTotal;
+  private final long rejectedQueueFull;
+  private final long timedOut;
+  private final List<ClientUsage> clients;
+
+  QuotaStats(boolean enabled, int inFlight, int queued, long queuedTotal, long rejectedQueueFull, long timedOut,
+             List<ClientUsage> clients) {
+
+    this.enabled = enabled;
+    this.inFlight = inFlight;
+    this.queued = queued;
+    this.queuedTotal = queuedTotal;
+    this.rejectedQueueFull = rejectedQueueFull;
+    this.timedOut = timedOut;
+    this.clients = clients;
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  public int getInFlight() {
+
+    return inFlight;
+  }
+
+  public int getQueued() {
+
+    return queued;
+  }
+
+  /**
+   * @return requests that waited for their turn since startup
+   */
+  public long getQueuedTotal() {
+
+    return queuedTotal;
+  }
+
+  public long getRejectedQueueFull() {
+
+    return rejectedQueueFull;
+  }
+
+  public long getTimedOut() {
+
+    return timedOut;
+  }
+
+  public List<ClientUsage> getClients() {
+
+    return clients;
+  }
+}
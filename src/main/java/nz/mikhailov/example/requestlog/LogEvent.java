@@ -0,0 +1,121 @@
+package nz.mikhailov.example.requestlog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Request or repository event with structured fields, formatted as {@code logfmt} only by the writer of the
+ * {@link RequestLog}, so that events never logged cost no formatting.
+ */
+public class LogEvent {
+
+  /** Keys of batch operations kept on an event, beyond which only their number is. */
+  static final int MAX_KEYS = 10;
+
+  private final String type;
+  private final long at;
+  private final List<String> names = new ArrayList<>(8);
+  private final List<Object> values = new ArrayList<>(8);
+
+  LogEvent(String type, long at) {
+
+    this.type = type;
+    this.at = at;
+  }
+
+  /**
+   * Adds a field, unless its value is {@code null}. Values are formatted with {@code toString()}, so they should
+   * not change after being added.
+   */
+  LogEvent with(String name, Object value) {
+
+    if (value != null) {
+      names.add(name);
+      values.add(value);
+    }
+    return this;
+  }
+
+  /**
+   * Adds the first {@link #MAX_KEYS} keys, copied, and the number of keys.
+   */
+  LogEvent withKeys(Collection<String> keys) {
+
+    List<String> kept = new ArrayList<>(Math.min(keys.size(), MAX_KEYS));
+    Iterator<String> iterator = keys.iterator();
+    while (iterator.hasNext() && kept.size() < MAX_KEYS) {
+      kept.add(iterator.next());
+    }
+    return with("keys", String.join(",", kept)).with("keyCount", keys.size());
+  }
+
+  public String getType() {
+
+    return type;
+  }
+
+  public long getAt() {
+
+    return at;
+  }
+
+  /**
+   * @return the value of a field, or {@code null} without one
+   */
+  public Object get(String name) {
+
+    int index = names.lastIndexOf(name);
+    return index < 0 ? null : values.get(index);
+  }
+
+  /**
+   * @return {@code type=... at=... name=value...}, with values quoted where they contain spaces, quotes or equals
+   * signs
+   */
+  public String format() {
+
+    StringBuilder line = new StringBuilder(128).append("type=").append(type).append(" at=").append(at);
+    for (int i = 0; i < names.size(); i++) {
+      line.append(' ').append(names.get(i)).append('=');
+      appendValue(line, String.valueOf(values.get(i)));
+    }
+    return line.toString();
+  }
+
+  private static void appendValue(StringBuilder line, String value) {
+
+    boolean quoted = value.isEmpty();
+    for (int i = 0; i < value.length() && !quoted; i++) {
+      char c = value.charAt(i);
+      quoted = c <= ' ' || c == '"' || c == '=' || c == '\\';
+    }
+    if (!quoted) {
+      line.append(value);
+      return;
+    }
+    line.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+        case '\\':
+          line.append('\\').append(c);
+          break;
+        case '\n':
+          line.append("\\n");
+          break;
+        case '\r':
+          line.append("\\r");
+          break;
+        case '\t':
+          line.append("\\t");
+          break;
+        default:
+          line.append(c);
+      }
+    }
+    line.append('"');
+  }
+}
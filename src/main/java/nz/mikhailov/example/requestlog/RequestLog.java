@@ -0,0 +1,282 @@
+package nz.mikhailov.example.requestlog;
+
+import nz.mikhailov.example.hotkeys.KeyAccessSampler.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous, sampled log of requests and the repository operations they made.
+ * <p>
+ * Repository events are held by the request that made them until it completes, then queued with it if the request
+ * is sampled: at the rate configured for its endpoint in {@code requestLog.sampleRates}, such as
+ * {@code GET /v1/customer/{name}=0.001}, or at {@code requestLog.sampleRate} otherwise. Failed requests are always
+ * logged. Repository operations outside requests are sampled as the {@code background} endpoint.
+ * <p>
+ * Events are queued in a bounded queue of {@code requestLog.queueCapacity} and dropped, and counted, when it is
+ * full, so that requests never wait for logging. A single writer thread formats and logs them to the
+ * {@code request-log} logger at {@code INFO}.
+ */
+@Component
+public class RequestLog {
+
+  static final String BACKGROUND = "background";
+  static final String UNMATCHED = "unmatched";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Logger events = LoggerFactory.getLogger("request-log");
+
+  @Value("${requestLog.enabled:false}")
+  private boolean enabled;
+
+  @Value("${requestLog.queueCapacity:8192}")
+  private int queueCapacity;
+
+  @Value("${requestLog.sampleRate:0.01}")
+  private double sampleRate;
+
+  @Value("${requestLog.sampleRates:}")
+  private String[] sampleRates;
+
+  @Value("${requestLog.maxEventsPerRequest:50}")
+  private int maxEventsPerRequest;
+
+  private final ThreadLocal<RequestEvents> current = new ThreadLocal<>();
+  private final Map<String, Double> endpointRates = new HashMap<>();
+  private final AtomicLong requestIds = new AtomicLong();
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder sampledOut = new LongAdder();
+  private BlockingQueue<LogEvent> queue;
+  private Thread writer;
+  private volatile boolean running;
+
+  public RequestLog() {
+
+  }
+
+  RequestLog(int queueCapacity, double sampleRate, String... sampleRates) {
+
+    this.enabled = true;
+    this.queueCapacity = queueCapacity;
+    this.sampleRate = sampleRate;
+    this.sampleRates = sampleRates;
+    this.maxEventsPerRequest = 50;
+    init();
+  }
+
+  @PostConstruct
+  public void start() {
+
+    if (!enabled) {
+      return;
+    }
+    init();
+    running = true;
+    writer = new CustomizableThreadFactory("request-log-").newThread(this::write);
+    writer.setDaemon(true);
+    writer.start();
+    log.info("Logging requests sampled at {}, {} to the request-log logger", sampleRate, endpointRates);
+  }
+
+  private void init() {
+
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    for (String sampleRate : sampleRates) {
+      int separator = sampleRate.lastIndexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected endpoint=rate in requestLog.sampleRates: " + sampleRate);
+      }
+      endpointRates.put(sampleRate.substring(0, separator).trim(),
+          Double.valueOf(sampleRate.substring(separator + 1).trim()));
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    running = false;
+    if (writer != null) {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  /**
+   * Starts holding the repository events of a request made by the current thread.
+   */
+  public void begin() {
+
+    if (enabled) {
+      current.set(new RequestEvents());
+    }
+  }
+
+  /**
+   * Completes the request made by the current thread, queueing it with its repository events if sampled.
+   *
+   * @param requestId the ID its events are logged with, such as its trace ID, or {@code null} for a sequence number
+   * @param endpoint the matched path pattern, or {@code null} if none matched
+   * @param failure  the exception the request failed with, if any
+   */
+  public void end(String requestId, String method, String endpoint, String uri, int status, Throwable failure) {
+
+    RequestEvents request = current.get();
+    if (request == null) {
+      return;
+    }
+    current.remove();
+    String key = method + " " + (endpoint == null ? UNMATCHED : endpoint);
+    if (failure == null && status < 500 && !sampled(key)) {
+      return;
+    }
+    Object id = requestId == null ? requestIds.incrementAndGet() : requestId;
+    for (LogEvent event : request.events) {
+      publish(event.with("request", id));
+    }
+    publish(new LogEvent("request", request.startedAt)
+        .with("request", id)
+        .with("endpoint", key)
+        .with("uri", uri)
+        .with("status", failure == null ? status : 500)
+        .with("micros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - request.startedNanos))
+        .with("repositoryCalls", request.calls)
+        .with("error", failure == null ? null : failure.toString()));
+  }
+
+  public void repository(Operation operation) {
+
+    if (enabled) {
+      repository(event(operation));
+    }
+  }
+
+  public void repository(Operation operation, String key) {
+
+    if (enabled) {
+      repository(event(operation).with("key", key));
+    }
+  }
+
+  public void repository(Operation operation, Collection<String> keys) {
+
+    if (enabled) {
+      repository(event(operation).withKeys(keys));
+    }
+  }
+
+  public RequestLogStats getStats() {
+
+    return new RequestLogStats(enabled, queue == null ? 0 : queue.size(), queueCapacity, queued.sum(), written.sum(),
+        dropped.sum(), sampledOut.sum());
+  }
+
+  /**
+   * Takes up to {@code max} queued events, for the writer or tests.
+   */
+  List<LogEvent> drain(int max) {
+
+    List<LogEvent> drained = new ArrayList<>();
+    queue.drainTo(drained, max);
+    return drained;
+  }
+
+  private LogEvent event(Operation operation) {
+
+    return new LogEvent("repository", System.currentTimeMillis()).with("operation", operation);
+  }
+
+  private void repository(LogEvent event) {
+
+    RequestEvents request = current.get();
+    if (request == null) {
+      if (sampled(BACKGROUND)) {
+        publish(event);
+      }
+      return;
+    }
+    request.calls++;
+    if (request.events.size() < maxEventsPerRequest) {
+      request.events.add(event.with("offsetMicros",
+          TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - request.startedNanos)));
+    } else {
+      dropped.increment();
+    }
+  }
+
+  private boolean sampled(String endpoint) {
+
+    double rate = endpointRates.getOrDefault(endpoint, sampleRate);
+    if (rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+      return true;
+    }
+    sampledOut.increment();
+    return false;
+  }
+
+  private void publish(LogEvent event) {
+
+    if (queue.offer(event)) {
+      queued.increment();
+    } else {
+      dropped.increment();
+    }
+  }
+
+  private void write() {
+
+    List<LogEvent> batch = new ArrayList<>();
+    while (running || !queue.isEmpty()) {
+      try {
+        LogEvent first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, 255);
+        for (LogEvent event : batch) {
+          if (events.isInfoEnabled()) {
+            events.info(event.format());
+          }
+          written.increment();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.warn("Could not write request log events: {}", e.toString());
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private static class RequestEvents {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long startedNanos = System.nanoTime();
+    private final List<LogEvent> events = new ArrayList<>(4);
+    private int calls;
+  }
+}
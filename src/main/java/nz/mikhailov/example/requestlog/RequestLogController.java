@@ -0,0 +1,31 @@
+package nz.mikhailov.example.requestlog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class RequestLogController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private RequestLog requestLog;
+
+  /**
+   * Reports how many request log events were written, dropped or not sampled.
+   */
+  @RequestMapping(path = "/request-log", method = RequestMethod.GET)
+  public ResponseEntity<RequestLogStats> stats() {
+
+    log.trace("Entering stats()");
+    return new ResponseEntity<>(requestLog.getStats(), OK);
+  }
+}
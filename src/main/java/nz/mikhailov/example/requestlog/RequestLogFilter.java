@@ -0,0 +1,54 @@
+package nz.mikhailov.example.requestlog;
+
+import nz.mikhailov.example.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Reports each request to the {@link RequestLog} with its matched endpoint, status and duration. Runs before the
+ * other filters, so that the duration includes them.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestLogFilter extends OncePerRequestFilter {
+
+  @Autowired
+  private RequestLog requestLog;
+
+  @Autowired
+  private Tracer tracer;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+
+    return !requestLog.isEnabled();
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    requestLog.begin();
+    Throwable failure = null;
+    try {
+      filterChain.doFilter(request, response);
+    } catch (IOException | ServletException | RuntimeException | Error e) {
+      failure = e;
+      throw e;
+    } finally {
+      requestLog.end(tracer.currentTraceId(), request.getMethod(),
+          (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), request.getRequestURI(),
+          response.getStatus(), failure);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package nz.mikhailov.example.requestlog;
+
+/**
+ * Counts of the events of the {@link RequestLog} since startup.
+ */
+public class RequestLogStats {
+
+  private final boolean enabled;
+  private final int queueSize;
+  private final int queueCapacity;
+  private final long queued;
+  private final long written;
+  private final long dropped;
+  private final long sampledOut;
+
+  RequestLogStats(boolean enabled, int queueSize, int queueCapacity, long queued, long written, long dropped,
+                  long sampledOut) {
+
+    this.enabled = enabled;
+    this.queueSize = queueSize;
+    this.queueCapacity = queueCapacity;
+    this.queued = queued;
+    this.written = written;
+    this.dropped = dropped;
+    this.sampledOut = sampledOut;
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  public int getQueueSize() {
+
+    return queueSize;
+  }
+
+  public int getQueueCapacity() {
+
+    return queueCapacity;
+  }
+
+  public long getQueued() {
+
+    return queued;
+  }
+
+  public long getWritten() {
+
+    return written;
+  }
+
+  /**
+   * @return events lost to a full queue, or beyond the events held for a request
+   */
+  public long getDropped() {
+
+    return dropped;
+  }
+
+  /**
+   * @return requests and background repository operations not sampled
+   */
+  public long getSampledOut() {
+
+    return sampledOut;
+  }
+}
@@ -0,0 +1,103 @@
+package nz.mikhailov.example.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the endpoint for each read, by an exponentially weighted moving average of read latency.
+ * <p>
+ * Each completed read moves the average of its endpoint by {@code dynamoDb.routing.ewmaWeight}. An endpoint failing
+ * {@code dynamoDb.routing.ejectAfterFailures} reads in a row is ejected for {@code dynamoDb.routing.ejectionMillis},
+ * after which it is tried again. Endpoints without a measured latency are tried first, and a share of
+ * {@code dynamoDb.routing.explorationRate} reads goes to a random healthy endpoint so that the averages of the
+ * others stay current. When all endpoints are ejected, reads go to the primary.
+ */
+@Component
+public class EndpointRouter {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${dynamoDb.routing.ewmaWeight:0.2}")
+  private double ewmaWeight;
+
+  @Value("${dynamoDb.routing.ejectAfterFailures:3}")
+  private int ejectAfterFailures;
+
+  @Value("${dynamoDb.routing.ejectionMillis:30000}")
+  private long ejectionMillis;
+
+  @Value("${dynamoDb.routing.explorationRate:0.05}")
+  private double explorationRate;
+
+  private final List<EndpointStats> endpoints = new CopyOnWriteArrayList<>();
+  private volatile EndpointStats primary;
+
+  EndpointStats register(String endpoint, boolean primary) {
+
+    EndpointStats stats = new EndpointStats(endpoint, primary);
+    endpoints.add(stats);
+    if (primary) {
+      this.primary = stats;
+    }
+    return stats;
+  }
+
+  /**
+   * @return the endpoints to try a read on, in order of preference
+   */
+  List<EndpointStats> candidates() {
+
+    long now = System.currentTimeMillis();
+    List<EndpointStats> healthy = new ArrayList<>(endpoints.size());
+    Map<EndpointStats, Double> latencies = new IdentityHashMap<>();
+    for (EndpointStats stats : endpoints) {
+      if (!stats.isEjected(now)) {
+        healthy.add(stats);
+        double latency = stats.ewmaLatencyNanos();
+        latencies.put(stats, Double.isNaN(latency) ? -1 : latency);
+      }
+    }
+    if (healthy.isEmpty()) {
+      return Collections.singletonList(primary);
+    }
+    healthy.sort(Comparator.comparingDouble(latencies::get));
+    if (healthy.size() > 1 && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+      Collections.swap(healthy, 0, ThreadLocalRandom.current().nextInt(healthy.size()));
+    }
+    return healthy;
+  }
+
+  EndpointStats primary() {
+
+    return primary;
+  }
+
+  void succeeded(EndpointStats stats, long latencyNanos) {
+
+    stats.succeeded(latencyNanos, ewmaWeight);
+  }
+
+  void failed(EndpointStats stats) {
+
+    if (stats.failed(ejectAfterFailures, ejectionMillis, System.currentTimeMillis())) {
+      log.warn("Ejected DynamoDB endpoint {} for {} ms after {} failed reads", stats.getEndpoint(), ejectionMillis,
+          ejectAfterFailures);
+    }
+  }
+
+  public List<EndpointStats> getEndpoints() {
+
+    return Collections.unmodifiableList(endpoints);
+  }
+}
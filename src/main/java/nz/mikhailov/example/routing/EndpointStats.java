@@ -0,0 +1,118 @@
+package nz.mikhailov.example.routing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency, health and routing counts of a single DynamoDB endpoint.
+ */
+public class EndpointStats {
+
+  private final String endpoint;
+  private final boolean primary;
+  private final AtomicLong reads = new AtomicLong();
+  private final AtomicLong pinned = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong ejections = new AtomicLong();
+
+  private double ewmaLatencyNanos = Double.NaN;
+  private int consecutiveFailures;
+  private long ejectedUntil;
+
+  EndpointStats(String endpoint, boolean primary) {
+
+    this.endpoint = endpoint;
+    this.primary = primary;
+  }
+
+  public String getEndpoint() {
+
+    return endpoint;
+  }
+
+  public boolean isPrimary() {
+
+    return primary;
+  }
+
+  /**
+   * @return the reads routed to the endpoint
+   */
+  public long getReads() {
+
+    return reads.get();
+  }
+
+  /**
+   * @return the writes and other requests sent to the endpoint as the primary
+   */
+  public long getPinned() {
+
+    return pinned.get();
+  }
+
+  public long getFailures() {
+
+    return failures.get();
+  }
+
+  public long getEjections() {
+
+    return ejections.get();
+  }
+
+  /**
+   * @return the moving average of read latency, {@code null} until a read completed
+   */
+  public synchronized Double getEwmaLatencyMillis() {
+
+    return Double.isNaN(ewmaLatencyNanos) ? null : ewmaLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public synchronized boolean isEjected() {
+
+    return isEjected(System.currentTimeMillis());
+  }
+
+  synchronized boolean isEjected(long now) {
+
+    return ejectedUntil > now;
+  }
+
+  synchronized double ewmaLatencyNanos() {
+
+    return ewmaLatencyNanos;
+  }
+
+  void routedRead() {
+
+    reads.incrementAndGet();
+  }
+
+  void routedPinned() {
+
+    pinned.incrementAndGet();
+  }
+
+  synchronized void succeeded(long latencyNanos, double weight) {
+
+    ewmaLatencyNanos = Double.isNaN(ewmaLatencyNanos) ?
+        latencyNanos : weight * latencyNanos + (1 - weight) * ewmaLatencyNanos;
+    consecutiveFailures = 0;
+  }
+
+  /**
+   * @return {@code true} if the failure ejected the endpoint
+   */
+  synchronized boolean failed(int ejectAfterFailures, long ejectionMillis, long now) {
+
+    failures.incrementAndGet();
+    consecutiveFailures++;
+    if (consecutiveFailures >= ejectAfterFailures && !isEjected(now)) {
+      ejectedUntil = now + ejectionMillis;
+      ejections.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,34 @@
+package nz.mikhailov.example.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class RoutingController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private EndpointRouter router;
+
+  /**
+   * Lists the DynamoDB endpoints reads are routed between, with their latency, health and routing counts.
+   * Empty when there are no replica endpoints.
+   */
+  @RequestMapping(path = "/dynamodb/endpoints", method = RequestMethod.GET)
+  public ResponseEntity<List<EndpointStats>> endpoints() {
+
+    log.trace("Entering endpoints()");
+    return new ResponseEntity<>(router.getEndpoints(), OK);
+  }
+}
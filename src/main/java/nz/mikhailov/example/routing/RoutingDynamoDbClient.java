@@ -0,0 +1,151 @@
+package nz.mikhailov.example.routing;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DynamoDB client spreading item reads over replica endpoints, as chosen by {@link EndpointRouter}, while writes and
+ * all other requests stay pinned to the primary endpoint.
+ * <p>
+ * Strongly consistent reads go to the primary too, as replicas are only eventually consistent. So do scans and queries,
+ * whose pages are separate requests: pages read from replicas at different points of replication could miss or repeat
+ * items. A read failing on an endpoint, other than for a problem with the request itself, is retried once on the next
+ * endpoint in preference.
+ */
+public class RoutingDynamoDbClient implements InvocationHandler {
+
+  private static final Set<String> READS = new HashSet<>(Arrays.asList("getItem", "batchGetItem"));
+
+  private final EndpointRouter router;
+  private final Map<EndpointStats, AmazonDynamoDB> clients = new IdentityHashMap<>();
+
+  private RoutingDynamoDbClient(Map<String, AmazonDynamoDB> clients, String primary, EndpointRouter router) {
+
+    this.router = router;
+    for (Map.Entry<String, AmazonDynamoDB> client : clients.entrySet()) {
+      this.clients.put(router.register(client.getKey(), client.getKey().equals(primary)), client.getValue());
+    }
+  }
+
+  /**
+   * @param clients clients by endpoint, including the primary
+   */
+  public static AmazonDynamoDB create(Map<String, AmazonDynamoDB> clients, String primary, EndpointRouter router) {
+
+    if (!clients.containsKey(primary)) {
+      throw new IllegalArgumentException("No client for primary endpoint " + primary);
+    }
+    return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+        new Class<?>[]{AmazonDynamoDB.class}, new RoutingDynamoDbClient(clients, primary, router));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+    if (method.getDeclaringClass() == Object.class) {
+      return method.invoke(this, args);
+    }
+    switch (method.getName()) {
+      case "shutdown":
+        clients.values().forEach(AmazonDynamoDB::shutdown);
+        return null;
+      case "setEndpoint":
+      case "setRegion":
+        throw new UnsupportedOperationException("Endpoints of a routing client are fixed");
+    }
+    if (!READS.contains(method.getName()) || isConsistentRead(args)) {
+      EndpointStats primary = router.primary();
+      primary.routedPinned();
+      return invoke(clients.get(primary), method, args);
+    }
+    List<EndpointStats> candidates = router.candidates();
+    for (int attempt = 0; ; attempt++) {
+      EndpointStats endpoint = candidates.get(attempt);
+      endpoint.routedRead();
+      long start = System.nanoTime();
+      try {
+        Object result = invoke(clients.get(endpoint), method, args);
+        router.succeeded(endpoint, System.nanoTime() - start);
+        return result;
+      } catch (AmazonClientException e) {
+        if (!isEndpointFailure(e)) {
+          throw e;
+        }
+        router.failed(endpoint);
+        if (attempt + 1 >= Math.min(2, candidates.size())) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private static Object invoke(AmazonDynamoDB client, Method method, Object[] args) throws Throwable {
+
+    try {
+      return method.invoke(client, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  static boolean isConsistentRead(Object[] args) {
+
+    if (args == null) {
+      return false;
+    }
+    for (Object arg : args) {
+      if (Boolean.TRUE.equals(arg) ||
+          arg instanceof GetItemRequest && Boolean.TRUE.equals(((GetItemRequest) arg).getConsistentRead()) ||
+          arg instanceof QueryRequest && Boolean.TRUE.equals(((QueryRequest) arg).getConsistentRead()) ||
+          arg instanceof ScanRequest && Boolean.TRUE.equals(((ScanRequest) arg).getConsistentRead())) {
+        return true;
+      }
+      if (arg instanceof BatchGetItemRequest && isConsistentRead(((BatchGetItemRequest) arg).getRequestItems()) ||
+          arg instanceof Map && isConsistentRead((Map<?, ?>) arg)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isConsistentRead(Map<?, ?> requestItems) {
+
+    if (requestItems == null) {
+      return false;
+    }
+    for (Object keys : requestItems.values()) {
+      if (keys instanceof KeysAndAttributes && Boolean.TRUE.equals(((KeysAndAttributes) keys).getConsistentRead())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isEndpointFailure(AmazonClientException e) {
+
+    if (!(e instanceof AmazonServiceException)) {
+      return true;
+    }
+    AmazonServiceException serviceException = (AmazonServiceException) e;
+    return serviceException.getErrorType() != AmazonServiceException.ErrorType.Client ||
+        RetryUtils.isThrottlingException(serviceException);
+  }
+}
@@ -0,0 +1,320 @@
+package nz.mikhailov.example.search;
+
+import com.amazonaws.AmazonClientException;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import nz.mikhailov.example.customer.CustomerRepository;
+import nz.mikhailov.example.startup.StartupTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index from customer address terms to customer names.
+ * <p>
+ * Customers are numbered with dense {@code int} identifiers and every term maps to a sorted {@link IntPostings}
+ * array of those identifiers, so postings cost four bytes per occurrence. A forward array of term identifiers
+ * per customer lets updates and deletes retract the old terms without knowing the previous address.
+ * <p>
+ * Customers written or deleted while the startup scan runs are remembered until it ends, and their scanned rows,
+ * which may be older than the write, are skipped.
+ */
+@Component
+public class AddressIndex implements ApplicationListener<ContextRefreshedEvent> {
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final int[] NO_TERMS = new int[0];
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${search.scanSegments:4}")
+  private int scanSegments;
+
+  @Autowired
+  private CustomerRepository repository;
+
+  @Autowired
+  private StartupTasks startupTasks;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicBoolean built = new AtomicBoolean();
+  private Set<String> changedWhileBuilding;
+
+  private final Map<String, Integer> documentIds = new HashMap<>();
+  private String[] documentNames = new String[16];
+  private int[][] documentTerms = new int[16][];
+  private int[] freeDocumentIds = new int[16];
+  private int freeDocumentIdCount;
+  private int nextDocumentId;
+
+  private final Map<String, Integer> termIds = new HashMap<>();
+  private final List<IntPostings> postings = new ArrayList<>();
+  private final List<String> terms = new ArrayList<>();
+  private int[] freeTermIds = new int[16];
+  private int freeTermIdCount;
+
+  @Override
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+
+    if (built.compareAndSet(false, true)) {
+      startupTasks.run("address index build", this::build);
+    }
+  }
+
+  public void build() {
+
+    log.trace("Entering build()");
+    long start = System.currentTimeMillis();
+    setChangedWhileBuilding(new HashSet<>());
+    try {
+      for (Customer customer : repository.scan(scanSegments, "Name", "Address")) {
+        indexScanned(customer.getName(), customer.getAddress());
+      }
+      log.info("Address index built with {} customers and {} terms in {} ms",
+          size(), termIds.size(), System.currentTimeMillis() - start);
+    } catch (AmazonClientException e) {
+      log.warn("Address index not built, only addresses written from now on will be searchable: {}", e.getMessage());
+    } finally {
+      setChangedWhileBuilding(null);
+    }
+  }
+
+  @EventListener
+  public void onCustomerEvent(CustomerEvent event) {
+
+    lock.writeLock().lock();
+    try {
+      if (changedWhileBuilding != null) {
+        changedWhileBuilding.add(event.getName());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    if (event.getType() == CustomerEvent.Type.DELETED) {
+      remove(event.getName());
+    } else if (event.getCustomer() != null) {
+      index(event.getName(), event.getCustomer().getAddress());
+    }
+  }
+
+  /**
+   * @param query free text, split into terms the same way addresses are
+   * @param matchAll whether customers must match all terms ({@code AND}) or any of them ({@code OR})
+   * @return names of at most {@code limit} matching customers
+   */
+  public List<String> search(String query, boolean matchAll, int limit) {
+
+    Set<String> queryTerms = tokenise(query);
+    List<String> result = new ArrayList<>();
+    if (queryTerms.isEmpty()) {
+      return result;
+    }
+    lock.readLock().lock();
+    try {
+      List<IntPostings> matches = new ArrayList<>(queryTerms.size());
+      for (String term : queryTerms) {
+        Integer termId = termIds.get(term);
+        if (termId != null) {
+          matches.add(postings.get(termId));
+        } else if (matchAll) {
+          return result;
+        }
+      }
+      if (matches.isEmpty()) {
+        return result;
+      }
+      // intersecting from the rarest term keeps intermediate results small
+      matches.sort(Comparator.comparingInt(IntPostings::size));
+      IntPostings combined = matches.get(0);
+      for (int i = 1; i < matches.size(); i++) {
+        combined = matchAll ? combined.intersect(matches.get(i)) : combined.union(matches.get(i));
+      }
+      for (int i = 0; i < combined.size() && result.size() < limit; i++) {
+        result.add(documentNames[combined.get(i)]);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+
+    lock.readLock().lock();
+    try {
+      return documentIds.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  void index(String name, String address) {
+
+    if (name == null) {
+      return;
+    }
+    Set<String> addressTerms = tokenise(address);
+    lock.writeLock().lock();
+    try {
+      Integer documentId = documentIds.get(name);
+      if (documentId == null) {
+        if (addressTerms.isEmpty()) {
+          return;
+        }
+        documentId = allocateDocumentId(name);
+      } else {
+        retractTerms(documentId);
+      }
+      int[] ids = new int[addressTerms.size()];
+      int count = 0;
+      for (String term : addressTerms) {
+        int termId = termId(term);
+        postings.get(termId).add(documentId);
+        ids[count++] = termId;
+      }
+      documentTerms[documentId] = ids;
+      if (ids.length == 0) {
+        releaseDocumentId(name, documentId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void indexScanned(String name, String address) {
+
+    lock.writeLock().lock();
+    try {
+      if (changedWhileBuilding == null || !changedWhileBuilding.contains(name)) {
+        index(name, address);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void setChangedWhileBuilding(Set<String> names) {
+
+    lock.writeLock().lock();
+    try {
+      changedWhileBuilding = names;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(String name) {
+
+    lock.writeLock().lock();
+    try {
+      Integer documentId = documentIds.get(name);
+      if (documentId != null) {
+        retractTerms(documentId);
+        releaseDocumentId(name, documentId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  static Set<String> tokenise(String text) {
+
+    Set<String> result = new LinkedHashSet<>();
+    if (text == null) {
+      return result;
+    }
+    for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+      if (!token.isEmpty()) {
+        result.add(token);
+      }
+    }
+    return result;
+  }
+
+  private void retractTerms(int documentId) {
+
+    for (int termId : documentTerms[documentId]) {
+      IntPostings termPostings = postings.get(termId);
+      termPostings.remove(documentId);
+      if (termPostings.size() == 0) {
+        termIds.remove(terms.get(termId));
+        terms.set(termId, null);
+        postings.set(termId, null);
+        freeTermIds = push(freeTermIds, freeTermIdCount++, termId);
+      }
+    }
+    documentTerms[documentId] = NO_TERMS;
+  }
+
+  private int termId(String term) {
+
+    Integer termId = termIds.get(term);
+    if (termId != null) {
+      return termId;
+    }
+    if (freeTermIdCount > 0) {
+      termId = freeTermIds[--freeTermIdCount];
+      terms.set(termId, term);
+      postings.set(termId, new IntPostings());
+    } else {
+      terms.add(term);
+      postings.add(new IntPostings());
+      termId = terms.size() - 1;
+    }
+    termIds.put(term, termId);
+    return termId;
+  }
+
+  private int allocateDocumentId(String name) {
+
+    int documentId;
+    if (freeDocumentIdCount > 0) {
+      documentId = freeDocumentIds[--freeDocumentIdCount];
+    } else {
+      documentId = nextDocumentId++;
+      if (documentId == documentNames.length) {
+        documentNames = Arrays.copyOf(documentNames, documentId * 2);
+        documentTerms = Arrays.copyOf(documentTerms, documentId * 2);
+      }
+    }
+    documentIds.put(name, documentId);
+    documentNames[documentId] = name;
+    documentTerms[documentId] = NO_TERMS;
+    return documentId;
+  }
+
+  private void releaseDocumentId(String name, int documentId) {
+
+    documentIds.remove(name);
+    documentNames[documentId] = null;
+    documentTerms[documentId] = null;
+    freeDocumentIds = push(freeDocumentIds, freeDocumentIdCount++, documentId);
+  }
+
+  private static int[] push(int[] stack, int size, int value) {
+
+    int[] result = size == stack.length ? Arrays.copyOf(stack, size * 2) : stack;
+    result[size] = value;
+    return result;
+  }
+}
@@ -0,0 +1,105 @@
+package nz.mikhailov.example.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of document identifiers backed by a primitive {@code int} array.
+ * Not thread-safe, {@link AddressIndex} guards all access.
+ */
+class IntPostings {
+
+  private static final int[] EMPTY = new int[0];
+
+  private int[] ids = EMPTY;
+  private int size;
+
+  IntPostings() {
+  }
+
+  private IntPostings(int[] ids, int size) {
+
+    this.ids = ids;
+    this.size = size;
+  }
+
+  void add(int id) {
+
+    int position = Arrays.binarySearch(ids, 0, size, id);
+    if (position >= 0) {
+      return;
+    }
+    position = -position - 1;
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+    }
+    System.arraycopy(ids, position, ids, position + 1, size - position);
+    ids[position] = id;
+    size++;
+  }
+
+  void remove(int id) {
+
+    int position = Arrays.binarySearch(ids, 0, size, id);
+    if (position < 0) {
+      return;
+    }
+    System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+    size--;
+    if (size < ids.length >> 2) {
+      ids = Arrays.copyOf(ids, size + (size >> 1));
+    }
+  }
+
+  int size() {
+
+    return size;
+  }
+
+  int get(int index) {
+
+    return ids[index];
+  }
+
+  IntPostings intersect(IntPostings other) {
+
+    int[] result = new int[Math.min(size, other.size)];
+    int count = 0;
+    for (int i = 0, j = 0; i < size && j < other.size; ) {
+      if (ids[i] < other.ids[j]) {
+        i++;
+      } else if (ids[i] > other.ids[j]) {
+        j++;
+      } else {
+        result[count++] = ids[i];
+        i++;
+        j++;
+      }
+    }
+    return new IntPostings(result, count);
+  }
+
+  IntPostings union(IntPostings other) {
+
+    int[] result = new int[size + other.size];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (ids[i] < other.ids[j]) {
+        result[count++] = ids[i++];
+      } else if (ids[i] > other.ids[j]) {
+        result[count++] = other.ids[j++];
+      } else {
+        result[count++] = ids[i++];
+        j++;
+      }
+    }
+    while (i < size) {
+      result[count++] = ids[i++];
+    }
+    while (j < other.size) {
+      result[count++] = other.ids[j++];
+    }
+    return new IntPostings(result, count);
+  }
+}
@@ -0,0 +1,48 @@
+package nz.mikhailov.example.search;
+
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/v1")
+public class SearchController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${search.maxLimit:100}")
+  private int maxLimit;
+
+  @Autowired
+  private AddressIndex index;
+
+  @Autowired
+  private CustomerRepository repository;
+
+  @RequestMapping(path = "/customer/search", method = RequestMethod.GET)
+  public ResponseEntity<List<Customer>> search(@RequestParam String address,
+                                               @RequestParam(defaultValue = "and") String operator,
+                                               @RequestParam(defaultValue = "10") int limit) {
+
+    log.trace("Entering search() with {}, {}, {}", address, operator, limit);
+    boolean matchAll = "and".equalsIgnoreCase(operator);
+    if (!matchAll && !"or".equalsIgnoreCase(operator) || limit < 1) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    }
+    List<String> names = index.search(address, matchAll, Math.min(limit, maxLimit));
+    return new ResponseEntity<>(repository.readAll(names), OK);
+  }
+}
@@ -0,0 +1,48 @@
+package nz.mikhailov.example.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.List;
+
+/**
+ * Adds Smile and CBOR representations, selected through {@code Accept} and {@code Content-Type} headers.
+ * The converters are appended after the default ones, so Json stays the representation for clients
+ * accepting any media type.
+ */
+@Configuration
+public class BinaryFormatsConfiguration extends WebMvcConfigurerAdapter {
+
+  public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+  public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+
+    log.trace("Entering extendMessageConverters()");
+    converters.add(new JacksonBinaryHttpMessageConverter(objectMapper(new SmileFactory()), APPLICATION_SMILE));
+    converters.add(new JacksonBinaryHttpMessageConverter(objectMapper(new CBORFactory()), APPLICATION_CBOR));
+  }
+
+  private ObjectMapper objectMapper(JsonFactory factory) {
+
+    ObjectMapper objectMapper = new ObjectMapper(factory);
+    objectMapperBuilder.configure(objectMapper);
+    return objectMapper;
+  }
+}
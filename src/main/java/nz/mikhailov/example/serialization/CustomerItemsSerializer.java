@@ -0,0 +1,102 @@
+package nz.mikhailov.example.serialization;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerItems;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes raw customer items straight from their DynamoDB attributes, producing the same document as
+ * serializing the equivalent {@link Customer} list, without creating the objects.
+ * <p>
+ * Property and attribute names are resolved once from the {@link Customer} mapping annotations,
+ * and the property names are pre-encoded.
+ */
+public class CustomerItemsSerializer extends StdSerializer<CustomerItems> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String[] attributeNames;
+  private final SerializableString[] propertyNames;
+
+  public CustomerItemsSerializer() {
+
+    super(CustomerItems.class);
+    ObjectMapper objectMapper = new ObjectMapper();
+    BeanDescription description = objectMapper.getSerializationConfig()
+        .introspect(objectMapper.constructType(Customer.class));
+    List<String> attributes = new ArrayList<>();
+    List<SerializableString> properties = new ArrayList<>();
+    for (BeanPropertyDefinition property : description.findProperties()) {
+      if (property.hasGetter()) {
+        attributes.add(attributeName(property.getGetter(), property.getName()));
+        properties.add(new SerializedString(property.getName()));
+      }
+    }
+    attributeNames = attributes.toArray(new String[attributes.size()]);
+    propertyNames = properties.toArray(new SerializableString[properties.size()]);
+  }
+
+  /**
+   * Writes the items as an array. A page of items failing to load leaves the array unterminated, so that the
+   * document cannot be read as a complete list.
+   */
+  @Override
+  public void serialize(CustomerItems items, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+    generator.writeStartArray();
+    for (Map<String, AttributeValue> item : items) {
+      writeItem(item, generator);
+    }
+    generator.writeEndArray();
+  }
+
+  /**
+   * Writes a single item, stored in either {@link CompactItemEncoding encoding}, as a customer object.
+   * Attributes without a string value are written as nulls.
+   */
+  public void writeItem(Map<String, AttributeValue> storedItem, JsonGenerator generator) throws IOException {
+
+    Map<String, AttributeValue> item = CompactItemEncoding.decode(storedItem);
+    generator.writeStartObject();
+    for (int i = 0; i < attributeNames.length; i++) {
+      generator.writeFieldName(propertyNames[i]);
+      AttributeValue value = item.get(attributeNames[i]);
+      if (value == null || value.getS() == null) {
+        generator.writeNull();
+      } else {
+        generator.writeString(value.getS());
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  private static String attributeName(AnnotatedMethod getter, String propertyName) {
+
+    DynamoDBHashKey hashKey = getter.getAnnotation(DynamoDBHashKey.class);
+    if (hashKey != null && !hashKey.attributeName().isEmpty()) {
+      return hashKey.attributeName();
+    }
+    DynamoDBAttribute attribute = getter.getAnnotation(DynamoDBAttribute.class);
+    if (attribute != null && !attribute.attributeName().isEmpty()) {
+      return attribute.attributeName();
+    }
+    return propertyName;
+  }
+}
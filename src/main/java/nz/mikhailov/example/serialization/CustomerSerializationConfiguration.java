@@ -0,0 +1,41 @@
+package nz.mikhailov.example.serialization;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson modules picked up by every object mapper built by Spring Boot, including the binary ones.
+ * Afterburner replaces reflective property access with generated accessors, and raw customer items
+ * are written by {@link CustomerItemsSerializer}.
+ */
+@Configuration
+public class CustomerSerializationConfiguration {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Bean
+  public CustomerItemsSerializer customerItemsSerializer() {
+
+    log.trace("Entering customerItemsSerializer()");
+    return new CustomerItemsSerializer();
+  }
+
+  @Bean
+  public Module customerItemsModule(CustomerItemsSerializer customerItemsSerializer) {
+
+    log.trace("Entering customerItemsModule()");
+    return new SimpleModule("CustomerItemsModule").addSerializer(customerItemsSerializer);
+  }
+
+  @Bean
+  public Module afterburnerModule() {
+
+    log.trace("Entering afterburnerModule()");
+    return new AfterburnerModule();
+  }
+}
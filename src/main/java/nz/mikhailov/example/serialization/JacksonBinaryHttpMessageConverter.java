@@ -0,0 +1,17 @@
+package nz.mikhailov.example.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * Reads and writes any Jackson-mapped type with a binary Jackson backend such as Smile or CBOR,
+ * decided by the factory of the given {@link ObjectMapper}.
+ */
+public class JacksonBinaryHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+  public JacksonBinaryHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+
+    super(objectMapper, mediaType);
+  }
+}
@@ -0,0 +1,93 @@
+package nz.mikhailov.example.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class SnapshotController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private SnapshotService service;
+
+  @RequestMapping(path = "/snapshots/{name:.+}", method = RequestMethod.GET)
+  public ResponseEntity<SnapshotProgress> progress(@PathVariable String name) {
+
+    log.trace("Entering progress(name={})", name);
+    try {
+      return service.getProgress(name)
+          .map(progress -> new ResponseEntity<>(progress, OK))
+          .orElse(new ResponseEntity<>(NOT_FOUND));
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    }
+  }
+
+  /**
+   * Starts taking a snapshot of the table in the background, replacing any older snapshot of the same name once
+   * complete.
+   */
+  @RequestMapping(path = "/snapshots/{name:.+}", method = RequestMethod.POST)
+  public ResponseEntity<SnapshotProgress> snapshot(@PathVariable String name) {
+
+    log.trace("Entering snapshot(name={})", name);
+    try {
+      return new ResponseEntity<>(service.snapshot(name), ACCEPTED);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    } catch (IllegalStateException e) {
+      return new ResponseEntity<>(service.getProgress(name).orElse(null), CONFLICT);
+    }
+  }
+
+  /**
+   * Starts restoring a snapshot into the table in the background.
+   */
+  @RequestMapping(path = "/snapshots/{name:.+}/restore", method = RequestMethod.POST)
+  public ResponseEntity<SnapshotProgress> restore(@PathVariable String name) {
+
+    log.trace("Entering restore(name={})", name);
+    try {
+      return service.restore(name)
+          .map(progress -> new ResponseEntity<>(progress, ACCEPTED))
+          .orElse(new ResponseEntity<>(NOT_FOUND));
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    } catch (IllegalStateException e) {
+      return new ResponseEntity<>(service.getProgress(name).orElse(null), CONFLICT);
+    }
+  }
+
+  /**
+   * Stops a running snapshot, discarding the partial file, or a running restore, keeping the items written so far.
+   */
+  @RequestMapping(path = "/snapshots/{name:.+}/stop", method = RequestMethod.POST)
+  public ResponseEntity<SnapshotProgress> stop(@PathVariable String name) {
+
+    log.trace("Entering stop(name={})", name);
+    try {
+      if (!service.stop(name)) {
+        return service.getProgress(name)
+            .map(progress -> new ResponseEntity<>(progress, CONFLICT))
+            .orElse(new ResponseEntity<>(NOT_FOUND));
+      }
+      return new ResponseEntity<>(service.getProgress(name).get(), ACCEPTED);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package nz.mikhailov.example.snapshot;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot file of raw table items:
+ * <pre>
+ * file      = "DDBSNAP" version:u8 item* end:i32(0) itemCount:i64
+ * item      = length:i32 attributeCount:u16 attribute*
+ * attribute = nameLength:u16 name:utf8 type:u8('S'|'N'|'B') valueLength:i32 value
+ * </pre>
+ * Items are stored as scanned, in whichever encoding they are, and read back through a memory mapped window that
+ * moves along the file, so restores do not copy the file through heap buffers.
+ */
+final class SnapshotFormat {
+
+  private static final byte[] MAGIC = "DDBSNAP".getBytes(StandardCharsets.US_ASCII);
+  private static final int VERSION = 1;
+  static final int HEADER_LENGTH = MAGIC.length + 1;
+  static final int TRAILER_LENGTH = 4 + 8;
+
+  /** Size of the mapped window, well above the 400 KB DynamoDB item size limit. */
+  private static final int WINDOW_BYTES = 64 * 1024 * 1024;
+
+  private SnapshotFormat() {
+
+  }
+
+  static void writeHeader(OutputStream output) throws IOException {
+
+    output.write(MAGIC);
+    output.write(VERSION);
+  }
+
+  static void writeTrailer(OutputStream output, long itemCount) throws IOException {
+
+    DataOutputStream data = new DataOutputStream(output);
+    data.writeInt(0);
+    data.writeLong(itemCount);
+    data.flush();
+  }
+
+  /**
+   * Encodes an item as a length prefixed record.
+   *
+   * @throws IllegalArgumentException for attribute types other than strings, numbers and binaries
+   */
+  static byte[] encode(Map<String, AttributeValue> item) {
+
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      DataOutputStream data = new DataOutputStream(bytes);
+      data.writeInt(0);
+      data.writeShort(item.size());
+      for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+        byte[] name = attribute.getKey().getBytes(StandardCharsets.UTF_8);
+        data.writeShort(name.length);
+        data.write(name);
+        AttributeValue value = attribute.getValue();
+        byte[] content;
+        if (value.getS() != null) {
+          data.write('S');
+          content = value.getS().getBytes(StandardCharsets.UTF_8);
+        } else if (value.getN() != null) {
+          data.write('N');
+          content = value.getN().getBytes(StandardCharsets.US_ASCII);
+        } else if (value.getB() != null) {
+          data.write('B');
+          ByteBuffer buffer = value.getB().duplicate();
+          content = new byte[buffer.remaining()];
+          buffer.get(content);
+        } else {
+          throw new IllegalArgumentException("Unsupported type of attribute " + attribute.getKey() + ": " + value);
+        }
+        data.writeInt(content.length);
+        data.write(content);
+      }
+      byte[] record = bytes.toByteArray();
+      ByteBuffer.wrap(record).putInt(0, record.length - 4);
+      return record;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the items of a snapshot file in order.
+   */
+  static class Reader implements Closeable {
+
+    private final FileChannel channel;
+    private final int windowBytes;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long itemCount;
+    private boolean ended;
+
+    Reader(Path file) throws IOException {
+
+      this(file, WINDOW_BYTES);
+    }
+
+    Reader(Path file, int windowBytes) throws IOException {
+
+      this.windowBytes = windowBytes;
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+      size = channel.size();
+      if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+        close();
+        throw new IOException("Not a complete snapshot: " + file);
+      }
+      map(0);
+      byte[] magic = new byte[MAGIC.length];
+      window.get(magic);
+      int version = window.get();
+      if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+        close();
+        throw new IOException("Not a snapshot of version " + VERSION + ": " + file);
+      }
+    }
+
+    /**
+     * @return the next item, or {@code null} after the last one
+     * @throws IOException if the file is truncated or corrupt
+     */
+    Map<String, AttributeValue> next() throws IOException {
+
+      if (ended) {
+        return null;
+      }
+      ensureAvailable(4);
+      int length = window.getInt();
+      if (length == 0) {
+        ensureAvailable(8);
+        itemCount = window.getLong();
+        ended = true;
+        return null;
+      }
+      if (length < 2 || length > windowBytes) {
+        throw new IOException("Corrupt snapshot record at byte " + position());
+      }
+      ensureAvailable(length);
+      try {
+        return readItem();
+      } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+        throw new IOException("Corrupt snapshot record at byte " + position(), e);
+      }
+    }
+
+    private Map<String, AttributeValue> readItem() throws IOException {
+
+      int attributeCount = window.getShort() & 0xffff;
+      Map<String, AttributeValue> item = new HashMap<>(attributeCount * 2);
+      for (int i = 0; i < attributeCount; i++) {
+        String name = new String(bytes(window.getShort() & 0xffff), StandardCharsets.UTF_8);
+        byte type = window.get();
+        byte[] content = bytes(window.getInt());
+        switch (type) {
+          case 'S':
+            item.put(name, new AttributeValue().withS(new String(content, StandardCharsets.UTF_8)));
+            break;
+          case 'N':
+            item.put(name, new AttributeValue().withN(new String(content, StandardCharsets.US_ASCII)));
+            break;
+          case 'B':
+            item.put(name, new AttributeValue().withB(ByteBuffer.wrap(content)));
+            break;
+          default:
+            throw new IOException("Corrupt snapshot record at byte " + position());
+        }
+      }
+      return item;
+    }
+
+    /**
+     * @return the number of items recorded in the trailer, once read to the end
+     */
+    long getItemCount() {
+
+      return itemCount;
+    }
+
+    long position() {
+
+      return windowStart + window.position();
+    }
+
+    long size() {
+
+      return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+      channel.close();
+    }
+
+    private byte[] bytes(int length) {
+
+      byte[] bytes = new byte[length];
+      window.get(bytes);
+      return bytes;
+    }
+
+    private void ensureAvailable(int length) throws IOException {
+
+      long position = position();
+      if (position + length > size) {
+        throw new IOException("Snapshot truncated at byte " + position);
+      }
+      if (window.remaining() < length) {
+        map(position);
+      }
+    }
+
+    private void map(long position) throws IOException {
+
+      windowStart = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+    }
+  }
+}
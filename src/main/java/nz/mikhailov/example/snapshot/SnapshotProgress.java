@@ -0,0 +1,118 @@
+package nz.mikhailov.example.snapshot;
+
+/**
+ * Point-in-time view of the current or last snapshot or restore of a snapshot.
+ */
+public class SnapshotProgress {
+
+  public enum Operation {
+    NONE, SNAPSHOT, RESTORE
+  }
+
+  public enum State {
+    IDLE, RUNNING, STOPPED, COMPLETED, FAILED
+  }
+
+  private final Operation operation;
+  private final String snapshot;
+  private final State state;
+  private final long startedAt;
+  private final long elapsedMillis;
+  private final long items;
+  private final long bytes;
+  private final long totalBytes;
+  private final double itemsPerSecond;
+  private final double bytesPerSecond;
+  private final double consumedCapacity;
+  private final String error;
+
+  SnapshotProgress(Operation operation, String snapshot, State state, long startedAt, long elapsedMillis, long items,
+                   long bytes, long totalBytes, double consumedCapacity, String error) {
+
+    this.operation = operation;
+    this.snapshot = snapshot;
+    this.state = state;
+    this.startedAt = startedAt;
+    this.elapsedMillis = elapsedMillis;
+    this.items = items;
+    this.bytes = bytes;
+    this.totalBytes = totalBytes;
+    this.itemsPerSecond = elapsedMillis > 0 ? items * 1000.0 / elapsedMillis : 0;
+    this.bytesPerSecond = elapsedMillis > 0 ? bytes * 1000.0 / elapsedMillis : 0;
+    this.consumedCapacity = consumedCapacity;
+    this.error = error;
+  }
+
+  public Operation getOperation() {
+
+    return operation;
+  }
+
+  public String getSnapshot() {
+
+    return snapshot;
+  }
+
+  public State getState() {
+
+    return state;
+  }
+
+  public long getStartedAt() {
+
+    return startedAt;
+  }
+
+  public long getElapsedMillis() {
+
+    return elapsedMillis;
+  }
+
+  /**
+   * @return items written to the snapshot, or restored from it
+   */
+  public long getItems() {
+
+    return items;
+  }
+
+  /**
+   * @return snapshot file bytes written, or read
+   */
+  public long getBytes() {
+
+    return bytes;
+  }
+
+  /**
+   * @return size of the snapshot file being restored, or of the table being snapshotted as last reported by
+   * {@code DescribeTable}
+   */
+  public long getTotalBytes() {
+
+    return totalBytes;
+  }
+
+  public double getItemsPerSecond() {
+
+    return itemsPerSecond;
+  }
+
+  public double getBytesPerSecond() {
+
+    return bytesPerSecond;
+  }
+
+  /**
+   * @return read capacity units consumed by a snapshot, or write capacity units consumed by a restore
+   */
+  public double getConsumedCapacity() {
+
+    return consumedCapacity;
+  }
+
+  public String getError() {
+
+    return error;
+  }
+}
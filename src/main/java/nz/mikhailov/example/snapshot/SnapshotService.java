@@ -0,0 +1,427 @@
+package nz.mikhailov.example.snapshot;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.search.AddressIndex;
+import nz.mikhailov.example.snapshot.SnapshotProgress.Operation;
+import nz.mikhailov.example.snapshot.SnapshotProgress.State;
+import nz.mikhailov.example.statistics.CustomerStatistics;
+import nz.mikhailov.example.suggest.CustomerNameIndex;
+import nz.mikhailov.example.util.BatchWriter;
+import nz.mikhailov.example.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Takes snapshots of the Customer table into files in {@code snapshot.directory}, and restores them.
+ * <p>
+ * A snapshot is taken by a parallel scan of {@code snapshot.segments} segments, limited to
+ * {@code snapshot.readCapacityPerSecond} read capacity units, each page appended to the
+ * {@link SnapshotFormat snapshot file} as it arrives. The file only replaces an older snapshot of the same name
+ * once complete.
+ * <p>
+ * A restore reads the file through a memory mapped window and writes the items as they are with
+ * {@code BatchWriteItem} from {@code snapshot.restoreThreads} threads, limited to
+ * {@code snapshot.writeCapacityPerSecond} write capacity units. Items already in the table are replaced, other items
+ * are kept. Afterwards the suggestion and search indexes are topped up and the statistics reconciled.
+ * <p>
+ * One snapshot or restore runs at a time.
+ */
+@Component
+public class SnapshotService {
+
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
+  private static final String EXTENSION = ".snapshot";
+
+  /** Eventually consistent read of an item up to 4 KB, used when DynamoDB does not report consumed capacity. */
+  private static final double ESTIMATED_READ_UNITS_PER_ITEM = 0.5;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${snapshot.directory:snapshots}")
+  private String directory;
+
+  @Value("${snapshot.segments:4}")
+  private int segments;
+
+  @Value("${snapshot.readCapacityPerSecond:1000}")
+  private double readCapacityPerSecond;
+
+  @Value("${snapshot.restoreThreads:8}")
+  private int restoreThreads;
+
+  @Value("${snapshot.writeCapacityPerSecond:1000}")
+  private double writeCapacityPerSecond;
+
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private DynamoDBMapper dbMapper;
+
+  @Autowired
+  private CustomerNameIndex nameIndex;
+
+  @Autowired
+  private AddressIndex addressIndex;
+
+  @Autowired
+  private CustomerStatistics statistics;
+
+  private volatile Job job;
+
+  /**
+   * @return progress of the current or last operation on the snapshot, or an idle one if the snapshot exists
+   * @throws IllegalArgumentException if the name is not valid
+   */
+  public Optional<SnapshotProgress> getProgress(String name) {
+
+    Path file = file(name);
+    Job current = job;
+    if (current != null && current.name.equals(name)) {
+      return Optional.of(current.progress());
+    }
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+    return Optional.of(new SnapshotProgress(Operation.NONE, name, State.IDLE, 0, 0, 0, 0, size(file), 0, null));
+  }
+
+  /**
+   * Starts taking a snapshot in the background.
+   *
+   * @throws IllegalArgumentException if the name is not valid
+   * @throws IllegalStateException if a snapshot or restore is already running
+   */
+  public synchronized SnapshotProgress snapshot(String name) {
+
+    Path file = file(name);
+    Job snapshot = start(Operation.SNAPSHOT, name);
+    snapshot.thread.submit(() -> takeSnapshot(snapshot, file));
+    return snapshot.progress();
+  }
+
+  /**
+   * Starts restoring a snapshot in the background.
+   *
+   * @return progress of the started restore, empty if there is no such snapshot
+   * @throws IllegalArgumentException if the name is not valid
+   * @throws IllegalStateException if a snapshot or restore is already running
+   */
+  public synchronized Optional<SnapshotProgress> restore(String name) {
+
+    Path file = file(name);
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+    Job restore = start(Operation.RESTORE, name);
+    restore.thread.submit(() -> restore(restore, file));
+    return Optional.of(restore.progress());
+  }
+
+  /**
+   * Asks a running snapshot or restore of the snapshot to stop.
+   *
+   * @return whether one was running
+   */
+  public boolean stop(String name) {
+
+    Job current = job;
+    if (current == null || !current.name.equals(name) || current.state != State.RUNNING) {
+      return false;
+    }
+    current.stopRequested = true;
+    return true;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    Job current = job;
+    if (current != null) {
+      current.stopRequested = true;
+    }
+  }
+
+  private Job start(Operation operation, String name) {
+
+    if (job != null && job.state == State.RUNNING) {
+      throw new IllegalStateException("A " + job.operation.name().toLowerCase() + " of " + job.name + " is running");
+    }
+    job = new Job(operation, name);
+    return job;
+  }
+
+  private void takeSnapshot(Job job, Path file) {
+
+    log.info("Taking snapshot {}", job.name);
+    String tableName = tableName();
+    DoubleAdder consumedCapacity = new DoubleAdder();
+    job.consumedCapacity = consumedCapacity::sum;
+    TokenBucket reads = new TokenBucket(readCapacityPerSecond, readCapacityPerSecond);
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    ExecutorService executor = Executors.newFixedThreadPool(segments, new CustomizableThreadFactory("snapshot-scan-"));
+    try {
+      job.totalBytes = dynamoDB.describeTable(tableName).getTable().getTableSizeBytes();
+      Files.createDirectories(file.getParent());
+      try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+        SnapshotFormat.writeHeader(output);
+        job.bytes.addAndGet(SnapshotFormat.HEADER_LENGTH);
+        List<Future<?>> scans = new ArrayList<>();
+        for (int segment = 0; segment < segments; segment++) {
+          int currentSegment = segment;
+          scans.add(executor.submit(() -> {
+            scanSegment(job, tableName, currentSegment, reads, consumedCapacity, output);
+            return null;
+          }));
+        }
+        for (Future<?> scan : scans) {
+          scan.get();
+        }
+        SnapshotFormat.writeTrailer(output, job.items.get());
+        job.bytes.addAndGet(SnapshotFormat.TRAILER_LENGTH);
+      }
+      if (job.stopRequested) {
+        Files.deleteIfExists(temporary);
+        job.finish(State.STOPPED, null);
+      } else {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        job.finish(State.COMPLETED, null);
+      }
+    } catch (ExecutionException e) {
+      job.stopRequested = true;
+      deleteQuietly(temporary);
+      job.finish(State.FAILED, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      deleteQuietly(temporary);
+      job.finish(State.STOPPED, null);
+    } catch (IOException | RuntimeException e) {
+      deleteQuietly(temporary);
+      job.finish(State.FAILED, e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void scanSegment(Job job, String tableName, int segment, TokenBucket reads, DoubleAdder consumedCapacity,
+                           OutputStream output) throws InterruptedException, IOException {
+
+    Map<String, AttributeValue> startKey = null;
+    do {
+      if (job.stopRequested) {
+        return;
+      }
+      reads.acquire(0);
+      ScanResult page = dynamoDB.scan(new ScanRequest(tableName)
+          .withSegment(segment)
+          .withTotalSegments(segments)
+          .withExclusiveStartKey(startKey)
+          .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+      double units = BatchWriter.capacityUnits(Collections.singletonList(page.getConsumedCapacity()),
+          page.getCount() * ESTIMATED_READ_UNITS_PER_ITEM);
+      reads.consume(units);
+      consumedCapacity.add(units);
+      ByteArrayOutputStream records = new ByteArrayOutputStream();
+      for (Map<String, AttributeValue> item : page.getItems()) {
+        records.write(SnapshotFormat.encode(item));
+      }
+      synchronized (output) {
+        records.writeTo(output);
+        job.items.addAndGet(page.getItems().size());
+        job.bytes.addAndGet(records.size());
+      }
+      startKey = page.getLastEvaluatedKey();
+    } while (startKey != null);
+  }
+
+  private void restore(Job job, Path file) {
+
+    log.info("Restoring snapshot {}", job.name);
+    BatchWriter writer = new BatchWriter(dynamoDB, tableName(),
+        new TokenBucket(writeCapacityPerSecond, writeCapacityPerSecond));
+    job.consumedCapacity = writer::getConsumedCapacity;
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    // a full queue makes the reading thread write the next batch itself, so reading keeps pace with writing
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(restoreThreads, restoreThreads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(restoreThreads * 2), new CustomizableThreadFactory("snapshot-restore-"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    try (SnapshotFormat.Reader reader = new SnapshotFormat.Reader(file)) {
+      job.totalBytes = reader.size();
+      List<WriteRequest> batch = new ArrayList<>(BatchWriter.MAX_BATCH_SIZE);
+      Map<String, AttributeValue> item;
+      while (!job.stopRequested && failure.get() == null && (item = reader.next()) != null) {
+        batch.add(new WriteRequest(new PutRequest(item)));
+        if (batch.size() == BatchWriter.MAX_BATCH_SIZE) {
+          write(job, writer, batch, failure, executor);
+          batch = new ArrayList<>(BatchWriter.MAX_BATCH_SIZE);
+        }
+        job.bytes.set(reader.position());
+      }
+      if (!batch.isEmpty() && !job.stopRequested) {
+        write(job, writer, batch, failure, executor);
+      }
+      job.bytes.set(reader.position());
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      if (failure.get() != null) {
+        job.finish(State.FAILED, failure.get());
+      } else if (job.stopRequested) {
+        job.finish(State.STOPPED, null);
+      } else {
+        if (reader.getItemCount() != job.items.get()) {
+          log.warn("Snapshot {} records {} items, {} restored", job.name, reader.getItemCount(), job.items.get());
+        }
+        refreshDerivedData();
+        job.finish(State.COMPLETED, null);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      job.finish(State.STOPPED, null);
+    } catch (IOException | RuntimeException e) {
+      job.stopRequested = true;
+      job.finish(State.FAILED, e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void write(Job job, BatchWriter writer, List<WriteRequest> batch, AtomicReference<Throwable> failure,
+                     ExecutorService executor) {
+
+    executor.execute(() -> {
+      try {
+        job.items.addAndGet(writer.write(batch));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+      }
+    });
+  }
+
+  private void refreshDerivedData() {
+
+    nameIndex.build();
+    addressIndex.build();
+    statistics.reconcile();
+  }
+
+  private String tableName() {
+
+    return dbMapper.generateCreateTableRequest(Customer.class).getTableName();
+  }
+
+  private Path file(String name) {
+
+    if (name == null || !NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException("Snapshot names may only contain letters, digits, '.', '_' and '-'");
+    }
+    return Paths.get(directory).toAbsolutePath().resolve(name + EXTENSION);
+  }
+
+  private static long size(Path file) {
+
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private void deleteQuietly(Path file) {
+
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete {}", file, e);
+    }
+  }
+
+  private class Job {
+
+    private final Operation operation;
+    private final String name;
+    private final ExecutorService thread;
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private volatile long totalBytes;
+    private volatile DoubleSupplier consumedCapacity = () -> 0;
+    private volatile State state = State.RUNNING;
+    private volatile boolean stopRequested;
+    private volatile long finishNanos;
+    private volatile String error;
+
+    Job(Operation operation, String name) {
+
+      this.operation = operation;
+      this.name = name;
+      this.thread = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("snapshot-"));
+    }
+
+    void finish(State state, Throwable error) {
+
+      if (error != null) {
+        log.error("{} of snapshot {} failed", operation, name, error);
+        this.error = error.getMessage();
+      }
+      finishNanos = System.nanoTime();
+      this.state = state;
+      thread.shutdown();
+      SnapshotProgress progress = progress();
+      log.info("{} of snapshot {} {}: {} items, {} bytes in {} ms, {} items/s", operation, name, state,
+          progress.getItems(), progress.getBytes(), progress.getElapsedMillis(), (long) progress.getItemsPerSecond());
+    }
+
+    SnapshotProgress progress() {
+
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(
+          (state == State.RUNNING ? System.nanoTime() : finishNanos) - startNanos);
+      return new SnapshotProgress(operation, name, state, startedAt, elapsedMillis, items.get(), bytes.get(),
+          totalBytes, consumedCapacity.getAsDouble(), error);
+    }
+  }
+}
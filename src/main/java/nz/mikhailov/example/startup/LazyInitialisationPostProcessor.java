@@ -0,0 +1,95 @@
+package nz.mikhailov.example.startup;
+
+import nz.mikhailov.example.Application;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * With {@code startup.lazyInitialisation}, marks the singleton beans of the application as lazy, so that they are
+ * created when first used rather than during startup. Framework beans are left alone.
+ * <p>
+ * Beans with {@link Scheduled} methods stay eager, as their schedules are only registered when they are created.
+ * Listeners, filters and other beans looked up by type are still created during startup, lazy or not.
+ */
+@Component
+public class LazyInitialisationPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+  private static final String APPLICATION_PACKAGE = Application.class.getPackage().getName() + ".";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private Environment environment;
+
+  @Override
+  public void setEnvironment(Environment environment) {
+
+    this.environment = environment;
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+
+    if (!environment.getProperty("startup.lazyInitialisation", Boolean.class, false)) {
+      return;
+    }
+    int count = 0;
+    for (String name : beanFactory.getBeanDefinitionNames()) {
+      BeanDefinition definition = beanFactory.getBeanDefinition(name);
+      if (!definition.isSingleton() || definition.isAbstract() || definition.isLazyInit()) {
+        continue;
+      }
+      Class<?> type = applicationBeanType(definition, beanFactory);
+      if (type != null && !hasScheduledMethods(type)) {
+        definition.setLazyInit(true);
+        count++;
+      }
+    }
+    log.info("Initialising {} application beans lazily", count);
+  }
+
+  private Class<?> applicationBeanType(BeanDefinition definition, ConfigurableListableBeanFactory beanFactory) {
+
+    String declaringClassName = definition.getFactoryBeanName() != null ?
+        beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName() :
+        definition.getBeanClassName();
+    if (declaringClassName == null || !declaringClassName.startsWith(APPLICATION_PACKAGE)) {
+      return null;
+    }
+    String typeName = definition.getBeanClassName();
+    if (definition.getFactoryMethodName() != null) {
+      if (!(definition instanceof AnnotatedBeanDefinition) ||
+          ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() == null) {
+        return null;
+      }
+      typeName = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata().getReturnTypeName();
+    }
+    try {
+      return ClassUtils.forName(typeName, beanFactory.getBeanClassLoader());
+    } catch (ClassNotFoundException | LinkageError e) {
+      return null;
+    }
+  }
+
+  private static boolean hasScheduledMethods(Class<?> type) {
+
+    for (Method method : ReflectionUtils.getUniqueDeclaredMethods(type)) {
+      if (AnnotationUtils.findAnnotation(method, Scheduled.class) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,76 @@
+package nz.mikhailov.example.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs work that has to happen once the application context is up, such as table verification and index builds.
+ * <p>
+ * By default tasks run inline, holding back startup until they complete. With {@code startup.async} they run
+ * one after another, in submission order, on a background thread, so that the application starts serving
+ * requests while they are in progress.
+ */
+@Component
+public class StartupTasks {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${startup.async:false}")
+  private boolean async;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("startup-"));
+
+  private final AtomicInteger pending = new AtomicInteger();
+
+  public void run(String name, Runnable task) {
+
+    if (!async) {
+      task.run();
+      return;
+    }
+    pending.incrementAndGet();
+    executor.execute(() -> {
+      long start = System.currentTimeMillis();
+      try {
+        task.run();
+        log.info("Startup task {} completed in {} ms", name, System.currentTimeMillis() - start);
+      } catch (RuntimeException e) {
+        log.error("Startup task {} failed", name, e);
+      } finally {
+        pending.decrementAndGet();
+      }
+    });
+  }
+
+  public boolean isComplete() {
+
+    return pending.get() == 0;
+  }
+
+  /**
+   * @return {@code true} if all tasks completed within the timeout
+   */
+  public boolean awaitCompletion(long timeoutMillis) throws InterruptedException {
+
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (!isComplete() && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    return isComplete();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,43 @@
+package nz.mikhailov.example.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * With {@code startup.exitAfterStart}, exits once the application has started and its startup tasks completed,
+ * or {@code startup.exitTimeoutMillis} passed. Used for the training run that records the class data sharing
+ * archive, so that the archive covers the classes loaded during startup.
+ */
+@Component
+public class TrainingRun {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${startup.exitAfterStart:false}")
+  private boolean exitAfterStart;
+
+  @Value("${startup.exitTimeoutMillis:60000}")
+  private long exitTimeoutMillis;
+
+  @Autowired
+  private StartupTasks startupTasks;
+
+  @EventListener
+  public void onApplicationReady(ApplicationReadyEvent event) throws InterruptedException {
+
+    if (!exitAfterStart) {
+      return;
+    }
+    if (!startupTasks.awaitCompletion(exitTimeoutMillis)) {
+      log.warn("Startup tasks still running after {} ms", exitTimeoutMillis);
+    }
+    log.info("Exiting after start");
+    System.exit(SpringApplication.exit(event.getApplicationContext()));
+  }
+}
@@ -0,0 +1,175 @@
+package nz.mikhailov.example.startup;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Warms the application up once it listens for requests, before {@code /health} reports it ready:
+ * <ul>
+ * <li>opens {@code warmUp.connections} connections to DynamoDB, so that the first requests do not wait for them</li>
+ * <li>maps and serializes a customer {@code warmUp.iterations} times, so that the mapping model is cached
+ * and the code is compiled</li>
+ * <li>reads up to {@code warmUp.replayReads} stored customers through the API, warming the whole request path</li>
+ * </ul>
+ * Runs as a {@link StartupTasks startup task}, after table verification and index builds. Failures are logged and
+ * end the warm-up early.
+ */
+@Component
+public class WarmUp implements ApplicationListener<EmbeddedServletContainerInitializedEvent> {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${warmUp.enabled:true}")
+  private boolean enabled;
+
+  @Value("${warmUp.connections:8}")
+  private int connections;
+
+  @Value("${warmUp.iterations:2000}")
+  private int iterations;
+
+  @Value("${warmUp.replayReads:0}")
+  private int replayReads;
+
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private DynamoDBMapper dbMapper;
+
+  @Autowired
+  private CustomerRepository repository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private StartupTasks startupTasks;
+
+  private final RestTemplate restTemplate = new RestTemplate();
+
+  private volatile boolean complete;
+
+  @Override
+  public void onApplicationEvent(EmbeddedServletContainerInitializedEvent event) {
+
+    if (!enabled) {
+      complete = true;
+      return;
+    }
+    int port = event.getEmbeddedServletContainer().getPort();
+    startupTasks.run("warm-up", () -> warmUp(port));
+  }
+
+  public boolean isComplete() {
+
+    return complete;
+  }
+
+  void warmUp(int port) {
+
+    try {
+      openConnections();
+      exerciseMapping();
+      replayReads(port);
+    } catch (AmazonClientException e) {
+      log.warn("Warm-up ended early", e);
+    } finally {
+      complete = true;
+    }
+  }
+
+  private void openConnections() {
+
+    String tableName = dbMapper.generateCreateTableRequest(Customer.class).getTableName();
+    ExecutorService executor = Executors.newFixedThreadPool(connections, new CustomizableThreadFactory("warm-up-"));
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> calls = new ArrayList<>();
+      for (int i = 0; i < connections; i++) {
+        calls.add(executor.submit(() -> {
+          start.await();
+          return dynamoDB.describeTable(tableName);
+        }));
+      }
+      start.countDown();
+      for (Future<?> call : calls) {
+        call.get();
+      }
+      log.info("Opened {} DynamoDB connections", connections);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof AmazonClientException) {
+        throw (AmazonClientException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void exerciseMapping() {
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue("Warm-up Customer"));
+    item.put("Address", new AttributeValue("Seacombe Road, Wallasey, United Kingdom"));
+    item.put("PhoneNumber", new AttributeValue("+440000000"));
+    try {
+      for (int i = 0; i < iterations; i++) {
+        Customer customer = dbMapper.marshallIntoObject(Customer.class, item);
+        objectMapper.readValue(objectMapper.writeValueAsBytes(customer), Customer.class);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    log.info("Exercised customer mapping {} times", iterations);
+  }
+
+  private void replayReads(int port) {
+
+    if (replayReads == 0) {
+      return;
+    }
+    int replayed = 0;
+    for (Customer customer : repository.scan(1, "Name")) {
+      if (replayed == replayReads) {
+        break;
+      }
+      try {
+        restTemplate.getForObject("http://localhost:{port}/v1/customer/{name}", byte[].class, port, customer.getName());
+      } catch (RestClientException e) {
+        log.debug("Replayed read of {} failed", customer.getName(), e);
+      }
+      replayed++;
+    }
+    log.info("Replayed {} customer reads", replayed);
+  }
+}
@@ -0,0 +1,173 @@
+package nz.mikhailov.example.statistics;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import nz.mikhailov.example.changes.DynamoDbStreamChangeSource;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the customer count and approximate table size from write events, so that they can be served
+ * without reading the table.
+ * <p>
+ * The counters are periodically reconciled with the table: the count with a parallel {@code Select.COUNT} scan,
+ * which returns no item payloads, and the size by extrapolating the average item size reported by
+ * {@code DescribeTable}, which DynamoDB refreshes about every six hours. Until it has reported any items, as for a
+ * recently created or restored table, the size is left as maintained from write events.
+ */
+@Component
+public class CustomerStatistics {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${statistics.scanSegments:4}")
+  private int scanSegments;
+
+  @Autowired
+  private DynamoDbStreamChangeSource streamSource;
+
+  @Autowired
+  private AmazonDynamoDB dynamoDB;
+
+  @Autowired
+  private DynamoDBMapper dbMapper;
+
+  private final AtomicLong itemCount = new AtomicLong();
+  private final AtomicLong sizeBytes = new AtomicLong();
+  private volatile long reconciledAt;
+
+  @EventListener
+  public void onCustomerEvent(CustomerEvent event) {
+
+    if (event.isLocal() == streamSource.isActive()) {
+      // while the change stream is tailed every write arrives twice, once local and once from the stream
+      return;
+    }
+    switch (event.getType()) {
+      case CREATED:
+        itemCount.incrementAndGet();
+        sizeBytes.addAndGet(sizeOf(event.getCustomer()));
+        break;
+      case UPDATED:
+        sizeBytes.addAndGet(sizeOf(event.getCustomer()) - sizeOf(event.getPrevious()));
+        break;
+      case DELETED:
+        itemCount.decrementAndGet();
+        sizeBytes.addAndGet(-sizeOf(event.getPrevious()));
+        break;
+    }
+  }
+
+  public TableStatistics getStatistics() {
+
+    return new TableStatistics(Math.max(0, itemCount.get()), Math.max(0, sizeBytes.get()), reconciledAt);
+  }
+
+  @Scheduled(initialDelayString = "${statistics.reconcileInitialDelayMillis:0}",
+      fixedDelayString = "${statistics.reconcileIntervalMillis:3600000}")
+  public void reconcile() {
+
+    log.trace("Entering reconcile()");
+    String tableName = dbMapper.generateCreateTableRequest(Customer.class).getTableName();
+    try {
+      TableDescription table = dynamoDB.describeTable(tableName).getTable();
+      boolean described = table.getItemCount() != null && table.getItemCount() > 0 && table.getTableSizeBytes() != null;
+      long countBefore = itemCount.get();
+      long counted = countItems(tableName);
+      // writes made while scanning may or may not have been counted, keep them on top of the scan result
+      long count = counted + itemCount.get() - countBefore;
+      itemCount.set(count);
+      if (described) {
+        sizeBytes.set(table.getTableSizeBytes() * count / table.getItemCount());
+      }
+      reconciledAt = System.currentTimeMillis();
+      log.info("Customer statistics reconciled: {} items, {} bytes", itemCount.get(), sizeBytes.get());
+    } catch (AmazonClientException e) {
+      log.warn("Customer statistics not reconciled: {}", e.getMessage());
+    }
+  }
+
+  private long countItems(String tableName) {
+
+    ExecutorService executor = Executors.newFixedThreadPool(scanSegments, new CustomizableThreadFactory("statistics-scan-"));
+    try {
+      List<Future<Long>> segments = new ArrayList<>();
+      for (int segment = 0; segment < scanSegments; segment++) {
+        int currentSegment = segment;
+        segments.add(executor.submit(() -> countSegment(tableName, currentSegment)));
+      }
+      long total = 0;
+      for (Future<Long> segment : segments) {
+        total += segment.get();
+      }
+      return total;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while counting customers", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof AmazonClientException ?
+          (AmazonClientException) e.getCause() :
+          new AmazonClientException("Failed to count customers", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private long countSegment(String tableName, int segment) {
+
+    long count = 0;
+    Map<String, AttributeValue> startKey = null;
+    do {
+      ScanResult result = dynamoDB.scan(new ScanRequest(tableName)
+          .withSelect(Select.COUNT)
+          .withSegment(segment)
+          .withTotalSegments(scanSegments)
+          .withExclusiveStartKey(startKey));
+      count += result.getCount();
+      startKey = result.getLastEvaluatedKey();
+    } while (startKey != null);
+    return count;
+  }
+
+  /**
+   * DynamoDB item size: UTF-8 lengths of attribute names plus their string values.
+   */
+  static long sizeOf(Customer customer) {
+
+    if (customer == null) {
+      return 0;
+    }
+    return sizeOf("Name", customer.getName()) +
+        sizeOf("Address", customer.getAddress()) +
+        sizeOf("PhoneNumber", customer.getPhoneNumber());
+  }
+
+  private static long sizeOf(String attributeName, String value) {
+
+    return value == null ? 0 : attributeName.length() + value.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
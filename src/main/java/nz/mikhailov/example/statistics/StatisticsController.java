@@ -0,0 +1,35 @@
+package nz.mikhailov.example.statistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/v1")
+public class StatisticsController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private CustomerStatistics statistics;
+
+  @RequestMapping(path = "/customer/count", method = RequestMethod.GET)
+  public ResponseEntity<Long> count() {
+
+    log.trace("Entering count()");
+    return new ResponseEntity<>(statistics.getStatistics().getItemCount(), OK);
+  }
+
+  @RequestMapping(path = "/customer/stats", method = RequestMethod.GET)
+  public ResponseEntity<TableStatistics> stats() {
+
+    log.trace("Entering stats()");
+    return new ResponseEntity<>(statistics.getStatistics(), OK);
+  }
+}
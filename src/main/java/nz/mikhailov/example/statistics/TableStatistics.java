@@ -0,0 +1,41 @@
+package nz.mikhailov.example.statistics;
+
+/**
+ * Point-in-time view of the Customer table statistics.
+ */
+public class TableStatistics {
+
+  private final long itemCount;
+  private final long approximateSizeBytes;
+  private final long reconciledAt;
+
+  public TableStatistics(long itemCount, long approximateSizeBytes, long reconciledAt) {
+
+    this.itemCount = itemCount;
+    this.approximateSizeBytes = approximateSizeBytes;
+    this.reconciledAt = reconciledAt;
+  }
+
+  public long getItemCount() {
+
+    return itemCount;
+  }
+
+  public long getApproximateSizeBytes() {
+
+    return approximateSizeBytes;
+  }
+
+  public long getAverageItemSizeBytes() {
+
+    return itemCount > 0 ? approximateSizeBytes / itemCount : 0;
+  }
+
+  /**
+   * @return epoch millis of the last reconciliation with the table, {@code 0} if it has not happened yet
+   */
+  public long getReconciledAt() {
+
+    return reconciledAt;
+  }
+}
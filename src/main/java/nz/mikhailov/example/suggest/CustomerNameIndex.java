@@ -0,0 +1,285 @@
+package nz.mikhailov.example.suggest;
+
+import com.amazonaws.AmazonClientException;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import nz.mikhailov.example.customer.CustomerRepository;
+import nz.mikhailov.example.startup.StartupTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sorted in-memory set of customer names answering case-insensitive prefix lookups for type-ahead.
+ * <p>
+ * Names are ordered case-insensitively, so all names sharing a prefix are adjacent and a lookup is a
+ * logarithmic seek followed by reading at most {@code limit} entries. The names found by the startup scan are kept
+ * in a sorted array, and names created or deleted since in a small overlay, which is merged into a new array once it
+ * holds more than an eighth as many changes, at least {@value #MIN_OVERLAY_CHANGES}. Only the name strings
+ * themselves are kept, and the index stops growing at {@code suggest.maxEntries}. Changes are serialised, lookups
+ * read without locking.
+ */
+@Component
+public class CustomerNameIndex implements ApplicationListener<ContextRefreshedEvent> {
+
+  private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+  private static final int MIN_OVERLAY_CHANGES = 1024;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${suggest.maxEntries:1000000}")
+  private int maxEntries;
+
+  @Value("${suggest.scanSegments:4}")
+  private int scanSegments;
+
+  @Autowired
+  private CustomerRepository repository;
+
+  @Autowired
+  private StartupTasks startupTasks;
+
+  private volatile Names names = new Names(new String[0]);
+  private final AtomicInteger count = new AtomicInteger();
+  private final AtomicBoolean built = new AtomicBoolean();
+  private final AtomicBoolean full = new AtomicBoolean();
+
+  @Override
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+
+    if (built.compareAndSet(false, true)) {
+      startupTasks.run("customer name index build", this::build);
+    }
+  }
+
+  public void build() {
+
+    log.trace("Entering build()");
+    long start = System.currentTimeMillis();
+    try {
+      List<String> scanned = new ArrayList<>();
+      for (Customer customer : repository.scan(scanSegments, "Name")) {
+        if (customer.getName() != null && scanned.size() < maxEntries) {
+          scanned.add(customer.getName());
+        }
+      }
+      String[] sorted = scanned.toArray(new String[scanned.size()]);
+      Arrays.sort(sorted, ORDER);
+      synchronized (this) {
+        // names created and deleted while scanning stay in the overlay, on top of the scan
+        Names current = names;
+        names = new Names(sorted, current.added, current.removed);
+        compact();
+      }
+      log.info("Customer name index built with {} names in {} ms", count.get(), System.currentTimeMillis() - start);
+    } catch (AmazonClientException e) {
+      log.warn("Customer name index not built, only names written from now on will be suggested: {}", e.getMessage());
+    }
+  }
+
+  @EventListener
+  public void onCustomerEvent(CustomerEvent event) {
+
+    switch (event.getType()) {
+      case CREATED:
+        add(event.getName());
+        break;
+      case DELETED:
+        remove(event.getName());
+        break;
+      default:
+        // names are keys and never change on update
+    }
+  }
+
+  public List<String> suggest(String prefix, int limit) {
+
+    Names current = names;
+    List<String> result = new ArrayList<>(Math.min(limit, 16));
+    int index = current.firstMatching(prefix);
+    Iterator<String> added = current.addedFrom(prefix);
+    String nextSorted = nextIn(current.sorted, index);
+    String nextAdded = added.hasNext() ? added.next() : null;
+    while (result.size() < limit) {
+      String next;
+      if (nextAdded == null || nextSorted != null && ORDER.compare(nextSorted, nextAdded) <= 0) {
+        next = nextSorted;
+        nextSorted = nextIn(current.sorted, ++index);
+        if (next != null && current.removed.contains(next)) {
+          continue;
+        }
+      } else {
+        next = nextAdded;
+        nextAdded = added.hasNext() ? added.next() : null;
+      }
+      if (next == null || !next.regionMatches(true, 0, prefix, 0, prefix.length())) {
+        break;
+      }
+      result.add(next);
+    }
+    return result;
+  }
+
+  public int size() {
+
+    return count.get();
+  }
+
+  private synchronized void add(String name) {
+
+    if (name == null || names.contains(name)) {
+      return;
+    }
+    if (count.get() >= maxEntries) {
+      if (full.compareAndSet(false, true)) {
+        log.warn("Customer name index reached its limit of {} names, further names are not suggested", maxEntries);
+      }
+      return;
+    }
+    if (names.inSorted(name)) {
+      names.removed.remove(name);
+    } else {
+      names.added.add(name);
+    }
+    count.incrementAndGet();
+    changed();
+  }
+
+  private synchronized void remove(String name) {
+
+    if (name == null) {
+      return;
+    }
+    if (names.added.remove(name) || names.inSorted(name) && names.removed.add(name)) {
+      count.decrementAndGet();
+      changed();
+    }
+    full.set(false);
+  }
+
+  private void changed() {
+
+    if (++names.changes > Math.max(MIN_OVERLAY_CHANGES, names.sorted.length / 8)) {
+      compact();
+    }
+  }
+
+  /**
+   * Merges the overlay into a new sorted array. Called holding the lock.
+   */
+  private void compact() {
+
+    Names current = names;
+    List<String> merged = new ArrayList<>(current.sorted.length + current.changes);
+    Iterator<String> added = current.added.iterator();
+    String nextAdded = added.hasNext() ? added.next() : null;
+    for (String name : current.sorted) {
+      while (nextAdded != null && ORDER.compare(nextAdded, name) < 0) {
+        merged.add(nextAdded);
+        nextAdded = added.hasNext() ? added.next() : null;
+      }
+      if (nextAdded != null && nextAdded.equals(name)) {
+        nextAdded = added.hasNext() ? added.next() : null;
+      }
+      if (!current.removed.contains(name) && (merged.isEmpty() || !merged.get(merged.size() - 1).equals(name))) {
+        merged.add(name);
+      }
+    }
+    while (nextAdded != null) {
+      merged.add(nextAdded);
+      nextAdded = added.hasNext() ? added.next() : null;
+    }
+    names = new Names(merged.toArray(new String[merged.size()]));
+    count.set(merged.size());
+  }
+
+  private static String nextIn(String[] sorted, int index) {
+
+    return index < sorted.length ? sorted[index] : null;
+  }
+
+  /**
+   * Sorted array of names with an overlay of the names created and deleted since it was sorted. Replaced as a
+   * whole when the overlay is merged, so that lookups see the array and its overlay consistently.
+   */
+  private static class Names {
+
+    private final String[] sorted;
+    /** Names created since, not in the array. */
+    private final NavigableSet<String> added;
+    /** Names deleted since, in the array. */
+    private final Set<String> removed;
+    private int changes;
+
+    Names(String[] sorted) {
+
+      this(sorted, new ConcurrentSkipListSet<>(ORDER), ConcurrentHashMap.newKeySet());
+    }
+
+    Names(String[] sorted, NavigableSet<String> added, Set<String> removed) {
+
+      this.sorted = sorted;
+      this.added = added;
+      this.removed = removed;
+      this.changes = added.size() + removed.size();
+    }
+
+    boolean inSorted(String name) {
+
+      return Arrays.binarySearch(sorted, name, ORDER) >= 0;
+    }
+
+    boolean contains(String name) {
+
+      return added.contains(name) || inSorted(name) && !removed.contains(name);
+    }
+
+    /**
+     * @return index of the first name in the array not ordered before the prefix, ignoring case
+     */
+    int firstMatching(String prefix) {
+
+      int low = 0;
+      int high = sorted.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (String.CASE_INSENSITIVE_ORDER.compare(sorted[middle], prefix) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * @return the created names not ordered before the prefix, ignoring case, in order
+     */
+    Iterator<String> addedFrom(String prefix) {
+
+      // names differing from the prefix only in case may sort before it
+      String from = prefix;
+      for (String lower = added.lower(from); lower != null && lower.equalsIgnoreCase(prefix); lower = added.lower(from)) {
+        from = lower;
+      }
+      return added.tailSet(from, true).iterator();
+    }
+  }
+}
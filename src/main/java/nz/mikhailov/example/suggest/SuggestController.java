@@ -0,0 +1,40 @@
+package nz.mikhailov.example.suggest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/v1")
+public class SuggestController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${suggest.maxLimit:100}")
+  private int maxLimit;
+
+  @Autowired
+  private CustomerNameIndex index;
+
+  @RequestMapping(path = "/customer/suggest", method = RequestMethod.GET)
+  public ResponseEntity<List<String>> suggest(@RequestParam(defaultValue = "") String prefix,
+                                              @RequestParam(defaultValue = "10") int limit) {
+
+    log.trace("Entering suggest() with {}, {}", prefix, limit);
+    if (limit < 1) {
+      return new ResponseEntity<>(BAD_REQUEST);
+    }
+    return new ResponseEntity<>(index.suggest(prefix, Math.min(limit, maxLimit)), OK);
+  }
+}
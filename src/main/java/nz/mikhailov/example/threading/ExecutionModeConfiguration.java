@@ -0,0 +1,71 @@
+package nz.mikhailov.example.threading;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Selects the threads running requests with {@code threads.mode}.
+ * <p>
+ * {@code platform} keeps the Tomcat worker pool, sized with {@code server.tomcat.max-threads}.
+ * {@code virtual} runs every request, including its blocking DynamoDB calls, on its own virtual thread,
+ * so that waiting on I/O does not hold a platform thread. It needs Java 21 or later at runtime, and falls back
+ * to {@code platform} otherwise. Concurrent DynamoDB calls are then limited by {@code dynamoDb.maxConnections}.
+ */
+@Configuration
+public class ExecutionModeConfiguration implements EmbeddedServletContainerCustomizer {
+
+  public static final String VIRTUAL = "virtual";
+  public static final String PLATFORM = "platform";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${threads.mode:" + PLATFORM + "}")
+  private String mode;
+
+  private ExecutorService executor;
+
+  @Override
+  public void customize(ConfigurableEmbeddedServletContainer container) {
+
+    log.trace("Entering customize()");
+    if (!VIRTUAL.equals(mode)) {
+      log.info("Handling requests on platform threads");
+      return;
+    }
+    if (!VirtualThreads.isSupported()) {
+      log.warn("Virtual threads are not supported on Java {}, handling requests on platform threads",
+          System.getProperty("java.version"));
+      return;
+    }
+    if (!(container instanceof TomcatEmbeddedServletContainerFactory)) {
+      log.warn("Virtual threads are only supported with Tomcat, handling requests on platform threads");
+      return;
+    }
+    executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+    ((TomcatEmbeddedServletContainerFactory) container).addConnectorCustomizers(connector -> {
+      ProtocolHandler handler = connector.getProtocolHandler();
+      if (handler instanceof AbstractProtocol) {
+        ((AbstractProtocol<?>) handler).setExecutor(executor);
+      }
+    });
+    log.info("Handling requests on virtual threads");
+  }
+
+  @PreDestroy
+  public void shutdown() {
+
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+}
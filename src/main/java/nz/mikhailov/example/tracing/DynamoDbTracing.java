@@ -0,0 +1,92 @@
+package nz.mikhailov.example.tracing;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+import nz.mikhailov.example.util.BatchWriter;
+import nz.mikhailov.example.util.CapacityReporting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Traces each DynamoDB call made while tracing a request as a {@code DynamoDB.<Operation>} span with nested
+ * {@code marshall}, {@code http}, {@code retry-pause} and {@code unmarshall} spans for each attempt, from the
+ * timings the client records. Reads and writes are made to return their consumed capacity, unless already
+ * requested, which is added to the span with the number of attempts and throttled attempts.
+ * <p>
+ * The client records these timings only with a {@code RequestMetricCollector} registered.
+ */
+@Component
+public class DynamoDbTracing extends RequestHandler2 {
+
+  private static final String[][] TIMINGS = {
+      {Field.RequestMarshallTime.name(), "marshall"},
+      {Field.HttpRequestTime.name(), "http"},
+      {Field.ResponseProcessingTime.name(), "unmarshall"},
+      {Field.RetryPauseTime.name(), "retry-pause"}};
+
+  @Autowired
+  private Tracer tracer;
+
+  @Override
+  public AmazonWebServiceRequest beforeMarshalling(AmazonWebServiceRequest request) {
+
+    if (tracer.isTracing()) {
+      CapacityReporting.requestTotal(request);
+    }
+    return request;
+  }
+
+  @Override
+  public void afterResponse(Request<?> request, Response<?> response) {
+
+    Span span = record(request);
+    if (span != null && response != null) {
+      double units = BatchWriter.capacityUnits(CapacityReporting.consumedCapacity(response.getAwsResponse()),
+          Double.NaN);
+      span.attribute("consumedCapacity", Double.isNaN(units) ? null : units);
+    }
+  }
+
+  @Override
+  public void afterError(Request<?> request, Response<?> response, Exception e) {
+
+    Span span = record(request);
+    if (span != null) {
+      span.attribute("error", e.getClass().getSimpleName());
+    }
+  }
+
+  private Span record(Request<?> request) {
+
+    if (!tracer.isTracing() || request.getAWSRequestMetrics() == null) {
+      return null;
+    }
+    TimingInfo timing = request.getAWSRequestMetrics().getTimingInfo();
+    String operation = request.getOriginalRequest().getClass().getSimpleName().replaceFirst("Request$", "");
+    Span span = tracer.record(null, "DynamoDB." + operation, timing.getStartTimeNano(), System.nanoTime());
+    if (span == null) {
+      return null;
+    }
+    span.attribute("attempts", timing.getCounter(Field.RequestCount.name()));
+    span.attribute("throttled", timing.getCounter(Field.ThrottleException.name()));
+    for (String[] measurement : TIMINGS) {
+      List<TimingInfo> attempts = timing.getAllSubMeasurements(measurement[0]);
+      for (int i = 0; attempts != null && i < attempts.size(); i++) {
+        TimingInfo attempt = attempts.get(i);
+        if (attempt.isEndTimeKnown()) {
+          Span child = tracer.record(span, measurement[1], attempt.getStartTimeNano(), attempt.getEndTimeNano());
+          if (child != null && attempts.size() > 1) {
+            child.attribute("attempt", i + 1);
+          }
+        }
+      }
+    }
+    return span;
+  }
+}
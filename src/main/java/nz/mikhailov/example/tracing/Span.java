@@ -0,0 +1,100 @@
+package nz.mikhailov.example.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timed part of a {@link Trace}, nested in the span before it with a lower depth. Its self time is its duration
+ * less that of the spans nested in it, such as the time the repository spends in {@code DynamoDBMapper} rather
+ * than waiting for DynamoDB.
+ */
+public class Span {
+
+  private final String name;
+  private final int depth;
+  private final long startNanos;
+  private long durationNanos = -1;
+  private long childNanos;
+  private Map<String, Object> attributes;
+
+  Span(String name, int depth, long startNanos) {
+
+    this.name = name;
+    this.depth = depth;
+    this.startNanos = startNanos;
+  }
+
+  /**
+   * Adds an attribute, unless its value is {@code null}.
+   */
+  public Span attribute(String name, Object value) {
+
+    if (value != null) {
+      if (attributes == null) {
+        attributes = new LinkedHashMap<>(4);
+      }
+      attributes.put(name, value);
+    }
+    return this;
+  }
+
+  public String getName() {
+
+    return name;
+  }
+
+  public int getDepth() {
+
+    return depth;
+  }
+
+  /**
+   * @return start since the start of the trace
+   */
+  public long getStartMicros() {
+
+    return TimeUnit.NANOSECONDS.toMicros(startNanos);
+  }
+
+  public long getDurationMicros() {
+
+    return TimeUnit.NANOSECONDS.toMicros(durationNanos);
+  }
+
+  public long getSelfMicros() {
+
+    return TimeUnit.NANOSECONDS.toMicros(durationNanos - childNanos);
+  }
+
+  public Map<String, Object> getAttributes() {
+
+    return attributes == null ? Collections.emptyMap() : attributes;
+  }
+
+  long getStartNanos() {
+
+    return startNanos;
+  }
+
+  long getDurationNanos() {
+
+    return durationNanos;
+  }
+
+  boolean isFinished() {
+
+    return durationNanos >= 0;
+  }
+
+  void finish(long durationNanos) {
+
+    this.durationNanos = durationNanos;
+  }
+
+  void addChild(long durationNanos) {
+
+    childNanos += durationNanos;
+  }
+}
@@ -0,0 +1,169 @@
+package nz.mikhailov.example.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spans of one request, in the order they started. Built by the thread serving the request, and not changed once
+ * the request completes.
+ */
+public class Trace {
+
+  private final String id;
+  private final String method;
+  private final String uri;
+  private final long startedAt = System.currentTimeMillis();
+  private final long startNanos;
+  private final int maxSpans;
+  private final List<Span> spans = new ArrayList<>();
+  private final Deque<Span> open = new ArrayDeque<>();
+  private String endpoint;
+  private int status;
+  private long durationNanos;
+  private int droppedSpans;
+
+  Trace(String id, String method, String uri, long startNanos, int maxSpans) {
+
+    this.id = id;
+    this.method = method;
+    this.uri = uri;
+    this.startNanos = startNanos;
+    this.maxSpans = maxSpans;
+  }
+
+  public String getId() {
+
+    return id;
+  }
+
+  public String getMethod() {
+
+    return method;
+  }
+
+  public String getUri() {
+
+    return uri;
+  }
+
+  /**
+   * @return the matched path pattern, or {@code null} if none matched
+   */
+  public String getEndpoint() {
+
+    return endpoint;
+  }
+
+  public int getStatus() {
+
+    return status;
+  }
+
+  public long getStartedAt() {
+
+    return startedAt;
+  }
+
+  public long getDurationMicros() {
+
+    return TimeUnit.NANOSECONDS.toMicros(durationNanos);
+  }
+
+  public List<Span> getSpans() {
+
+    return spans;
+  }
+
+  /**
+   * @return spans not recorded past the limit of spans per trace
+   */
+  public int getDroppedSpans() {
+
+    return droppedSpans;
+  }
+
+  long getDurationNanos() {
+
+    return durationNanos;
+  }
+
+  /**
+   * @return the innermost span not yet finished, or {@code null}
+   */
+  Span current() {
+
+    return open.peek();
+  }
+
+  /**
+   * Starts a span nested in the current one.
+   *
+   * @return the span, or {@code null} past the limit of spans
+   */
+  Span start(String name, long nanos) {
+
+    if (spans.size() >= maxSpans) {
+      droppedSpans++;
+      return null;
+    }
+    Span span = new Span(name, open.size(), nanos - startNanos);
+    spans.add(span);
+    open.push(span);
+    return span;
+  }
+
+  /**
+   * Finishes a span, and any spans nested in it still open.
+   */
+  void finish(Span span, long nanos) {
+
+    if (span == null || span.isFinished()) {
+      return;
+    }
+    Span finished;
+    do {
+      finished = open.pop();
+      finish(finished, open.peek(), nanos);
+    } while (finished != span);
+  }
+
+  /**
+   * Records a span already finished, nested in {@code parent}, or in the current span if {@code null}.
+   *
+   * @return the span, or {@code null} past the limit of spans
+   */
+  Span record(Span parent, String name, long startNanos, long endNanos) {
+
+    if (spans.size() >= maxSpans) {
+      droppedSpans++;
+      return null;
+    }
+    Span outer = parent == null ? open.peek() : parent;
+    Span span = new Span(name, parent == null ? open.size() : parent.getDepth() + 1, startNanos - this.startNanos);
+    spans.add(span);
+    finish(span, outer, endNanos);
+    return span;
+  }
+
+  void end(String endpoint, int status, long nanos) {
+
+    while (!open.isEmpty()) {
+      Span span = open.pop();
+      finish(span, open.peek(), nanos);
+    }
+    this.endpoint = endpoint;
+    this.status = status;
+    this.durationNanos = nanos - startNanos;
+  }
+
+  private void finish(Span span, Span outer, long nanos) {
+
+    span.finish(nanos - startNanos - span.getStartNanos());
+    if (outer != null) {
+      outer.addChild(span.getDurationNanos());
+    }
+  }
+}
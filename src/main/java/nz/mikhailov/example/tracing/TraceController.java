@@ -0,0 +1,44 @@
+package nz.mikhailov.example.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class TraceController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private Tracer tracer;
+
+  /**
+   * Lists the traces of the most recent slow requests, the most recent first.
+   */
+  @RequestMapping(path = "/traces", method = RequestMethod.GET)
+  public ResponseEntity<List<Trace>> list() {
+
+    log.trace("Entering list()");
+    return new ResponseEntity<>(tracer.getSlowTraces(), OK);
+  }
+
+  @RequestMapping(path = "/traces/{id}", method = RequestMethod.GET)
+  public ResponseEntity<Trace> read(@PathVariable String id) {
+
+    log.trace("Entering read() with {}", id);
+    return tracer.getSlowTrace(id)
+        .map(trace -> new ResponseEntity<>(trace, OK))
+        .orElse(new ResponseEntity<>(NOT_FOUND));
+  }
+}
@@ -0,0 +1,240 @@
+package nz.mikhailov.example.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces the requests served by the current thread. Traces taking {@code tracing.thresholdMillis} or longer are
+ * kept, the last {@code tracing.retainedTraces} of them, and appended as JSON lines to {@code tracing.exportFile}
+ * if set, by a background thread that drops traces when over 1000 are waiting.
+ */
+@Component
+public class Tracer {
+
+  public static final String TRACE_ID_HEADER = "Trace-Id";
+
+  private static final int EXPORT_QUEUE_CAPACITY = 1000;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${tracing.enabled:true}")
+  private boolean enabled;
+
+  @Value("${tracing.thresholdMillis:500}")
+  private long thresholdMillis;
+
+  @Value("${tracing.retainedTraces:100}")
+  private int retainedTraces;
+
+  @Value("${tracing.maxSpansPerTrace:200}")
+  private int maxSpansPerTrace;
+
+  @Value("${tracing.exportFile:}")
+  private String exportFile;
+
+  private final ThreadLocal<Trace> current = new ThreadLocal<>();
+  private final Deque<Trace> slowTraces = new ArrayDeque<>();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private ThreadPoolExecutor exporter;
+  private Writer export;
+
+  public Tracer() {
+
+  }
+
+  Tracer(long thresholdMillis, int retainedTraces, String exportFile) throws IOException {
+
+    this.enabled = true;
+    this.thresholdMillis = thresholdMillis;
+    this.retainedTraces = retainedTraces;
+    this.maxSpansPerTrace = 200;
+    this.exportFile = exportFile;
+    open();
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+
+    if (!enabled || exportFile.isEmpty()) {
+      return;
+    }
+    Path path = Paths.get(exportFile).toAbsolutePath();
+    Files.createDirectories(path.getParent());
+    export = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    exporter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(EXPORT_QUEUE_CAPACITY), new CustomizableThreadFactory("trace-export-"),
+        new ThreadPoolExecutor.DiscardPolicy());
+    log.info("Exporting traces of {} ms or longer to {}", thresholdMillis, path);
+  }
+
+  @PreDestroy
+  public void close() throws IOException, InterruptedException {
+
+    if (exporter != null) {
+      exporter.shutdown();
+      exporter.awaitTermination(5, TimeUnit.SECONDS);
+      export.close();
+    }
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  /**
+   * Starts tracing a request served by the current thread.
+   *
+   * @return the trace ID, or {@code null} when tracing is disabled
+   */
+  public String begin(String method, String uri) {
+
+    if (!enabled) {
+      return null;
+    }
+    String id = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    current.set(new Trace(id, method, uri, System.nanoTime(), maxSpansPerTrace));
+    return id;
+  }
+
+  /**
+   * Completes the trace of the request served by the current thread, keeping it if slow.
+   */
+  public void end(String endpoint, int status) {
+
+    Trace trace = current.get();
+    if (trace == null) {
+      return;
+    }
+    current.remove();
+    trace.end(endpoint, status, System.nanoTime());
+    if (trace.getDurationNanos() < TimeUnit.MILLISECONDS.toNanos(thresholdMillis)) {
+      return;
+    }
+    synchronized (slowTraces) {
+      slowTraces.addFirst(trace);
+      if (slowTraces.size() > retainedTraces) {
+        slowTraces.removeLast();
+      }
+    }
+    if (exporter != null) {
+      exporter.execute(() -> export(trace));
+    }
+  }
+
+  /**
+   * @return the ID of the trace of the current thread, or {@code null} if not tracing
+   */
+  public String currentTraceId() {
+
+    Trace trace = current.get();
+    return trace == null ? null : trace.getId();
+  }
+
+  /**
+   * @return whether the current thread is tracing a request
+   */
+  public boolean isTracing() {
+
+    return current.get() != null;
+  }
+
+  /**
+   * Starts a span nested in the current one.
+   *
+   * @return the span, or {@code null} if not tracing
+   */
+  public Span start(String name) {
+
+    Trace trace = current.get();
+    return trace == null ? null : trace.start(name, System.nanoTime());
+  }
+
+  /**
+   * Finishes a span started by {@link #start(String)}, and any spans nested in it still open.
+   */
+  public void finish(Span span) {
+
+    Trace trace = current.get();
+    if (trace != null) {
+      trace.finish(span, System.nanoTime());
+    }
+  }
+
+  /**
+   * Finishes the current span if it has the given name.
+   */
+  public void finish(String name) {
+
+    Trace trace = current.get();
+    if (trace != null && trace.current() != null && trace.current().getName().equals(name)) {
+      trace.finish(trace.current(), System.nanoTime());
+    }
+  }
+
+  /**
+   * Records a span already finished, timed with {@link System#nanoTime()}, nested in {@code parent}, or in the
+   * current span if {@code null}.
+   *
+   * @return the span, or {@code null} if not tracing
+   */
+  public Span record(Span parent, String name, long startNanos, long endNanos) {
+
+    Trace trace = current.get();
+    return trace == null ? null : trace.record(parent, name, startNanos, endNanos);
+  }
+
+  /**
+   * @return the slow traces kept, the most recent first
+   */
+  public List<Trace> getSlowTraces() {
+
+    synchronized (slowTraces) {
+      return new ArrayList<>(slowTraces);
+    }
+  }
+
+  public Optional<Trace> getSlowTrace(String id) {
+
+    synchronized (slowTraces) {
+      return slowTraces.stream().filter(trace -> trace.getId().equals(id)).findFirst();
+    }
+  }
+
+  private void export(Trace trace) {
+
+    try {
+      export.write(objectMapper.writeValueAsString(trace));
+      export.write('\n');
+      if (exporter.getQueue().isEmpty()) {
+        export.flush();
+      }
+    } catch (IOException e) {
+      log.warn("Could not export trace {}: {}", trace.getId(), e.toString());
+    }
+  }
+}
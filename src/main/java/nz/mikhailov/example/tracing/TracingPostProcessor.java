@@ -0,0 +1,91 @@
+package nz.mikhailov.example.tracing;
+
+import nz.mikhailov.example.Application;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Proxies the controllers, services and repositories of the application, so that each call to them is traced as
+ * a span named after the class and method, such as {@code CustomerService.read}.
+ */
+@Component
+public class TracingPostProcessor implements BeanPostProcessor {
+
+  private static final String APPLICATION_PACKAGE = Application.class.getPackage().getName() + ".";
+
+  @Autowired
+  private Tracer tracer;
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+
+    return bean;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+    Class<?> type = ClassUtils.getUserClass(bean);
+    if (!tracer.isEnabled() || !type.getName().startsWith(APPLICATION_PACKAGE) || !isLayer(type)) {
+      return bean;
+    }
+    ProxyFactory proxyFactory = new ProxyFactory(bean);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAdvice(new TracingInterceptor(tracer, type));
+    return proxyFactory.getProxy(type.getClassLoader());
+  }
+
+  private static boolean isLayer(Class<?> type) {
+
+    return AnnotationUtils.findAnnotation(type, RestController.class) != null ||
+        AnnotationUtils.findAnnotation(type, Service.class) != null ||
+        AnnotationUtils.findAnnotation(type, Repository.class) != null;
+  }
+
+  private static class TracingInterceptor implements MethodInterceptor {
+
+    private final Tracer tracer;
+    private final Class<?> type;
+    private final Map<Method, String> spanNames = new ConcurrentHashMap<>();
+
+    TracingInterceptor(Tracer tracer, Class<?> type) {
+
+      this.tracer = tracer;
+      this.type = type;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+      if (!tracer.isTracing()) {
+        return invocation.proceed();
+      }
+      tracer.finish(TracingRequestBodyAdvice.VALIDATE);
+      Span span = tracer.start(spanNames.computeIfAbsent(invocation.getMethod(),
+          method -> type.getSimpleName() + "." + method.getName()));
+      try {
+        return invocation.proceed();
+      } catch (Throwable e) {
+        if (span != null) {
+          span.attribute("error", e.getClass().getSimpleName());
+        }
+        throw e;
+      } finally {
+        tracer.finish(span);
+      }
+    }
+  }
+}
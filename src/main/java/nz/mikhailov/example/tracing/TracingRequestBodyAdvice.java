@@ -0,0 +1,48 @@
+package nz.mikhailov.example.tracing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Traces binding request bodies, as the {@code read-body} span, and their validation, as the {@code validate} span
+ * lasting until the controller is called, which includes resolving the other arguments.
+ */
+@ControllerAdvice
+public class TracingRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+  static final String READ_BODY = "read-body";
+  static final String VALIDATE = "validate";
+
+  @Autowired
+  private Tracer tracer;
+
+  @Override
+  public boolean supports(MethodParameter methodParameter, Type targetType,
+                          Class<? extends HttpMessageConverter<?>> converterType) {
+
+    return tracer.isTracing();
+  }
+
+  @Override
+  public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                         Class<? extends HttpMessageConverter<?>> converterType) {
+
+    tracer.start(READ_BODY);
+    return inputMessage;
+  }
+
+  @Override
+  public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                              Class<? extends HttpMessageConverter<?>> converterType) {
+
+    tracer.finish(READ_BODY);
+    tracer.start(VALIDATE);
+    return body;
+  }
+}
@@ -0,0 +1,100 @@
+package nz.mikhailov.example.util;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Writes items to a table with {@code BatchWriteItem}, in batches of up to 25, at a rate limited by a
+ * {@link TokenBucket} of write capacity units. Each batch waits until the capacity consumed by the previous ones
+ * is paid off, and is charged the capacity DynamoDB reports consumed. Unprocessed items are retried with
+ * exponential backoff until written. Safe for use by concurrent threads sharing the limit.
+ */
+public class BatchWriter {
+
+  public static final int MAX_BATCH_SIZE = 25;
+
+  /** Write of an item up to 1 KB, used when DynamoDB does not report consumed capacity. */
+  private static final double ESTIMATED_UNITS_PER_ITEM = 1;
+
+  private final AmazonDynamoDB dynamoDB;
+  private final String tableName;
+  private final TokenBucket capacity;
+  private final DoubleAdder consumedCapacity = new DoubleAdder();
+
+  public BatchWriter(AmazonDynamoDB dynamoDB, String tableName, TokenBucket capacity) {
+
+    this.dynamoDB = dynamoDB;
+    this.tableName = tableName;
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the number of items written, which is all of them unless interrupted
+   */
+  public long write(List<WriteRequest> requests) throws InterruptedException {
+
+    long written = 0;
+    for (int from = 0; from < requests.size(); from += MAX_BATCH_SIZE) {
+      List<WriteRequest> batch = requests.subList(from, Math.min(from + MAX_BATCH_SIZE, requests.size()));
+      Map<String, List<WriteRequest>> items = new HashMap<>();
+      items.put(tableName, new ArrayList<>(batch));
+      for (int attempt = 0; !items.isEmpty(); attempt++) {
+        if (attempt > 0) {
+          TimeUnit.MILLISECONDS.sleep(Math.min(50L << Math.min(attempt, 10), 5000));
+        }
+        capacity.acquire(0);
+        BatchWriteItemResult result = dynamoDB.batchWriteItem(new BatchWriteItemRequest(items)
+            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+        Map<String, List<WriteRequest>> unprocessed = result.getUnprocessedItems() == null ?
+            Collections.emptyMap() : result.getUnprocessedItems();
+        int completed = count(items) - count(unprocessed);
+        double units = capacityUnits(result.getConsumedCapacity(), completed * ESTIMATED_UNITS_PER_ITEM);
+        capacity.consume(units);
+        consumedCapacity.add(units);
+        written += completed;
+        items = unprocessed;
+      }
+    }
+    return written;
+  }
+
+  public double getConsumedCapacity() {
+
+    return consumedCapacity.sum();
+  }
+
+  /**
+   * Sums the capacity units DynamoDB reported consumed, falling back to an estimate when none were reported.
+   */
+  public static double capacityUnits(List<ConsumedCapacity> consumed, double estimate) {
+
+    double units = 0;
+    boolean reported = false;
+    if (consumed != null) {
+      for (ConsumedCapacity capacity : consumed) {
+        if (capacity != null && capacity.getCapacityUnits() != null) {
+          units += capacity.getCapacityUnits();
+          reported = true;
+        }
+      }
+    }
+    return reported ? units : estimate;
+  }
+
+  private static int count(Map<String, List<WriteRequest>> items) {
+
+    return items.values().stream().mapToInt(List::size).sum();
+  }
+}
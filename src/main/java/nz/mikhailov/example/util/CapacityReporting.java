@@ -0,0 +1,89 @@
+package nz.mikhailov.example.util;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Asks DynamoDB reads and writes to report the capacity they consume, and finds it in their results, for the item
+ * operations, batches, queries and scans.
+ */
+public final class CapacityReporting {
+
+  private CapacityReporting() {
+
+  }
+
+  /**
+   * Sets a request to return the total consumed capacity, unless it already asks for it in any detail.
+   */
+  public static void requestTotal(AmazonWebServiceRequest request) {
+
+    String total = ReturnConsumedCapacity.TOTAL.toString();
+    if (request instanceof GetItemRequest && ((GetItemRequest) request).getReturnConsumedCapacity() == null) {
+      ((GetItemRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof PutItemRequest && ((PutItemRequest) request).getReturnConsumedCapacity() == null) {
+      ((PutItemRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof UpdateItemRequest &&
+        ((UpdateItemRequest) request).getReturnConsumedCapacity() == null) {
+      ((UpdateItemRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof DeleteItemRequest &&
+        ((DeleteItemRequest) request).getReturnConsumedCapacity() == null) {
+      ((DeleteItemRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof BatchGetItemRequest &&
+        ((BatchGetItemRequest) request).getReturnConsumedCapacity() == null) {
+      ((BatchGetItemRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof BatchWriteItemRequest &&
+        ((BatchWriteItemRequest) request).getReturnConsumedCapacity() == null) {
+      ((BatchWriteItemRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof QueryRequest && ((QueryRequest) request).getReturnConsumedCapacity() == null) {
+      ((QueryRequest) request).setReturnConsumedCapacity(total);
+    } else if (request instanceof ScanRequest && ((ScanRequest) request).getReturnConsumedCapacity() == null) {
+      ((ScanRequest) request).setReturnConsumedCapacity(total);
+    }
+  }
+
+  /**
+   * @return the capacity a result reports consumed, or {@code null} for other results
+   */
+  public static List<ConsumedCapacity> consumedCapacity(Object result) {
+
+    if (result instanceof GetItemResult) {
+      return Collections.singletonList(((GetItemResult) result).getConsumedCapacity());
+    } else if (result instanceof PutItemResult) {
+      return Collections.singletonList(((PutItemResult) result).getConsumedCapacity());
+    } else if (result instanceof UpdateItemResult) {
+      return Collections.singletonList(((UpdateItemResult) result).getConsumedCapacity());
+    } else if (result instanceof DeleteItemResult) {
+      return Collections.singletonList(((DeleteItemResult) result).getConsumedCapacity());
+    } else if (result instanceof BatchGetItemResult) {
+      return ((BatchGetItemResult) result).getConsumedCapacity();
+    } else if (result instanceof BatchWriteItemResult) {
+      return ((BatchWriteItemResult) result).getConsumedCapacity();
+    } else if (result instanceof QueryResult) {
+      return Collections.singletonList(((QueryResult) result).getConsumedCapacity());
+    } else if (result instanceof ScanResult) {
+      return Collections.singletonList(((ScanResult) result).getConsumedCapacity());
+    }
+    return null;
+  }
+}
@@ -1,5 +1,6 @@
 package nz.mikhailov.example.util;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
@@ -7,15 +8,24 @@ import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
 import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
+import com.amazonaws.services.dynamodbv2.model.StreamViewType;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
 import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.startup.StartupTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class DatabaseInitialisation implements ApplicationListener<ContextRefreshedEvent> {
 
   private final Logger log = LoggerFactory.getLogger(getClass());
@@ -26,20 +36,79 @@ public class DatabaseInitialisation implements ApplicationListener<ContextRefres
   @Autowired
   private AmazonDynamoDB dynamoDB;
 
+  @Autowired
+  private StartupTasks startupTasks;
+
+  @Value("${changeFeed.streamsEnabled:false}")
+  private boolean streamsEnabled;
+
+  private volatile String tableName;
+  private volatile boolean verified;
+  private volatile boolean tableActive;
+
   @Override
   public void onApplicationEvent(ContextRefreshedEvent event) {
 
+    startupTasks.run("table verification", this::createDatabaseTablesIfNotExist);
+  }
+
+  /**
+   * Tells whether the table has been verified and is active, as last seen by the verification or
+   * {@link #checkTable() the table check}. Never calls DynamoDB, so that health checks answer at once.
+   */
+  public boolean isTableActive() {
+
+    return tableActive;
+  }
+
+  /**
+   * Until the table is active, describes it every {@code tableVerification.retryIntervalMillis}, and tries again a
+   * verification that failed, for example because DynamoDB was not reachable.
+   */
+  @Scheduled(fixedDelayString = "${tableVerification.retryIntervalMillis:5000}")
+  public synchronized void checkTable() {
+
+    if (tableActive || tableName == null) {
+      return;
+    }
+    try {
+      if (verified) {
+        tableActive = isActive(dynamoDB.describeTable(tableName).getTable().getTableStatus());
+      } else {
+        createDatabaseTablesIfNotExist();
+      }
+    } catch (AmazonClientException e) {
+      log.debug("Could not verify table {}", tableName, e);
+    }
+  }
+
+  private synchronized void createDatabaseTablesIfNotExist() {
+
     log.trace("Entering createDatabaseTablesIfNotExist()");
     CreateTableRequest request = dbMapper
         .generateCreateTableRequest(Customer.class)
         .withProvisionedThroughput(new ProvisionedThroughput(1L, 1L));
+    tableName = request.getTableName();
+    if (streamsEnabled) {
+      request.setStreamSpecification(new StreamSpecification()
+          .withStreamEnabled(true)
+          .withStreamViewType(StreamViewType.NEW_AND_OLD_IMAGES));
+    }
     try {
       DescribeTableResult result = dynamoDB.describeTable(request.getTableName());
       log.info("Table status {}, {}", request.getTableName(), result.getTable().getTableStatus());
+      tableActive = isActive(result.getTable().getTableStatus());
     } catch (ResourceNotFoundException expectedException) {
       CreateTableResult result = dynamoDB.createTable(request);
       log.info("Table creation triggered {}, {}", request.getTableName(), result.getTableDescription().getTableStatus());
+      tableActive = isActive(result.getTableDescription().getTableStatus());
     }
+    verified = true;
+  }
+
+  private static boolean isActive(String tableStatus) {
+
+    return TableStatus.ACTIVE.toString().equals(tableStatus);
   }
 
 }
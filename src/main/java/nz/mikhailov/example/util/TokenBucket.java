@@ -0,0 +1,94 @@
+package nz.mikhailov.example.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter refilling units at a fixed rate per second, up to a burst capacity.
+ * <p>
+ * Units can also be taken after the fact with {@link #consume(double)}, for operations whose cost is only known
+ * once they completed, such as DynamoDB calls reporting their consumed capacity. The bucket then goes into debt,
+ * and {@link #acquire(double)} waits until it is paid off.
+ */
+public class TokenBucket {
+
+  private final double ratePerSecond;
+  private final double capacity;
+  private final LongSupplier nanoClock;
+
+  private double tokens;
+  private long refilledAt;
+
+  public TokenBucket(double ratePerSecond, double capacity) {
+
+    this(ratePerSecond, capacity, System::nanoTime);
+  }
+
+  TokenBucket(double ratePerSecond, double capacity, LongSupplier nanoClock) {
+
+    if (ratePerSecond <= 0 || capacity <= 0) {
+      throw new IllegalArgumentException("Rate and capacity must be positive");
+    }
+    this.ratePerSecond = ratePerSecond;
+    this.capacity = capacity;
+    this.nanoClock = nanoClock;
+    this.tokens = capacity;
+    this.refilledAt = nanoClock.getAsLong();
+  }
+
+  /**
+   * Takes the units if available, without waiting.
+   */
+  public synchronized boolean tryAcquire(double units) {
+
+    refill();
+    if (tokens >= units) {
+      tokens -= units;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Waits until the units are available and takes them. Requests larger than the capacity wait for a full
+   * bucket and leave it in debt. {@code acquire(0)} only waits for any debt to be paid off.
+   */
+  public void acquire(double units) throws InterruptedException {
+
+    while (true) {
+      long waitNanos;
+      synchronized (this) {
+        refill();
+        double needed = Math.min(units, capacity);
+        if (tokens >= needed) {
+          tokens -= units;
+          return;
+        }
+        waitNanos = (long) Math.ceil((needed - tokens) / ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+      }
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Takes the units unconditionally, possibly going into debt.
+   */
+  public synchronized void consume(double units) {
+
+    refill();
+    tokens -= units;
+  }
+
+  public synchronized double available() {
+
+    refill();
+    return tokens;
+  }
+
+  private void refill() {
+
+    long now = nanoClock.getAsLong();
+    tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerSecond / TimeUnit.SECONDS.toNanos(1));
+    refilledAt = now;
+  }
+}
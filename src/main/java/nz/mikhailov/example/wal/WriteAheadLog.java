@@ -0,0 +1,474 @@
+package nz.mikhailov.example.wal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local log of opaque entries, kept in segment files of about {@code writeAheadLog.segmentBytes} in
+ * {@code writeAheadLog.directory} when {@code writeAheadLog.enabled}, and read back in order by a single reader.
+ * <p>
+ * Appends return once their entry is on disk. Concurrent appends share an fsync: whichever append syncs first covers
+ * the entries of all appends written before it, so under load the number of syncs stays well below the number of
+ * appends. Entries are numbered, and the number of the last entry acknowledged by the reader is kept in a checkpoint
+ * file, so that after a restart the reader continues from the first entry it has not acknowledged. Entries are read
+ * at least once: entries read but not acknowledged before a crash are read again. Segments are deleted once all
+ * their entries are acknowledged.
+ * <p>
+ * Each entry is stored as {@code length:i32 crc32:i32 sequence:i64 appendedAt:i64 payload}. On start, a torn entry
+ * at the end of the last segment, left by a crash in the middle of an append, is cut off.
+ */
+@Component
+public class WriteAheadLog {
+
+  private static final String EXTENSION = ".wal";
+  private static final String CHECKPOINT = "acknowledged";
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+  private static final int MAX_ENTRY_BYTES = 1024 * 1024;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Value("${writeAheadLog.enabled:false}")
+  private boolean enabled;
+
+  @Value("${writeAheadLog.directory:wal}")
+  private String directory;
+
+  @Value("${writeAheadLog.segmentBytes:16777216}")
+  private long segmentBytes;
+
+  /** First entry number of each segment. */
+  private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+  private final Object syncLock = new Object();
+  private final AtomicLong appended = new AtomicLong();
+  private final AtomicLong syncs = new AtomicLong();
+  private final AtomicLong acknowledgedEntries = new AtomicLong();
+  private final AtomicLong rejectedEntries = new AtomicLong();
+
+  private FileChannel active;
+  private long activeBytes;
+  private volatile long written;
+  private volatile long durable;
+  private volatile long acknowledged;
+
+  private FileChannel reading;
+  private long readingSegment;
+  private long readPosition;
+  private long nextRead;
+  /** Entries read and not acknowledged yet, oldest first. */
+  private final Deque<Entry> unacknowledged = new ArrayDeque<>();
+  private volatile long oldestUnacknowledgedAt;
+  private volatile String replayError;
+  private volatile String lastRejection;
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  /**
+   * @return whether every appended entry has been acknowledged
+   */
+  public boolean isDrained() {
+
+    return acknowledged >= written;
+  }
+
+  @PostConstruct
+  public synchronized void open() throws IOException {
+
+    if (!enabled) {
+      return;
+    }
+    Path root = root();
+    Files.createDirectories(root);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*" + EXTENSION)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        segments.put(Long.parseLong(name.substring(0, name.length() - EXTENSION.length())), file);
+      }
+    }
+    Path checkpoint = root.resolve(CHECKPOINT);
+    if (Files.exists(checkpoint)) {
+      acknowledged = Long.parseLong(new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim());
+    } else if (!segments.isEmpty()) {
+      acknowledged = segments.firstKey() - 1;
+    }
+    written = acknowledged;
+    for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+      written = recover(segment.getKey(), segment.getValue(), segment.getKey().equals(segments.lastKey()));
+    }
+    if (written < acknowledged) {
+      // the acknowledged entries of the deleted segments were the last ones
+      written = acknowledged;
+    }
+    durable = written;
+    nextRead = acknowledged + 1;
+    for (Long firstSequence : segments.headMap(segments.isEmpty() ? 0 : segments.lastKey()).keySet()) {
+      if (segments.higherKey(firstSequence) <= nextRead) {
+        Files.deleteIfExists(segments.remove(firstSequence));
+      }
+    }
+    if (segments.isEmpty()) {
+      startSegment(written + 1);
+    } else {
+      startSegment(segments.lastKey());
+    }
+    log.info("Write-ahead log in {} opened with {} unacknowledged entries", root, written - acknowledged);
+  }
+
+  @PreDestroy
+  public synchronized void close() throws IOException {
+
+    if (active != null) {
+      active.force(false);
+      active.close();
+    }
+    if (reading != null) {
+      reading.close();
+    }
+  }
+
+  /**
+   * Appends an entry and waits until it is on disk.
+   *
+   * @return the number of the entry
+   * @throws UncheckedIOException if the entry could not be written, in which case it may or may not be replayed
+   */
+  public long append(byte[] payload) {
+
+    if (payload.length > MAX_ENTRY_BYTES) {
+      throw new IllegalArgumentException("Entries are limited to " + MAX_ENTRY_BYTES + " bytes");
+    }
+    long sequence;
+    try {
+      synchronized (this) {
+        sequence = written + 1;
+        long appendedAt = System.currentTimeMillis();
+        ByteBuffer entry = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        entry.putInt(payload.length).putInt(0).putLong(sequence).putLong(appendedAt).put(payload);
+        entry.putInt(4, checksum(entry.array()));
+        entry.flip();
+        if (activeBytes > 0 && activeBytes + entry.remaining() > segmentBytes) {
+          active.force(false);
+          active.close();
+          startSegment(sequence);
+        }
+        while (entry.hasRemaining()) {
+          activeBytes += active.write(entry);
+        }
+        if (written == acknowledged) {
+          oldestUnacknowledgedAt = appendedAt;
+        }
+        written = sequence;
+      }
+      sync(sequence);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not append to the write-ahead log", e);
+    }
+    appended.incrementAndGet();
+    return sequence;
+  }
+
+  /**
+   * Reads the next entries after those read before, up to {@code max} of them, waiting up to {@code timeout} for
+   * one to be appended when there are none. Called from a single reader thread.
+   */
+  public List<Entry> read(int max, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (syncLock) {
+      while (nextRead > durable && System.nanoTime() < deadline) {
+        TimeUnit.NANOSECONDS.timedWait(syncLock, Math.max(1, deadline - System.nanoTime()));
+      }
+    }
+    List<Entry> entries = new ArrayList<>();
+    long last = durable;
+    while (entries.size() < max && nextRead <= last) {
+      Map.Entry<Long, Path> segment = segments.floorEntry(nextRead);
+      if (reading == null || readingSegment != segment.getKey()) {
+        if (reading != null) {
+          reading.close();
+        }
+        reading = FileChannel.open(segment.getValue(), StandardOpenOption.READ);
+        readingSegment = segment.getKey();
+        readPosition = 0;
+        skipTo(nextRead);
+      }
+      Entry entry = readEntry(reading, readPosition);
+      if (entry == null || entry.sequence != nextRead) {
+        throw new IOException("Write-ahead log entry " + nextRead + " missing from " + segment.getValue());
+      }
+      readPosition += HEADER_BYTES + entry.payload.length;
+      nextRead++;
+      entries.add(entry);
+      unacknowledged.add(entry);
+    }
+    if (!entries.isEmpty() && entries.get(0).sequence == acknowledged + 1) {
+      oldestUnacknowledgedAt = entries.get(0).appendedAt;
+    }
+    return entries;
+  }
+
+  /**
+   * Marks all entries up to the given one, which has been read, as processed, and deletes the segments left with no
+   * unprocessed entries. Called from the reader thread.
+   */
+  public void acknowledge(long sequence) throws IOException {
+
+    acknowledgedEntries.addAndGet(sequence - acknowledged);
+    acknowledged = sequence;
+    replayError = null;
+    while (!unacknowledged.isEmpty() && unacknowledged.peek().sequence <= sequence) {
+      unacknowledged.remove();
+    }
+    if (written == sequence) {
+      oldestUnacknowledgedAt = 0;
+    } else if (!unacknowledged.isEmpty()) {
+      oldestUnacknowledgedAt = unacknowledged.peek().appendedAt;
+    } else {
+      Entry next = peekNext();
+      if (next != null) {
+        oldestUnacknowledgedAt = next.appendedAt;
+      }
+    }
+    Path root = root();
+    Path temporary = root.resolve(CHECKPOINT + ".tmp");
+    Files.write(temporary, Long.toString(sequence).getBytes(StandardCharsets.US_ASCII));
+    Files.move(temporary, root.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    // only segments before the one being read, which is never after the one being appended to
+    for (Long firstSequence : segments.headMap(readingSegment).keySet()) {
+      if (segments.higherKey(firstSequence) <= sequence + 1) {
+        Files.deleteIfExists(segments.remove(firstSequence));
+      }
+    }
+  }
+
+  /**
+   * Records why the entries last read could not be processed, until they are acknowledged.
+   */
+  public void replayFailed(String error) {
+
+    replayError = error;
+  }
+
+  /**
+   * Records that an entry read could never be processed and is acknowledged without being so.
+   */
+  public void rejected(String error) {
+
+    rejectedEntries.incrementAndGet();
+    lastRejection = error;
+  }
+
+  public WriteAheadLogStats getStats() {
+
+    long pending = written - acknowledged;
+    long oldest = oldestUnacknowledgedAt;
+    long diskBytes = 0;
+    for (Path segment : segments.values()) {
+      try {
+        diskBytes += Files.size(segment);
+      } catch (IOException e) {
+        // deleted since listed
+      }
+    }
+    return new WriteAheadLogStats(enabled, pending, pending > 0 && oldest > 0 ? System.currentTimeMillis() - oldest : 0,
+        appended.get(), syncs.get(), acknowledgedEntries.get(), rejectedEntries.get(), segments.size(), diskBytes,
+        replayError, lastRejection);
+  }
+
+  private void sync(long sequence) throws IOException {
+
+    synchronized (syncLock) {
+      if (durable >= sequence) {
+        return;
+      }
+      FileChannel channel;
+      long upTo;
+      synchronized (this) {
+        channel = active;
+        upTo = written;
+      }
+      try {
+        channel.force(false);
+      } catch (ClosedChannelException e) {
+        // the segment was synced before it was closed
+      }
+      durable = upTo;
+      syncs.incrementAndGet();
+      syncLock.notifyAll();
+    }
+  }
+
+  private void startSegment(long firstSequence) throws IOException {
+
+    Path file = root().resolve(String.format("%020d%s", firstSequence, EXTENSION));
+    active = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    activeBytes = active.size();
+    segments.put(firstSequence, file);
+  }
+
+  /**
+   * Checks the entries of a segment, cutting off a torn entry at the end of the last one.
+   *
+   * @return the number of the last entry in the segment
+   */
+  private long recover(long firstSequence, Path file, boolean last) throws IOException {
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long position = 0;
+      long expected = firstSequence;
+      Entry entry;
+      while ((entry = readEntry(channel, position)) != null && entry.sequence == expected) {
+        position += HEADER_BYTES + entry.payload.length;
+        expected++;
+      }
+      if (position < channel.size()) {
+        if (!last) {
+          throw new IOException("Write-ahead log segment " + file + " is corrupt at byte " + position);
+        }
+        log.warn("Cutting off {} bytes of a torn entry at the end of {}", channel.size() - position, file);
+        channel.truncate(position);
+        channel.force(false);
+      }
+      return expected - 1;
+    }
+  }
+
+  /**
+   * @return the entry after those read, which is the first one of the next segment when they were the last ones of
+   * theirs, {@code null} if it is not there
+   */
+  private Entry peekNext() throws IOException {
+
+    Entry next = readEntry(reading, readPosition);
+    if (next == null) {
+      Map.Entry<Long, Path> following = segments.higherEntry(readingSegment);
+      if (following != null) {
+        try (FileChannel channel = FileChannel.open(following.getValue(), StandardOpenOption.READ)) {
+          next = readEntry(channel, 0);
+        }
+      }
+    }
+    return next;
+  }
+
+  private void skipTo(long sequence) throws IOException {
+
+    Entry entry;
+    while ((entry = readEntry(reading, readPosition)) != null && entry.sequence < sequence) {
+      readPosition += HEADER_BYTES + entry.payload.length;
+    }
+  }
+
+  /**
+   * @return the entry at the position, {@code null} if there is no complete and intact entry there
+   */
+  private static Entry readEntry(FileChannel channel, long position) throws IOException {
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    if (!readFully(channel, header, position)) {
+      return null;
+    }
+    header.flip();
+    int length = header.getInt();
+    int crc = header.getInt();
+    long sequence = header.getLong();
+    long appendedAt = header.getLong();
+    if (length < 0 || length > MAX_ENTRY_BYTES) {
+      return null;
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + length);
+    header.rewind();
+    bytes.put(header);
+    if (!readFully(channel, bytes, position + HEADER_BYTES) || checksum(bytes.array()) != crc) {
+      return null;
+    }
+    byte[] payload = new byte[length];
+    System.arraycopy(bytes.array(), HEADER_BYTES, payload, 0, length);
+    return new Entry(sequence, appendedAt, payload);
+  }
+
+  private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, offset);
+      if (read < 0) {
+        return false;
+      }
+      offset += read;
+    }
+    return true;
+  }
+
+  private static int checksum(byte[] entry) {
+
+    CRC32 crc = new CRC32();
+    crc.update(entry, 0, 4);
+    crc.update(entry, 8, entry.length - 8);
+    return (int) crc.getValue();
+  }
+
+  private Path root() {
+
+    return Paths.get(directory).toAbsolutePath();
+  }
+
+  public static class Entry {
+
+    private final long sequence;
+    private final long appendedAt;
+    private final byte[] payload;
+
+    Entry(long sequence, long appendedAt, byte[] payload) {
+
+      this.sequence = sequence;
+      this.appendedAt = appendedAt;
+      this.payload = payload;
+    }
+
+    public long getSequence() {
+
+      return sequence;
+    }
+
+    public long getAppendedAt() {
+
+      return appendedAt;
+    }
+
+    public byte[] getPayload() {
+
+      return payload;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package nz.mikhailov.example.wal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/admin")
+public class WriteAheadLogController {
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  @Autowired
+  private WriteAheadLog writeAheadLog;
+
+  /**
+   * Reports the depth of the write-ahead log of deferred writes and how far behind their replay is.
+   */
+  @RequestMapping(path = "/write-ahead-log", method = RequestMethod.GET)
+  public ResponseEntity<WriteAheadLogStats> stats() {
+
+    log.trace("Entering stats()");
+    return new ResponseEntity<>(writeAheadLog.getStats(), OK);
+  }
+}
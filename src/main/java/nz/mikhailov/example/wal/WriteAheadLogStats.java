@@ -0,0 +1,115 @@
+package nz.mikhailov.example.wal;
+
+/**
+ * Point-in-time view of the write-ahead log and how far behind its replay is.
+ */
+public class WriteAheadLogStats {
+
+  private final boolean enabled;
+  private final long pendingEntries;
+  private final long replayLagMillis;
+  private final long appended;
+  private final long syncs;
+  private final long replayed;
+  private final long rejected;
+  private final int segments;
+  private final long diskBytes;
+  private final String replayError;
+  private final String lastRejection;
+
+  WriteAheadLogStats(boolean enabled, long pendingEntries, long replayLagMillis, long appended, long syncs,
+                     long replayed, long rejected, int segments, long diskBytes, String replayError,
+                     String lastRejection) {
+
+    this.enabled = enabled;
+    this.pendingEntries = pendingEntries;
+    this.replayLagMillis = replayLagMillis;
+    this.appended = appended;
+    this.syncs = syncs;
+    this.replayed = replayed;
+    this.rejected = rejected;
+    this.segments = segments;
+    this.diskBytes = diskBytes;
+    this.replayError = replayError;
+    this.lastRejection = lastRejection;
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  /**
+   * @return entries appended and not replayed yet
+   */
+  public long getPendingEntries() {
+
+    return pendingEntries;
+  }
+
+  /**
+   * @return age of the oldest entry not replayed yet, 0 when there is none
+   */
+  public long getReplayLagMillis() {
+
+    return replayLagMillis;
+  }
+
+  /**
+   * @return entries appended since startup
+   */
+  public long getAppended() {
+
+    return appended;
+  }
+
+  /**
+   * @return fsyncs since startup, fewer than appends when concurrent appends shared them
+   */
+  public long getSyncs() {
+
+    return syncs;
+  }
+
+  /**
+   * @return entries replayed since startup
+   */
+  public long getReplayed() {
+
+    return replayed;
+  }
+
+  /**
+   * @return entries dropped since startup because they could never be replayed, included in {@link #getReplayed()}
+   */
+  public long getRejected() {
+
+    return rejected;
+  }
+
+  public int getSegments() {
+
+    return segments;
+  }
+
+  public long getDiskBytes() {
+
+    return diskBytes;
+  }
+
+  /**
+   * @return why the last replay attempt failed, {@code null} once entries are replayed again
+   */
+  public String getReplayError() {
+
+    return replayError;
+  }
+
+  /**
+   * @return why the last entry dropped since startup could not be replayed, {@code null} if there was none
+   */
+  public String getLastRejection() {
+
+    return lastRejection;
+  }
+}
@@ -0,0 +1,132 @@
+package nz.mikhailov.example.changes;
+
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class CustomerChangeFeedTest {
+
+  private CustomerChangeFeed feed;
+  private final DynamoDbStreamChangeSource streamSource = mock(DynamoDbStreamChangeSource.class);
+
+  @Before
+  public void setUp() throws Exception {
+
+    feed = new CustomerChangeFeed();
+    setField(feed, "replayBufferSize", 2);
+    setField(feed, "streamSource", streamSource);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+
+    feed.shutdown();
+  }
+
+  @Test
+  public void subscriberShouldReceiveChangesPublishedAfterSubscription() throws Exception {
+
+    SseEmitter emitter = mock(SseEmitter.class);
+    feed.subscribe(emitter, null);
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray Bradbury")));
+    assertThat(sentNames(emitter, 1), contains("Ray Bradbury"));
+  }
+
+  @Test
+  public void subscriberShouldReceiveBufferedChangesNewerThanLastEventId() throws Exception {
+
+    SseEmitter first = mock(SseEmitter.class);
+    feed.subscribe(first, null);
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray Bradbury")));
+    feed.onCustomerEvent(CustomerEvent.deleted(new Customer().withName("Stanislaw Lem")));
+    long firstId = sentChanges(first, 2).get(0).getId();
+
+    SseEmitter resumed = mock(SseEmitter.class);
+    feed.subscribe(resumed, firstId);
+    assertThat(sentNames(resumed, 1), contains("Stanislaw Lem"));
+  }
+
+  @Test
+  public void subscriberShouldBeToldToResetWhenLastEventIdWasEvicted() throws Exception {
+
+    SseEmitter first = mock(SseEmitter.class);
+    feed.subscribe(first, null);
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray Bradbury")));
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Stanislaw Lem")));
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Isaac Asimov")));
+    long firstId = sentChanges(first, 3).get(0).getId();
+
+    SseEmitter resumed = mock(SseEmitter.class);
+    feed.subscribe(resumed, firstId - 1);
+    assertThat(sentData(resumed, 3), hasItem(CustomerChangeFeed.RESET_EVENT_NAME));
+  }
+
+  @Test
+  public void localEventsShouldBeIgnoredWhenStreamIsTheChangeSource() throws Exception {
+
+    when(streamSource.isActive()).thenReturn(true);
+    SseEmitter emitter = mock(SseEmitter.class);
+    feed.subscribe(emitter, null);
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray Bradbury")));
+    verify(emitter, after(200).never()).send(any(SseEventBuilder.class));
+
+    Customer customer = new Customer().withName("Ray Bradbury");
+    feed.onCustomerEvent(new CustomerEvent(CustomerEvent.Type.CREATED, "Ray Bradbury", customer, null, false));
+    assertThat(sentNames(emitter, 1), contains("Ray Bradbury"));
+  }
+
+  @Test
+  public void localEventsShouldBePublishedWhenStreamIsNotActive() throws Exception {
+
+    when(streamSource.isActive()).thenReturn(false);
+    SseEmitter emitter = mock(SseEmitter.class);
+    feed.subscribe(emitter, null);
+    feed.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray Bradbury")));
+    assertThat(sentNames(emitter, 1), contains("Ray Bradbury"));
+  }
+
+  private List<Object> sentData(SseEmitter emitter, int expectedSends) throws Exception {
+
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, timeout(1000).times(expectedSends)).send(captor.capture());
+    return captor.getAllValues().stream()
+        .flatMap(builder -> builder.build().stream())
+        .map(DataWithMediaType::getData)
+        .collect(toList());
+  }
+
+  private List<ChangeEvent> sentChanges(SseEmitter emitter, int expectedSends) throws Exception {
+
+    return sentData(emitter, expectedSends).stream()
+        .filter(data -> data instanceof ChangeEvent)
+        .map(ChangeEvent.class::cast)
+        .collect(toList());
+  }
+
+  private List<String> sentNames(SseEmitter emitter, int expectedSends) throws Exception {
+
+    return sentChanges(emitter, expectedSends).stream()
+        .map(ChangeEvent::getName)
+        .collect(toList());
+  }
+}
@@ -0,0 +1,182 @@
+package nz.mikhailov.example.compression;
+
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class CompressedResponseCacheFilterTest {
+
+  private static final String LARGE_BODY = largeBody();
+
+  private CompressedResponseCacheFilter filter;
+  private CompressedResponseCache cache;
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+
+    cache = new CompressedResponseCache();
+    setField(cache, "maxEntries", 10);
+    setField(cache, "ttlMillis", 60000L);
+    filter = new CompressedResponseCacheFilter();
+    setField(filter, "cache", cache);
+    setField(filter, "enabled", true);
+    setField(filter, "maxBodyBytes", 1048576);
+    setField(filter, "compressionLevel", 9);
+    setField(filter, "minResponseSize", 2048);
+  }
+
+  @Test
+  public void repeatedReadShouldBeServedCompressedFromCache() throws Exception {
+
+    MockHttpServletResponse first = new MockHttpServletResponse();
+    filter.doFilter(get("/v1/customer"), first, ok(LARGE_BODY));
+    MockHttpServletResponse second = new MockHttpServletResponse();
+    filter.doFilter(get("/v1/customer"), second, ok(LARGE_BODY));
+
+    assertThat(executions.get(), is(1));
+    assertThat(first.getContentAsString(), is(LARGE_BODY));
+    assertThat(second.getStatus(), is(200));
+    assertThat(second.getContentType(), is("application/json"));
+    assertThat(second.getHeader("Content-Encoding"), is("gzip"));
+    assertThat(second.getContentAsByteArray().length, is(lessThan(LARGE_BODY.length() / 4)));
+    assertThat(gunzip(second.getContentAsByteArray()), is(LARGE_BODY));
+  }
+
+  @Test
+  public void cachedResponseShouldBeDecompressedForClientsNotAcceptingGzip() throws Exception {
+
+    filter.doFilter(get("/v1/customer"), new MockHttpServletResponse(), ok(LARGE_BODY));
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/customer");
+    request.addHeader("Accept-Encoding", "gzip;q=0, identity");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, ok(LARGE_BODY));
+
+    assertThat(executions.get(), is(1));
+    assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+    assertThat(response.getContentAsString(), is(LARGE_BODY));
+  }
+
+  @Test
+  public void smallResponsesShouldBeCachedUncompressed() throws Exception {
+
+    String body = "{\"name\":\"Olaf Stapledon\"}";
+    filter.doFilter(get("/v1/customer/Olaf%20Stapledon"), new MockHttpServletResponse(), ok(body));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(get("/v1/customer/Olaf%20Stapledon"), response, ok(body));
+
+    assertThat(executions.get(), is(1));
+    assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+    assertThat(response.getContentAsString(), is(body));
+  }
+
+  @Test
+  public void customerChangeShouldInvalidateListAndChangedCustomerOnly() throws Exception {
+
+    filter.doFilter(get("/v1/customer"), new MockHttpServletResponse(), ok(LARGE_BODY));
+    filter.doFilter(get("/v1/customer/Olaf%20Stapledon"), new MockHttpServletResponse(), ok("{}"));
+    filter.doFilter(get("/v1/customer/Dale%20Carnegie"), new MockHttpServletResponse(), ok("{}"));
+    cache.onCustomerEvent(CustomerEvent.deleted(new Customer().withName("Olaf Stapledon")));
+    filter.doFilter(get("/v1/customer"), new MockHttpServletResponse(), ok(LARGE_BODY));
+    filter.doFilter(get("/v1/customer/Olaf%20Stapledon"), new MockHttpServletResponse(), ok("{}"));
+    filter.doFilter(get("/v1/customer/Dale%20Carnegie"), new MockHttpServletResponse(), ok("{}"));
+
+    assertThat(executions.get(), is(5));
+  }
+
+  @Test
+  public void unsuccessfulResponsesShouldNotBeCached() throws Exception {
+
+    FilterChain notFound = (request, response) -> {
+      executions.incrementAndGet();
+      ((HttpServletResponse) response).setStatus(404);
+    };
+    filter.doFilter(get("/v1/customer/Olaf%20Stapledon"), new MockHttpServletResponse(), notFound);
+    filter.doFilter(get("/v1/customer/Olaf%20Stapledon"), new MockHttpServletResponse(), notFound);
+
+    assertThat(executions.get(), is(2));
+  }
+
+  @Test
+  public void representationsShouldBeCachedSeparately() throws Exception {
+
+    filter.doFilter(get("/v1/customer"), new MockHttpServletResponse(), ok(LARGE_BODY));
+    MockHttpServletRequest smile = get("/v1/customer");
+    smile.addHeader("Accept", "application/x-jackson-smile");
+    filter.doFilter(smile, new MockHttpServletResponse(), ok(LARGE_BODY));
+
+    assertThat(executions.get(), is(2));
+  }
+
+  @Test
+  public void onlyCustomerReadsShouldBeCacheable() throws Exception {
+
+    assertThat(CompressedResponseCacheFilter.isCacheable("/v1/customer"), is(true));
+    assertThat(CompressedResponseCacheFilter.isCacheable("/v1/customer/Olaf Stapledon"), is(true));
+    assertThat(CompressedResponseCacheFilter.isCacheable("/v1/customer/changes"), is(false));
+    assertThat(CompressedResponseCacheFilter.isCacheable("/v1/customer/export"), is(false));
+    assertThat(CompressedResponseCacheFilter.isCacheable("/v1/customer/"), is(false));
+    assertThat(CompressedResponseCacheFilter.isCacheable("/health"), is(false));
+  }
+
+  @Test
+  public void acceptEncodingShouldHonourExplicitQualities() throws Exception {
+
+    assertThat(CompressedResponseCacheFilter.acceptsGzip("gzip, deflate"), is(true));
+    assertThat(CompressedResponseCacheFilter.acceptsGzip("deflate, GZIP;q=0.5"), is(true));
+    assertThat(CompressedResponseCacheFilter.acceptsGzip("*"), is(true));
+    assertThat(CompressedResponseCacheFilter.acceptsGzip("*, gzip;q=0"), is(false));
+    assertThat(CompressedResponseCacheFilter.acceptsGzip("identity"), is(false));
+    assertThat(CompressedResponseCacheFilter.acceptsGzip(null), is(false));
+  }
+
+  private MockHttpServletRequest get(String uri) {
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+    request.addHeader("Accept-Encoding", "gzip, deflate");
+    return request;
+  }
+
+  private FilterChain ok(String body) {
+
+    return (request, response) -> {
+      executions.incrementAndGet();
+      response.setContentType("application/json");
+      response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+    };
+  }
+
+  private static String gunzip(byte[] compressed) throws IOException {
+
+    return StreamUtils.copyToString(new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8);
+  }
+
+  private static String largeBody() {
+
+    StringBuilder body = new StringBuilder("[");
+    for (int i = 0; i < 100; i++) {
+      body.append(i == 0 ? "" : ",")
+          .append("{\"name\":\"Customer Number ").append(i)
+          .append("\",\"address\":\"Seacombe, United Kingdom\",\"phoneNumber\":null}");
+    }
+    return body.append("]").toString();
+  }
+}
@@ -0,0 +1,58 @@
+package nz.mikhailov.example.compression;
+
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class CompressedResponseCacheTest {
+
+  private CompressedResponseCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+
+    cache = new CompressedResponseCache();
+    setField(cache, "maxEntries", 2);
+    setField(cache, "ttlMillis", 60000L);
+  }
+
+  @Test
+  public void responseProducedDuringChangeShouldNotBeCached() throws Exception {
+
+    long generation = cache.generation();
+    cache.onCustomerEvent(CustomerEvent.created(new Customer().withName("Olaf Stapledon")));
+    cache.put("/v1/customer", "", response(System.currentTimeMillis()), generation);
+    assertThat(cache.get("/v1/customer", ""), is(nullValue()));
+  }
+
+  @Test
+  public void expiredResponsesShouldNotBeReturned() throws Exception {
+
+    cache.put("/v1/customer", "", response(System.currentTimeMillis() - 60001), cache.generation());
+    assertThat(cache.get("/v1/customer", ""), is(nullValue()));
+  }
+
+  @Test
+  public void leastRecentlyUsedPathShouldBeEvicted() throws Exception {
+
+    cache.put("/v1/customer/a", "", response(System.currentTimeMillis()), cache.generation());
+    cache.put("/v1/customer/b", "", response(System.currentTimeMillis()), cache.generation());
+    cache.get("/v1/customer/a", "");
+    cache.put("/v1/customer/c", "", response(System.currentTimeMillis()), cache.generation());
+    assertThat(cache.size(), is(2));
+    assertThat(cache.get("/v1/customer/a", ""), is(notNullValue()));
+    assertThat(cache.get("/v1/customer/b", ""), is(nullValue()));
+  }
+
+  private CachedResponse response(long storedAt) {
+
+    return new CachedResponse("application/json", new byte[]{'{', '}'}, false, storedAt);
+  }
+}
@@ -1,20 +1,39 @@
 package nz.mikhailov.example.customer;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.ConsistentReads;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedScanList;
+import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedParallelScanList;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import nz.mikhailov.example.hotkeys.KeyAccessSampler;
+import nz.mikhailov.example.requestlog.RequestLog;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.emptyIterable;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -26,18 +45,80 @@ public class CustomerRepositoryTest {
   @Mock
   private DynamoDBMapper dbMapper;
 
+  @Mock
+  private AmazonDynamoDB dynamoDB;
+
+  @Mock
+  private KeyAccessSampler sampler;
+
+  @Mock
+  private RequestLog requestLog;
+
   @InjectMocks
   private CustomerRepository repository;
 
+  @Test
+  public void readAllShouldScanTheTableLoadingNextPagesWhileIterating() throws Exception {
+
+    Map<String, AttributeValue> clarke = singletonMap("Name", new AttributeValue("Arthur C. Clarke"));
+    Map<String, AttributeValue> doyle = singletonMap("Name", new AttributeValue("Arthur Conan Doyle"));
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest().withTableName("Customer"));
+    when(dynamoDB.scan(new ScanRequest("Customer")))
+        .thenReturn(new ScanResult().withItems(singletonList(clarke)).withLastEvaluatedKey(clarke));
+    when(dynamoDB.scan(new ScanRequest("Customer").withExclusiveStartKey(clarke)))
+        .thenReturn(new ScanResult().withItems(singletonList(doyle)));
+    CustomerItems result = repository.readAll();
+    assertThat(result.isEmpty(), is(false));
+    verify(dynamoDB).scan(any(ScanRequest.class));
+    assertThat(result, contains(clarke, doyle));
+  }
+
+  @Test
+  public void readAllShouldBeEmptyForEmptyTable() throws Exception {
+
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest().withTableName("Customer"));
+    when(dynamoDB.scan(new ScanRequest("Customer"))).thenReturn(new ScanResult().withItems(emptyList()));
+    CustomerItems result = repository.readAll();
+    assertThat(result.isEmpty(), is(true));
+    assertThat(result, is(emptyIterable()));
+  }
+
+  @Test
+  public void readAllByNamesShouldBatchLoadInRequestedOrderSkippingMissingCustomers() throws Exception {
+
+    Customer clarke = new Customer().withName("Arthur C. Clarke");
+    Customer doyle = new Customer().withName("Arthur Conan Doyle");
+    when(dbMapper.batchLoad(asList(new Customer().withName("Arthur Conan Doyle"),
+        new Customer().withName("Dale Carnegie"), new Customer().withName("Arthur C. Clarke"))))
+        .thenReturn(Collections.<String, List<Object>>singletonMap("Customer", asList(clarke, doyle)));
+    List<Customer> result = repository.readAll(asList("Arthur Conan Doyle", "Dale Carnegie", "Arthur C. Clarke"));
+    assertThat(result, contains(doyle, clarke));
+  }
+
+  @Test
+  public void readAllByNamesShouldNotCallDatabaseForNoNames() throws Exception {
+
+    List<Customer> result = repository.readAll(emptyList());
+    assertThat(result, is(empty()));
+    verifyZeroInteractions(dbMapper);
+  }
+
   @Test
   @SuppressWarnings("unchecked")
-  public void readAllShouldScanTheTable() throws Exception {
+  public void scanShouldScanInParallelProjectingRequestedAttributesUnderStoredNames() throws Exception {
 
-    PaginatedScanList expectedResult = mock(PaginatedScanList.class);
-    when(dbMapper.scan(eq(Customer.class), any(DynamoDBScanExpression.class))).thenReturn(expectedResult);
-    List<Customer> result = repository.readAll();
+    PaginatedParallelScanList expectedResult = mock(PaginatedParallelScanList.class);
+    ArgumentCaptor<DynamoDBScanExpression> expression = ArgumentCaptor.forClass(DynamoDBScanExpression.class);
+    when(dbMapper.parallelScan(eq(Customer.class), expression.capture(), eq(4), any(DynamoDBMapperConfig.class)))
+        .thenReturn(expectedResult);
+    Iterable<Customer> result = repository.scan(4, "Name", "Address");
     assertThat(result, is(expectedResult));
-    verify(expectedResult).loadAllResults();
+    Map<String, String> expectedNames = new HashMap<>();
+    expectedNames.put("#a0", "Name");
+    expectedNames.put("#a1", "Address");
+    expectedNames.put("#a2", "a");
+    assertThat(expression.getValue().getProjectionExpression(), is("#a0,#a1,#a2"));
+    assertThat(expression.getValue().getExpressionAttributeNames(), is(expectedNames));
   }
 
   @Test
@@ -57,6 +138,17 @@ public class CustomerRepositoryTest {
     assertThat(result, is(equalTo(customer)));
   }
 
+  @Test
+  public void readConsistentShouldLoadWithConsistentRead() throws Exception {
+
+    Customer customer = new Customer().withName("Dale Carnegie");
+    ArgumentCaptor<DynamoDBMapperConfig> config = ArgumentCaptor.forClass(DynamoDBMapperConfig.class);
+    when(dbMapper.load(eq(Customer.class), eq("Dale Carnegie"), config.capture())).thenReturn(customer);
+    Customer result = repository.readConsistent("Dale Carnegie").get();
+    assertThat(result, is(equalTo(customer)));
+    assertThat(config.getValue().getConsistentReads(), is(ConsistentReads.CONSISTENT));
+  }
+
   @Test
   public void saveShouldPersistCustomer() throws Exception {
 
@@ -1,21 +1,34 @@
 package nz.mikhailov.example.customer;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import nz.mikhailov.example.customer.CustomerWrite.Operation;
+import nz.mikhailov.example.wal.WriteAheadLog;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Optional;
 
-import static java.util.Arrays.asList;
-import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
-import static org.hamcrest.Matchers.containsInAnyOrder;
-import static org.hamcrest.collection.IsEmptyCollection.emptyCollectionOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -24,6 +37,12 @@ public class CustomerServiceTest {
   @Mock
   private CustomerRepository repository;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private WriteAheadLog writeAheadLog;
+
   @InjectMocks
   private CustomerService service;
 
@@ -48,28 +67,30 @@ public class CustomerServiceTest {
   public void createShouldReturnEmptyOptionalWhenCustomerAlreadyExists() throws Exception {
 
     Customer existingCustomer = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.of(existingCustomer));
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.of(existingCustomer));
     Customer newCustomer = new Customer().withName("Arthur C. Clarke");
     Optional<Customer> result = service.create(newCustomer);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newCustomer);
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
   }
 
   @Test
   public void createShouldReturnNewCustomerWhenCustomerNotYetExists() throws Exception {
 
     Customer newCustomer = new Customer().withName("Arthur C. Clarke");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.empty());
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.empty());
     Customer result = service.create(newCustomer).get();
     assertThat(result, is(equalTo(newCustomer)));
     verify(repository).save(newCustomer);
+    verify(eventPublisher).publishEvent(argThat(isEvent(CustomerEvent.Type.CREATED, newCustomer, null)));
   }
 
   @Test
   public void replaceShouldReturnEmptyOptionalWhenCustomerNotFound() throws Exception {
 
     Customer newCustomerData = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.empty());
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.empty());
     Optional<Customer> result = service.replace(newCustomerData);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newCustomerData);
@@ -80,17 +101,19 @@ public class CustomerServiceTest {
 
     Customer oldCustomerData = new Customer().withName("Arthur C. Clarke").withPhoneNumber("000000");
     Customer newCustomerData = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.of(oldCustomerData));
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.of(oldCustomerData));
     Customer result = service.replace(newCustomerData).get();
     assertThat(result, is(equalTo(newCustomerData)));
     verify(repository).save(newCustomerData);
+    Customer previous = new Customer().withName("Arthur C. Clarke").withPhoneNumber("000000");
+    verify(eventPublisher).publishEvent(argThat(isEvent(CustomerEvent.Type.UPDATED, newCustomerData, previous)));
   }
 
   @Test
   public void updateShouldReturnEmptyOptionalWhenCustomerNotFound() throws Exception {
 
     Customer newCustomerData = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.empty());
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.empty());
     Optional<Customer> result = service.update(newCustomerData);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newCustomerData);
@@ -101,7 +124,7 @@ public class CustomerServiceTest {
 
     Customer oldCustomerData = new Customer().withName("Arthur C. Clarke").withAddress("England");
     Customer newCustomerData = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.of(oldCustomerData));
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.of(oldCustomerData));
     Customer result = service.update(newCustomerData).get();
     assertThat(result, is(equalTo(newCustomerData)));
     verify(repository).save(newCustomerData);
@@ -113,7 +136,7 @@ public class CustomerServiceTest {
     Customer oldCustomerData = new Customer().withName("Arthur C. Clarke").withAddress("England");
     Customer newCustomerData = new Customer().withName("Arthur C. Clarke").withPhoneNumber("000000");
     Customer expectedResult = new Customer().withName("Arthur C. Clarke").withAddress("England").withPhoneNumber("000000");
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.of(oldCustomerData));
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.of(oldCustomerData));
     Customer result = service.update(newCustomerData).get();
     assertThat(result, is(equalTo(expectedResult)));
     verify(repository).save(expectedResult);
@@ -122,7 +145,7 @@ public class CustomerServiceTest {
   @Test
   public void deleteShouldReturnFalseWhenCustomerNotFound() throws Exception {
 
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.empty());
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.empty());
     boolean result = service.delete("Arthur C. Clarke");
     assertThat(result, is(false));
   }
@@ -130,27 +153,137 @@ public class CustomerServiceTest {
   @Test
   public void deleteShouldReturnTrueWhenCustomerDeleted() throws Exception {
 
-    when(repository.read("Arthur C. Clarke")).thenReturn(Optional.of(new Customer().withName("Arthur C. Clarke")));
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.of(new Customer().withName("Arthur C. Clarke")));
     boolean result = service.delete("Arthur C. Clarke");
     assertThat(result, is(true));
     verify(repository).delete("Arthur C. Clarke");
+    verify(eventPublisher).publishEvent(argThat(isEvent(CustomerEvent.Type.DELETED, null, new Customer().withName("Arthur C. Clarke"))));
+  }
+
+  @Test
+  public void listShouldReturnAllCustomerItems() throws Exception {
+
+    CustomerItems items = mock(CustomerItems.class);
+    when(repository.readAll()).thenReturn(items);
+    CustomerItems result = service.list();
+    assertThat(result, is(sameInstance(items)));
+  }
+
+  @Test
+  public void createShouldDeferWriteWhenDynamoDbThrottles() throws Exception {
+
+    Customer customer = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka");
+    when(writeAheadLog.isEnabled()).thenReturn(true);
+    when(writeAheadLog.isDrained()).thenReturn(true);
+    AmazonServiceException throttled = new ProvisionedThroughputExceededException("Slow down");
+    throttled.setErrorCode("ProvisionedThroughputExceededException");
+    throttled.setErrorType(AmazonServiceException.ErrorType.Client);
+    when(repository.readConsistent("Arthur C. Clarke")).thenThrow(throttled);
+    try {
+      service.create(customer);
+      fail("Expected the write to be deferred");
+    } catch (WriteDeferredException e) {
+      assertThat(e.getWrite().getOperation(), is(Operation.CREATE));
+      assertThat(e.getWrite().getCustomer(), is(customer));
+    }
+    verify(writeAheadLog).append(new CustomerWrite(Operation.CREATE, customer).toBytes());
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
-  public void listShouldReturnEmptyListWhenNothingFound() throws Exception {
+  public void writesShouldBeDeferredWhileEarlierWritesAreDeferred() throws Exception {
+
+    when(writeAheadLog.isEnabled()).thenReturn(true);
+    when(writeAheadLog.isDrained()).thenReturn(false);
+    try {
+      service.delete("Arthur C. Clarke");
+      fail("Expected the write to be deferred");
+    } catch (WriteDeferredException e) {
+      assertThat(e.getWrite().getOperation(), is(Operation.DELETE));
+    }
+    verify(writeAheadLog).append(any(byte[].class));
+    verifyZeroInteractions(repository);
+  }
+
+  @Test(expected = AmazonServiceException.class)
+  public void writeShouldFailWhenDynamoDbRejectsIt() throws Exception {
+
+    when(writeAheadLog.isEnabled()).thenReturn(true);
+    when(writeAheadLog.isDrained()).thenReturn(true);
+    when(repository.readConsistent("Arthur C. Clarke")).thenReturn(Optional.empty());
+    AmazonServiceException rejected = new ConditionalCheckFailedException("Rejected");
+    rejected.setErrorType(AmazonServiceException.ErrorType.Client);
+    doThrow(rejected).when(repository).save(any(Customer.class));
+    try {
+      service.create(new Customer().withName("Arthur C. Clarke"));
+    } finally {
+      verify(writeAheadLog, never()).append(any(byte[].class));
+    }
+  }
+
+  @Test(expected = AmazonClientException.class)
+  public void writeShouldFailWhenWriteAheadLogDisabled() throws Exception {
+
+    when(repository.readConsistent("Arthur C. Clarke")).thenThrow(new AmazonClientException("Timed out"));
+    service.delete("Arthur C. Clarke");
+  }
 
-    when(repository.readAll()).thenReturn(emptyList());
-    List<Customer> result = service.list();
-    assertThat(result, is(emptyCollectionOf(Customer.class)));
+  @Test
+  public void replayShouldApplyWritesInOrderAndDropThoseThatNoLongerApply() throws Exception {
+
+    Customer clarke = new Customer().withName("Arthur C. Clarke").withAddress("Sri Lanka").withPhoneNumber("111");
+    Customer asimov = new Customer().withName("Isaac Asimov").withAddress("New York");
+    when(repository.readAllConsistent(any())).thenReturn(Collections.singletonList(clarke));
+    service.replay(Arrays.asList(
+        new CustomerWrite(Operation.CREATE, new Customer().withName("Arthur C. Clarke").withAddress("England")),
+        new CustomerWrite(Operation.UPDATE, new Customer().withName("Arthur C. Clarke").withAddress("England")),
+        new CustomerWrite(Operation.DELETE, new Customer().withName("Robert A. Heinlein")),
+        new CustomerWrite(Operation.CREATE, asimov),
+        new CustomerWrite(Operation.REPLACE, new Customer().withName("Isaac Asimov").withPhoneNumber("222"))));
+
+    Customer updatedClarke = new Customer().withName("Arthur C. Clarke").withAddress("England").withPhoneNumber("111");
+    Customer replacedAsimov = new Customer().withName("Isaac Asimov").withPhoneNumber("222");
+    verify(repository).readAllConsistent(new LinkedHashSet<>(
+        Arrays.asList("Arthur C. Clarke", "Robert A. Heinlein", "Isaac Asimov")));
+    verify(repository).writeAll(Arrays.asList(updatedClarke, replacedAsimov), Collections.emptyList());
+    verify(eventPublisher).publishEvent(argThat(isEvent(CustomerEvent.Type.UPDATED, updatedClarke, clarke)));
+    verify(eventPublisher).publishEvent(argThat(isEvent(CustomerEvent.Type.CREATED, asimov, null)));
+    verify(eventPublisher).publishEvent(argThat(isEvent(CustomerEvent.Type.UPDATED, replacedAsimov, asimov)));
+    verifyNoMoreInteractions(eventPublisher);
   }
 
   @Test
-  public void listShouldReturnAllCustomers() throws Exception {
+  public void replayShouldNotPublishEventsWhenWriteFails() throws Exception {
+
+    when(repository.readAllConsistent(any())).thenReturn(Collections.emptyList());
+    doThrow(new AmazonClientException("Timed out")).when(repository).writeAll(any(), any());
+    try {
+      service.replay(Collections.singletonList(
+          new CustomerWrite(Operation.CREATE, new Customer().withName("Arthur C. Clarke"))));
+      fail("Expected the replay to fail");
+    } catch (AmazonClientException e) {
+      verify(eventPublisher, never()).publishEvent(any());
+    }
+  }
+
+  private Matcher<CustomerEvent> isEvent(CustomerEvent.Type type, Customer customer, Customer previous) {
+
+    return new TypeSafeMatcher<CustomerEvent>() {
+
+      @Override
+      protected boolean matchesSafely(CustomerEvent item) {
+
+        return item.getType() == type &&
+            item.isLocal() &&
+            Objects.equals(item.getCustomer(), customer) &&
+            Objects.equals(item.getPrevious(), previous);
+      }
+
+      @Override
+      public void describeTo(Description description) {
 
-    Customer customer1 = new Customer().withName("Arthur C. Clarke");
-    Customer customer2 = new Customer().withName("Dale Carnegie");
-    when(repository.readAll()).thenReturn(asList(customer1, customer2));
-    List<Customer> result = service.list();
-    assertThat(result, containsInAnyOrder(customer1, customer2));
+        description.appendText("local CustomerEvent ").appendValue(type);
+      }
+    };
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package nz.mikhailov.example.customer;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import nz.mikhailov.example.customer.CustomerWrite.Operation;
+import nz.mikhailov.example.wal.WriteAheadLog;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeferredWriteReplayerTest {
+
+  @Mock
+  private WriteAheadLog writeAheadLog;
+
+  @Mock
+  private CustomerService service;
+
+  @InjectMocks
+  private DeferredWriteReplayer replayer;
+
+  private final List<List<String>> replayed = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(replayer, "batchSize", 25);
+    ReflectionTestUtils.setField(replayer, "backoffMillis", 1L);
+    ReflectionTestUtils.setField(replayer, "maxBackoffMillis", 1L);
+    ReflectionTestUtils.setField(replayer, "running", true);
+  }
+
+  @Test
+  public void rejectedWriteShouldBeDroppedAndWritesAfterItReplayed() throws Exception {
+
+    logHolds(entry(1, "Arthur C. Clarke"), entry(2, ""), entry(3, "Isaac Asimov"));
+    AmazonServiceException rejection = new AmazonServiceException("One or more parameter values were invalid");
+    rejection.setErrorType(AmazonServiceException.ErrorType.Client);
+    replayFailsFor("", rejection);
+
+    replayer.replay();
+
+    assertThat(replayed, is(Arrays.asList(
+        Arrays.asList("Arthur C. Clarke", "", "Isaac Asimov"),
+        Collections.singletonList("Arthur C. Clarke"),
+        Collections.singletonList(""),
+        Collections.singletonList("Isaac Asimov"))));
+    InOrder inOrder = inOrder(writeAheadLog);
+    inOrder.verify(writeAheadLog).acknowledge(1);
+    inOrder.verify(writeAheadLog).rejected(anyString());
+    inOrder.verify(writeAheadLog).acknowledge(2);
+    inOrder.verify(writeAheadLog).acknowledge(3);
+  }
+
+  @Test
+  public void unreadableEntryShouldBeDroppedAndReplayerKeptRunning() throws Exception {
+
+    WriteAheadLog.Entry corrupt = mock(WriteAheadLog.Entry.class);
+    when(corrupt.getSequence()).thenReturn(1L);
+    when(corrupt.getPayload()).thenReturn(new byte[]{0, 3, 'B', 'A', 'D'});
+    logHolds(corrupt, entry(2, "Isaac Asimov"));
+
+    replayer.replay();
+
+    assertThat(replayed, is(Collections.singletonList(Collections.singletonList("Isaac Asimov"))));
+    verify(writeAheadLog).rejected(anyString());
+    verify(writeAheadLog).acknowledge(1);
+    verify(writeAheadLog).acknowledge(2);
+  }
+
+  @Test
+  public void batchShouldBeRetriedWhileDynamoDbIsThrottling() throws Exception {
+
+    logHolds(entry(1, "Arthur C. Clarke"), entry(2, "Isaac Asimov"));
+    AmazonServiceException throttled = new ProvisionedThroughputExceededException("Slow down");
+    throttled.setErrorCode("ProvisionedThroughputExceededException");
+    throttled.setErrorType(AmazonServiceException.ErrorType.Client);
+    doThrow(throttled).doAnswer(invocation -> record(invocation.getArguments()[0])).when(service).replay(any());
+
+    replayer.replay();
+
+    verify(service, times(2)).replay(any());
+    verify(writeAheadLog).replayFailed(anyString());
+    verify(writeAheadLog, never()).rejected(anyString());
+    verify(writeAheadLog).acknowledge(2);
+  }
+
+  /**
+   * Makes the log return the entries on the first read, and stop the replayer on the next one.
+   */
+  private void logHolds(WriteAheadLog.Entry... entries) throws Exception {
+
+    when(writeAheadLog.read(anyInt(), anyLong(), any(TimeUnit.class)))
+        .thenReturn(Arrays.asList(entries))
+        .thenAnswer(invocation -> {
+          ReflectionTestUtils.setField(replayer, "running", false);
+          return Collections.emptyList();
+        });
+    doAnswer(invocation -> record(invocation.getArguments()[0])).when(service).replay(any());
+  }
+
+  private void replayFailsFor(String name, AmazonServiceException e) {
+
+    doAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      List<CustomerWrite> writes = (List<CustomerWrite>) invocation.getArguments()[0];
+      record(writes);
+      if (writes.stream().anyMatch(write -> write.getCustomer().getName().equals(name))) {
+        throw e;
+      }
+      return null;
+    }).when(service).replay(any());
+  }
+
+  private Object record(Object writes) {
+
+    List<String> names = new ArrayList<>();
+    for (Object write : (List<?>) writes) {
+      names.add(((CustomerWrite) write).getCustomer().getName());
+    }
+    replayed.add(names);
+    return null;
+  }
+
+  private static WriteAheadLog.Entry entry(long sequence, String name) {
+
+    WriteAheadLog.Entry entry = mock(WriteAheadLog.Entry.class);
+    when(entry.getSequence()).thenReturn(sequence);
+    when(entry.getPayload()).thenReturn(
+        new CustomerWrite(Operation.CREATE, new Customer().withName(name)).toBytes());
+    return entry;
+  }
+}
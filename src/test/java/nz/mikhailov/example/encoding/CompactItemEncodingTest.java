@@ -0,0 +1,131 @@
+package nz.mikhailov.example.encoding;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.AttributeTransformer.Parameters;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import nz.mikhailov.example.customer.Customer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class CompactItemEncodingTest {
+
+  private static final String LONG_ADDRESS = "Flat 12, Seacombe Court, 221 Seacombe Road, Wallasey, Merseyside, "
+      + "United Kingdom, Seacombe Road, Wallasey, Merseyside, United Kingdom";
+
+  private final CompactItemEncoding encoding = new CompactItemEncoding();
+
+  @Before
+  public void setUp() throws Exception {
+
+    setField(encoding, "compact", true);
+    setField(encoding, "compressionThresholdBytes", 100);
+  }
+
+  @Test
+  public void encodeShouldShortenAttributeNamesButNotKey() throws Exception {
+
+    Map<String, AttributeValue> encoded = encoding.encode(item("Seacombe Road", "+440000000"));
+
+    assertThat(encoded.get("Name").getS(), is("Olaf Stapledon"));
+    assertThat(encoded.get("a").getS(), is("Seacombe Road"));
+    assertThat(encoded.get("p").getS(), is("+440000000"));
+    assertThat(encoded.size(), is(3));
+  }
+
+  @Test
+  public void encodeShouldCompressLongAddresses() throws Exception {
+
+    Map<String, AttributeValue> plain = item(LONG_ADDRESS, null);
+    Map<String, AttributeValue> encoded = encoding.encode(plain);
+
+    assertThat(encoded.get("a").getS(), is(nullValue()));
+    assertThat(encoded.get("a").getB(), is(notNullValue()));
+    assertTrue(CompactItemEncoding.sizeOf(encoded) < CompactItemEncoding.sizeOf(plain));
+    assertThat(CompactItemEncoding.decode(encoded), is(plain));
+  }
+
+  @Test
+  public void encodeShouldKeepPlainEncodingUnlessCompact() throws Exception {
+
+    Map<String, AttributeValue> plain = item(LONG_ADDRESS, "+440000000");
+    Map<String, AttributeValue> compact = encoding.encode(plain);
+    setField(encoding, "compact", false);
+
+    assertThat(encoding.encode(plain), is(sameInstance(plain)));
+    assertThat(encoding.encode(compact), is(plain));
+  }
+
+  @Test
+  public void decodeShouldReturnPlainItemsAsTheyAre() throws Exception {
+
+    Map<String, AttributeValue> plain = item("Seacombe Road", "+440000000");
+
+    assertThat(CompactItemEncoding.decode(plain), is(sameInstance(plain)));
+  }
+
+  @Test
+  public void decodeShouldPreferCompactAttributes() throws Exception {
+
+    Map<String, AttributeValue> item = item("Old Road", null);
+    item.put("a", new AttributeValue("New Road"));
+
+    assertThat(CompactItemEncoding.decode(item).get("Address").getS(), is("New Road"));
+  }
+
+  @Test
+  public void storedNamesShouldIncludeCompactName() throws Exception {
+
+    assertThat(CompactItemEncoding.storedNames("Address"), is(new String[]{"Address", "a"}));
+    assertThat(CompactItemEncoding.storedNames("Name"), is(new String[]{"Name"}));
+  }
+
+  @Test
+  public void sizeOfShouldAddNameAndValueLengths() throws Exception {
+
+    assertThat(CompactItemEncoding.sizeOf(item("Seacombe", null)), is(4L + 14L + 7L + 8L));
+    assertThat(CompactItemEncoding.sizeOf(encoding.encode(item("Seacombe", null))), is(4L + 14L + 1L + 8L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void transformShouldLeavePartialUpdatesAndOtherModelsUnchanged() throws Exception {
+
+    Map<String, AttributeValue> plain = item("Seacombe Road", null);
+    Parameters<Customer> update = mock(Parameters.class);
+    doReturn(Customer.class).when(update).getModelClass();
+    when(update.getAttributeValues()).thenReturn(plain);
+    when(update.isPartialUpdate()).thenReturn(true);
+    Parameters<Object> other = mock(Parameters.class);
+    doReturn(Object.class).when(other).getModelClass();
+    when(other.getAttributeValues()).thenReturn(plain);
+
+    assertThat(encoding.transform(update), is(sameInstance(plain)));
+    assertThat(encoding.transform(other), is(sameInstance(plain)));
+    when(update.isPartialUpdate()).thenReturn(false);
+    assertThat(encoding.transform(update).get("a").getS(), is("Seacombe Road"));
+  }
+
+  private static Map<String, AttributeValue> item(String address, String phoneNumber) {
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue("Olaf Stapledon"));
+    item.put("Address", new AttributeValue(address));
+    if (phoneNumber != null) {
+      item.put("PhoneNumber", new AttributeValue(phoneNumber));
+    }
+    return item;
+  }
+}
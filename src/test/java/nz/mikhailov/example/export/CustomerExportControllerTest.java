@@ -0,0 +1,85 @@
+package nz.mikhailov.example.export;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.mikhailov.example.customer.CustomerItems;
+import nz.mikhailov.example.customer.CustomerService;
+import nz.mikhailov.example.serialization.CustomerItemsSerializer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CustomerExportControllerTest {
+
+  private static final Map<String, AttributeValue> CLARKE = singletonMap("Name", new AttributeValue("Arthur C. Clarke"));
+
+  @Mock
+  private CustomerService service;
+
+  @InjectMocks
+  private CustomerExportController controller;
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(controller, "serializer", new CustomerItemsSerializer());
+  }
+
+  @Test
+  public void exportShouldWriteOneCustomerPerLine() throws Exception {
+
+    CustomerItems items = items(CLARKE, CLARKE);
+    when(service.list()).thenReturn(items);
+
+    controller.export(response);
+
+    String line = "{\"name\":\"Arthur C. Clarke\",\"address\":null,\"phoneNumber\":null}\n";
+    assertThat(response.getContentAsString(), is(line + line));
+    assertThat(response.getContentType(), is(CustomerExportController.APPLICATION_NDJSON_VALUE));
+  }
+
+  @Test
+  public void exportShouldEndWithErrorLineWhenPageFailsToLoad() throws Exception {
+
+    Iterator<Map<String, AttributeValue>> failing = mock(Iterator.class);
+    when(failing.hasNext()).thenReturn(true).thenThrow(new AmazonClientException("Simulated failure"));
+    when(failing.next()).thenReturn(CLARKE);
+    CustomerItems items = mock(CustomerItems.class);
+    when(items.iterator()).thenReturn(failing);
+    when(service.list()).thenReturn(items);
+
+    controller.export(response);
+
+    assertThat(response.getContentAsString(), is(
+        "{\"name\":\"Arthur C. Clarke\",\"address\":null,\"phoneNumber\":null}\n" +
+        "{\"error\":\"Export failed after 1 customers\"}\n"));
+  }
+
+  @SafeVarargs
+  private final CustomerItems items(Map<String, AttributeValue>... items) {
+
+    CustomerItems customerItems = mock(CustomerItems.class);
+    when(customerItems.iterator()).thenReturn(asList(items).iterator());
+    return customerItems;
+  }
+}
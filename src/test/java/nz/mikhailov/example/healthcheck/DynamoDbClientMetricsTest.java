@@ -0,0 +1,73 @@
+package nz.mikhailov.example.healthcheck;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DynamoDbClientMetricsTest {
+
+  private final DynamoDbClientMetrics metrics = new DynamoDbClientMetrics();
+
+  @Test
+  public void countsShouldIncludeFailedAndThrottledRequests() throws Exception {
+
+    metrics.collectMetrics(request(new AWSRequestMetricsFullSupport()), new Response<>(null, null));
+    AWSRequestMetrics throttled = new AWSRequestMetricsFullSupport();
+    throttled.incrementCounter(Field.ThrottleException);
+    metrics.collectMetrics(request(throttled), new Response<>(null, null));
+    AWSRequestMetrics failed = new AWSRequestMetricsFullSupport();
+    failed.addProperty(Field.Exception, new AmazonServiceException("Simulated failure"));
+    metrics.collectMetrics(request(failed), null);
+
+    DynamoDbClientMetrics.Counts counts = metrics.counts();
+    assertThat(counts.getRequests(), is(3L));
+    assertThat(counts.getFailures(), is(1L));
+    assertThat(counts.getThrottled(), is(1L));
+  }
+
+  @Test
+  public void countsShouldNotIncludeRejectedRequestsAsFailures() throws Exception {
+
+    AmazonServiceException rejection = new ConditionalCheckFailedException("Simulated rejection");
+    rejection.setErrorType(AmazonServiceException.ErrorType.Client);
+    AWSRequestMetrics rejected = new AWSRequestMetricsFullSupport();
+    rejected.addProperty(Field.Exception, rejection);
+    metrics.collectMetrics(request(rejected), null);
+
+    assertThat(metrics.counts().getFailures(), is(0L));
+  }
+
+  @Test
+  public void countsShouldResetPeakConnectionPoolUsage() throws Exception {
+
+    AWSRequestMetrics busy = new AWSRequestMetricsFullSupport();
+    busy.setCounter(Field.HttpClientPoolLeasedCount, 7);
+    busy.setCounter(Field.HttpClientPoolPendingCount, 2);
+    AWSRequestMetrics quiet = new AWSRequestMetricsFullSupport();
+    quiet.setCounter(Field.HttpClientPoolLeasedCount, 1);
+    metrics.collectMetrics(request(busy), new Response<>(null, null));
+    metrics.collectMetrics(request(quiet), new Response<>(null, null));
+
+    DynamoDbClientMetrics.Counts first = metrics.counts();
+    DynamoDbClientMetrics.Counts second = metrics.counts();
+    assertThat(first.getPeakLeased(), is(7));
+    assertThat(first.getPeakPending(), is(2));
+    assertThat(second.getPeakLeased(), is(0));
+  }
+
+  private Request<?> request(AWSRequestMetrics requestMetrics) {
+
+    Request<?> request = new DefaultRequest<>("AmazonDynamoDB");
+    request.setAWSRequestMetrics(requestMetrics);
+    return request;
+  }
+}
@@ -0,0 +1,110 @@
+package nz.mikhailov.example.healthcheck;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.healthcheck.DependencyHealth.Status;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DynamoDbProbeTest {
+
+  @Mock
+  private AmazonDynamoDB dynamoDB;
+
+  @Mock
+  private DynamoDBMapper dbMapper;
+
+  @Mock
+  private DynamoDbClientMetrics metrics;
+
+  @InjectMocks
+  private DynamoDbProbe probe;
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(probe, "maxProbeLatencyMillis", 1000L);
+    ReflectionTestUtils.setField(probe, "maxFailureRate", 0.05);
+    ReflectionTestUtils.setField(probe, "maxConnections", 50);
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest().withTableName("Customer"));
+    when(dynamoDB.describeTable("Customer")).thenReturn(tableWithStatus(TableStatus.ACTIVE));
+  }
+
+  @Test
+  public void healthShouldBeUnknownBeforeFirstProbe() throws Exception {
+
+    assertThat(probe.getHealth().getStatus(), is(Status.UNKNOWN));
+  }
+
+  @Test
+  public void probeShouldReportUpWithRatesSincePreviousProbe() throws Exception {
+
+    when(metrics.counts())
+        .thenReturn(new DynamoDbClientMetrics.Counts(100, 10, 0, 5, 0))
+        .thenReturn(new DynamoDbClientMetrics.Counts(200, 11, 0, 25, 0));
+
+    probe.probe();
+    probe.probe();
+
+    DependencyHealth health = probe.getHealth();
+    assertThat(health.getStatus(), is(Status.UP));
+    assertThat(health.getTableStatus(), is("ACTIVE"));
+    assertThat(health.getRequests(), is(100L));
+    assertThat(health.getFailureRate(), is(0.01));
+    assertThat(health.getConnectionPoolSaturation(), is(0.5));
+  }
+
+  @Test
+  public void probeShouldReportDegradedWhenThrottled() throws Exception {
+
+    when(metrics.counts()).thenReturn(new DynamoDbClientMetrics.Counts(100, 0, 3, 5, 0));
+
+    probe.probe();
+
+    assertThat(probe.getHealth().getStatus(), is(Status.DEGRADED));
+    assertThat(probe.getHealth().getThrottleRate(), is(0.03));
+  }
+
+  @Test
+  public void probeShouldReportDegradedWhenRequestsWaitForConnections() throws Exception {
+
+    when(metrics.counts()).thenReturn(new DynamoDbClientMetrics.Counts(100, 0, 0, 50, 4));
+
+    probe.probe();
+
+    assertThat(probe.getHealth().getStatus(), is(Status.DEGRADED));
+  }
+
+  @Test
+  public void probeShouldReportDownWhenDescribeTableFails() throws Exception {
+
+    when(dynamoDB.describeTable("Customer")).thenThrow(new AmazonClientException("Simulated failure"));
+    when(metrics.counts()).thenReturn(new DynamoDbClientMetrics.Counts(1, 1, 0, 0, 0));
+
+    probe.probe();
+
+    assertThat(probe.getHealth().getStatus(), is(Status.DOWN));
+    assertThat(probe.getHealth().getError(), is("Simulated failure"));
+  }
+
+  private DescribeTableResult tableWithStatus(TableStatus status) {
+
+    return new DescribeTableResult().withTable(new TableDescription().withTableStatus(status));
+  }
+}
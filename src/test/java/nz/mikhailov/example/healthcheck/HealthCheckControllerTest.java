@@ -1,19 +1,83 @@
 package nz.mikhailov.example.healthcheck;
 
+import nz.mikhailov.example.healthcheck.DependencyHealth.Status;
+import nz.mikhailov.example.startup.WarmUp;
+import nz.mikhailov.example.util.DatabaseInitialisation;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.ResponseEntity;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
+@RunWith(MockitoJUnitRunner.class)
 public class HealthCheckControllerTest {
 
-  private HealthCheckController healthCheckController = new HealthCheckController();
+  @Mock
+  private DatabaseInitialisation databaseInitialisation;
+
+  @Mock
+  private WarmUp warmUp;
+
+  @Mock
+  private DynamoDbProbe dynamoDbProbe;
+
+  @InjectMocks
+  private HealthCheckController healthCheckController;
 
   @Test
   public void healthCheckShouldReturnUp() throws Exception {
 
-    String result = healthCheckController.healthCheck();
-    assertThat(result, is("up"));
+    when(warmUp.isComplete()).thenReturn(true);
+    when(databaseInitialisation.isTableActive()).thenReturn(true);
+    ResponseEntity<String> result = healthCheckController.healthCheck();
+    assertThat(result.getStatusCode(), is(OK));
+    assertThat(result.getBody(), is("up"));
+  }
+
+  @Test
+  public void healthCheckShouldReturnUnavailableDuringWarmUp() throws Exception {
+
+    when(databaseInitialisation.isTableActive()).thenReturn(true);
+    ResponseEntity<String> result = healthCheckController.healthCheck();
+    assertThat(result.getStatusCode(), is(SERVICE_UNAVAILABLE));
+  }
+
+  @Test
+  public void healthCheckShouldReturnUnavailableUntilTableIsActive() throws Exception {
+
+    when(warmUp.isComplete()).thenReturn(true);
+    ResponseEntity<String> result = healthCheckController.healthCheck();
+    assertThat(result.getStatusCode(), is(SERVICE_UNAVAILABLE));
+  }
+
+  @Test
+  public void deepHealthCheckShouldReturnProbedHealth() throws Exception {
+
+    DependencyHealth health = health(Status.DEGRADED);
+    when(dynamoDbProbe.getHealth()).thenReturn(health);
+    ResponseEntity<DependencyHealth> result = healthCheckController.deepHealthCheck();
+    assertThat(result.getStatusCode(), is(OK));
+    assertThat(result.getBody(), is(health));
+  }
+
+  @Test
+  public void deepHealthCheckShouldReturnUnavailableWhenDown() throws Exception {
+
+    when(dynamoDbProbe.getHealth()).thenReturn(health(Status.DOWN));
+    ResponseEntity<DependencyHealth> result = healthCheckController.deepHealthCheck();
+    assertThat(result.getStatusCode(), is(SERVICE_UNAVAILABLE));
+  }
+
+  private DependencyHealth health(Status status) {
+
+    return new DependencyHealth(status, 1L, 5L, "ACTIVE", null, 10L, 0, 0, 1, 0, 0.02);
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package nz.mikhailov.example.hotkeys;
+
+import nz.mikhailov.example.hotkeys.KeyAccessSampler.Operation;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class KeyAccessSamplerTest {
+
+  private final AtomicLong now = new AtomicLong(1_000_000);
+
+  private final KeyAccessSampler sampler = new KeyAccessSampler(1.0, 3, 10, 60, now::get);
+
+  @Test
+  public void reportShouldRankKeysAndCountOperations() {
+
+    for (int i = 0; i < 5; i++) {
+      sampler.record(Operation.READ, "Alice");
+    }
+    sampler.record(Operation.SAVE, "Alice");
+    sampler.record(Operation.READ, "Bob");
+    sampler.record(Operation.BATCH_READ, Arrays.asList("Bob", "Carol"));
+    sampler.record(Operation.SCAN);
+
+    HotKeyReport report = sampler.report(60, 2);
+
+    assertThat(keys(report), contains("Alice", "Bob"));
+    HotKeyReport.KeyFrequency alice = report.getKeys().get(0);
+    assertThat(alice.getEstimatedAccesses(), is(6L));
+    assertThat(alice.getEstimatedReads(), is(5L));
+    assertThat(alice.getEstimatedWrites(), is(1L));
+    assertThat(alice.getMaxOverestimate(), is(0L));
+    assertThat(alice.getShare(), is(6.0 / 9));
+    assertThat(count(report, Operation.READ), is(6L));
+    assertThat(count(report, Operation.BATCH_READ), is(2L));
+    assertThat(count(report, Operation.SCAN), is(1L));
+    assertThat(report.getSampledKeys(), is(9L));
+  }
+
+  @Test
+  public void frequentKeyShouldBeFoundAmongManyRareOnes() {
+
+    for (int i = 0; i < 100; i++) {
+      sampler.record(Operation.READ, "Hot");
+      sampler.record(Operation.READ, "Cold " + i);
+    }
+
+    HotKeyReport report = sampler.report(60, 1);
+
+    HotKeyReport.KeyFrequency hot = report.getKeys().get(0);
+    assertThat(hot.getKey(), is("Hot"));
+    assertThat(hot.getEstimatedAccesses() - hot.getMaxOverestimate(), is(greaterThanOrEqualTo(50L)));
+  }
+
+  @Test
+  public void windowShouldOnlyCoverRecentSlots() {
+
+    sampler.record(Operation.READ, "Alice");
+    now.addAndGet(30_000);
+    sampler.record(Operation.READ, "Bob");
+    sampler.record(Operation.READ, "Bob");
+
+    assertThat(keys(sampler.report(10, 10)), contains("Bob"));
+    assertThat(keys(sampler.report(60, 10)), contains("Bob", "Alice"));
+    assertThat(count(sampler.report(60, 10), Operation.READ), is(3L));
+
+    now.addAndGet(60_000);
+    assertThat(sampler.report(60, 10).getKeys(), is(empty()));
+  }
+
+  @Test
+  public void keysMissingFromFullSlotsShouldCarryTheirPossibleCount() {
+
+    sampler.record(Operation.READ, "Alice");
+    sampler.record(Operation.READ, "Bob");
+    sampler.record(Operation.READ, "Carol");
+    now.addAndGet(10_000);
+    sampler.record(Operation.READ, "Dave");
+
+    HotKeyReport.KeyFrequency dave = sampler.report(60, 10).getKeys().stream()
+        .filter(key -> key.getKey().equals("Dave")).findFirst().get();
+
+    assertThat(dave.getEstimatedAccesses(), is(2L));
+    assertThat(dave.getMaxOverestimate(), is(1L));
+  }
+
+  private static List<String> keys(HotKeyReport report) {
+
+    return report.getKeys().stream().map(HotKeyReport.KeyFrequency::getKey).collect(toList());
+  }
+
+  private static long count(HotKeyReport report, Operation operation) {
+
+    return report.getOperations().stream()
+        .filter(frequency -> frequency.getOperation() == operation)
+        .findFirst().get().getCount();
+  }
+}
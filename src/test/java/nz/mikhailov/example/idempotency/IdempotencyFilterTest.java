@@ -0,0 +1,233 @@
+package nz.mikhailov.example.idempotency;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class IdempotencyFilterTest {
+
+  private IdempotencyFilter filter;
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+
+    IdempotencyStore store = new IdempotencyStore();
+    setField(store, "maxEntries", 10);
+    setField(store, "ttlMillis", 60000L);
+    filter = new IdempotencyFilter();
+    setField(filter, "store", store);
+    setField(filter, "waitTimeoutMillis", 5000L);
+    setField(filter, "maxBodyBytes", 1024);
+  }
+
+  @Test
+  public void requestWithoutKeyShouldAlwaysExecute() throws Exception {
+
+    filter.doFilter(post(null), new MockHttpServletResponse(), created());
+    filter.doFilter(post(null), new MockHttpServletResponse(), created());
+    assertThat(executions.get(), is(2));
+  }
+
+  @Test
+  public void retryWithSameKeyShouldReplayStoredResponseWithoutExecuting() throws Exception {
+
+    filter.doFilter(post("key-1"), new MockHttpServletResponse(), created());
+    MockHttpServletResponse retry = new MockHttpServletResponse();
+    filter.doFilter(post("key-1"), retry, created());
+    assertThat(executions.get(), is(1));
+    assertThat(retry.getStatus(), is(201));
+    assertThat(retry.getContentAsString(), is("{\"name\":\"Olaf Stapledon\"}"));
+    assertThat(retry.getContentType(), is("application/json"));
+    assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER), is("true"));
+  }
+
+  @Test
+  public void serverErrorsShouldNotBeStored() throws Exception {
+
+    filter.doFilter(post("key-1"), new MockHttpServletResponse(), (request, response) -> {
+      executions.incrementAndGet();
+      ((HttpServletResponse) response).setStatus(503);
+    });
+    MockHttpServletResponse retry = new MockHttpServletResponse();
+    filter.doFilter(post("key-1"), retry, created());
+    assertThat(executions.get(), is(2));
+    assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER), is(nullValue()));
+  }
+
+  @Test
+  public void reusingKeyForAnotherRequestShouldBeRejected() throws Exception {
+
+    filter.doFilter(post("key-1"), new MockHttpServletResponse(), created());
+    MockHttpServletRequest put = new MockHttpServletRequest("PUT", "/v1/customer/Olaf%20Stapledon");
+    put.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(put, response, created());
+    assertThat(response.getStatus(), is(422));
+    assertThat(executions.get(), is(1));
+  }
+
+  @Test
+  public void reusingKeyForAnotherBodyShouldBeRejected() throws Exception {
+
+    filter.doFilter(post("key-1"), new MockHttpServletResponse(), created());
+    MockHttpServletRequest other = post("key-1");
+    other.setContent("{\"name\":\"Arthur C. Clarke\"}".getBytes("UTF-8"));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(other, response, created());
+    assertThat(response.getStatus(), is(422));
+    assertThat(executions.get(), is(1));
+  }
+
+  @Test
+  public void reusingKeyForAnotherContentTypeShouldBeRejected() throws Exception {
+
+    filter.doFilter(post("key-1"), new MockHttpServletResponse(), created());
+    MockHttpServletRequest other = post("key-1");
+    other.setContentType("application/x-jackson-smile");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(other, response, created());
+    assertThat(response.getStatus(), is(422));
+    assertThat(executions.get(), is(1));
+  }
+
+  @Test
+  public void requestBodyShouldStillBeReadableByTheController() throws Exception {
+
+    MockHttpServletRequest request = post("key-1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, (wrapped, ignored) -> {
+      executions.incrementAndGet();
+      assertThat(StreamUtils.copyToString(wrapped.getInputStream(), StandardCharsets.UTF_8),
+          is("{\"name\":\"Olaf Stapledon\"}"));
+    });
+    assertThat(executions.get(), is(1));
+  }
+
+  @Test
+  public void requestBodyShouldBeReadableThroughReadListener() throws Exception {
+
+    StringBuilder read = new StringBuilder();
+    AtomicBoolean allRead = new AtomicBoolean();
+    filter.doFilter(post("key-1"), new MockHttpServletResponse(), (wrapped, ignored) -> {
+      ServletInputStream input = wrapped.getInputStream();
+      input.setReadListener(new ReadListener() {
+
+        @Override
+        public void onDataAvailable() throws IOException {
+
+          while (input.isReady() && !input.isFinished()) {
+            read.append((char) input.read());
+          }
+        }
+
+        @Override
+        public void onAllDataRead() {
+
+          allRead.set(true);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+
+          throw new AssertionError(t);
+        }
+      });
+    });
+    assertThat(read.toString(), is("{\"name\":\"Olaf Stapledon\"}"));
+    assertThat(allRead.get(), is(true));
+  }
+
+  @Test
+  public void requestBodyLongerThanLimitShouldBeRejected() throws Exception {
+
+    MockHttpServletRequest request = post("key-1");
+    request.setContent(new byte[1025]);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, created());
+    assertThat(response.getStatus(), is(413));
+    assertThat(executions.get(), is(0));
+  }
+
+  @Test
+  public void concurrentDuplicatesShouldBeCoalescedOntoOneExecution() throws Exception {
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FilterChain slow = (request, response) -> {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      created().doFilter(request, response);
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      MockHttpServletResponse first = new MockHttpServletResponse();
+      MockHttpServletResponse duplicate = new MockHttpServletResponse();
+      Future<?> firstRequest = executor.submit(() -> {
+        filter.doFilter(post("key-1"), first, slow);
+        return null;
+      });
+      started.await(5, TimeUnit.SECONDS);
+      Future<?> duplicateRequest = executor.submit(() -> {
+        filter.doFilter(post("key-1"), duplicate, slow);
+        return null;
+      });
+      Thread.sleep(100);
+      release.countDown();
+      firstRequest.get(5, TimeUnit.SECONDS);
+      duplicateRequest.get(5, TimeUnit.SECONDS);
+      assertThat(executions.get(), is(1));
+      assertThat(duplicate.getStatus(), is(201));
+      assertThat(duplicate.getContentAsString(), is(first.getContentAsString()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private MockHttpServletRequest post(String key) {
+
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/customer");
+    request.setContentType("application/json");
+    request.setContent("{\"name\":\"Olaf Stapledon\"}".getBytes(StandardCharsets.UTF_8));
+    if (key != null) {
+      request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+    }
+    return request;
+  }
+
+  private FilterChain created() {
+
+    return (request, response) -> {
+      executions.incrementAndGet();
+      HttpServletResponse httpResponse = (HttpServletResponse) response;
+      httpResponse.setStatus(201);
+      httpResponse.setContentType("application/json");
+      httpResponse.getOutputStream().write("{\"name\":\"Olaf Stapledon\"}".getBytes("UTF-8"));
+    };
+  }
+}
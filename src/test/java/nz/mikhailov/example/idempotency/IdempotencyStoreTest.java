@@ -0,0 +1,56 @@
+package nz.mikhailov.example.idempotency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class IdempotencyStoreTest {
+
+  private IdempotencyStore store;
+
+  @Before
+  public void setUp() throws Exception {
+
+    store = new IdempotencyStore();
+    setField(store, "maxEntries", 2);
+    setField(store, "ttlMillis", 1000L);
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryShouldBeEvictedWhenFull() throws Exception {
+
+    store.put("a", response(System.currentTimeMillis()));
+    store.put("b", response(System.currentTimeMillis()));
+    store.get("a");
+    store.put("c", response(System.currentTimeMillis()));
+    assertThat(store.get("a"), is(notNullValue()));
+    assertThat(store.get("b"), is(nullValue()));
+    assertThat(store.get("c"), is(notNullValue()));
+  }
+
+  @Test
+  public void expiredEntriesShouldNotBeReturned() throws Exception {
+
+    store.put("a", response(System.currentTimeMillis() - 2000));
+    assertThat(store.get("a"), is(nullValue()));
+  }
+
+  @Test
+  public void evictExpiredShouldDropOnlyExpiredEntries() throws Exception {
+
+    store.put("a", response(System.currentTimeMillis() - 2000));
+    store.put("b", response(System.currentTimeMillis()));
+    store.evictExpired();
+    assertThat(store.size(), is(1));
+  }
+
+  private StoredResponse response(long storedAt) {
+
+    return new StoredResponse("POST /v1/customer", 201, null, new byte[0], storedAt);
+  }
+}
@@ -0,0 +1,259 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+import nz.mikhailov.example.migration.MigrationProgress.State;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MigrationRunnerTest {
+
+  private static final String MIGRATION = "normalise-phone-numbers";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private AmazonDynamoDB dynamoDB;
+
+  @Mock
+  private DynamoDBMapper dbMapper;
+
+  private final MigrationCheckpoints checkpoints = new MigrationCheckpoints();
+
+  private final MigrationRunner runner = new MigrationRunner();
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(checkpoints, "directory", folder.getRoot().getPath());
+    ReflectionTestUtils.setField(runner, "segments", 1);
+    ReflectionTestUtils.setField(runner, "pageSize", 2);
+    ReflectionTestUtils.setField(runner, "readCapacityPerSecond", 1000.0);
+    ReflectionTestUtils.setField(runner, "writeCapacityPerSecond", 1000.0);
+    ReflectionTestUtils.setField(runner, "dynamoDB", dynamoDB);
+    ReflectionTestUtils.setField(runner, "dbMapper", dbMapper);
+    ReflectionTestUtils.setField(runner, "checkpoints", checkpoints);
+    PhoneNumberNormalisation migration = new PhoneNumberNormalisation();
+    ReflectionTestUtils.setField(migration, "encoding", new CompactItemEncoding());
+    ReflectionTestUtils.setField(runner, "migrations", Collections.singletonList(migration));
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest()
+        .withTableName("Customer")
+        .withKeySchema(new KeySchemaElement("Name", KeyType.HASH)));
+    when(dynamoDB.describeTable("Customer"))
+        .thenReturn(new DescribeTableResult().withTable(new TableDescription().withItemCount(3L)));
+    when(dynamoDB.scan(any(ScanRequest.class)))
+        .thenReturn(new ScanResult()
+            .withItems(item("Alice", "+44 151 123 4567"), item("Bob", "0151 123 4567"))
+            .withCount(2)
+            .withLastEvaluatedKey(key("Bob")))
+        .thenReturn(new ScanResult()
+            .withItems(item("Carol", "+441511234567"))
+            .withCount(1));
+    when(dynamoDB.updateItem(any(UpdateItemRequest.class))).thenReturn(new UpdateItemResult());
+  }
+
+  @Test
+  public void runShouldRewriteChangedItemsPageByPage() throws Exception {
+
+    MigrationProgress progress = runToEnd(false, 0);
+
+    assertThat(progress.getState(), is(State.COMPLETED));
+    assertThat(progress.getScanned(), is(3L));
+    assertThat(progress.getChanged(), is(2L));
+    assertThat(progress.getWritten(), is(2L));
+    assertThat(progress.getSkipped(), is(0L));
+    assertThat(progress.isResumable(), is(false));
+    ArgumentCaptor<ScanRequest> scans = ArgumentCaptor.forClass(ScanRequest.class);
+    verify(dynamoDB, times(2)).scan(scans.capture());
+    assertThat(scans.getAllValues().get(0).getExclusiveStartKey(), is(nullValue()));
+    assertThat(scans.getAllValues().get(0).getConsistentRead(), is(true));
+    assertThat(scans.getAllValues().get(1).getExclusiveStartKey(), is(key("Bob")));
+    ArgumentCaptor<UpdateItemRequest> writes = ArgumentCaptor.forClass(UpdateItemRequest.class);
+    verify(dynamoDB, times(2)).updateItem(writes.capture());
+    UpdateItemRequest alice = writes.getAllValues().get(0);
+    assertThat(alice.getKey(), is(key("Alice")));
+    assertThat(alice.getUpdateExpression(), is("SET #a0 = :n0"));
+    assertThat(alice.getConditionExpression(), is("attribute_exists(#k) AND #a0 = :o0"));
+    assertThat(alice.getExpressionAttributeNames().get("#a0"), is("PhoneNumber"));
+    assertThat(alice.getExpressionAttributeValues().get(":o0").getS(), is("+44 151 123 4567"));
+    assertThat(alice.getExpressionAttributeValues().get(":n0").getS(), is("+441511234567"));
+    assertThat(writes.getAllValues().get(1).getExpressionAttributeValues().get(":n0").getS(), is("01511234567"));
+    assertThat(checkpoints.load(MIGRATION), is(nullValue()));
+  }
+
+  @Test
+  public void itemsWrittenSinceTheScanShouldBeSkipped() throws Exception {
+
+    when(dynamoDB.updateItem(any(UpdateItemRequest.class)))
+        .thenThrow(new ConditionalCheckFailedException("The conditional request failed"))
+        .thenReturn(new UpdateItemResult());
+
+    MigrationProgress progress = runToEnd(false, 0);
+
+    assertThat(progress.getState(), is(State.COMPLETED));
+    assertThat(progress.getChanged(), is(2L));
+    assertThat(progress.getWritten(), is(1L));
+    assertThat(progress.getSkipped(), is(1L));
+  }
+
+  @Test
+  public void migrationRemovingAnAttributeShouldRemoveItOnlyIfUnchanged() throws Exception {
+
+    Map<String, AttributeValue> scanned = item("Alice", "+44 151 123 4567");
+    scanned.put("Address", new AttributeValue("Liverpool"));
+    Map<String, AttributeValue> migrated = key("Alice");
+    migrated.put("Address", new AttributeValue("Liverpool"));
+    migrated.put("a", new AttributeValue("Liverpool"));
+    ConditionalRewriter rewriter = new ConditionalRewriter(dynamoDB, "Customer",
+        Collections.singleton("Name"), null);
+
+    UpdateItemRequest request = rewriter.updateRequest(scanned, migrated);
+
+    assertThat(resolve(request.getUpdateExpression(), request), is("SET a = 'Liverpool' REMOVE PhoneNumber"));
+    assertThat(new HashSet<>(Arrays.asList(resolve(request.getConditionExpression(), request).split(" AND "))),
+        is(new HashSet<>(Arrays.asList("attribute_exists(Name)", "PhoneNumber = '+44 151 123 4567'",
+            "Address = 'Liverpool'", "attribute_not_exists(a)"))));
+  }
+
+  @Test
+  public void dryRunShouldNotWriteAndShouldProjectDuration() throws Exception {
+
+    MigrationProgress progress = runToEnd(true, 2);
+
+    assertThat(progress.getState(), is(State.COMPLETED));
+    assertThat(progress.isDryRun(), is(true));
+    assertThat(progress.getScanned(), is(2L));
+    assertThat(progress.getChanged(), is(2L));
+    assertThat(progress.getWritten(), is(0L));
+    assertThat(progress.getEstimatedTotalItems(), is(3L));
+    verify(dynamoDB, times(1)).scan(any(ScanRequest.class));
+    verify(dynamoDB, never()).updateItem(any(UpdateItemRequest.class));
+    assertThat(checkpoints.load(MIGRATION), is(nullValue()));
+  }
+
+  @Test
+  public void failedRunShouldKeepCheckpointAndNextRunShouldResumeFromIt() throws Exception {
+
+    when(dynamoDB.scan(any(ScanRequest.class)))
+        .thenReturn(new ScanResult()
+            .withItems(item("Alice", "+44 151 123 4567"), item("Bob", "0151 123 4567"))
+            .withCount(2)
+            .withLastEvaluatedKey(key("Bob")))
+        .thenThrow(new AmazonServiceException("Throttled"))
+        .thenReturn(new ScanResult()
+            .withItems(item("Carol", "+44 151 765 4321"))
+            .withCount(1));
+
+    MigrationProgress failed = runToEnd(false, 0);
+
+    assertThat(failed.getState(), is(State.FAILED));
+    assertThat(failed.getError(), is(notNullValue()));
+    assertThat(failed.isResumable(), is(true));
+    assertThat(checkpoints.load(MIGRATION).lastKey(0), is(key("Bob")));
+
+    MigrationProgress resumed = runToEnd(false, 0);
+
+    assertThat(resumed.getState(), is(State.COMPLETED));
+    assertThat(resumed.getScanned(), is(3L));
+    assertThat(resumed.getWritten(), is(3L));
+    ArgumentCaptor<ScanRequest> scans = ArgumentCaptor.forClass(ScanRequest.class);
+    verify(dynamoDB, times(3)).scan(scans.capture());
+    assertThat(scans.getAllValues().get(2).getExclusiveStartKey(), is(key("Bob")));
+  }
+
+  @Test
+  public void unknownMigrationShouldNotStart() throws Exception {
+
+    assertThat(runner.start("unknown", false, 0).isPresent(), is(false));
+    assertThat(runner.getProgress("unknown").isPresent(), is(false));
+  }
+
+  @Test
+  public void progressShouldBeIdleBeforeFirstRun() throws Exception {
+
+    MigrationProgress progress = runner.getProgress(MIGRATION).get();
+
+    assertThat(progress.getState(), is(State.IDLE));
+    assertThat(progress.isResumable(), is(false));
+  }
+
+  private MigrationProgress runToEnd(boolean dryRun, long sampleItems) throws InterruptedException {
+
+    runner.start(MIGRATION, dryRun, sampleItems);
+    long deadline = System.currentTimeMillis() + 10000;
+    MigrationProgress progress = runner.getProgress(MIGRATION).get();
+    while (progress.getState() == State.RUNNING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      progress = runner.getProgress(MIGRATION).get();
+    }
+    return progress;
+  }
+
+  /**
+   * @return the expression with the names and string values of the request in place of their placeholders
+   */
+  private static String resolve(String expression, UpdateItemRequest request) {
+
+    String resolved = expression;
+    for (Map.Entry<String, String> name : request.getExpressionAttributeNames().entrySet()) {
+      resolved = resolved.replaceAll(name.getKey() + "\\b", name.getValue());
+    }
+    for (Map.Entry<String, AttributeValue> value : request.getExpressionAttributeValues().entrySet()) {
+      resolved = resolved.replaceAll(value.getKey() + "\\b", "'" + value.getValue().getS() + "'");
+    }
+    return resolved;
+  }
+
+  private static Map<String, AttributeValue> item(String name, String phoneNumber) {
+
+    Map<String, AttributeValue> item = key(name);
+    item.put("PhoneNumber", new AttributeValue(phoneNumber));
+    return item;
+  }
+
+  private static Map<String, AttributeValue> key(String name) {
+
+    Map<String, AttributeValue> key = new HashMap<>();
+    key.put("Name", new AttributeValue(name));
+    return key;
+  }
+}
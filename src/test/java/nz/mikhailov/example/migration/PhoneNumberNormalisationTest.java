@@ -0,0 +1,88 @@
+package nz.mikhailov.example.migration;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import nz.mikhailov.example.encoding.CompactItemEncoding;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PhoneNumberNormalisationTest {
+
+  private final CompactItemEncoding encoding = new CompactItemEncoding();
+
+  private final PhoneNumberNormalisation migration = new PhoneNumberNormalisation();
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(migration, "encoding", encoding);
+  }
+
+  @Test
+  public void normaliseShouldKeepLeadingPlusAndDigits() throws Exception {
+
+    assertThat(PhoneNumberNormalisation.normalise(" +44 (151) 123-4567 "), is("+441511234567"));
+    assertThat(PhoneNumberNormalisation.normalise("0151 123 4567"), is("01511234567"));
+    assertThat(PhoneNumberNormalisation.normalise("1+2"), is("12"));
+  }
+
+  @Test
+  public void migrateShouldReplacePhoneNumberAndKeepOtherAttributes() throws Exception {
+
+    Map<String, AttributeValue> migrated = migration.migrate(item("+44 151 123 4567"));
+
+    assertThat(migrated.get("PhoneNumber").getS(), is("+441511234567"));
+    assertThat(migrated.get("Name").getS(), is("John Smith"));
+  }
+
+  @Test
+  public void migrateShouldReadAndWriteCompactItems() throws Exception {
+
+    ReflectionTestUtils.setField(encoding, "compact", true);
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue("John Smith"));
+    item.put("p", new AttributeValue("+44 151 123 4567"));
+
+    Map<String, AttributeValue> migrated = migration.migrate(item);
+
+    assertThat(migrated.get("p").getS(), is("+441511234567"));
+    assertThat(migrated.containsKey("PhoneNumber"), is(false));
+  }
+
+  @Test
+  public void migrateShouldLeaveNormalisedItemsUnchanged() throws Exception {
+
+    assertThat(migration.migrate(item("+441511234567")), is(nullValue()));
+  }
+
+  @Test
+  public void migrateShouldLeaveItemsWithoutDigitsUnchanged() throws Exception {
+
+    assertThat(migration.migrate(item("unknown")), is(nullValue()));
+  }
+
+  @Test
+  public void migrateShouldLeaveItemsWithoutPhoneNumberUnchanged() throws Exception {
+
+    Map<String, AttributeValue> item = item(null);
+
+    assertThat(migration.migrate(item), is(nullValue()));
+  }
+
+  private static Map<String, AttributeValue> item(String phoneNumber) {
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue("John Smith"));
+    if (phoneNumber != null) {
+      item.put("PhoneNumber", new AttributeValue(phoneNumber));
+    }
+    return item;
+  }
+}
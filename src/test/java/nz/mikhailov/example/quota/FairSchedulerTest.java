@@ -0,0 +1,155 @@
+package nz.mikhailov.example.quota;
+
+import nz.mikhailov.example.quota.FairScheduler.Admission;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+public class FairSchedulerTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<String> admitted = new CopyOnWriteArrayList<>();
+
+  @After
+  public void tearDown() {
+
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void requestsShouldBeAdmittedAtOnceUntilSaturated() throws Exception {
+
+    FairScheduler scheduler = new FairScheduler(2, 10);
+
+    assertThat(scheduler.acquire("a", 0, TimeUnit.MILLISECONDS), is(Admission.ADMITTED));
+    assertThat(scheduler.acquire("a", 0, TimeUnit.MILLISECONDS), is(Admission.ADMITTED));
+    assertThat(scheduler.acquire("b", 10, TimeUnit.MILLISECONDS), is(Admission.TIMED_OUT));
+    assertThat(scheduler.getInFlight(), is(2));
+    assertThat(scheduler.getQueued(), is(0));
+    assertThat(scheduler.getTimedOut(), is(1L));
+  }
+
+  @Test
+  public void queuedRequestsShouldBeAdmittedRoundRobinAcrossClients() throws Exception {
+
+    FairScheduler scheduler = new FairScheduler(1, 10);
+    scheduler.acquire("busy", 0, TimeUnit.MILLISECONDS);
+    Future<?> a1 = queue(scheduler, "a1", "a");
+    Future<?> a2 = queue(scheduler, "a2", "a");
+    Future<?> a3 = queue(scheduler, "a3", "a");
+    Future<?> b1 = queue(scheduler, "b1", "b");
+    Future<?> c1 = queue(scheduler, "c1", "c");
+
+    for (Future<?> request : new Future<?>[]{a1, b1, c1, a2, a3}) {
+      scheduler.release();
+      request.get(5, TimeUnit.SECONDS);
+    }
+    assertThat(admitted, contains("a1", "b1", "c1", "a2", "a3"));
+  }
+
+  @Test
+  public void fullQueuesShouldDropFromTheLongestQueue() throws Exception {
+
+    FairScheduler scheduler = new FairScheduler(1, 3);
+    scheduler.acquire("busy", 0, TimeUnit.MILLISECONDS);
+    Future<Admission> a1 = queue(scheduler, "a1", "a");
+    Future<Admission> a2 = queue(scheduler, "a2", "a");
+    Future<Admission> b1 = queue(scheduler, "b1", "b");
+
+    assertThat(scheduler.acquire("a", 10, TimeUnit.MILLISECONDS), is(Admission.REJECTED));
+    Future<Admission> c1 = queue(scheduler, "c1", "c");
+    assertThat(a1.get(5, TimeUnit.SECONDS), is(Admission.REJECTED));
+    assertThat(scheduler.getQueued(), is(3));
+    assertThat(scheduler.getRejected(), is(2L));
+    for (Future<Admission> request : Arrays.asList(a2, b1, c1)) {
+      scheduler.release();
+      assertThat(request.get(5, TimeUnit.SECONDS), is(Admission.ADMITTED));
+    }
+    assertThat(admitted, contains("a2", "b1", "c1"));
+  }
+
+  @Test
+  public void interruptAfterAdmissionShouldKeepTheSlot() throws Exception {
+
+    FairScheduler scheduler = new FairScheduler(1, 10);
+    scheduler.acquire("busy", 0, TimeUnit.MILLISECONDS);
+    AtomicReference<Thread> waiting = new AtomicReference<>();
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Future<Admission> a1 = executor.submit(() -> {
+      waiting.set(Thread.currentThread());
+      Admission admission = scheduler.acquire("a", 5, TimeUnit.SECONDS);
+      interrupted.set(Thread.interrupted());
+      return admission;
+    });
+    while (scheduler.getQueued() == 0) {
+      Thread.sleep(1);
+    }
+
+    // Interrupted, waiting for the lock to throw, when release() admits it
+    ReentrantLock lock = (ReentrantLock) ReflectionTestUtils.getField(scheduler, "lock");
+    lock.lock();
+    try {
+      waiting.get().interrupt();
+      while (!lock.hasQueuedThread(waiting.get())) {
+        Thread.sleep(1);
+      }
+      scheduler.release();
+    } finally {
+      lock.unlock();
+    }
+
+    assertThat(a1.get(5, TimeUnit.SECONDS), is(Admission.ADMITTED));
+    assertThat(interrupted.get(), is(true));
+    assertThat(scheduler.getInFlight(), is(1));
+    scheduler.release();
+    assertThat(scheduler.getInFlight(), is(0));
+  }
+
+  @Test
+  public void interruptWhileQueuedShouldLeaveTheQueue() throws Exception {
+
+    FairScheduler scheduler = new FairScheduler(1, 10);
+    scheduler.acquire("busy", 0, TimeUnit.MILLISECONDS);
+    Future<Admission> a1 = queue(scheduler, "a1", "a");
+
+    a1.cancel(true);
+    while (scheduler.getQueued() > 0) {
+      Thread.sleep(1);
+    }
+
+    scheduler.release();
+    assertThat(scheduler.getInFlight(), is(0));
+    assertThat(scheduler.getTimedOut(), is(0L));
+  }
+
+  private Future<Admission> queue(FairScheduler scheduler, String request, String client) throws Exception {
+
+    long queued = scheduler.getQueuedTotal();
+    Future<Admission> admission = executor.submit(() -> {
+      Admission result = scheduler.acquire(client, 5, TimeUnit.SECONDS);
+      if (result == Admission.ADMITTED) {
+        admitted.add(request);
+      }
+      return result;
+    });
+    while (scheduler.getQueuedTotal() == queued && !admission.isDone()) {
+      Thread.sleep(1);
+    }
+    return admission;
+  }
+}
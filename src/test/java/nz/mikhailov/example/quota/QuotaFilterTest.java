@@ -0,0 +1,145 @@
+package nz.mikhailov.example.quota;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class QuotaFilterTest {
+
+  private ClientQuotas quotas;
+  private QuotaFilter filter;
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+
+    quotas = new ClientQuotas();
+    setField(quotas, "enabled", true);
+    setField(quotas, "clientHeader", "X-Api-Key");
+    setField(quotas, "requestsPerSecond", 0.001);
+    setField(quotas, "capacityUnitsPerSecond", 0.001);
+    setField(quotas, "burstSeconds", 2000.0);
+    setField(quotas, "maxConcurrentRequests", 10);
+    setField(quotas, "maxQueuedRequests", 10);
+    setField(quotas, "queueTimeoutMillis", 1000L);
+    setField(quotas, "maxClients", 3);
+    quotas.init();
+    filter = new QuotaFilter();
+    setField(filter, "quotas", quotas);
+  }
+
+  @Test
+  public void requestsOverQuotaShouldBeRejectedPerClient() throws Exception {
+
+    MockHttpServletResponse first = execute("key-1");
+    MockHttpServletResponse second = execute("key-1");
+    MockHttpServletResponse third = execute("key-1");
+    MockHttpServletResponse other = execute("key-2");
+
+    assertThat(executions.get(), is(3));
+    assertThat(first.getHeader(QuotaFilter.LIMIT_HEADER), is("0.001"));
+    assertThat(first.getHeader(QuotaFilter.REMAINING_HEADER), is("1"));
+    assertThat(second.getHeader(QuotaFilter.REMAINING_HEADER), is("0"));
+    assertThat(third.getStatus(), is(429));
+    assertThat(third.getHeader(QuotaFilter.RETRY_AFTER_HEADER), is("1000"));
+    assertThat(other.getStatus(), is(200));
+    assertThat(quotas.getUsage("key-1").get().getRejectedRequests(), is(1L));
+    assertThat(quotas.getUsage("key-1").get().getAdmittedRequests(), is(2L));
+  }
+
+  @Test
+  public void capacityConsumedBeyondQuotaShouldBeRejectedUntilPaidOff() throws Exception {
+
+    filter.doFilter(request("key-1"), new MockHttpServletResponse(), (request, response) -> quotas.charge(5));
+    MockHttpServletResponse rejected = execute("key-1");
+
+    assertThat(rejected.getStatus(), is(429));
+    assertThat(rejected.getHeader(QuotaFilter.CAPACITY_REMAINING_HEADER), is("-3"));
+    assertThat(quotas.getUsage("key-1").get().getConsumedCapacityUnits(), is(5.0));
+    assertThat(quotas.isCharging(), is(false));
+  }
+
+  @Test
+  public void adjustedQuotaShouldApplyAtOnceAndKeepUsage() throws Exception {
+
+    execute("key-1");
+    execute("key-1");
+    quotas.adjust("key-1", 1000.0, null);
+    MockHttpServletResponse response = execute("key-1");
+
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getHeader(QuotaFilter.LIMIT_HEADER), is("1000"));
+    assertThat(quotas.getUsage("key-1").get().getAdmittedRequests(), is(3L));
+    assertThat(quotas.getUsage("key-1").get().isAdjusted(), is(true));
+    assertThat(quotas.reset("key-1"), is(true));
+    assertThat(quotas.getUsage("key-1").get().getRequestsPerSecond(), is(0.001));
+    assertThat(quotas.reset("key-3"), is(false));
+  }
+
+  @Test
+  public void requestsWithoutKeyShouldShareTheAnonymousQuota() throws Exception {
+
+    execute(null);
+    execute(null);
+
+    assertThat(execute(null).getStatus(), is(429));
+    assertThat(quotas.getUsage(ClientQuotas.ANONYMOUS).get().getAdmittedRequests(), is(2L));
+  }
+
+  @Test
+  public void clientsBeyondTheLimitShouldShareTheUntrackedQuota() throws Exception {
+
+    execute("key-1");
+    execute("key-2");
+    execute("key-3");
+    execute("key-4");
+    execute("key-5");
+
+    assertThat(execute("key-6").getStatus(), is(429));
+    assertThat(execute("key-1").getStatus(), is(200));
+    assertThat(quotas.getUsage("key-4").isPresent(), is(false));
+    assertThat(quotas.getUsage(ClientQuotas.UNTRACKED).get().getAdmittedRequests(), is(2L));
+    assertThat(quotas.getStats().getClients().size(), is(4));
+  }
+
+  @Test
+  public void adminRequestsShouldNotBeLimited() throws Exception {
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/quotas");
+    for (int i = 0; i < 3; i++) {
+      filter.doFilter(request, new MockHttpServletResponse(), counting());
+    }
+
+    assertThat(executions.get(), is(3));
+    assertThat(quotas.getStats().getClients().size(), is(0));
+  }
+
+  private MockHttpServletResponse execute(String key) throws Exception {
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request(key), response, counting());
+    return response;
+  }
+
+  private static MockHttpServletRequest request(String key) {
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/customer/Olaf%20Stapledon");
+    if (key != null) {
+      request.addHeader("X-Api-Key", key);
+    }
+    return request;
+  }
+
+  private FilterChain counting() {
+
+    return (request, response) -> executions.incrementAndGet();
+  }
+}
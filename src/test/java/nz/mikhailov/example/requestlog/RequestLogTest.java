@@ -0,0 +1,98 @@
+package nz.mikhailov.example.requestlog;
+
+import nz.mikhailov.example.hotkeys.KeyAccessSampler.Operation;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+public class RequestLogTest {
+
+  @Test
+  public void sampledRequestShouldBeQueuedAfterItsRepositoryEvents() {
+
+    RequestLog requestLog = new RequestLog(100, 1);
+    requestLog.begin();
+    requestLog.repository(Operation.READ, "Jane");
+    requestLog.repository(Operation.BATCH_READ, asList("Jane", "John"));
+    requestLog.end(null, "GET", "/v1/customer/{name}", "/v1/customer/Jane", 200, null);
+
+    List<LogEvent> events = requestLog.drain(10);
+    assertThat(events, hasSize(3));
+    assertThat(events.get(0).get("operation"), is(Operation.READ));
+    assertThat(events.get(0).get("key"), is("Jane"));
+    assertThat(events.get(1).get("keys"), is("Jane,John"));
+    assertThat(events.get(1).get("keyCount"), is(2));
+    assertThat(events.get(2).getType(), is("request"));
+    assertThat(events.get(2).get("endpoint"), is("GET /v1/customer/{name}"));
+    assertThat(events.get(2).get("status"), is(200));
+    assertThat(events.get(2).get("repositoryCalls"), is(2));
+    assertThat(events.get(0).get("request"), is(events.get(2).get("request")));
+  }
+
+  @Test
+  public void requestShouldBeSampledAtTheRateOfItsEndpoint() {
+
+    RequestLog requestLog = new RequestLog(100, 1, "GET /v1/customer/{name}=0", "POST unmatched = 1");
+    requestLog.begin();
+    requestLog.repository(Operation.READ, "Jane");
+    requestLog.end(null, "GET", "/v1/customer/{name}", "/v1/customer/Jane", 200, null);
+    requestLog.begin();
+    requestLog.end(null, "POST", null, "/v2/customer", 404, null);
+
+    List<LogEvent> events = requestLog.drain(10);
+    assertThat(events, hasSize(1));
+    assertThat(events.get(0).get("endpoint"), is("POST unmatched"));
+    assertThat(requestLog.getStats().getSampledOut(), is(1L));
+  }
+
+  @Test
+  public void failedRequestShouldAlwaysBeLogged() {
+
+    RequestLog requestLog = new RequestLog(100, 0);
+    requestLog.begin();
+    requestLog.end(null, "GET", "/v1/customer/{name}", "/v1/customer/Jane", 200, new IllegalStateException("Broken"));
+    requestLog.begin();
+    requestLog.end(null, "GET", "/v1/customer", "/v1/customer", 503, null);
+    requestLog.repository(Operation.SCAN);
+
+    List<LogEvent> events = requestLog.drain(10);
+    assertThat(events, hasSize(2));
+    assertThat(events.get(0).get("status"), is(500));
+    assertThat(events.get(0).get("error"), is("java.lang.IllegalStateException: Broken"));
+    assertThat(events.get(1).get("status"), is(503));
+  }
+
+  @Test
+  public void eventsShouldBeDroppedAndCountedWhenTheQueueIsFull() {
+
+    RequestLog requestLog = new RequestLog(2, 1);
+    for (int i = 0; i < 5; i++) {
+      requestLog.repository(Operation.SCAN);
+    }
+
+    assertThat(requestLog.drain(10), hasSize(2));
+    assertThat(requestLog.getStats().getQueued(), is(2L));
+    assertThat(requestLog.getStats().getDropped(), is(3L));
+    assertThat(requestLog.drain(10), is(empty()));
+  }
+
+  @Test
+  public void formatShouldQuoteValuesThatNeedIt() {
+
+    LogEvent event = new LogEvent("request", 1463219712345L)
+        .with("endpoint", "GET /v1/customer/{name}")
+        .with("uri", "/v1/customer/Jane")
+        .with("error", "Say \"hi\"\nthere")
+        .with("empty", "")
+        .with("missing", null);
+
+    assertThat(event.format(), is("type=request at=1463219712345 endpoint=\"GET /v1/customer/{name}\" " +
+        "uri=/v1/customer/Jane error=\"Say \\\"hi\\\"\\nthere\" empty=\"\""));
+  }
+}
@@ -0,0 +1,83 @@
+package nz.mikhailov.example.routing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EndpointRouterTest {
+
+  private final EndpointRouter router = new EndpointRouter();
+
+  private EndpointStats primary;
+  private EndpointStats replica;
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(router, "ewmaWeight", 0.5);
+    ReflectionTestUtils.setField(router, "ejectAfterFailures", 2);
+    ReflectionTestUtils.setField(router, "ejectionMillis", 60000L);
+    primary = router.register("http://primary", true);
+    replica = router.register("http://replica", false);
+  }
+
+  @Test
+  public void candidatesShouldPreferUnmeasuredEndpoints() throws Exception {
+
+    router.succeeded(primary, 1000);
+
+    assertThat(router.candidates(), is(asList(replica, primary)));
+  }
+
+  @Test
+  public void candidatesShouldPreferLowestAverageLatency() throws Exception {
+
+    router.succeeded(primary, 1000);
+    router.succeeded(replica, 400);
+    router.succeeded(replica, 2000);
+
+    assertThat(replica.getEwmaLatencyMillis(), is(0.0012));
+    assertThat(router.candidates(), is(asList(primary, replica)));
+  }
+
+  @Test
+  public void candidatesShouldSkipEjectedEndpoints() throws Exception {
+
+    router.succeeded(primary, 1000);
+    router.succeeded(replica, 100);
+    router.failed(replica);
+    assertThat(router.candidates(), is(asList(replica, primary)));
+
+    router.failed(replica);
+    assertThat(replica.isEjected(), is(true));
+    assertThat(replica.getEjections(), is(1L));
+    assertThat(router.candidates(), is(singletonList(primary)));
+  }
+
+  @Test
+  public void candidatesShouldFallBackToPrimaryWhenAllEjected() throws Exception {
+
+    router.failed(primary);
+    router.failed(primary);
+    router.failed(replica);
+    router.failed(replica);
+
+    assertThat(router.candidates(), is(singletonList(primary)));
+  }
+
+  @Test
+  public void successShouldResetConsecutiveFailures() throws Exception {
+
+    router.failed(replica);
+    router.succeeded(replica, 100);
+    router.failed(replica);
+
+    assertThat(replica.isEjected(), is(false));
+    assertThat(replica.getFailures(), is(2L));
+  }
+}
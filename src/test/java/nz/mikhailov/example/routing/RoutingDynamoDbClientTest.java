@@ -0,0 +1,142 @@
+package nz.mikhailov.example.routing;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoutingDynamoDbClientTest {
+
+  private final AmazonDynamoDB primary = mock(AmazonDynamoDB.class);
+  private final AmazonDynamoDB replica = mock(AmazonDynamoDB.class);
+  private final EndpointRouter router = new EndpointRouter();
+  private final GetItemRequest read = new GetItemRequest("Customer", singletonMap("Name", new AttributeValue("Olaf")));
+
+  private AmazonDynamoDB client;
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(router, "ewmaWeight", 0.2);
+    ReflectionTestUtils.setField(router, "ejectAfterFailures", 3);
+    ReflectionTestUtils.setField(router, "ejectionMillis", 60000L);
+    Map<String, AmazonDynamoDB> clients = new LinkedHashMap<>();
+    clients.put("http://primary", primary);
+    clients.put("http://replica", replica);
+    client = RoutingDynamoDbClient.create(clients, "http://primary", router);
+    router.succeeded(router.primary(), 5_000_000);
+  }
+
+  @Test
+  public void writesShouldGoToPrimary() throws Exception {
+
+    PutItemRequest write = new PutItemRequest().withTableName("Customer");
+
+    client.putItem(write);
+
+    verify(primary).putItem(write);
+    verify(replica, never()).putItem(any(PutItemRequest.class));
+    assertThat(router.primary().getPinned(), is(1L));
+  }
+
+  @Test
+  public void readsShouldGoToFastestEndpoint() throws Exception {
+
+    GetItemResult result = new GetItemResult();
+    when(replica.getItem(read)).thenReturn(result);
+
+    assertThat(client.getItem(read), is(sameInstance(result)));
+    verify(primary, never()).getItem(read);
+    assertThat(replica(router).getReads(), is(1L));
+  }
+
+  @Test
+  public void consistentReadsShouldGoToPrimary() throws Exception {
+
+    GetItemRequest consistentRead = read.clone().withConsistentRead(true);
+
+    client.getItem(consistentRead);
+
+    verify(primary).getItem(consistentRead);
+    verify(replica, never()).getItem(any(GetItemRequest.class));
+  }
+
+  @Test
+  public void scanPagesShouldAllGoToPrimary() throws Exception {
+
+    Map<String, AttributeValue> lastKey = singletonMap("Name", new AttributeValue("Olaf"));
+    ScanRequest firstPage = new ScanRequest("Customer");
+    ScanRequest nextPage = firstPage.clone().withExclusiveStartKey(lastKey);
+
+    client.scan(firstPage);
+    client.scan(nextPage);
+
+    verify(primary).scan(firstPage);
+    verify(primary).scan(nextPage);
+    verify(replica, never()).scan(any(ScanRequest.class));
+    assertThat(replica(router).getReads(), is(0L));
+  }
+
+  @Test
+  public void readsShouldFailOverWhenEndpointFails() throws Exception {
+
+    GetItemResult result = new GetItemResult();
+    when(replica.getItem(read)).thenThrow(new AmazonClientException("Simulated failure"));
+    when(primary.getItem(read)).thenReturn(result);
+
+    assertThat(client.getItem(read), is(sameInstance(result)));
+    assertThat(replica(router).getFailures(), is(1L));
+  }
+
+  @Test
+  public void readsShouldNotFailOverWhenRequestIsRejected() throws Exception {
+
+    AmazonServiceException rejection = new ResourceNotFoundException("Simulated rejection");
+    rejection.setErrorType(AmazonServiceException.ErrorType.Client);
+    when(replica.getItem(read)).thenThrow(rejection);
+
+    try {
+      client.getItem(read);
+      fail();
+    } catch (ResourceNotFoundException e) {
+      verify(primary, never()).getItem(read);
+      assertThat(replica(router).getFailures(), is(0L));
+    }
+  }
+
+  @Test
+  public void shutdownShouldShutDownAllClients() throws Exception {
+
+    client.shutdown();
+
+    verify(primary).shutdown();
+    verify(replica).shutdown();
+  }
+
+  private static EndpointStats replica(EndpointRouter router) {
+
+    return router.getEndpoints().get(1);
+  }
+}
@@ -0,0 +1,131 @@
+package nz.mikhailov.example.search;
+
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import nz.mikhailov.example.customer.CustomerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AddressIndexTest {
+
+  @Mock
+  private CustomerRepository repository;
+
+  @InjectMocks
+  private AddressIndex index;
+
+  @Before
+  public void setUp() throws Exception {
+
+    setField(index, "scanSegments", 2);
+    created("Arthur Conan Doyle", "Crowborough, United Kingdom");
+    created("Olaf Stapledon", "Seacombe, United Kingdom");
+    created("Arthur C. Clarke", "Colombo, Sri Lanka");
+  }
+
+  @Test
+  public void buildShouldIndexAddressesFromTableScan() throws Exception {
+
+    AddressIndex built = new AddressIndex();
+    setField(built, "repository", repository);
+    setField(built, "scanSegments", 2);
+    when(repository.scan(2, "Name", "Address")).thenReturn(asList(
+        new Customer().withName("Ray Bradbury").withAddress("Waukegan, Illinois")));
+    built.build();
+    assertThat(built.search("illinois", true, 10), contains("Ray Bradbury"));
+  }
+
+  @Test
+  public void buildShouldNotOverwriteChangesMadeWhileScanning() throws Exception {
+
+    AddressIndex built = new AddressIndex();
+    setField(built, "repository", repository);
+    setField(built, "scanSegments", 2);
+    Customer moved = new Customer().withName("Ray Bradbury").withAddress("Los Angeles, California");
+    Customer deleted = new Customer().withName("Olaf Stapledon").withAddress("Seacombe, United Kingdom");
+    when(repository.scan(2, "Name", "Address")).thenAnswer(invocation -> {
+      // the rows were read before these writes, which reach the index while the scan is still running
+      built.onCustomerEvent(CustomerEvent.updated(moved, null));
+      built.onCustomerEvent(CustomerEvent.deleted(deleted));
+      return asList(new Customer().withName("Ray Bradbury").withAddress("Waukegan, Illinois"), deleted,
+          new Customer().withName("Arthur C. Clarke").withAddress("Colombo, Sri Lanka"));
+    });
+    built.build();
+    assertThat(built.search("illinois", true, 10), is(empty()));
+    assertThat(built.search("california", true, 10), contains("Ray Bradbury"));
+    assertThat(built.search("seacombe", true, 10), is(empty()));
+    assertThat(built.search("colombo", true, 10), contains("Arthur C. Clarke"));
+
+    built.onCustomerEvent(CustomerEvent.created(deleted));
+    assertThat(built.search("seacombe", true, 10), contains("Olaf Stapledon"));
+  }
+
+  @Test
+  public void searchWithAndShouldReturnCustomersMatchingAllTerms() throws Exception {
+
+    assertThat(index.search("Seacombe United", true, 10), contains("Olaf Stapledon"));
+  }
+
+  @Test
+  public void searchWithAndShouldReturnNothingWhenAnyTermIsUnknown() throws Exception {
+
+    assertThat(index.search("Seacombe Atlantis", true, 10), is(empty()));
+  }
+
+  @Test
+  public void searchWithOrShouldReturnCustomersMatchingAnyTerm() throws Exception {
+
+    assertThat(index.search("crowborough sri atlantis", false, 10),
+        containsInAnyOrder("Arthur Conan Doyle", "Arthur C. Clarke"));
+  }
+
+  @Test
+  public void searchShouldIgnoreCaseAndPunctuation() throws Exception {
+
+    assertThat(index.search("KINGDOM!", true, 10), containsInAnyOrder("Arthur Conan Doyle", "Olaf Stapledon"));
+  }
+
+  @Test
+  public void searchShouldRespectLimit() throws Exception {
+
+    assertThat(index.search("kingdom", true, 1).size(), is(1));
+  }
+
+  @Test
+  public void updateShouldReplaceOldTerms() throws Exception {
+
+    Customer customer = new Customer().withName("Olaf Stapledon").withAddress("Caldy, Cheshire");
+    index.onCustomerEvent(CustomerEvent.updated(customer, null));
+    assertThat(index.search("seacombe", true, 10), is(empty()));
+    assertThat(index.search("cheshire", true, 10), contains("Olaf Stapledon"));
+  }
+
+  @Test
+  public void deleteShouldRemoveCustomerFromResultsAndFreeIdentifiersForReuse() throws Exception {
+
+    index.onCustomerEvent(CustomerEvent.deleted(new Customer().withName("Arthur C. Clarke")));
+    assertThat(index.search("colombo", true, 10), is(empty()));
+    created("Ray Bradbury", "Colombo, Ohio");
+    assertThat(index.search("colombo", true, 10), contains("Ray Bradbury"));
+    assertThat(index.size(), is(3));
+  }
+
+  private void created(String name, String address) {
+
+    index.onCustomerEvent(CustomerEvent.created(new Customer().withName(name).withAddress(address)));
+  }
+}
@@ -0,0 +1,57 @@
+package nz.mikhailov.example.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+public class IntPostingsTest {
+
+  @Test
+  public void addShouldKeepIdentifiersSortedAndUnique() throws Exception {
+
+    assertThat(toList(postings(7, 3, 5, 3, 1)), contains(1, 3, 5, 7));
+  }
+
+  @Test
+  public void removeShouldDropIdentifier() throws Exception {
+
+    IntPostings postings = postings(1, 2, 3);
+    postings.remove(2);
+    postings.remove(4);
+    assertThat(toList(postings), contains(1, 3));
+  }
+
+  @Test
+  public void intersectShouldKeepCommonIdentifiers() throws Exception {
+
+    assertThat(toList(postings(1, 3, 5, 7).intersect(postings(2, 3, 7, 9))), contains(3, 7));
+  }
+
+  @Test
+  public void unionShouldMergeIdentifiers() throws Exception {
+
+    assertThat(toList(postings(1, 3, 7).union(postings(2, 3, 9))), contains(1, 2, 3, 7, 9));
+  }
+
+  private IntPostings postings(int... ids) {
+
+    IntPostings postings = new IntPostings();
+    for (int id : ids) {
+      postings.add(id);
+    }
+    return postings;
+  }
+
+  private List<Integer> toList(IntPostings postings) {
+
+    List<Integer> result = new ArrayList<>();
+    for (int i = 0; i < postings.size(); i++) {
+      result.add(postings.get(i));
+    }
+    return result;
+  }
+}
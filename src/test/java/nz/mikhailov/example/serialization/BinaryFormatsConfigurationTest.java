@@ -0,0 +1,79 @@
+package nz.mikhailov.example.serialization;
+
+import nz.mikhailov.example.customer.Customer;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class BinaryFormatsConfigurationTest {
+
+  private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+  }.getType();
+
+  private final List<HttpMessageConverter<?>> converters = new ArrayList<>();
+
+  private final List<Customer> customers = asList(
+      new Customer().withName("Arthur Conan Doyle").withAddress("Crowborough, United Kingdom").withPhoneNumber("+440000000"),
+      new Customer().withName("Arthur C. Clarke").withAddress("Colombo, Sri Lanka"));
+
+  @Before
+  public void setUp() throws Exception {
+
+    converters.add(new MappingJackson2HttpMessageConverter());
+    BinaryFormatsConfiguration configuration = new BinaryFormatsConfiguration();
+    setField(configuration, "objectMapperBuilder", new Jackson2ObjectMapperBuilder());
+    configuration.extendMessageConverters(converters);
+  }
+
+  @Test
+  public void binaryConvertersShouldBeAppendedAfterJson() throws Exception {
+
+    assertThat(converters.size(), is(3));
+    assertThat(converters.get(0), is(instanceOf(MappingJackson2HttpMessageConverter.class)));
+    assertThat(converters.get(1).getSupportedMediaTypes(), contains(BinaryFormatsConfiguration.APPLICATION_SMILE));
+    assertThat(converters.get(2).getSupportedMediaTypes(), contains(BinaryFormatsConfiguration.APPLICATION_CBOR));
+  }
+
+  @Test
+  public void binaryConvertersShouldRoundTripCustomerListsInFewerBytesThanJson() throws Exception {
+
+    byte[] json = write(converter(0));
+    for (int i = 1; i < converters.size(); i++) {
+      byte[] binary = write(converter(i));
+      assertThat(binary.length, is(lessThan(json.length)));
+      Object result = converter(i).read(CUSTOMER_LIST, null, new MockHttpInputMessage(binary));
+      assertThat(result, is(customers));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private GenericHttpMessageConverter<Object> converter(int index) {
+
+    return (GenericHttpMessageConverter<Object>) converters.get(index);
+  }
+
+  private byte[] write(GenericHttpMessageConverter<Object> converter) throws Exception {
+
+    MockHttpOutputMessage message = new MockHttpOutputMessage();
+    converter.write(customers, CUSTOMER_LIST, converter.getSupportedMediaTypes().get(0), message);
+    return message.getBodyAsBytes();
+  }
+}
@@ -0,0 +1,112 @@
+package nz.mikhailov.example.serialization;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerItems;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CustomerItemsSerializerTest {
+
+  private final CustomerItemsSerializer serializer = new CustomerItemsSerializer();
+
+  @Test
+  public void serializeShouldWriteSameJsonAsCustomers() throws Exception {
+
+    Map<String, AttributeValue> doyle = new HashMap<>();
+    doyle.put("Name", new AttributeValue("Arthur Conan Doyle"));
+    doyle.put("Address", new AttributeValue("Crowborough, United Kingdom"));
+    doyle.put("PhoneNumber", new AttributeValue("+440000000"));
+    Map<String, AttributeValue> clarke = singletonMap("Name", new AttributeValue("Arthur C. Clarke"));
+    List<Customer> customers = asList(
+        new Customer().withName("Arthur Conan Doyle").withAddress("Crowborough, United Kingdom").withPhoneNumber("+440000000"),
+        new Customer().withName("Arthur C. Clarke"));
+
+    String result = objectMapper(new ObjectMapper()).writeValueAsString(items(doyle, clarke));
+
+    assertThat(result, is(new ObjectMapper().writeValueAsString(customers)));
+  }
+
+  @Test
+  public void serializeShouldDecodeCompactItems() throws Exception {
+
+    Map<String, AttributeValue> doyle = new HashMap<>();
+    doyle.put("Name", new AttributeValue("Arthur Conan Doyle"));
+    doyle.put("a", new AttributeValue("Crowborough, United Kingdom"));
+    doyle.put("p", new AttributeValue("+440000000"));
+
+    String result = objectMapper(new ObjectMapper()).writeValueAsString(items(doyle));
+
+    assertThat(result, is(new ObjectMapper().writeValueAsString(asList(new Customer()
+        .withName("Arthur Conan Doyle").withAddress("Crowborough, United Kingdom").withPhoneNumber("+440000000")))));
+  }
+
+  @Test
+  public void serializeShouldWriteEmptyArrayForNoItems() throws Exception {
+
+    String result = objectMapper(new ObjectMapper()).writeValueAsString(items());
+
+    assertThat(result, is("[]"));
+  }
+
+  @Test
+  public void serializeShouldWriteBinaryFormatsReadableAsCustomers() throws Exception {
+
+    ObjectMapper smile = objectMapper(new ObjectMapper(new SmileFactory()));
+    byte[] result = smile.writeValueAsBytes(items(singletonMap("Name", new AttributeValue("Olaf Stapledon"))));
+
+    List<Customer> customers = smile.readValue(result, new TypeReference<List<Customer>>() {
+    });
+    assertThat(customers, is(asList(new Customer().withName("Olaf Stapledon"))));
+  }
+
+  @Test
+  public void serializeShouldLeaveArrayUnterminatedWhenPageFailsToLoad() throws Exception {
+
+    Iterator<Map<String, AttributeValue>> failing = mock(Iterator.class);
+    when(failing.hasNext()).thenReturn(true).thenThrow(new AmazonClientException("Simulated failure"));
+    when(failing.next()).thenReturn(singletonMap("Name", new AttributeValue("Olaf Stapledon")));
+    CustomerItems items = mock(CustomerItems.class);
+    when(items.iterator()).thenReturn(failing);
+    StringWriter result = new StringWriter();
+
+    try {
+      objectMapper(new ObjectMapper()).writeValue(result, items);
+      fail();
+    } catch (JsonMappingException e) {
+      assertThat(result.toString(), is("[{\"name\":\"Olaf Stapledon\",\"address\":null,\"phoneNumber\":null}"));
+    }
+  }
+
+  private ObjectMapper objectMapper(ObjectMapper objectMapper) {
+
+    return objectMapper.registerModule(new SimpleModule().addSerializer(serializer));
+  }
+
+  @SafeVarargs
+  private final CustomerItems items(Map<String, AttributeValue>... items) {
+
+    CustomerItems customerItems = mock(CustomerItems.class);
+    when(customerItems.iterator()).thenReturn(asList(items).iterator());
+    return customerItems;
+  }
+}
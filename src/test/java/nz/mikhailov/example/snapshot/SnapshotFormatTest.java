@@ -0,0 +1,107 @@
+package nz.mikhailov.example.snapshot;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotFormatTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readerShouldReturnItemsAsWritten() throws Exception {
+
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      items.add(item("Customer " + i, "Straße " + i));
+    }
+    Path file = write(items, items.size());
+
+    List<Map<String, AttributeValue>> read = new ArrayList<>();
+    // a window smaller than the file makes the reader map it piece by piece
+    try (SnapshotFormat.Reader reader = new SnapshotFormat.Reader(file, 256)) {
+      Map<String, AttributeValue> item;
+      while ((item = reader.next()) != null) {
+        read.add(item);
+      }
+      assertThat(reader.getItemCount(), is(100L));
+      assertThat(reader.position(), is(reader.size()));
+      assertThat(reader.next(), is(nullValue()));
+    }
+
+    assertThat(read, is(items));
+  }
+
+  @Test(expected = IOException.class)
+  public void readerShouldRejectTruncatedFile() throws Exception {
+
+    Path file = write(Arrays.asList(item("Alice", "1 Main Street"), item("Bob", "2 Main Street")), 2);
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 20));
+
+    try (SnapshotFormat.Reader reader = new SnapshotFormat.Reader(file)) {
+      while (reader.next() != null) {
+        // read to the end
+      }
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void readerShouldRejectOtherFiles() throws Exception {
+
+    Path file = folder.newFile().toPath();
+    Files.write(file, "Name,Address\nAlice,1 Main Street\n".getBytes("UTF-8"));
+
+    new SnapshotFormat.Reader(file).close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void encodeShouldRejectUnsupportedTypes() {
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue("Alice"));
+    item.put("Tags", new AttributeValue().withSS("a", "b"));
+
+    SnapshotFormat.encode(item);
+  }
+
+  private Path write(List<Map<String, AttributeValue>> items, long itemCount) throws IOException {
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    SnapshotFormat.writeHeader(output);
+    for (Map<String, AttributeValue> item : items) {
+      output.write(SnapshotFormat.encode(item));
+    }
+    SnapshotFormat.writeTrailer(output, itemCount);
+    Path file = folder.newFile().toPath();
+    Files.write(file, output.toByteArray());
+    return file;
+  }
+
+  private static Map<String, AttributeValue> item(String name, String address) {
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue(name));
+    item.put("Address", new AttributeValue(address));
+    item.put("Version", new AttributeValue().withN("3"));
+    item.put("p", new AttributeValue().withB(ByteBuffer.wrap(name.getBytes())));
+    return item;
+  }
+}
@@ -0,0 +1,192 @@
+package nz.mikhailov.example.snapshot;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.search.AddressIndex;
+import nz.mikhailov.example.snapshot.SnapshotProgress.Operation;
+import nz.mikhailov.example.snapshot.SnapshotProgress.State;
+import nz.mikhailov.example.statistics.CustomerStatistics;
+import nz.mikhailov.example.suggest.CustomerNameIndex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SnapshotServiceTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private AmazonDynamoDB dynamoDB;
+
+  @Mock
+  private DynamoDBMapper dbMapper;
+
+  @Mock
+  private CustomerNameIndex nameIndex;
+
+  @Mock
+  private AddressIndex addressIndex;
+
+  @Mock
+  private CustomerStatistics statistics;
+
+  private final SnapshotService service = new SnapshotService();
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(service, "directory", folder.getRoot().getPath());
+    ReflectionTestUtils.setField(service, "segments", 2);
+    ReflectionTestUtils.setField(service, "readCapacityPerSecond", 1000.0);
+    ReflectionTestUtils.setField(service, "restoreThreads", 2);
+    ReflectionTestUtils.setField(service, "writeCapacityPerSecond", 1000.0);
+    ReflectionTestUtils.setField(service, "dynamoDB", dynamoDB);
+    ReflectionTestUtils.setField(service, "dbMapper", dbMapper);
+    ReflectionTestUtils.setField(service, "nameIndex", nameIndex);
+    ReflectionTestUtils.setField(service, "addressIndex", addressIndex);
+    ReflectionTestUtils.setField(service, "statistics", statistics);
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest().withTableName("Customer"));
+    when(dynamoDB.describeTable("Customer"))
+        .thenReturn(new DescribeTableResult().withTable(new TableDescription().withTableSizeBytes(1000L)));
+    when(dynamoDB.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(new BatchWriteItemResult());
+  }
+
+  @Test
+  public void snapshotAndRestoreShouldWriteBackEveryScannedItem() throws Exception {
+
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      items.add(item("Customer " + i));
+    }
+    when(dynamoDB.scan(any(ScanRequest.class))).thenAnswer(invocation -> {
+      ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+      List<Map<String, AttributeValue>> segment = new ArrayList<>();
+      for (int i = request.getSegment(); i < items.size(); i += request.getTotalSegments()) {
+        segment.add(items.get(i));
+      }
+      return new ScanResult().withItems(segment).withCount(segment.size());
+    });
+
+    SnapshotProgress snapshot = runToEnd(() -> service.snapshot("daily"));
+
+    assertThat(snapshot.getOperation(), is(Operation.SNAPSHOT));
+    assertThat(snapshot.getState(), is(State.COMPLETED));
+    assertThat(snapshot.getItems(), is(30L));
+    assertThat(snapshot.getTotalBytes(), is(1000L));
+    assertThat(snapshot.getBytes(), is(new File(folder.getRoot(), "daily.snapshot").length()));
+    assertThat(new File(folder.getRoot(), "daily.snapshot.tmp").exists(), is(false));
+
+    SnapshotProgress restore = runToEnd(() -> service.restore("daily").get());
+
+    assertThat(restore.getOperation(), is(Operation.RESTORE));
+    assertThat(restore.getState(), is(State.COMPLETED));
+    assertThat(restore.getItems(), is(30L));
+    assertThat(restore.getBytes(), is(restore.getTotalBytes()));
+    ArgumentCaptor<BatchWriteItemRequest> writes = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+    verify(dynamoDB, times(2)).batchWriteItem(writes.capture());
+    Set<Map<String, AttributeValue>> restored = new HashSet<>();
+    for (BatchWriteItemRequest write : writes.getAllValues()) {
+      for (WriteRequest request : write.getRequestItems().get("Customer")) {
+        restored.add(request.getPutRequest().getItem());
+      }
+    }
+    assertThat(restored, is(new HashSet<>(items)));
+    verify(nameIndex).build();
+    verify(addressIndex).build();
+    verify(statistics).reconcile();
+  }
+
+  @Test
+  public void failedSnapshotShouldKeepPreviousSnapshot() throws Exception {
+
+    when(dynamoDB.scan(any(ScanRequest.class)))
+        .thenReturn(new ScanResult().withItems(item("Alice")).withCount(1));
+    ReflectionTestUtils.setField(service, "segments", 1);
+    runToEnd(() -> service.snapshot("daily"));
+    File snapshot = new File(folder.getRoot(), "daily.snapshot");
+    long size = snapshot.length();
+    Map<String, AttributeValue> unsupported = item("Bob");
+    unsupported.put("Tags", new AttributeValue().withSS("a"));
+    when(dynamoDB.scan(any(ScanRequest.class)))
+        .thenReturn(new ScanResult().withItems(unsupported).withCount(1));
+
+    SnapshotProgress progress = runToEnd(() -> service.snapshot("daily"));
+
+    assertThat(progress.getState(), is(State.FAILED));
+    assertThat(snapshot.length(), is(size));
+    assertThat(new File(folder.getRoot(), "daily.snapshot.tmp").exists(), is(false));
+  }
+
+  @Test
+  public void restoreShouldNotFindMissingSnapshot() {
+
+    assertThat(service.restore("missing").isPresent(), is(false));
+    assertThat(service.getProgress("missing").isPresent(), is(false));
+    verify(dynamoDB, never()).batchWriteItem(any(BatchWriteItemRequest.class));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void snapshotShouldRejectNamesOutsideDirectory() {
+
+    service.snapshot("../daily");
+  }
+
+  private SnapshotProgress runToEnd(StartedOperation operation) throws InterruptedException {
+
+    String name = operation.start().getSnapshot();
+    long deadline = System.currentTimeMillis() + 10000;
+    SnapshotProgress progress = service.getProgress(name).get();
+    while (progress.getState() == State.RUNNING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      progress = service.getProgress(name).get();
+    }
+    return progress;
+  }
+
+  private static Map<String, AttributeValue> item(String name) {
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", new AttributeValue(name));
+    item.put("Address", new AttributeValue("1 Main Street"));
+    return item;
+  }
+
+  private interface StartedOperation {
+
+    SnapshotProgress start();
+  }
+}
@@ -0,0 +1,54 @@
+package nz.mikhailov.example.startup;
+
+import nz.mikhailov.example.statistics.CustomerStatistics;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LazyInitialisationPostProcessorTest {
+
+  private final LazyInitialisationPostProcessor postProcessor = new LazyInitialisationPostProcessor();
+  private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+  @Test
+  public void postProcessShouldMarkApplicationBeansLazy() {
+
+    postProcess("true");
+
+    assertThat(beanFactory.getBeanDefinition("startupTasks").isLazyInit(), is(true));
+  }
+
+  @Test
+  public void postProcessShouldKeepFrameworkAndScheduledBeansEager() {
+
+    postProcess("true");
+
+    assertThat(beanFactory.getBeanDefinition("customerStatistics").isLazyInit(), is(false));
+    assertThat(beanFactory.getBeanDefinition("environment").isLazyInit(), is(false));
+  }
+
+  @Test
+  public void postProcessShouldKeepAllBeansEagerByDefault() {
+
+    postProcess(null);
+
+    assertThat(beanFactory.getBeanDefinition("startupTasks").isLazyInit(), is(false));
+  }
+
+  private void postProcess(String lazyInitialisation) {
+
+    beanFactory.registerBeanDefinition("startupTasks", new RootBeanDefinition(StartupTasks.class));
+    beanFactory.registerBeanDefinition("customerStatistics", new RootBeanDefinition(CustomerStatistics.class));
+    beanFactory.registerBeanDefinition("environment", new RootBeanDefinition(MockEnvironment.class));
+    MockEnvironment environment = new MockEnvironment();
+    if (lazyInitialisation != null) {
+      environment.setProperty("startup.lazyInitialisation", lazyInitialisation);
+    }
+    postProcessor.setEnvironment(environment);
+    postProcessor.postProcessBeanFactory(beanFactory);
+  }
+}
@@ -0,0 +1,70 @@
+package nz.mikhailov.example.startup;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StartupTasksTest {
+
+  private final StartupTasks startupTasks = new StartupTasks();
+
+  @After
+  public void tearDown() {
+
+    startupTasks.shutdown();
+  }
+
+  @Test
+  public void runShouldRunTaskInlineByDefault() {
+
+    List<String> completed = new ArrayList<>();
+
+    startupTasks.run("task", () -> completed.add("task"));
+
+    assertThat(completed, is(asList("task")));
+    assertThat(startupTasks.isComplete(), is(true));
+  }
+
+  @Test
+  public void runShouldRunTasksInOrderInBackgroundWhenAsync() throws Exception {
+
+    ReflectionTestUtils.setField(startupTasks, "async", true);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> completed = new ArrayList<>();
+
+    startupTasks.run("first", () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      completed.add("first");
+    });
+    startupTasks.run("second", () -> completed.add("second"));
+
+    assertThat(startupTasks.isComplete(), is(false));
+    release.countDown();
+    assertThat(startupTasks.awaitCompletion(5000), is(true));
+    assertThat(completed, is(asList("first", "second")));
+  }
+
+  @Test
+  public void runShouldCompleteFailedTasksWhenAsync() throws Exception {
+
+    ReflectionTestUtils.setField(startupTasks, "async", true);
+
+    startupTasks.run("failing", () -> {
+      throw new IllegalStateException("failed");
+    });
+
+    assertThat(startupTasks.awaitCompletion(5000), is(true));
+  }
+}
@@ -0,0 +1,86 @@
+package nz.mikhailov.example.startup;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WarmUpTest {
+
+  @Mock
+  private AmazonDynamoDB dynamoDB;
+
+  @Mock
+  private DynamoDBMapper dbMapper;
+
+  @Mock
+  private CustomerRepository repository;
+
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  @InjectMocks
+  private WarmUp warmUp;
+
+  @Before
+  public void setUp() throws Exception {
+
+    ReflectionTestUtils.setField(warmUp, "connections", 3);
+    ReflectionTestUtils.setField(warmUp, "iterations", 5);
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest().withTableName("Customer"));
+    when(dbMapper.marshallIntoObject(eq(Customer.class), anyMap())).thenReturn(new Customer().withName("Warm-up Customer"));
+  }
+
+  @Test
+  public void warmUpShouldOpenConnectionsAndExerciseMapping() throws Exception {
+
+    warmUp.warmUp(8080);
+
+    verify(dynamoDB, times(3)).describeTable("Customer");
+    verify(dbMapper, times(5)).marshallIntoObject(eq(Customer.class), anyMap());
+    verify(objectMapper, times(5)).readValue(any(byte[].class), eq(Customer.class));
+    verify(repository, never()).scan(anyInt(), (String[]) anyVararg());
+    assertThat(warmUp.isComplete(), is(true));
+  }
+
+  @Test
+  public void warmUpShouldCompleteWhenDynamoDbIsUnavailable() throws Exception {
+
+    when(dynamoDB.describeTable("Customer")).thenThrow(new AmazonClientException("Simulated failure"));
+
+    warmUp.warmUp(8080);
+
+    verify(dbMapper, never()).marshallIntoObject(eq(Customer.class), anyMap());
+    assertThat(warmUp.isComplete(), is(true));
+  }
+
+  @Test
+  public void warmUpShouldNotBeCompleteBeforeRunning() throws Exception {
+
+    assertThat(warmUp.isComplete(), is(false));
+  }
+}
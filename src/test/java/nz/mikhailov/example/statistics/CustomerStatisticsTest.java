@@ -0,0 +1,166 @@
+package nz.mikhailov.example.statistics;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import nz.mikhailov.example.changes.DynamoDbStreamChangeSource;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CustomerStatisticsTest {
+
+  @Mock
+  private AmazonDynamoDB dynamoDB;
+
+  @Mock
+  private DynamoDBMapper dbMapper;
+
+  @Mock
+  private DynamoDbStreamChangeSource streamSource;
+
+  @InjectMocks
+  private CustomerStatistics statistics;
+
+  @Before
+  public void setUp() throws Exception {
+
+    setField(statistics, "scanSegments", 2);
+    when(dbMapper.generateCreateTableRequest(Customer.class)).thenReturn(new CreateTableRequest().withTableName("Customer"));
+  }
+
+  @Test
+  public void writesShouldMaintainCountAndSize() throws Exception {
+
+    Customer customer = new Customer().withName("Olaf").withAddress("Seacombe");
+    statistics.onCustomerEvent(CustomerEvent.created(customer));
+    statistics.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray")));
+    assertThat(statistics.getStatistics().getItemCount(), is(2L));
+    assertThat(statistics.getStatistics().getApproximateSizeBytes(), is(8L + 15L + 7L));
+
+    Customer updated = new Customer().withName("Olaf").withAddress("Seacombe").withPhoneNumber("000");
+    statistics.onCustomerEvent(CustomerEvent.updated(updated, customer));
+    assertThat(statistics.getStatistics().getApproximateSizeBytes(), is(8L + 15L + 14L + 7L));
+
+    statistics.onCustomerEvent(CustomerEvent.deleted(updated));
+    assertThat(statistics.getStatistics().getItemCount(), is(1L));
+    assertThat(statistics.getStatistics().getApproximateSizeBytes(), is(7L));
+    assertThat(statistics.getStatistics().getAverageItemSizeBytes(), is(7L));
+  }
+
+  @Test
+  public void localWritesShouldBeIgnoredWhenStreamIsTheChangeSource() throws Exception {
+
+    when(streamSource.isActive()).thenReturn(true);
+    Customer customer = new Customer().withName("Ray");
+    statistics.onCustomerEvent(CustomerEvent.created(customer));
+    assertThat(statistics.getStatistics().getItemCount(), is(0L));
+    statistics.onCustomerEvent(new CustomerEvent(CustomerEvent.Type.CREATED, "Ray", customer, null, false));
+    assertThat(statistics.getStatistics().getItemCount(), is(1L));
+  }
+
+  @Test
+  public void reconcileShouldCountAllSegmentsAndExtrapolateSize() throws Exception {
+
+    when(dynamoDB.scan(argThat(isSegmentPage(0, false)))).thenReturn(new ScanResult().withCount(3)
+        .withLastEvaluatedKey(singletonMap("Name", new AttributeValue("Ray"))));
+    when(dynamoDB.scan(argThat(isSegmentPage(0, true)))).thenReturn(new ScanResult().withCount(2));
+    when(dynamoDB.scan(argThat(isSegmentPage(1, false)))).thenReturn(new ScanResult().withCount(5));
+    when(dynamoDB.describeTable("Customer")).thenReturn(new DescribeTableResult()
+        .withTable(new TableDescription().withItemCount(4L).withTableSizeBytes(400L)));
+    statistics.reconcile();
+    TableStatistics result = statistics.getStatistics();
+    assertThat(result.getItemCount(), is(10L));
+    assertThat(result.getApproximateSizeBytes(), is(1000L));
+    assertThat(result.getAverageItemSizeBytes(), is(100L));
+  }
+
+  @Test
+  public void reconcileShouldCountOnlyAndKeepSizeWhenTableDescriptionHasNoItemsYet() throws Exception {
+
+    statistics.onCustomerEvent(CustomerEvent.created(new Customer().withName("Olaf").withAddress("Seacombe")));
+    when(dynamoDB.scan(argThat(isSegmentPage(0, false)))).thenReturn(new ScanResult().withCount(2));
+    when(dynamoDB.scan(argThat(isSegmentPage(1, false)))).thenReturn(new ScanResult().withCount(1));
+    when(dynamoDB.describeTable("Customer")).thenReturn(new DescribeTableResult()
+        .withTable(new TableDescription().withItemCount(0L).withTableSizeBytes(0L)));
+    statistics.reconcile();
+    TableStatistics result = statistics.getStatistics();
+    assertThat(result.getItemCount(), is(3L));
+    assertThat(result.getApproximateSizeBytes(), is(8L + 15L));
+    verify(dynamoDB, never()).scan(argThat(selects(Select.ALL_ATTRIBUTES)));
+  }
+
+  @Test
+  public void reconcileShouldKeepCountersWhenTableCannotBeRead() throws Exception {
+
+    statistics.onCustomerEvent(CustomerEvent.created(new Customer().withName("Ray")));
+    when(dynamoDB.describeTable("Customer")).thenReturn(new DescribeTableResult()
+        .withTable(new TableDescription().withItemCount(4L).withTableSizeBytes(400L)));
+    when(dynamoDB.scan(any(ScanRequest.class))).thenThrow(new ProvisionedThroughputExceededException("Simulated failure"));
+    statistics.reconcile();
+    assertThat(statistics.getStatistics().getItemCount(), is(1L));
+    assertThat(statistics.getStatistics().getReconciledAt(), is(0L));
+  }
+
+  private Matcher<ScanRequest> selects(Select select) {
+
+    return new TypeSafeMatcher<ScanRequest>() {
+
+      @Override
+      protected boolean matchesSafely(ScanRequest item) {
+
+        return select.toString().equals(item.getSelect());
+      }
+
+      @Override
+      public void describeTo(Description description) {
+
+        description.appendText("scan selecting ").appendValue(select);
+      }
+    };
+  }
+
+  private Matcher<ScanRequest> isSegmentPage(int segment, boolean continuation) {
+
+    return new TypeSafeMatcher<ScanRequest>() {
+
+      @Override
+      protected boolean matchesSafely(ScanRequest item) {
+
+        return item.getSegment() == segment && (item.getExclusiveStartKey() != null) == continuation;
+      }
+
+      @Override
+      public void describeTo(Description description) {
+
+        description.appendText("scan of segment ").appendValue(segment);
+      }
+    };
+  }
+}
@@ -0,0 +1,137 @@
+package nz.mikhailov.example.suggest;
+
+import com.amazonaws.AmazonClientException;
+import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.customer.CustomerEvent;
+import nz.mikhailov.example.customer.CustomerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CustomerNameIndexTest {
+
+  @Mock
+  private CustomerRepository repository;
+
+  @InjectMocks
+  private CustomerNameIndex index;
+
+  @Before
+  public void setUp() throws Exception {
+
+    setField(index, "maxEntries", 10);
+    setField(index, "scanSegments", 2);
+  }
+
+  @Test
+  public void buildShouldIndexNamesFromTableScan() throws Exception {
+
+    when(repository.scan(2, "Name")).thenReturn(asList(
+        new Customer().withName("Arthur Conan Doyle"),
+        new Customer().withName("Arthur C. Clarke"),
+        new Customer().withName("Olaf Stapledon")));
+    index.build();
+    assertThat(index.suggest("arthur", 10), contains("Arthur C. Clarke", "Arthur Conan Doyle"));
+  }
+
+  @Test
+  public void buildShouldLeaveIndexEmptyWhenScanFails() throws Exception {
+
+    when(repository.scan(2, "Name")).thenThrow(new AmazonClientException("Simulated failure"));
+    index.build();
+    assertThat(index.size(), is(0));
+  }
+
+  @Test
+  public void suggestShouldMatchPrefixCaseInsensitively() throws Exception {
+
+    created("ab", "AB", "Abc", "abd", "b");
+    assertThat(index.suggest("aB", 10), contains("AB", "ab", "Abc", "abd"));
+  }
+
+  @Test
+  public void suggestShouldRespectLimit() throws Exception {
+
+    created("Ray Bradbury", "Ray Cummings", "Raymond Chandler");
+    assertThat(index.suggest("Ray", 2), contains("Ray Bradbury", "Ray Cummings"));
+  }
+
+  @Test
+  public void suggestShouldReturnEmptyListWhenNothingMatches() throws Exception {
+
+    created("Ray Bradbury");
+    List<String> result = index.suggest("Stanislaw", 10);
+    assertThat(result, is(empty()));
+  }
+
+  @Test
+  public void deletedNamesShouldNoLongerBeSuggested() throws Exception {
+
+    created("Ray Bradbury", "Ray Cummings");
+    index.onCustomerEvent(CustomerEvent.deleted(new Customer().withName("Ray Bradbury")));
+    assertThat(index.suggest("Ray", 10), contains("Ray Cummings"));
+  }
+
+  @Test
+  public void indexShouldStopGrowingAtMaxEntries() throws Exception {
+
+    setField(index, "maxEntries", 2);
+    created("a", "b", "c");
+    assertThat(index.size(), is(2));
+  }
+
+  @Test
+  public void changesAfterBuildShouldBeSuggestedAlongsideScannedNames() throws Exception {
+
+    when(repository.scan(2, "Name")).thenReturn(asList(
+        new Customer().withName("Ray Cummings"),
+        new Customer().withName("Ray Bradbury")));
+    index.build();
+    created("Ray Aldridge", "Ray Nelson");
+    index.onCustomerEvent(CustomerEvent.deleted(new Customer().withName("Ray Cummings")));
+    assertThat(index.suggest("ray", 10), contains("Ray Aldridge", "Ray Bradbury", "Ray Nelson"));
+    assertThat(index.size(), is(3));
+  }
+
+  @Test
+  public void indexShouldStayConsistentAcrossOverlayMerges() throws Exception {
+
+    setField(index, "maxEntries", 100000);
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      String name = String.format("Customer %05d", i);
+      created(name);
+      if (i % 3 == 0) {
+        index.onCustomerEvent(CustomerEvent.deleted(new Customer().withName(name)));
+      } else {
+        expected.add(name);
+      }
+    }
+    created(expected.get(0), expected.get(1));
+    assertThat(index.size(), is(expected.size()));
+    assertThat(index.suggest("customer 0", 5), is(expected.subList(0, 5)));
+    assertThat(index.suggest("CUSTOMER", 10000), is(expected));
+  }
+
+  private void created(String... names) {
+
+    for (String name : names) {
+      index.onCustomerEvent(CustomerEvent.created(new Customer().withName(name)));
+    }
+  }
+}
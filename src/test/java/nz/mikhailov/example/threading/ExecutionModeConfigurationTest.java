@@ -0,0 +1,69 @@
+package nz.mikhailov.example.threading;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.context.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+public class ExecutionModeConfigurationTest {
+
+  private final ExecutionModeConfiguration configuration = new ExecutionModeConfiguration();
+  private final TomcatEmbeddedServletContainerFactory container = new TomcatEmbeddedServletContainerFactory();
+
+  @After
+  public void tearDown() throws Exception {
+
+    configuration.shutdown();
+  }
+
+  @Test
+  public void platformModeShouldKeepTomcatWorkerPool() throws Exception {
+
+    setField(configuration, "mode", ExecutionModeConfiguration.PLATFORM);
+    configuration.customize(container);
+    assertThat(container.getTomcatConnectorCustomizers(), is(empty()));
+  }
+
+  @Test
+  public void virtualModeShouldFallBackToPlatformThreadsBeforeJava21() throws Exception {
+
+    assumeFalse(VirtualThreads.isSupported());
+    setField(configuration, "mode", ExecutionModeConfiguration.VIRTUAL);
+    configuration.customize(container);
+    assertThat(container.getTomcatConnectorCustomizers(), is(empty()));
+  }
+
+  @Test
+  public void virtualModeShouldRunConnectorOnVirtualThreads() throws Exception {
+
+    assumeTrue(VirtualThreads.isSupported());
+    setField(configuration, "mode", ExecutionModeConfiguration.VIRTUAL);
+    configuration.customize(container);
+    Connector connector = new Connector(TomcatEmbeddedServletContainerFactory.DEFAULT_PROTOCOL);
+    for (TomcatConnectorCustomizer customizer : container.getTomcatConnectorCustomizers()) {
+      customizer.customize(connector);
+    }
+    Executor executor = ((AbstractProtocol<?>) connector.getProtocolHandler()).getExecutor();
+    assertThat(executor, is(notNullValue()));
+    AtomicReference<String> threadName = new AtomicReference<>();
+    executor.execute(() -> threadName.set(Thread.currentThread().getName()));
+    ((ExecutorService) executor).shutdown();
+    ((ExecutorService) executor).awaitTermination(1, TimeUnit.SECONDS);
+    assertThat(threadName.get(), is("http-virtual-0"));
+  }
+}
@@ -0,0 +1,78 @@
+package nz.mikhailov.example.tracing;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+public class DynamoDbTracingTest {
+
+  private Tracer tracer;
+  private final DynamoDbTracing tracing = new DynamoDbTracing();
+
+  @Before
+  public void setUp() throws Exception {
+
+    tracer = new Tracer(0, 10, "");
+    ReflectionTestUtils.setField(tracing, "tracer", tracer);
+  }
+
+  @Test
+  public void callShouldBeTracedWithItsAttemptsAndConsumedCapacity() {
+
+    String id = tracer.begin("GET", "/v1/customer/Jane");
+    GetItemRequest getItem = (GetItemRequest) tracing.beforeMarshalling(new GetItemRequest());
+    AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+    metrics.startEvent(Field.RequestMarshallTime);
+    metrics.endEvent(Field.RequestMarshallTime);
+    metrics.startEvent(Field.HttpRequestTime);
+    metrics.endEvent(Field.HttpRequestTime);
+    metrics.incrementCounter(Field.ThrottleException);
+    metrics.startEvent(Field.RetryPauseTime);
+    metrics.endEvent(Field.RetryPauseTime);
+    metrics.startEvent(Field.HttpRequestTime);
+    metrics.endEvent(Field.HttpRequestTime);
+    metrics.setCounter(Field.RequestCount, 2);
+    DefaultRequest<GetItemRequest> request = new DefaultRequest<>(getItem, "AmazonDynamoDBv2");
+    request.setAWSRequestMetrics(metrics);
+    tracing.afterResponse(request, new Response<>(new GetItemResult()
+        .withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(0.5)), null));
+    tracer.end("/v1/customer/{name}", 200);
+
+    assertThat(getItem.getReturnConsumedCapacity(), is("TOTAL"));
+    List<Span> spans = tracer.getSlowTrace(id).get().getSpans();
+    assertThat(spans.stream().map(Span::getName).collect(toList()),
+        contains("DynamoDB.GetItem", "marshall", "http", "http", "retry-pause"));
+    assertThat(spans.get(0).getAttributes().get("attempts"), is(2L));
+    assertThat(spans.get(0).getAttributes().get("throttled"), is(1L));
+    assertThat(spans.get(0).getAttributes().get("consumedCapacity"), is(0.5));
+    assertThat(spans.get(3).getAttributes().get("attempt"), is(2));
+    assertThat(spans.get(3).getDepth(), is(1));
+  }
+
+  @Test
+  public void callsOutsideRequestsShouldBeLeftAlone() {
+
+    ScanRequest scan = (ScanRequest) tracing.beforeMarshalling(new ScanRequest());
+    DefaultRequest<ScanRequest> request = new DefaultRequest<>(scan, "AmazonDynamoDBv2");
+    request.setAWSRequestMetrics(new AWSRequestMetricsFullSupport());
+    tracing.afterError(request, null, new RuntimeException());
+
+    assertThat(scan.getReturnConsumedCapacity(), is(nullValue()));
+  }
+}
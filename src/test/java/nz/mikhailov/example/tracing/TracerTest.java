@@ -0,0 +1,109 @@
+package nz.mikhailov.example.tracing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.both;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class TracerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void spansShouldNestAndReportTheirSelfTime() throws Exception {
+
+    Tracer tracer = new Tracer(0, 10, "");
+    String id = tracer.begin("GET", "/v1/customer/Jane");
+    Span controller = tracer.start("CustomerController.read");
+    Span service = tracer.start("CustomerService.read");
+    TimeUnit.MILLISECONDS.sleep(5);
+    long now = System.nanoTime();
+    Span call = tracer.record(null, "DynamoDB.GetItem", now - TimeUnit.MILLISECONDS.toNanos(3), now);
+    tracer.record(call, "http", now - TimeUnit.MILLISECONDS.toNanos(2), now);
+    tracer.finish(service);
+    tracer.finish(controller);
+    tracer.end("/v1/customer/{name}", 200);
+
+    Trace trace = tracer.getSlowTrace(id).get();
+    assertThat(trace.getEndpoint(), is("/v1/customer/{name}"));
+    assertThat(trace.getSpans().stream().map(Span::getName).collect(toList()),
+        contains("CustomerController.read", "CustomerService.read", "DynamoDB.GetItem", "http"));
+    assertThat(trace.getSpans().stream().map(Span::getDepth).collect(toList()), contains(0, 1, 2, 3));
+    assertThat(call.getDurationMicros(), is(3000L));
+    assertThat(call.getSelfMicros(), is(1000L));
+    assertThat(service.getDurationMicros() - service.getSelfMicros(),
+        both(greaterThanOrEqualTo(2999L)).and(lessThanOrEqualTo(3001L)));
+    assertThat(controller.getDurationMicros(), greaterThanOrEqualTo(service.getDurationMicros()));
+  }
+
+  @Test
+  public void spansLeftOpenShouldBeFinishedWithTheirOuterSpanOrTrace() throws IOException {
+
+    Tracer tracer = new Tracer(0, 10, "");
+    String id = tracer.begin("POST", "/v1/customer");
+    Span controller = tracer.start("CustomerController.create");
+    Span service = tracer.start("CustomerService.create");
+    tracer.start("CustomerRepository.save");
+    tracer.finish(service);
+    tracer.start(TracingResponseBodyAdvice.WRITE_BODY);
+    tracer.end("/v1/customer", 201);
+
+    List<Span> spans = tracer.getSlowTrace(id).get().getSpans();
+    assertThat(spans, hasSize(4));
+    assertThat(spans.get(2).getDurationMicros(), greaterThanOrEqualTo(0L));
+    assertThat(spans.get(3).getDepth(), is(1));
+    assertThat(controller.getDurationMicros(), greaterThanOrEqualTo(0L));
+  }
+
+  @Test
+  public void onlySlowTracesShouldBeKeptAndExported() throws Exception {
+
+    Path file = folder.getRoot().toPath().resolve("traces/slow.jsonl");
+    Tracer tracer = new Tracer(0, 2, file.toString());
+    for (int i = 0; i < 3; i++) {
+      tracer.begin("GET", "/v1/customer/" + i);
+      tracer.end("/v1/customer/{name}", 200);
+    }
+    tracer.close();
+    Tracer fastTracer = new Tracer(60000, 2, "");
+    fastTracer.begin("GET", "/v1/customer");
+    fastTracer.end("/v1/customer", 200);
+
+    assertThat(tracer.getSlowTraces().stream().map(Trace::getUri).collect(toList()),
+        contains("/v1/customer/2", "/v1/customer/1"));
+    List<String> lines = Files.readAllLines(file);
+    assertThat(lines, hasSize(3));
+    assertThat(lines.get(0), startsWith("{\"id\":\""));
+    assertThat(fastTracer.getSlowTraces(), is(empty()));
+  }
+
+  @Test
+  public void nothingShouldBeTracedOutsideRequests() throws IOException {
+
+    Tracer tracer = new Tracer(0, 10, "");
+
+    assertThat(tracer.isTracing(), is(false));
+    assertThat(tracer.start("CustomerRepository.scan"), is(nullValue()));
+    assertThat(tracer.currentTraceId(), is(nullValue()));
+    tracer.end(null, 200);
+    assertThat(tracer.getSlowTraces(), is(empty()));
+  }
+}
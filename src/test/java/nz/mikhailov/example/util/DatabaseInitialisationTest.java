@@ -1,5 +1,6 @@
 package nz.mikhailov.example.util;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
@@ -9,19 +10,25 @@ import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.TableStatus;
 import nz.mikhailov.example.customer.Customer;
+import nz.mikhailov.example.startup.StartupTasks;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static com.amazonaws.services.dynamodbv2.model.TableStatus.ACTIVE;
 import static com.amazonaws.services.dynamodbv2.model.TableStatus.CREATING;
 import static com.amazonaws.services.dynamodbv2.model.TableStatus.DELETING;
 import static com.amazonaws.services.dynamodbv2.model.TableStatus.UPDATING;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,7 +40,10 @@ public class DatabaseInitialisationTest {
 
   @Mock
   private AmazonDynamoDB dynamoDB;
-  
+
+  @Spy
+  private StartupTasks startupTasks = new StartupTasks();
+
   @InjectMocks
   private DatabaseInitialisation databaseInitialisation;
 
@@ -92,6 +102,79 @@ public class DatabaseInitialisationTest {
     verify(dynamoDB).createTable(createTableRequest);
   }
 
+  @Test
+  public void tableShouldNotBeActiveBeforeVerification() throws Exception {
+
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(false));
+    verify(dynamoDB, never()).describeTable(tableName);
+  }
+
+  @Test
+  public void tableShouldBecomeActiveAfterCreation() throws Exception {
+
+    when(dynamoDB.describeTable(tableName))
+        .thenThrow(new ResourceNotFoundException("Simulated failure"))
+        .thenReturn(new DescribeTableResult().withTable(tableDescriptionWithStatus(CREATING)))
+        .thenReturn(new DescribeTableResult().withTable(tableDescriptionWithStatus(ACTIVE)));
+    databaseInitialisation.onApplicationEvent(null);
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(false));
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(true));
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(true));
+    verify(dynamoDB, times(3)).describeTable(tableName);
+  }
+
+  @Test
+  public void tableShouldBecomeActiveWhenDynamoDbRecoversAfterFailedVerification() throws Exception {
+
+    when(dynamoDB.describeTable(tableName))
+        .thenThrow(new AmazonClientException("Connection refused"))
+        .thenThrow(new AmazonClientException("Connection refused"))
+        .thenReturn(new DescribeTableResult().withTable(tableDescriptionWithStatus(ACTIVE)));
+    try {
+      databaseInitialisation.onApplicationEvent(null);
+      fail("Expected the verification to fail");
+    } catch (AmazonClientException expected) {
+      // DynamoDB is not reachable yet
+    }
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(false));
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(true));
+  }
+
+  @Test
+  public void tableShouldBeCreatedWhenDynamoDbRecoversAfterFailedVerification() throws Exception {
+
+    when(dynamoDB.describeTable(tableName))
+        .thenThrow(new AmazonClientException("Connection refused"))
+        .thenThrow(new ResourceNotFoundException("Simulated failure"));
+    try {
+      databaseInitialisation.onApplicationEvent(null);
+      fail("Expected the verification to fail");
+    } catch (AmazonClientException expected) {
+      // DynamoDB is not reachable yet
+    }
+    databaseInitialisation.checkTable();
+    assertThat(databaseInitialisation.isTableActive(), is(false));
+    verify(dynamoDB).createTable(createTableRequest);
+  }
+
+  @Test
+  public void healthCheckShouldNotCallDynamoDb() throws Exception {
+
+    when(dynamoDB.describeTable(tableName))
+        .thenReturn(new DescribeTableResult().withTable(tableDescriptionWithStatus(CREATING)));
+    databaseInitialisation.onApplicationEvent(null);
+    for (int i = 0; i < 3; i++) {
+      assertThat(databaseInitialisation.isTableActive(), is(false));
+    }
+    verify(dynamoDB).describeTable(tableName);
+  }
+
   private TableDescription tableDescriptionWithStatus(TableStatus status) {
 
     return new TableDescription().withTableStatus(status).withTableName(tableName);
@@ -0,0 +1,60 @@
+package nz.mikhailov.example.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TokenBucketTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private final TokenBucket bucket = new TokenBucket(10, 20, now::get);
+
+  @Test
+  public void bucketShouldStartFull() throws Exception {
+
+    assertThat(bucket.available(), is(20.0));
+  }
+
+  @Test
+  public void tryAcquireShouldTakeUnitsOnlyWhenAvailable() throws Exception {
+
+    assertThat(bucket.tryAcquire(15), is(true));
+    assertThat(bucket.tryAcquire(10), is(false));
+    assertThat(bucket.available(), is(5.0));
+  }
+
+  @Test
+  public void bucketShouldRefillAtRateUpToCapacity() throws Exception {
+
+    bucket.consume(20);
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat(bucket.available(), is(5.0));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertThat(bucket.available(), is(20.0));
+  }
+
+  @Test
+  public void consumeShouldGoIntoDebt() throws Exception {
+
+    bucket.consume(30);
+
+    assertThat(bucket.available(), is(-10.0));
+    assertThat(bucket.tryAcquire(0), is(false));
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertThat(bucket.tryAcquire(0), is(true));
+  }
+
+  @Test
+  public void acquireShouldNotWaitWhenUnitsAreAvailable() throws Exception {
+
+    bucket.acquire(20);
+
+    assertThat(bucket.available(), is(0.0));
+  }
+}
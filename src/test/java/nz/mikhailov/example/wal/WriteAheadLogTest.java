@@ -0,0 +1,187 @@
+package nz.mikhailov.example.wal;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class WriteAheadLogTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private WriteAheadLog writeAheadLog;
+
+  @After
+  public void tearDown() throws Exception {
+
+    writeAheadLog.close();
+  }
+
+  @Test
+  public void entriesShouldBeReadInOrderAcrossSegments() throws Exception {
+
+    writeAheadLog = open(100);
+    for (int i = 1; i <= 10; i++) {
+      assertThat(writeAheadLog.append(bytes("entry " + i)), is((long) i));
+    }
+
+    List<String> read = payloads(writeAheadLog.read(4, 0, TimeUnit.MILLISECONDS));
+    read.addAll(payloads(writeAheadLog.read(100, 0, TimeUnit.MILLISECONDS)));
+
+    assertThat(read.size(), is(10));
+    for (int i = 1; i <= 10; i++) {
+      assertThat(read.get(i - 1), is("entry " + i));
+    }
+    assertThat(writeAheadLog.getStats().getSegments(), is(greaterThan(1)));
+    assertThat(writeAheadLog.getStats().getPendingEntries(), is(10L));
+    assertThat(writeAheadLog.isDrained(), is(false));
+  }
+
+  @Test
+  public void acknowledgedEntriesShouldNotBeReadAgainAfterRestart() throws Exception {
+
+    writeAheadLog = open(100);
+    for (int i = 1; i <= 10; i++) {
+      writeAheadLog.append(bytes("entry " + i));
+    }
+    List<WriteAheadLog.Entry> entries = writeAheadLog.read(6, 0, TimeUnit.MILLISECONDS);
+    writeAheadLog.acknowledge(entries.get(5).getSequence());
+    int segments = writeAheadLog.getStats().getSegments();
+    writeAheadLog.close();
+
+    writeAheadLog = open(100);
+    List<String> read = payloads(writeAheadLog.read(100, 0, TimeUnit.MILLISECONDS));
+
+    assertThat(read.get(0), is("entry 7"));
+    assertThat(read.size(), is(4));
+    assertThat(writeAheadLog.getStats().getSegments(), is(lessThan(segments)));
+    assertThat(writeAheadLog.append(bytes("entry 11")), is(11L));
+  }
+
+  @Test
+  public void fullyAcknowledgedLogShouldBeDrained() throws Exception {
+
+    writeAheadLog = open(100);
+    for (int i = 1; i <= 10; i++) {
+      writeAheadLog.append(bytes("entry " + i));
+    }
+    writeAheadLog.acknowledge(writeAheadLog.read(100, 0, TimeUnit.MILLISECONDS).get(9).getSequence());
+
+    WriteAheadLogStats stats = writeAheadLog.getStats();
+    assertThat(writeAheadLog.isDrained(), is(true));
+    assertThat(stats.getPendingEntries(), is(0L));
+    assertThat(stats.getReplayLagMillis(), is(0L));
+    assertThat(stats.getReplayed(), is(10L));
+    assertThat(stats.getSegments(), is(1));
+    assertThat(stats.getReplayError(), is(nullValue()));
+  }
+
+  @Test
+  public void replayLagShouldFollowTheNextEntryInTheFollowingSegment() throws Exception {
+
+    writeAheadLog = open(70);
+    writeAheadLog.append(bytes("entry 1"));
+    writeAheadLog.append(bytes("entry 2"));
+    Thread.sleep(200);
+    writeAheadLog.append(bytes("entry 3"));
+    writeAheadLog.append(bytes("entry 4"));
+
+    writeAheadLog.acknowledge(writeAheadLog.read(2, 0, TimeUnit.MILLISECONDS).get(1).getSequence());
+
+    assertThat(writeAheadLog.getStats().getPendingEntries(), is(2L));
+    assertThat(writeAheadLog.getStats().getReplayLagMillis(), is(lessThan(200L)));
+  }
+
+  @Test
+  public void replayLagShouldFollowTheOldestEntryReadAndNotAcknowledged() throws Exception {
+
+    writeAheadLog = open(1024);
+    writeAheadLog.append(bytes("entry 1"));
+    Thread.sleep(200);
+    writeAheadLog.append(bytes("entry 2"));
+    writeAheadLog.append(bytes("entry 3"));
+
+    writeAheadLog.acknowledge(writeAheadLog.read(3, 0, TimeUnit.MILLISECONDS).get(0).getSequence());
+
+    assertThat(writeAheadLog.getStats().getReplayLagMillis(), is(lessThan(200L)));
+  }
+
+  @Test
+  public void tornEntryShouldBeCutOffAfterCrash() throws Exception {
+
+    writeAheadLog = open(1024);
+    writeAheadLog.append(bytes("entry 1"));
+    writeAheadLog.append(bytes("entry 2"));
+    writeAheadLog.close();
+    File segment = folder.getRoot().listFiles((dir, name) -> name.endsWith(".wal"))[0];
+    Files.write(segment.toPath(), new byte[]{0, 0, 0, 7, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    writeAheadLog = open(1024);
+
+    assertThat(writeAheadLog.getStats().getPendingEntries(), is(2L));
+    assertThat(writeAheadLog.append(bytes("entry 3")), is(3L));
+    List<String> read = payloads(writeAheadLog.read(100, 0, TimeUnit.MILLISECONDS));
+    assertThat(read.size(), is(3));
+    assertThat(read.get(2), is("entry 3"));
+  }
+
+  @Test
+  public void concurrentAppendsShouldAllBeDurableAndNumberedInOrder() throws Exception {
+
+    writeAheadLog = open(4096);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 400; i++) {
+      executor.submit(() -> writeAheadLog.append(bytes("entry")));
+    }
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+
+    List<WriteAheadLog.Entry> entries = writeAheadLog.read(1000, 0, TimeUnit.MILLISECONDS);
+    assertThat(entries.size(), is(400));
+    for (int i = 0; i < entries.size(); i++) {
+      assertThat(entries.get(i).getSequence(), is(i + 1L));
+    }
+    assertThat(writeAheadLog.getStats().getSyncs(), is(lessThanOrEqualTo(400L)));
+  }
+
+  private WriteAheadLog open(long segmentBytes) throws Exception {
+
+    WriteAheadLog log = new WriteAheadLog();
+    ReflectionTestUtils.setField(log, "enabled", true);
+    ReflectionTestUtils.setField(log, "directory", folder.getRoot().getPath());
+    ReflectionTestUtils.setField(log, "segmentBytes", segmentBytes);
+    log.open();
+    return log;
+  }
+
+  private static byte[] bytes(String payload) {
+
+    return payload.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> payloads(List<WriteAheadLog.Entry> entries) {
+
+    List<String> payloads = new ArrayList<>();
+    entries.forEach(entry -> payloads.add(new String(entry.getPayload(), StandardCharsets.UTF_8)));
+    return payloads;
+  }
+}